@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.benchmark;
+
+import org.jd.core.v1.loader.ZipLoader;
+import org.jd.core.v1.util.DefaultList;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.*;
+import java.net.URL;
+import java.nio.file.*;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Class files used by the benchmarks:
+ * <ul>
+ *     <li>'jdk-1.8.0': the test archive 'data-java-jdk-1.8.0.zip'</li>
+ *     <li>'commons-collections4': the jar 'commons-collections4-4.1.jar'</li>
+ *     <li>'test-sources': the sources of 'src/test/resources/java', compiled by the current JDK</li>
+ * </ul>
+ * Corpora are loaded once and kept in memory.<br>
+ */
+public class Corpus {
+    public static final String JDK_1_8_0 = "jdk-1.8.0";
+    public static final String COMMONS_COLLECTIONS4 = "commons-collections4";
+    public static final String TEST_SOURCES = "test-sources";
+
+    protected static final HashMap<String, Corpus> CORPORA = new HashMap<>();
+
+    protected ZipLoader loader;
+    protected List<String> internalTypeNames;
+    protected long byteCount;
+
+    protected Corpus(ZipLoader loader) {
+        DefaultList<String> names = new DefaultList<>();
+
+        for (String path : loader.getMap().keySet()) {
+            if (path.endsWith(".class") && (path.indexOf('$') == -1)) {
+                names.add(path.substring(0, path.length() - 6)); // 6 = ".class".length()
+                byteCount += loader.getMap().get(path).length;
+            }
+        }
+
+        Collections.sort(names);
+
+        this.loader = loader;
+        this.internalTypeNames = Collections.unmodifiableList(names);
+    }
+
+    public static synchronized Corpus get(String name) throws Exception {
+        Corpus corpus = CORPORA.get(name);
+
+        if (corpus == null) {
+            switch (name) {
+                case JDK_1_8_0:
+                    try (InputStream is = Corpus.class.getResourceAsStream("/zip/data-java-jdk-1.8.0.zip")) {
+                        corpus = new Corpus(new ZipLoader(is));
+                    }
+                    break;
+                case COMMONS_COLLECTIONS4:
+                    URL location = org.apache.commons.collections4.CollectionUtils.class.getProtectionDomain().getCodeSource().getLocation();
+                    try (InputStream is = new FileInputStream(Paths.get(location.toURI()).toFile())) {
+                        corpus = new Corpus(new ZipLoader(is));
+                    }
+                    break;
+                case TEST_SOURCES:
+                    corpus = new Corpus(new ZipLoader(new ByteArrayInputStream(compileTestSources())));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown corpus: " + name);
+            }
+
+            CORPORA.put(name, corpus);
+        }
+
+        return corpus;
+    }
+
+    public ZipLoader getLoader() {
+        return loader;
+    }
+
+    /**
+     * @return internal names of the top level types, sorted
+     */
+    public List<String> getInternalTypeNames() {
+        return internalTypeNames;
+    }
+
+    /**
+     * @return size of the class files of the top level types
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Compile each source file separately, ignore the files not supported by the current JDK, and zip the class files.
+     */
+    protected static byte[] compileTestSources() throws Exception {
+        Path sourceDirectory = Paths.get(Corpus.class.getResource("/java").toURI());
+        Path destinationDirectory = Files.createTempDirectory("jd-core-benchmark");
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        OutputStream nullOutputStream = new ByteArrayOutputStream();
+        List<Path> sources;
+
+        try (Stream<Path> stream = Files.walk(sourceDirectory)) {
+            sources = stream.filter(p -> p.toString().endsWith(".java")).sorted().collect(Collectors.toList());
+        }
+
+        for (Path source : sources) {
+            compiler.run(null, nullOutputStream, nullOutputStream,
+                "-g", "-nowarn", "-d", destinationDirectory.toString(), "-sourcepath", sourceDirectory.toString(), source.toString());
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        try (ZipOutputStream zos = new ZipOutputStream(baos); Stream<Path> stream = Files.walk(destinationDirectory)) {
+            for (Path path : stream.filter(p -> p.toString().endsWith(".class")).sorted().collect(Collectors.toList())) {
+                zos.putNextEntry(new ZipEntry(destinationDirectory.relativize(path).toString().replace(File.separatorChar, '/')));
+                zos.write(Files.readAllBytes(path));
+                zos.closeEntry();
+            }
+        }
+
+        try (Stream<Path> stream = Files.walk(destinationDirectory)) {
+            stream.sorted(Collections.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.benchmark;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.model.cfg.BasicBlock;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.model.cfg.ControlFlowGraph;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.DominatorTree;
+import org.jd.core.v1.util.DefaultList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.jd.core.v1.service.converter.classfiletojavasyntax.model.cfg.BasicBlock.*;
+
+/**
+ * Scaling of the dominator computation with the number of basic blocks.<br><br>
+ *
+ * The synthetic graphs are chains of diamonds, with a back edge every 16 blocks, as in a generated parser. 'bitSets'
+ * solves the iterative data flow equations with one set per block, as the loop reducer did before
+ * {@link DominatorTree}.<br>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DominatorTreeBenchmark {
+    @State(Scope.Thread)
+    public static class GraphState {
+        @Param({"250", "1000", "4000", "16000"})
+        public int blocks;
+
+        public ControlFlowGraph cfg;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            cfg = new ControlFlowGraph(null);
+
+            DefaultList<BasicBlock> list = cfg.getBasicBlocks();
+
+            cfg.newBasicBlock(TYPE_START, 0, 1);
+
+            for (int i=1; i<blocks; i++) {
+                cfg.newBasicBlock(((i % 3) == 1) ? TYPE_CONDITIONAL_BRANCH : TYPE_STATEMENTS, i, i + 1);
+            }
+
+            BasicBlock end = cfg.newBasicBlock(TYPE_RETURN, blocks, blocks + 1);
+
+            list.get(0).setNext(list.get(1));
+            list.get(1).getPredecessors().add(list.get(0));
+
+            for (int i=1; i<blocks; i++) {
+                BasicBlock bb = list.get(i);
+
+                if (bb.getType() == TYPE_CONDITIONAL_BRANCH) {
+                    // Diamond: 'i' -> 'i+1', 'i+2' -> 'i+3'
+                    link(bb, (i + 1 < blocks) ? list.get(i + 1) : end, false);
+                    link(bb, (i + 2 < blocks) ? list.get(i + 2) : end, true);
+                } else if (((i % 3) == 2) && (i + 2 < blocks)) {
+                    link(bb, list.get(i + 2), false);
+                } else if (((i % 16) == 0) && (i > 16)) {
+                    // Back edge
+                    link(bb, list.get(i - 15), false);
+                } else {
+                    link(bb, (i + 1 < blocks) ? list.get(i + 1) : end, false);
+                }
+            }
+        }
+
+        protected static void link(BasicBlock from, BasicBlock to, boolean branch) {
+            if (branch) {
+                from.setBranch(to);
+            } else {
+                from.setNext(to);
+            }
+
+            to.getPredecessors().add(from);
+        }
+    }
+
+    @Benchmark
+    public DominatorTree dominatorTree(GraphState state) {
+        return new DominatorTree(state.cfg);
+    }
+
+    @Benchmark
+    public BitSet[] bitSets(GraphState state) {
+        DefaultList<BasicBlock> list = state.cfg.getBasicBlocks();
+        int length = list.size();
+        BitSet[] arrayOfDominatorIndexes = new BitSet[length];
+
+        for (int i=0; i<length; i++) {
+            arrayOfDominatorIndexes[i] = new BitSet(length);
+            arrayOfDominatorIndexes[i].set(0, (i == 0) ? 1 : length);
+        }
+
+        boolean change;
+
+        do {
+            change = false;
+
+            for (BasicBlock basicBlock : list) {
+                int index = basicBlock.getIndex();
+                BitSet dominatorIndexes = arrayOfDominatorIndexes[index];
+                BitSet initial = (BitSet)dominatorIndexes.clone();
+
+                for (BasicBlock predecessor : basicBlock.getPredecessors()) {
+                    dominatorIndexes.and(arrayOfDominatorIndexes[predecessor.getIndex()]);
+                }
+
+                dominatorIndexes.set(index);
+                change |= !initial.equals(dominatorIndexes);
+            }
+        } while (change);
+
+        return arrayOfDominatorIndexes;
+    }
+}
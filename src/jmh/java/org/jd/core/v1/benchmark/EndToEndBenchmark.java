@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.benchmark;
+
+import org.jd.core.v1.ClassFileToJavaSourceBatchDecompiler;
+import org.jd.core.v1.ClassFileToJavaSourceDecompiler;
+import org.jd.core.v1.DecompilationCache;
+import org.jd.core.v1.api.loader.Loader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end benchmarks: decompile all the top level types of a corpus.<br><br>
+ *
+ * The auxiliary counters 'classes' and 'bytes' give the throughput in classes and class file bytes per second. Run
+ * with '-prof gc' to get the allocated bytes per operation ('gc.alloc.rate.norm').<br>
+ * <ul>
+ *     <li>'singleThread': one thread</li>
+ *     <li>'sharedDecompiler': one thread per core, each decompiling the corpus with a shared decompiler</li>
+ *     <li>'batchDecompiler': the batch decompiler, with one worker per core</li>
+ *     <li>'outline': one thread, in outline mode</li>
+ *     <li>'cached': one thread, with a {@link DecompilationCache} filled by the first operation</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EndToEndBenchmark {
+    protected static final Map<String, Object> CONFIGURATION = Collections.singletonMap("realignLineNumbers", Boolean.TRUE);
+    protected static final Map<String, Object> OUTLINE_CONFIGURATION = Collections.singletonMap("outline", Boolean.TRUE);
+
+    @State(Scope.Benchmark)
+    public static class CorpusState {
+        @Param({Corpus.JDK_1_8_0, Corpus.COMMONS_COLLECTIONS4, Corpus.TEST_SOURCES})
+        public String corpus;
+
+        public Loader loader;
+        public List<String> internalTypeNames;
+        public long byteCount;
+
+        public ClassFileToJavaSourceDecompiler decompiler = new ClassFileToJavaSourceDecompiler();
+        public ClassFileToJavaSourceBatchDecompiler batchDecompiler = new ClassFileToJavaSourceBatchDecompiler();
+        public Map<String, Object> cachedConfiguration;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            Corpus c = Corpus.get(corpus);
+            loader = c.getLoader();
+            internalTypeNames = c.getInternalTypeNames();
+            byteCount = c.getByteCount();
+
+            HashMap<String, Object> configuration = new HashMap<>(CONFIGURATION);
+            configuration.put("decompilationCache", new DecompilationCache(1024L * 1024 * 1024));
+            cachedConfiguration = configuration;
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long classes;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            classes = 0;
+            bytes = 0;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void singleThread(CorpusState state, Counters counters, Blackhole blackhole) throws Exception {
+        decompile(state, counters, blackhole, CONFIGURATION);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void sharedDecompiler(CorpusState state, Counters counters, Blackhole blackhole) throws Exception {
+        decompile(state, counters, blackhole, CONFIGURATION);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void outline(CorpusState state, Counters counters, Blackhole blackhole) throws Exception {
+        decompile(state, counters, blackhole, OUTLINE_CONFIGURATION);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void cached(CorpusState state, Counters counters, Blackhole blackhole) throws Exception {
+        decompile(state, counters, blackhole, state.cachedConfiguration);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void batchDecompiler(CorpusState state, Counters counters, Blackhole blackhole) throws Exception {
+        blackhole.consume(state.batchDecompiler.decompile(state.loader, internalName -> new NopPrinter(), state.internalTypeNames, CONFIGURATION));
+        counters.classes += state.internalTypeNames.size();
+        counters.bytes += state.byteCount;
+    }
+
+    protected static void decompile(CorpusState state, Counters counters, Blackhole blackhole, Map<String, Object> configuration) {
+        NopPrinter printer = new NopPrinter();
+
+        for (String internalTypeName : state.internalTypeNames) {
+            try {
+                state.decompiler.decompile(state.loader, printer, internalTypeName, configuration);
+                blackhole.consume(printer.getLength());
+            } catch (Exception e) {
+                blackhole.consume(e);
+            }
+        }
+
+        counters.classes += state.internalTypeNames.size();
+        counters.bytes += state.byteCount;
+    }
+}
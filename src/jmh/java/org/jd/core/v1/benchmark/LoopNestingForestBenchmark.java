@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.benchmark;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.model.cfg.BasicBlock;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.model.cfg.ControlFlowGraph;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.DominatorTree;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.LoopNestingForest;
+import org.jd.core.v1.util.DefaultList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.jd.core.v1.service.converter.classfiletojavasyntax.model.cfg.BasicBlock.*;
+
+/**
+ * Scaling of the natural loop search with the nesting depth.<br><br>
+ *
+ * The synthetic graphs are chains of blocks where the second half jumps back to the first half: each loop contains
+ * the next one, as nested 'do-while' statements. 'backwardSearches' searches the members of each back edge in a set,
+ * as the loop reducer did before {@link LoopNestingForest}.<br>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoopNestingForestBenchmark {
+    @State(Scope.Thread)
+    public static class GraphState {
+        @Param({"250", "1000", "4000"})
+        public int blocks;
+
+        public ControlFlowGraph cfg;
+        public DominatorTree dominatorTree;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            cfg = new ControlFlowGraph(null);
+
+            DefaultList<BasicBlock> list = cfg.getBasicBlocks();
+            int half = blocks / 2;
+
+            cfg.newBasicBlock(TYPE_START, 0, 1);
+
+            for (int i=1; i<blocks; i++) {
+                cfg.newBasicBlock((i > half) ? TYPE_CONDITIONAL_BRANCH : TYPE_STATEMENTS, i, i + 1);
+            }
+
+            BasicBlock end = cfg.newBasicBlock(TYPE_RETURN, blocks, blocks + 1);
+
+            for (int i=0; i<blocks; i++) {
+                BasicBlock bb = list.get(i);
+
+                link(bb, (i + 1 < blocks) ? list.get(i + 1) : end, false);
+
+                if (i > half) {
+                    // Back edge
+                    link(bb, list.get(blocks - i), true);
+                }
+            }
+
+            dominatorTree = new DominatorTree(cfg);
+        }
+
+        protected static void link(BasicBlock from, BasicBlock to, boolean branch) {
+            if (branch) {
+                from.setBranch(to);
+            } else {
+                from.setNext(to);
+            }
+
+            to.getPredecessors().add(from);
+        }
+    }
+
+    @Benchmark
+    public LoopNestingForest loopNestingForest(GraphState state) {
+        return new LoopNestingForest(state.cfg, state.dominatorTree);
+    }
+
+    @Benchmark
+    public BitSet[] backwardSearches(GraphState state) {
+        DefaultList<BasicBlock> list = state.cfg.getBasicBlocks();
+        int length = list.size();
+        BitSet[] arrayOfMemberIndexes = new BitSet[length];
+
+        for (int i=0; i<length; i++) {
+            BasicBlock current = list.get(i);
+
+            if (current.getType() == TYPE_CONDITIONAL_BRANCH) {
+                BasicBlock header = current.getBranch();
+                BitSet visited = new BitSet(length);
+                DefaultList<BasicBlock> stack = new DefaultList<>();
+
+                stack.add(current);
+
+                while (!stack.isEmpty()) {
+                    BasicBlock bb = stack.removeLast();
+
+                    if (!visited.get(bb.getIndex())) {
+                        visited.set(bb.getIndex());
+
+                        if (bb != header) {
+                            stack.addAll(bb.getPredecessors());
+                        }
+                    }
+                }
+
+                arrayOfMemberIndexes[header.getIndex()] = visited;
+            }
+        }
+
+        return arrayOfMemberIndexes;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.benchmark;
+
+import org.jd.core.v1.api.printer.Printer;
+
+/**
+ * Printer counting the printed characters: the writer is measured without the cost of a string builder.
+ */
+public class NopPrinter implements Printer {
+    protected long length;
+
+    public long getLength() { return length; }
+
+    @Override public void start(int maxLineNumber, int majorVersion, int minorVersion) { length = 0; }
+    @Override public void end() {}
+
+    @Override public void printText(String text) { length += text.length(); }
+    @Override public void printNumericConstant(String constant) { length += constant.length(); }
+    @Override public void printStringConstant(String constant, String ownerInternalName) { length += constant.length(); }
+    @Override public void printKeyword(String keyword) { length += keyword.length(); }
+
+    @Override public void printDeclaration(int type, String internalTypeName, String name, String descriptor) { length += name.length(); }
+    @Override public void printReference(int type, String internalTypeName, String name, String descriptor, String ownerInternalName) { length += name.length(); }
+
+    @Override public void indent() {}
+    @Override public void unindent() {}
+
+    @Override public void startLine(int lineNumber) {}
+    @Override public void endLine() { length++; }
+    @Override public void extraLine(int count) { length += count; }
+
+    @Override public void startMarker(int type) {}
+    @Override public void endMarker(int type) {}
+}
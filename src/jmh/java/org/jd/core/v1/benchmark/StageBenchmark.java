@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.benchmark;
+
+import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.model.classfile.ClassFile;
+import org.jd.core.v1.model.classfile.Method;
+import org.jd.core.v1.model.javasyntax.CompilationUnit;
+import org.jd.core.v1.model.javasyntax.declaration.BodyDeclaration;
+import org.jd.core.v1.model.message.Message;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.ClassFileToJavaSyntaxProcessor;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.model.cfg.ControlFlowGraph;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.model.javasyntax.declaration.*;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.processor.ConvertClassFileProcessor;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.*;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.visitor.CreateInstructionsVisitor;
+import org.jd.core.v1.service.deserializer.classfile.ClassFileDeserializer;
+import org.jd.core.v1.service.deserializer.classfile.DeserializeClassFileProcessor;
+import org.jd.core.v1.service.fragmenter.javasyntaxtojavafragment.JavaSyntaxToJavaFragmentProcessor;
+import org.jd.core.v1.service.layouter.LayoutFragmentProcessor;
+import org.jd.core.v1.service.tokenizer.javafragmenttotoken.JavaFragmentToTokenProcessor;
+import org.jd.core.v1.service.writer.WriteTokenProcessor;
+import org.jd.core.v1.util.DefaultList;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of each stage of the decompiler. One operation processes the whole corpus.<br><br>
+ *
+ * The input of each stage is prepared before each invocation, with the previous stages: the reducers and the
+ * processors modify their input. States are per thread: run with '-t N' to measure N threads.<br>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StageBenchmark {
+    protected static final Map<String, Object> CONFIGURATION = Collections.singletonMap("realignLineNumbers", Boolean.TRUE);
+
+    @State(Scope.Benchmark)
+    public static class CorpusState {
+        @Param({Corpus.JDK_1_8_0, Corpus.COMMONS_COLLECTIONS4, Corpus.TEST_SOURCES})
+        public String corpus;
+
+        public Loader loader;
+        public List<String> internalTypeNames;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            Corpus c = Corpus.get(corpus);
+            loader = c.getLoader();
+            internalTypeNames = c.getInternalTypeNames();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class MethodsState {
+        public DefaultList<Method> methods = new DefaultList<>();
+
+        @Setup(Level.Trial)
+        public void setup(CorpusState corpusState) throws Exception {
+            ClassFileDeserializer deserializer = new ClassFileDeserializer();
+
+            for (String internalTypeName : corpusState.internalTypeNames) {
+                addMethods(deserializer.loadClassFile(corpusState.loader, internalTypeName));
+            }
+        }
+
+        protected void addMethods(ClassFile classFile) {
+            if (classFile.getMethods() != null) {
+                for (Method method : classFile.getMethods()) {
+                    if (method.getAttribute("Code") != null) {
+                        methods.add(method);
+                    }
+                }
+            }
+
+            if (classFile.getInnerClassFiles() != null) {
+                for (ClassFile innerClassFile : classFile.getInnerClassFiles()) {
+                    addMethods(innerClassFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Control flow graphs reduced up to the given step.
+     */
+    public abstract static class ControlFlowGraphsState {
+        public DefaultList<ControlFlowGraph> cfgs = new DefaultList<>();
+
+        protected void setup(MethodsState methodsState, int step) {
+            cfgs.clear();
+
+            for (Method method : methodsState.methods) {
+                try {
+                    ControlFlowGraph cfg = ControlFlowGraphMaker.make(method);
+
+                    if (cfg != null) {
+                        if (step > 0) {
+                            ControlFlowGraphGotoReducer.reduce(cfg);
+                        }
+                        if (step > 1) {
+                            ControlFlowGraphLoopReducer.reduce(cfg);
+                        }
+                        cfgs.add(cfg);
+                    }
+                } catch (Exception ignore) {
+                    // Method written as byte code by the decompiler
+                }
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class GotoReducerState extends ControlFlowGraphsState {
+        @Setup(Level.Invocation)
+        public void setup(MethodsState methodsState) {
+            setup(methodsState, 0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class LoopReducerState extends ControlFlowGraphsState {
+        @Setup(Level.Invocation)
+        public void setup(MethodsState methodsState) {
+            setup(methodsState, 1);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ReducerState extends ControlFlowGraphsState {
+        @Setup(Level.Invocation)
+        public void setup(MethodsState methodsState) {
+            setup(methodsState, 2);
+        }
+    }
+
+    /**
+     * Converted methods, in the order used by {@link CreateInstructionsVisitor}, with their reduced control flow graph.
+     */
+    @State(Scope.Thread)
+    public static class StatementMakerState {
+        public DefaultList<ClassFileConstructorOrMethodDeclaration> declarations = new DefaultList<>();
+        public DefaultList<ControlFlowGraph> cfgs = new DefaultList<>();
+        public DefaultList<TypeMaker> typeMakers = new DefaultList<>();
+
+        @Setup(Level.Invocation)
+        public void setup(CorpusState corpusState) throws Exception {
+            DeserializeClassFileProcessor deserializer = new DeserializeClassFileProcessor();
+            ConvertClassFileProcessor converter = new ConvertClassFileProcessor();
+
+            declarations.clear();
+            cfgs.clear();
+            typeMakers.clear();
+
+            for (String internalTypeName : corpusState.internalTypeNames) {
+                TypeMaker typeMaker = new TypeMaker(corpusState.loader);
+                Message message = newMessage(corpusState.loader, internalTypeName);
+
+                message.setHeader("typeMaker", typeMaker);
+                deserializer.process(message);
+                converter.process(message);
+
+                CompilationUnit compilationUnit = message.getBody();
+                MethodCollector collector = new MethodCollector(typeMaker);
+
+                compilationUnit.getTypeDeclarations().accept(collector);
+
+                for (ClassFileConstructorOrMethodDeclaration declaration : collector.declarations) {
+                    try {
+                        ControlFlowGraph cfg = ControlFlowGraphMaker.make(declaration.getMethod());
+
+                        if (cfg != null) {
+                            ControlFlowGraphGotoReducer.reduce(cfg);
+                            ControlFlowGraphLoopReducer.reduce(cfg);
+
+                            if (ControlFlowGraphReducer.reduce(cfg)) {
+                                declarations.add(declaration);
+                                cfgs.add(cfg);
+                                typeMakers.add(typeMaker);
+                            }
+                        }
+                    } catch (Exception ignore) {
+                        // Method written as byte code by the decompiler
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Collect the methods in the order used by the decompiler, without creating their statements.
+     */
+    protected static class MethodCollector extends CreateInstructionsVisitor {
+        protected DefaultList<ClassFileConstructorOrMethodDeclaration> declarations = new DefaultList<>();
+
+        public MethodCollector(TypeMaker typeMaker) {
+            super(typeMaker);
+        }
+
+        @Override
+        public void visit(BodyDeclaration declaration) {
+            ClassFileBodyDeclaration bodyDeclaration = (ClassFileBodyDeclaration)declaration;
+
+            // Visit inner types first, like the decompiler
+            if (bodyDeclaration.getInnerTypeDeclarations() != null) {
+                acceptListDeclaration(bodyDeclaration.getInnerTypeDeclarations());
+            }
+
+            super.visit(declaration);
+        }
+
+        @Override
+        protected void createParametersVariablesAndStatements(ClassFileConstructorOrMethodDeclaration comdwln, LocalVariableMaker localVariableMaker) {
+            declarations.add(comdwln);
+        }
+    }
+
+    /**
+     * Messages processed up to the given stage.
+     */
+    public abstract static class MessagesState {
+        public DefaultList<Message> messages = new DefaultList<>();
+
+        protected void setup(CorpusState corpusState, int stage) throws Exception {
+            DeserializeClassFileProcessor deserializer = new DeserializeClassFileProcessor();
+            ClassFileToJavaSyntaxProcessor converter = new ClassFileToJavaSyntaxProcessor();
+            JavaSyntaxToJavaFragmentProcessor fragmenter = new JavaSyntaxToJavaFragmentProcessor();
+            LayoutFragmentProcessor layouter = new LayoutFragmentProcessor();
+            JavaFragmentToTokenProcessor tokenizer = new JavaFragmentToTokenProcessor();
+
+            messages.clear();
+
+            for (String internalTypeName : corpusState.internalTypeNames) {
+                Message message = newMessage(corpusState.loader, internalTypeName);
+
+                deserializer.process(message);
+                converter.process(message);
+                fragmenter.process(message);
+                if (stage > 0) {
+                    layouter.process(message);
+                }
+                if (stage > 1) {
+                    tokenizer.process(message);
+                }
+                messages.add(message);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class LayouterState extends MessagesState {
+        @Setup(Level.Invocation)
+        public void setup(CorpusState corpusState) throws Exception {
+            setup(corpusState, 0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class TokenizerState extends MessagesState {
+        @Setup(Level.Invocation)
+        public void setup(CorpusState corpusState) throws Exception {
+            setup(corpusState, 1);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class WriterState extends MessagesState {
+        @Setup(Level.Invocation)
+        public void setup(CorpusState corpusState) throws Exception {
+            setup(corpusState, 2);
+        }
+    }
+
+    protected static Message newMessage(Loader loader, String internalTypeName) {
+        Message message = new Message();
+
+        message.setHeader("mainInternalTypeName", internalTypeName);
+        message.setHeader("configuration", CONFIGURATION);
+        message.setHeader("loader", loader);
+        message.setHeader("printer", new NopPrinter());
+
+        return message;
+    }
+
+    @Benchmark
+    public void deserializer(CorpusState corpusState, Blackhole blackhole) throws Exception {
+        ClassFileDeserializer deserializer = new ClassFileDeserializer();
+
+        for (String internalTypeName : corpusState.internalTypeNames) {
+            blackhole.consume(deserializer.loadClassFile(corpusState.loader, internalTypeName));
+        }
+    }
+
+    @Benchmark
+    public void controlFlowGraphMaker(MethodsState methodsState, Blackhole blackhole) {
+        for (Method method : methodsState.methods) {
+            try {
+                blackhole.consume(ControlFlowGraphMaker.make(method));
+            } catch (Exception ignore) {
+                // Method written as byte code by the decompiler
+            }
+        }
+    }
+
+    @Benchmark
+    public void controlFlowGraphGotoReducer(GotoReducerState state) {
+        for (ControlFlowGraph cfg : state.cfgs) {
+            ControlFlowGraphGotoReducer.reduce(cfg);
+        }
+    }
+
+    @Benchmark
+    public void controlFlowGraphLoopReducer(LoopReducerState state) {
+        for (ControlFlowGraph cfg : state.cfgs) {
+            try {
+                ControlFlowGraphLoopReducer.reduce(cfg);
+            } catch (Exception ignore) {
+                // Method written as byte code by the decompiler
+            }
+        }
+    }
+
+    @Benchmark
+    public void controlFlowGraphReducer(ReducerState state, Blackhole blackhole) {
+        for (ControlFlowGraph cfg : state.cfgs) {
+            try {
+                blackhole.consume(ControlFlowGraphReducer.reduce(cfg));
+            } catch (Exception ignore) {
+                // Method written as byte code by the decompiler
+            }
+        }
+    }
+
+    @Benchmark
+    public void statementMaker(StatementMakerState state, Blackhole blackhole) {
+        for (int i=0, len=state.declarations.size(); i<len; i++) {
+            ClassFileConstructorOrMethodDeclaration comdwln = state.declarations.get(i);
+            TypeMaker typeMaker = state.typeMakers.get(i);
+            boolean constructor = (comdwln instanceof ClassFileConstructorDeclaration);
+
+            try {
+                LocalVariableMaker localVariableMaker = new LocalVariableMaker(typeMaker, comdwln, constructor, comdwln.getParameterTypes());
+                StatementMaker statementMaker = new StatementMaker(typeMaker, localVariableMaker, comdwln.getClassFile(), comdwln.getBodyDeclaration(), comdwln.getReturnedType());
+
+                // Keep statements: synthetic methods are inlined by the next methods
+                comdwln.setStatements(statementMaker.make(state.cfgs.get(i)));
+                blackhole.consume(comdwln.getStatements());
+            } catch (Exception ignore) {
+                // Method written as byte code by the decompiler
+            }
+        }
+    }
+
+    @Benchmark
+    public void layouter(LayouterState state) throws Exception {
+        LayoutFragmentProcessor layouter = new LayoutFragmentProcessor();
+
+        for (Message message : state.messages) {
+            layouter.process(message);
+        }
+    }
+
+    @Benchmark
+    public void tokenizer(TokenizerState state) throws Exception {
+        JavaFragmentToTokenProcessor tokenizer = new JavaFragmentToTokenProcessor();
+
+        for (Message message : state.messages) {
+            tokenizer.process(message);
+        }
+    }
+
+    @Benchmark
+    public void writer(WriterState state, Blackhole blackhole) throws Exception {
+        WriteTokenProcessor writer = new WriteTokenProcessor();
+
+        for (Message message : state.messages) {
+            writer.process(message);
+            blackhole.consume(((NopPrinter)message.getHeader("printer")).getLength());
+        }
+    }
+}
@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1;
+
+import org.jd.core.v1.api.BatchDecompiler;
+import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.api.printer.PrinterFactory;
+import org.jd.core.v1.service.deserializer.classfile.ClassFileFormatException;
+import org.jd.core.v1.service.deserializer.classfile.ClassFileReader;
+import org.jd.core.v1.util.DefaultList;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decompile a set of types on a fork-join pool.<br><br>
+ *
+ * Inner and anonymous types are skipped: they are decompiled with their outer type. Top level types are scheduled
+ * from the largest to the smallest, the size of a type being the total length of the 'Code' attributes of the type
+ * and of its inner types. The decompilations of a call share the same {@link DecompilationSession}.
+ */
+public class ClassFileToJavaSourceBatchDecompiler implements BatchDecompiler {
+    protected ClassFileToJavaSourceDecompiler decompiler = new ClassFileToJavaSourceDecompiler();
+    protected int parallelism;
+
+    public ClassFileToJavaSourceBatchDecompiler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ClassFileToJavaSourceBatchDecompiler(int parallelism) {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public Map<String, Throwable> decompile(Loader loader, PrinterFactory printerFactory, Collection<String> internalNames) throws Exception {
+        return decompile(loader, printerFactory, internalNames, null);
+    }
+
+    public Map<String, Throwable> decompile(Loader loader, PrinterFactory printerFactory, Collection<String> internalNames, Map<String, Object> configuration) throws Exception {
+        ConcurrentHashMap<String, Throwable> errors = new ConcurrentHashMap<>();
+        String[] sortedInternalNames = sortTopLevelTypes(loader, internalNames);
+
+        if (sortedInternalNames.length > 0) {
+            ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, sortedInternalNames.length));
+
+            try {
+                DecompilationSession session = new DecompilationSession(loader);
+                pool.invoke(new DecompileTask(session, printerFactory, configuration, sortedInternalNames, pool.getParallelism(), errors));
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        return errors;
+    }
+
+    /**
+     * @return top level type names, sorted by decreasing code length
+     */
+    protected String[] sortTopLevelTypes(Loader loader, Collection<String> internalNames) {
+        HashMap<String, TypeInfo> typeInfos = new HashMap<>(internalNames.size() * 2);
+
+        for (String internalName : internalNames) {
+            if (!typeInfos.containsKey(internalName)) {
+                TypeInfo typeInfo;
+
+                try {
+                    typeInfo = loadTypeInfo(loader, internalName);
+                } catch (Exception ignore) {
+                    // Invalid class file -> The error will be reported by the decompiler
+                    typeInfo = null;
+                }
+
+                typeInfos.put(internalName, (typeInfo == null) ? new TypeInfo(internalName, null, 0) : typeInfo);
+            }
+        }
+
+        // Add code lengths of inner types to top level types
+        DefaultList<TypeInfo> topLevelTypeInfos = new DefaultList<>(typeInfos.size());
+
+        for (TypeInfo typeInfo : typeInfos.values()) {
+            if (typeInfo.outerTypeName == null) {
+                topLevelTypeInfos.add(typeInfo);
+            }
+        }
+
+        for (TypeInfo typeInfo : typeInfos.values()) {
+            if (typeInfo.outerTypeName != null) {
+                TypeInfo outerTypeInfo = typeInfos.get(typeInfo.outerTypeName);
+
+                while ((outerTypeInfo != null) && (outerTypeInfo.outerTypeName != null)) {
+                    outerTypeInfo = typeInfos.get(outerTypeInfo.outerTypeName);
+                }
+
+                if (outerTypeInfo != null) {
+                    outerTypeInfo.totalCodeLength += typeInfo.codeLength;
+                }
+            }
+        }
+
+        topLevelTypeInfos.sort(TYPE_INFO_COMPARATOR);
+
+        String[] sortedInternalNames = new String[topLevelTypeInfos.size()];
+
+        for (int i=0; i<sortedInternalNames.length; i++) {
+            sortedInternalNames[i] = topLevelTypeInfos.get(i).internalTypeName;
+        }
+
+        return sortedInternalNames;
+    }
+
+    /**
+     * Read the constant pool, the lengths of the 'Code' attributes and the 'InnerClasses' attribute.
+     */
+    protected TypeInfo loadTypeInfo(Loader loader, String internalTypeName) throws Exception {
+        ClassFileReader reader = ClassFileReader.load(loader, internalTypeName);
+
+        if (reader == null) {
+            return null;
+        }
+
+        int magic = reader.readInt();
+
+        if (magic != ClassFileReader.JAVA_MAGIC_NUMBER)
+            throw new ClassFileFormatException("Invalid CLASS file");
+
+        // Skip 'minorVersion', 'majorVersion'
+        reader.skip(2 * 2);
+
+        Object[] constants = loadConstants(reader);
+
+        // Skip 'accessFlags', 'thisClassIndex' & 'superClassIndex'
+        reader.skip(3 * 2);
+
+        // Skip interfaces
+        int count = reader.readUnsignedShort();
+        reader.skip(count * 2);
+
+        // Skip fields
+        count = reader.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            // skip 'accessFlags', 'nameIndex', 'signatureIndex'
+            reader.skip(3 * 2);
+            skipAttributes(reader);
+        }
+
+        // Sum code lengths
+        long codeLength = 0;
+
+        count = reader.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            // skip 'accessFlags', 'nameIndex', 'signatureIndex'
+            reader.skip(3 * 2);
+
+            int attributeCount = reader.readUnsignedShort();
+
+            for (int j = 0; j < attributeCount; j++) {
+                int attributeNameIndex = reader.readUnsignedShort();
+                int attributeLength = reader.readInt();
+
+                if ("Code".equals(constants[attributeNameIndex])) {
+                    // Skip 'maxStack' & 'maxLocals'
+                    reader.skip(2 * 2);
+                    codeLength += reader.readInt();
+                    reader.skip(attributeLength - 2 * 2 - 4);
+                } else {
+                    reader.skip(attributeLength);
+                }
+            }
+        }
+
+        // Search outer type name
+        String outerTypeName = null;
+
+        count = reader.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            int attributeNameIndex = reader.readUnsignedShort();
+            int attributeLength = reader.readInt();
+
+            if ("InnerClasses".equals(constants[attributeNameIndex])) {
+                int innerClassCount = reader.readUnsignedShort();
+
+                for (int j = 0; j < innerClassCount; j++) {
+                    int innerTypeIndex = reader.readUnsignedShort();
+                    int outerTypeIndex = reader.readUnsignedShort();
+
+                    // Skip 'innerNameIndex' & innerAccessFlags'
+                    reader.skip(2 * 2);
+
+                    if (internalTypeName.equals(constants[(Integer)constants[innerTypeIndex]])) {
+                        if (outerTypeIndex == 0) {
+                            // Local or anonymous type
+                            int lastDollar = internalTypeName.lastIndexOf('$');
+                            outerTypeName = (lastDollar == -1) ? null : internalTypeName.substring(0, lastDollar);
+                        } else {
+                            outerTypeName = (String)constants[(Integer)constants[outerTypeIndex]];
+                        }
+                    }
+                }
+            } else {
+                reader.skip(attributeLength);
+            }
+        }
+
+        return new TypeInfo(internalTypeName, outerTypeName, codeLength);
+    }
+
+    /**
+     * @return an array containing UTF-8 strings and the name indexes of class constants
+     */
+    protected static Object[] loadConstants(ClassFileReader reader) throws Exception {
+        int count = reader.readUnsignedShort();
+        Object[] constants = new Object[count];
+
+        for (int i=1; i<count; i++) {
+            int tag = reader.readByte();
+
+            switch (tag) {
+                case 1:
+                    constants[i] = reader.readUTF8();
+                    break;
+                case 7:
+                    constants[i] = Integer.valueOf(reader.readUnsignedShort());
+                    break;
+                case 8: case 16: case 19: case 20:
+                    reader.skip(2);
+                    break;
+                case 15:
+                    reader.skip(3);
+                    break;
+                case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18:
+                    reader.skip(4);
+                    break;
+                case 5: case 6:
+                    reader.skip(8);
+                    i++;
+                    break;
+                default:
+                    throw new ClassFileFormatException("Invalid constant pool entry");
+            }
+        }
+
+        return constants;
+    }
+
+    protected static void skipAttributes(ClassFileReader reader) {
+        int count = reader.readUnsignedShort();
+
+        for (int i = 0; i < count; i++) {
+            // skip 'attributeNameIndex'
+            reader.skip(2);
+
+            int attributeLength = reader.readInt();
+
+            reader.skip(attributeLength);
+        }
+    }
+
+    protected static final Comparator<TypeInfo> TYPE_INFO_COMPARATOR = (ti1, ti2) -> {
+        int cmp = Long.compare(ti2.totalCodeLength, ti1.totalCodeLength);
+        return (cmp != 0) ? cmp : ti1.internalTypeName.compareTo(ti2.internalTypeName);
+    };
+
+    protected static class TypeInfo {
+        protected String internalTypeName;
+        protected String outerTypeName;
+        protected long codeLength;
+        protected long totalCodeLength;
+
+        public TypeInfo(String internalTypeName, String outerTypeName, long codeLength) {
+            this.internalTypeName = internalTypeName;
+            this.outerTypeName = outerTypeName;
+            this.codeLength = codeLength;
+            this.totalCodeLength = codeLength;
+        }
+    }
+
+    protected class DecompileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        protected DecompilationSession session;
+        protected PrinterFactory printerFactory;
+        protected Map<String, Object> configuration;
+        protected String[] internalNames;
+        protected int workerCount;
+        protected Map<String, Throwable> errors;
+
+        public DecompileTask(DecompilationSession session, PrinterFactory printerFactory, Map<String, Object> configuration, String[] internalNames, int workerCount, Map<String, Throwable> errors) {
+            this.session = session;
+            this.printerFactory = printerFactory;
+            this.configuration = configuration;
+            this.internalNames = internalNames;
+            this.workerCount = workerCount;
+            this.errors = errors;
+        }
+
+        @Override
+        protected void compute() {
+            // Each worker takes the next largest type: the order of the sorted array is kept
+            AtomicInteger nextIndex = new AtomicInteger();
+            DefaultList<WorkerTask> workers = new DefaultList<>(workerCount);
+
+            for (int i=0; i<workerCount; i++) {
+                workers.add(new WorkerTask(this, nextIndex));
+            }
+
+            invokeAll(workers);
+        }
+    }
+
+    protected class WorkerTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        protected DecompileTask parent;
+        protected AtomicInteger nextIndex;
+
+        public WorkerTask(DecompileTask parent, AtomicInteger nextIndex) {
+            this.parent = parent;
+            this.nextIndex = nextIndex;
+        }
+
+        @Override
+        protected void compute() {
+            String[] internalNames = parent.internalNames;
+            int index;
+
+            while ((index = nextIndex.getAndIncrement()) < internalNames.length) {
+                String internalName = internalNames[index];
+
+                try {
+                    decompiler.decompile(parent.session, parent.printerFactory.newPrinter(internalName), internalName, parent.configuration);
+                } catch (Throwable t) {
+                    parent.errors.put(internalName, t);
+                }
+            }
+        }
+    }
+}
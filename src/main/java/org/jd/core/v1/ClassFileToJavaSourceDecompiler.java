@@ -7,19 +7,38 @@
 
 package org.jd.core.v1;
 
+import org.jd.core.v1.api.DecompilationListener;
 import org.jd.core.v1.api.Decompiler;
 import org.jd.core.v1.api.loader.Loader;
 import org.jd.core.v1.api.printer.Printer;
+import org.jd.core.v1.loader.PrefetchingLoader;
 import org.jd.core.v1.model.message.Message;
+import org.jd.core.v1.model.processor.Processor;
+import org.jd.core.v1.printer.RecordingPrinter;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.ClassFileToJavaSyntaxProcessor;
 import org.jd.core.v1.service.deserializer.classfile.DeserializeClassFileProcessor;
 import org.jd.core.v1.service.fragmenter.javasyntaxtojavafragment.JavaSyntaxToJavaFragmentProcessor;
 import org.jd.core.v1.service.layouter.LayoutFragmentProcessor;
 import org.jd.core.v1.service.tokenizer.javafragmenttotoken.JavaFragmentToTokenProcessor;
 import org.jd.core.v1.service.writer.WriteTokenProcessor;
+import org.jd.core.v1.util.ClassBudget;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.Map;
 
+/**
+ * Decompile a class file to Java source.<br><br>
+ *
+ * Instances are thread safe and may be shared: processors do not keep any state between two calls, the state of a
+ * decompilation is kept in the {@link Message} and in per-thread contexts reused from one call to the next.<br><br>
+ *
+ * If the configuration entry 'decompilationListener' is set, the wall time and the bytes allocated by the current
+ * thread are measured for each processor and sent to the {@link DecompilationListener}.<br><br>
+ *
+ * If the configuration entry 'decompilationCache' is set, the calls of the printer are recorded and stored in the
+ * {@link DecompilationCache}; the next decompilations of the same class files are replayed from the cache.<br>
+ */
 public class ClassFileToJavaSourceDecompiler implements Decompiler {
     protected DeserializeClassFileProcessor deserializer = new DeserializeClassFileProcessor();
     protected ClassFileToJavaSyntaxProcessor converter = new ClassFileToJavaSyntaxProcessor();
@@ -49,12 +68,121 @@ public class ClassFileToJavaSourceDecompiler implements Decompiler {
         decompile(message);
     }
 
+    public void decompile(DecompilationSession session, Printer printer, String internalName) throws Exception {
+        decompile(session, printer, internalName, null);
+    }
+
+    public void decompile(DecompilationSession session, Printer printer, String internalName, Map<String, Object> configuration) throws Exception {
+        Message message = new Message();
+
+        message.setHeader("mainInternalTypeName", internalName);
+        message.setHeader("configuration", configuration);
+        message.setHeader("loader", session.getLoader());
+        message.setHeader("typeMaker", session.getTypeMaker());
+        message.setHeader("printer", printer);
+
+        decompile(message);
+    }
+
     protected void decompile(Message message) throws Exception {
-        this.deserializer.process(message);
-        this.converter.process(message);
-        this.fragmenter.process(message);
-        this.layouter.process(message);
-        this.tokenizer.process(message);
-        this.writer.process(message);
+        Map<String, Object> configuration = message.getHeader("configuration");
+        DecompilationCache cache = (configuration == null) ? null : (DecompilationCache)configuration.get("decompilationCache");
+
+        if (cache == null) {
+            process(message);
+        } else {
+            String key = cache.getKey(message.getHeader("loader"), message.getHeader("mainInternalTypeName"), configuration);
+
+            if (key == null) {
+                process(message);
+            } else {
+                Printer printer = message.getHeader("printer");
+                byte[] recording = cache.get(key);
+
+                if (recording != null) {
+                    RecordingPrinter.replay(recording, printer);
+                } else {
+                    RecordingPrinter recordingPrinter = new RecordingPrinter(printer);
+
+                    message.setHeader("printer", recordingPrinter);
+                    process(message);
+
+                    ClassBudget classBudget = message.getHeader("classBudget");
+
+                    if ((classBudget == null) || !classBudget.isExceeded()) {
+                        cache.put(key, recordingPrinter.toByteArray());
+                    }
+                }
+            }
+        }
+    }
+
+    protected void process(Message message) throws Exception {
+        Map<String, Object> configuration = message.getHeader("configuration");
+        DecompilationListener listener = (configuration == null) ? null : (DecompilationListener)configuration.get("decompilationListener");
+
+        if (listener == null) {
+            this.deserializer.process(message);
+            this.converter.process(message);
+            this.fragmenter.process(message);
+            this.layouter.process(message);
+            this.tokenizer.process(message);
+            this.writer.process(message);
+        } else {
+            process(listener, DecompilationListener.STAGE_DESERIALIZER, this.deserializer, message);
+            process(listener, DecompilationListener.STAGE_CONVERTER, this.converter, message);
+            process(listener, DecompilationListener.STAGE_FRAGMENTER, this.fragmenter, message);
+            process(listener, DecompilationListener.STAGE_LAYOUTER, this.layouter, message);
+            process(listener, DecompilationListener.STAGE_TOKENIZER, this.tokenizer, message);
+            process(listener, DecompilationListener.STAGE_WRITER, this.writer, message);
+        }
+    }
+
+    protected void process(DecompilationListener listener, String stage, Processor processor, Message message) throws Exception {
+        long allocatedBytes = isParallel(stage, message) ? -1 : getAllocatedBytes();
+        long time = System.nanoTime();
+
+        processor.process(message);
+
+        time = System.nanoTime() - time;
+        allocatedBytes = (allocatedBytes == -1) ? -1 : getAllocatedBytes() - allocatedBytes;
+
+        listener.stageCompleted(message.getHeader("mainInternalTypeName"), stage, time, allocatedBytes);
+    }
+
+    /**
+     * @return true if the stage may run tasks on other threads, whose allocations are not measured: the converter if
+     *         the configuration entry 'parallelMethods' is set, the deserializer if the loader is a
+     *         {@link PrefetchingLoader}
+     */
+    protected static boolean isParallel(String stage, Message message) {
+        if (DecompilationListener.STAGE_DESERIALIZER.equals(stage)) {
+            return message.getHeader("loader") instanceof PrefetchingLoader;
+        }
+
+        if (DecompilationListener.STAGE_CONVERTER.equals(stage)) {
+            Map<String, Object> configuration = message.getHeader("configuration");
+            Object parallelMethodsConfiguration = (configuration == null) ? null : configuration.get("parallelMethods");
+            return (parallelMethodsConfiguration != null) && !"false".equals(parallelMethodsConfiguration.toString());
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the bytes allocated by the current thread, or -1 if the JVM does not measure allocations
+     */
+    protected static long getAllocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean)threadMXBean;
+
+            if (sunThreadMXBean.isThreadAllocatedMemorySupported() && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                return sunThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+
+        return -1;
     }
 }
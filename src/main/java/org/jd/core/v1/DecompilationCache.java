@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1;
+
+import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.printer.RecordingPrinter;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.TypeHeader;
+import org.jd.core.v1.service.deserializer.classfile.ClassFileReader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of decompiled sources, keyed by the content of the class files.<br><br>
+ *
+ * Set with the configuration entry 'decompilationCache'. The key of a type is the SHA-256 hash of its class file, of
+ * the class files of its inner types and of the configuration entries. On a hit, the decompiler sends the recorded
+ * calls of the printer (see {@link RecordingPrinter}) to the printer, without decompiling. The cache assumes that
+ * the referenced types are the same from one decompilation to the next: their changes may modify the source (imports,
+ * casts), not the key. Decompilations with an exceeded budget are not stored. The configuration entries without effect
+ * on the source, as the listeners and 'parallelMethods', are not parts of the key.<br><br>
+ *
+ * Recordings are kept in memory and, if a directory is set, in files. Both levels are bounded in bytes and evict the
+ * least recently used recordings first; files are ordered by modification date, updated on each hit. Files are
+ * validated before use: an invalid file is deleted and the type is decompiled again. Several processes may share a
+ * directory: files are written to a temporary file and then renamed. The size of the directory is computed at
+ * creation and then updated with the files written and deleted by this cache. This cache is thread safe.<br>
+ */
+public class DecompilationCache {
+    public static final String FILE_SUFFIX = ".jdrec";
+
+    // Configuration entries without effect on the source
+    protected static final Set<String> IGNORED_CONFIGURATION_KEYS = new HashSet<>(Arrays.asList("decompilationCache", "decompilationListener", "budgetListener", "parallelMethods"));
+
+    protected long maxMemorySize;
+    protected long memorySize;
+    protected LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(16, 0.75F, true);
+    protected File directory;
+    protected long maxDiskSize;
+    protected AtomicLong diskSize = new AtomicLong();
+    protected AtomicLong hitCount = new AtomicLong();
+    protected AtomicLong missCount = new AtomicLong();
+
+    /**
+     * @param maxMemorySize maximum number of bytes of the recordings kept in memory
+     */
+    public DecompilationCache(long maxMemorySize) {
+        this.maxMemorySize = maxMemorySize;
+    }
+
+    /**
+     * @param maxMemorySize maximum number of bytes of the recordings kept in memory
+     * @param directory     directory of the recording files, created if needed
+     * @param maxDiskSize   maximum number of bytes of the recording files
+     */
+    public DecompilationCache(long maxMemorySize, File directory, long maxDiskSize) throws IOException {
+        this.maxMemorySize = maxMemorySize;
+        this.directory = directory;
+        this.maxDiskSize = maxDiskSize;
+
+        Files.createDirectories(directory.toPath());
+
+        long size = 0;
+
+        for (File file : listFiles()) {
+            size += file.length();
+        }
+
+        diskSize.set(size);
+    }
+
+    /**
+     * @return the key of 'internalTypeName', null if the type is not found
+     */
+    public String getKey(Loader loader, String internalTypeName, Map<String, Object> configuration) throws Exception {
+        byte[] data = loader.load(internalTypeName);
+
+        if (data == null) {
+            return null;
+        }
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+        update(digest, internalTypeName, data);
+        updateInnerTypes(digest, loader, internalTypeName, data);
+
+        if (configuration != null) {
+            // Entries sorted by key: the key does not depend on the map implementation
+            for (Map.Entry<String, Object> entry : new TreeMap<>(configuration).entrySet()) {
+                if (!IGNORED_CONFIGURATION_KEYS.contains(entry.getKey()) && (entry.getValue() != null)) {
+                    update(digest, entry.getKey(), entry.getValue().toString().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        StringBuilder sb = new StringBuilder(64);
+
+        for (byte b : digest.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * @return the recorded calls of the printer, null if not found
+     */
+    public byte[] get(String key) {
+        byte[] recording;
+
+        synchronized (memory) {
+            recording = memory.get(key);
+        }
+
+        if ((recording == null) && (directory != null)) {
+            File file = new File(directory, key + FILE_SUFFIX);
+
+            try {
+                recording = Files.readAllBytes(file.toPath());
+
+                if (RecordingPrinter.isValid(recording)) {
+                    file.setLastModified(System.currentTimeMillis());
+                    putInMemory(key, recording);
+                } else {
+                    // Corrupt file -> Delete it, the type will be decompiled and stored again
+                    if (file.delete()) {
+                        diskSize.addAndGet(-recording.length);
+                    }
+
+                    recording = null;
+                }
+            } catch (IOException ignore) {
+                // File not found or deleted by an other process
+            }
+        }
+
+        if (recording == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+
+        return recording;
+    }
+
+    public void put(String key, byte[] recording) {
+        putInMemory(key, recording);
+
+        if ((directory != null) && (recording.length <= maxDiskSize)) {
+            File file = new File(directory, key + FILE_SUFFIX);
+
+            if (!file.exists()) {
+                try {
+                    File tmpFile = File.createTempFile(key, ".tmp", directory);
+
+                    try {
+                        try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+                            out.write(recording);
+                        }
+
+                        try {
+                            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                        } catch (AtomicMoveNotSupportedException e) {
+                            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                        }
+                    } finally {
+                        tmpFile.delete();
+                    }
+
+                    if (diskSize.addAndGet(recording.length) > maxDiskSize) {
+                        evictFiles();
+                    }
+                } catch (IOException ignore) {
+                    // Read-only or full directory, or file written by an other process: the recording stays in memory
+                }
+            }
+        }
+    }
+
+    public long getMemorySize() {
+        synchronized (memory) {
+            return memorySize;
+        }
+    }
+
+    public long getDiskSize() {
+        return diskSize.get();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Remove the recordings kept in memory and in files.
+     */
+    public void clear() {
+        synchronized (memory) {
+            memory.clear();
+            memorySize = 0;
+        }
+
+        if (directory != null) {
+            for (File file : listFiles()) {
+                long length = file.length();
+
+                if (file.delete()) {
+                    diskSize.addAndGet(-length);
+                }
+            }
+        }
+    }
+
+    protected void putInMemory(String key, byte[] recording) {
+        if (recording.length <= maxMemorySize) {
+            synchronized (memory) {
+                byte[] previous = memory.put(key, recording);
+
+                memorySize += recording.length - ((previous == null) ? 0 : previous.length);
+
+                Iterator<byte[]> iterator = memory.values().iterator();
+
+                while (memorySize > maxMemorySize) {
+                    memorySize -= iterator.next().length;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    protected synchronized void evictFiles() {
+        if (diskSize.get() > maxDiskSize) {
+            File[] files = listFiles();
+            long[] lastModified = new long[files.length];
+            Integer[] indexes = new Integer[files.length];
+            long size = 0;
+
+            for (int i=0; i<files.length; i++) {
+                lastModified[i] = files[i].lastModified();
+                indexes[i] = i;
+                size += files[i].length();
+            }
+
+            // Least recently used files first
+            Arrays.sort(indexes, (i1, i2) -> Long.compare(lastModified[i1], lastModified[i2]));
+
+            for (int i=0; (i<indexes.length) && (size > maxDiskSize); i++) {
+                File file = files[indexes[i]];
+                long length = file.length();
+
+                if (file.delete()) {
+                    size -= length;
+                }
+            }
+
+            diskSize.set(size);
+        }
+    }
+
+    protected File[] listFiles() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+        return (files == null) ? new File[0] : files;
+    }
+
+    protected static void update(MessageDigest digest, String name, byte[] data) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+
+        updateInt(digest, bytes.length);
+        digest.update(bytes);
+        updateInt(digest, data.length);
+        digest.update(data);
+    }
+
+    protected static void updateInt(MessageDigest digest, int value) {
+        digest.update((byte)(value >>> 24));
+        digest.update((byte)(value >>> 16));
+        digest.update((byte)(value >>> 8));
+        digest.update((byte)value);
+    }
+
+    /**
+     * Hash the inner types loaded by {@link org.jd.core.v1.service.deserializer.classfile.ClassFileDeserializer}.
+     */
+    protected static void updateInnerTypes(MessageDigest digest, Loader loader, String internalTypeName, byte[] data) throws Exception {
+        String innerTypePrefix = internalTypeName + '$';
+
+        TypeHeader header = TypeHeader.scan(new ClassFileReader(data));
+
+        for (int i=0, count=header.getInnerClassCount(); i<count; i++) {
+            String innerTypeName = header.getInnerTypeName(i);
+
+            if (!internalTypeName.equals(innerTypeName) && (internalTypeName.equals(header.getOuterTypeName(i)) || innerTypeName.startsWith(innerTypePrefix))) {
+                byte[] innerData = loader.load(innerTypeName);
+
+                if (innerData == null) {
+                    update(digest, innerTypeName, new byte[0]);
+                } else {
+                    update(digest, innerTypeName, innerData);
+                    updateInnerTypes(digest, loader, innerTypeName, innerData);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1;
+
+import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.TypeHeaderIndex;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.TypeMaker;
+
+/**
+ * A set of decompilations sharing the same loader.<br><br>
+ *
+ * The types, signatures and hierarchies resolved by a decompilation are kept in a bounded cache and reused by the
+ * next decompilations of the session. Sessions are thread safe if the loader is thread safe.<br>
+ *
+ * @see ClassFileToJavaSourceDecompiler#decompile(DecompilationSession, org.jd.core.v1.api.printer.Printer, String)
+ */
+public class DecompilationSession {
+    protected TypeMaker typeMaker;
+
+    public DecompilationSession(Loader loader) {
+        this(loader, TypeMaker.DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    /**
+     * @param maxCacheSize maximum number of entries of each cache of the session
+     */
+    public DecompilationSession(Loader loader, int maxCacheSize) {
+        this.typeMaker = new TypeMaker(loader, maxCacheSize);
+    }
+
+    /**
+     * @param platformLoader loader of the types not found by 'loader', null to search them by reflection
+     * @param maxCacheSize   maximum number of entries of each cache of the session
+     */
+    public DecompilationSession(Loader loader, Loader platformLoader, int maxCacheSize) {
+        this.typeMaker = new TypeMaker(loader, platformLoader, maxCacheSize);
+    }
+
+    /**
+     * @param platformLoader  loader of the types not found by 'loader', null to search them by reflection
+     * @param typeHeaderIndex index of types of 'loader', for example {@link TypeHeaderIndex#getOrCreate(org.jd.core.v1.loader.MappedZipLoader, java.io.File)}
+     * @param maxCacheSize    maximum number of entries of each cache of the session
+     */
+    public DecompilationSession(Loader loader, Loader platformLoader, TypeHeaderIndex typeHeaderIndex, int maxCacheSize) {
+        this.typeMaker = new TypeMaker(loader, platformLoader, typeHeaderIndex, maxCacheSize);
+    }
+
+    public Loader getLoader() {
+        return typeMaker.getLoader();
+    }
+
+    public TypeMaker getTypeMaker() {
+        return typeMaker;
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.api;
+
+import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.api.printer.PrinterFactory;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface BatchDecompiler {
+    /**
+     * @return the errors by internal type name
+     */
+    Map<String, Throwable> decompile(Loader loader, PrinterFactory printerFactory, Collection<String> internalNames) throws Exception;
+
+    /**
+     * @return the errors by internal type name
+     */
+    Map<String, Throwable> decompile(Loader loader, PrinterFactory printerFactory, Collection<String> internalNames, Map<String, Object> configuration) throws Exception;
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.api;
+
+/**
+ * Receive the budget overruns of a decompilation.<br><br>
+ *
+ * Set with the configuration entry 'budgetListener'. Methods may be called concurrently if several types are
+ * decompiled at the same time or if the configuration entry 'parallelMethods' is set.<br>
+ */
+public interface BudgetListener {
+    /**
+     * The method has been written as byte code.
+     */
+    void methodBudgetExceeded(String internalTypeName, String methodName, String descriptor, String reason);
+
+    /**
+     * The remaining methods have been written as byte code and the line numbers have not been realigned.
+     */
+    void classBudgetExceeded(String internalTypeName, String reason);
+}
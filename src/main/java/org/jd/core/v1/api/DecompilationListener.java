@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.api;
+
+/**
+ * Receive the measures of a decompilation.<br><br>
+ *
+ * Set with the configuration entry 'decompilationListener'. Methods may be called concurrently if several types are
+ * decompiled at the same time or if the configuration entry 'parallelMethods' is set.<br>
+ *
+ * @see org.jd.core.v1.util.DecompilationStatistics
+ */
+public interface DecompilationListener {
+    String STAGE_DESERIALIZER = "deserializer";
+    String STAGE_CONVERTER = "converter";
+    String STAGE_FRAGMENTER = "fragmenter";
+    String STAGE_LAYOUTER = "layouter";
+    String STAGE_TOKENIZER = "tokenizer";
+    String STAGE_WRITER = "writer";
+
+    /**
+     * Allocations are measured on the thread running the stage only. The stages which may run tasks on other threads
+     * report -1: the converter if the configuration entry 'parallelMethods' is set, and the deserializer if the
+     * loader is a {@link org.jd.core.v1.loader.PrefetchingLoader}, parsing the inner types concurrently.
+     *
+     * @param stage          one of the 'STAGE_' constants
+     * @param time           wall time in nanoseconds
+     * @param allocatedBytes bytes allocated by the thread running the stage, or -1 if the JVM does not measure
+     *                       allocations or if the stage may run tasks on other threads
+     */
+    void stageCompleted(String internalTypeName, String stage, long time, long allocatedBytes);
+
+    /**
+     * @param internalTypeName internal name of the type declaring the method
+     * @param time             wall time of the parsing of the byte code, in nanoseconds
+     * @param codeLength       length of the byte code
+     * @param basicBlockCount  number of basic blocks of the control flow graph, before reduction
+     * @param loopCount        number of loops found in the control flow graph
+     * @param reduced          true if the control flow graph has been reduced
+     * @param byteCode         true if the method has been written as byte code
+     */
+    void methodCompleted(String internalTypeName, String methodName, String descriptor, long time,
+                         int codeLength, int basicBlockCount, int loopCount, boolean reduced, boolean byteCode);
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.api.loader;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Loader able to return class files without copying them out of their storage.<br><br>
+ *
+ * The decompiler parses the returned buffers directly: the bytes of a class file are not copied into a 'byte[]'.
+ * Buffers may be heap buffers, direct buffers or slices of mapped files; they are only read.<br>
+ */
+public interface ByteBufferLoader extends Loader {
+    /**
+     * @return a buffer whose remaining bytes are the class file, null if the type is not found
+     */
+    ByteBuffer loadByteBuffer(String internalName) throws LoaderException;
+
+    @Override
+    default byte[] load(String internalName) throws LoaderException {
+        ByteBuffer buffer = loadByteBuffer(internalName);
+
+        if (buffer == null) {
+            return null;
+        }
+
+        byte[] data = new byte[buffer.remaining()];
+        buffer.duplicate().get(data);
+        return data;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.loader;
+
+import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.api.loader.LoaderException;
+import org.jd.core.v1.util.BloomFilter;
+import org.jd.core.v1.util.ConcurrentCache;
+import org.jd.core.v1.util.DefaultList;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Loader searching a type in a list of loaders, in order, like a class path.<br><br>
+ *
+ * The loader of each resolved name is kept in a bounded cache. The names of the loaders able to list their entries
+ * (see {@link #getInternalNames(Loader)}) are added to a bloom filter per loader: these loaders are not queried for
+ * names they do not contain. Names not found in any loader are kept in a bounded negative cache. The loaders are
+ * expected not to change. This loader is thread safe if the loaders are thread safe.<br>
+ */
+public class CompositeLoader implements Loader, Closeable {
+    public static final int DEFAULT_MAX_CACHE_SIZE = 1024*16;
+
+    protected Loader[] loaders;
+    protected BloomFilter[] filters;
+    protected ConcurrentCache<String, Loader> resolved;
+    protected ConcurrentCache<String, Boolean> unresolved;
+
+    public CompositeLoader(Loader... loaders) {
+        this(Arrays.asList(loaders), DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    /**
+     * @param maxCacheSize maximum number of entries of the positive and negative caches
+     */
+    public CompositeLoader(List<? extends Loader> loaders, int maxCacheSize) {
+        int size = loaders.size();
+
+        this.loaders = loaders.toArray(new Loader[size]);
+        this.filters = new BloomFilter[size];
+        this.resolved = new ConcurrentCache<>(maxCacheSize);
+        this.unresolved = new ConcurrentCache<>(maxCacheSize);
+
+        for (int i=0; i<size; i++) {
+            List<String> internalNames = getInternalNames(this.loaders[i]);
+
+            if (internalNames != null) {
+                BloomFilter filter = new BloomFilter(internalNames.size());
+
+                for (String internalName : internalNames) {
+                    filter.add(internalName);
+                }
+
+                filters[i] = filter;
+            }
+        }
+    }
+
+    /**
+     * Create a loader for the directories and the ZIP or JAR files of a class path. Missing elements are ignored.
+     *
+     * @param classPath elements separated by {@link File#pathSeparator}
+     */
+    public static CompositeLoader fromClassPath(String classPath) throws LoaderException {
+        DefaultList<Loader> loaders = new DefaultList<>();
+
+        try {
+            for (String element : classPath.split(File.pathSeparator)) {
+                if (!element.isEmpty()) {
+                    File file = new File(element);
+
+                    if (file.isDirectory()) {
+                        loaders.add(new DirectoryLoader(file));
+                    } else if (file.isFile()) {
+                        loaders.add(new MappedZipLoader(file));
+                    }
+                }
+            }
+        } catch (LoaderException e) {
+            close(loaders);
+            throw e;
+        }
+
+        return new CompositeLoader(loaders, DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    public List<Loader> getLoaders() {
+        return Arrays.asList(loaders);
+    }
+
+    @Override
+    public boolean canLoad(String internalName) {
+        return resolve(internalName) != null;
+    }
+
+    @Override
+    public byte[] load(String internalName) throws LoaderException {
+        Loader loader = resolve(internalName);
+        return (loader == null) ? null : loader.load(internalName);
+    }
+
+    /**
+     * @return the first loader able to load 'internalName', null if none
+     */
+    public Loader resolve(String internalName) {
+        Loader loader = resolved.get(internalName);
+
+        if (loader != null) {
+            return loader;
+        }
+
+        if (unresolved.containsKey(internalName)) {
+            return null;
+        }
+
+        for (int i=0, length=loaders.length; i<length; i++) {
+            BloomFilter filter = filters[i];
+
+            if (((filter == null) || filter.mightContain(internalName)) && loaders[i].canLoad(internalName)) {
+                resolved.put(internalName, loaders[i]);
+                return loaders[i];
+            }
+        }
+
+        unresolved.put(internalName, Boolean.TRUE);
+        return null;
+    }
+
+    /**
+     * @return the internal names of the types of 'loader', null if the loader can not list them
+     */
+    protected List<String> getInternalNames(Loader loader) {
+        if (loader instanceof MappedZipLoader) {
+            return ((MappedZipLoader)loader).getInternalNames();
+        }
+        if (loader instanceof DirectoryLoader) {
+            return ((DirectoryLoader)loader).getInternalNames();
+        }
+        if (loader instanceof CompositeLoader) {
+            DefaultList<String> internalNames = new DefaultList<>();
+
+            for (Loader l : ((CompositeLoader)loader).loaders) {
+                List<String> names = getInternalNames(l);
+
+                if (names == null) {
+                    return null;
+                }
+
+                internalNames.addAll(names);
+            }
+
+            return internalNames;
+        }
+
+        return null;
+    }
+
+    /**
+     * Close the closeable loaders.
+     */
+    @Override
+    public void close() {
+        resolved.clear();
+        unresolved.clear();
+        close(Arrays.asList(loaders));
+    }
+
+    protected static void close(List<Loader> loaders) {
+        for (Loader loader : loaders) {
+            if (loader instanceof Closeable) {
+                try {
+                    ((Closeable)loader).close();
+                } catch (IOException ignore) {
+                    // Nothing to do
+                }
+            }
+        }
+    }
+}
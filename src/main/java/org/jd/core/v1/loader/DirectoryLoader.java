@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.loader;
+
+import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.api.loader.LoaderException;
+import org.jd.core.v1.util.DefaultList;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Loader reading the '.class' files of a directory tree, for example a class output directory.<br>
+ */
+public class DirectoryLoader implements Loader {
+    protected File root;
+
+    public DirectoryLoader(File root) {
+        this.root = root;
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the internal names of the '.class' files found under the root directory
+     */
+    public DefaultList<String> getInternalNames() {
+        DefaultList<String> internalNames = new DefaultList<>();
+        File[] files = root.listFiles();
+
+        if (files != null) {
+            for (File file : files) {
+                searchInternalNames(internalNames, file, file.getName());
+            }
+        }
+
+        return internalNames;
+    }
+
+    protected void searchInternalNames(DefaultList<String> internalNames, File file, String path) {
+        if (file.isDirectory()) {
+            File[] files = file.listFiles();
+
+            if (files != null) {
+                for (File child : files) {
+                    searchInternalNames(internalNames, child, path + '/' + child.getName());
+                }
+            }
+        } else if (path.endsWith(".class") && (path.length() > 6)) {
+            internalNames.add(path.substring(0, path.length() - 6)); // 6 = ".class".length()
+        }
+    }
+
+    @Override
+    public boolean canLoad(String internalName) {
+        return getFile(internalName).isFile();
+    }
+
+    @Override
+    public byte[] load(String internalName) throws LoaderException {
+        File file = getFile(internalName);
+
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new LoaderException(e);
+        }
+    }
+
+    protected File getFile(String internalName) {
+        return new File(root, internalName + ".class");
+    }
+}
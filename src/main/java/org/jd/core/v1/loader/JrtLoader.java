@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.loader;
+
+import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.api.loader.LoaderException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.*;
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * Loader reading the class files of a Java runtime image (Java 9 and later) through the 'jrt:/' file system.<br><br>
+ *
+ * The package to module index is built by the constructor from the '/packages' directory of the image. Class files are
+ * read without defining classes in the current JVM. This loader is thread safe.<br><br>
+ *
+ * The image of an other runtime is opened with a class loader over its 'lib/jrt-fs.jar': 'close' releases them. The
+ * file system of the current runtime is shared and stays open.<br>
+ */
+public class JrtLoader implements Loader, Closeable {
+    protected static final Object DEFAULT_LOCK = new Object();
+    protected static volatile JrtLoader defaultLoader;
+    protected static volatile boolean defaultLoaderUnavailable;
+
+    protected FileSystem fileSystem;
+    protected boolean fileSystemOwner;
+    protected HashMap<String, Path> packageToModule = new HashMap<>();
+
+    /**
+     * Create a loader for the image of the current runtime.
+     */
+    public JrtLoader() throws LoaderException {
+        try {
+            init(FileSystems.getFileSystem(URI.create("jrt:/")));
+        } catch (ProviderNotFoundException | FileSystemNotFoundException | IOException e) {
+            throw new LoaderException(e);
+        }
+    }
+
+    /**
+     * Create a loader for the image of an other runtime. The 'jrt:/' file system of the current runtime is required.
+     *
+     * @param javaHome the home directory of a Java 9+ runtime, containing 'lib/modules'
+     */
+    public JrtLoader(File javaHome) throws LoaderException {
+        try {
+            fileSystem = FileSystems.newFileSystem(URI.create("jrt:/"), Collections.singletonMap("java.home", javaHome.getPath()));
+            fileSystemOwner = true;
+            init(fileSystem);
+        } catch (ProviderNotFoundException | FileSystemNotFoundException | IOException e) {
+            close();
+            throw new LoaderException(e);
+        }
+    }
+
+    /**
+     * @return a loader shared by the decompilers for the image of the current runtime, null if the runtime has no image
+     */
+    public static JrtLoader getDefault() {
+        if ((defaultLoader == null) && !defaultLoaderUnavailable) {
+            synchronized (DEFAULT_LOCK) {
+                if ((defaultLoader == null) && !defaultLoaderUnavailable) {
+                    try {
+                        defaultLoader = new JrtLoader();
+                    } catch (LoaderException | RuntimeException e) {
+                        // Java 8 runtime
+                        defaultLoaderUnavailable = true;
+                    }
+                }
+            }
+        }
+
+        return defaultLoader;
+    }
+
+    protected void init(FileSystem fileSystem) throws IOException {
+        this.fileSystem = fileSystem;
+
+        // '/packages/<package>' contains a link per module exporting or containing the package
+        try (DirectoryStream<Path> packages = Files.newDirectoryStream(fileSystem.getPath("/packages"))) {
+            for (Path packagePath : packages) {
+                String internalPackageName = packagePath.getFileName().toString().replace('.', '/');
+
+                try (DirectoryStream<Path> modules = Files.newDirectoryStream(packagePath)) {
+                    for (Path modulePath : modules) {
+                        Path moduleRoot = fileSystem.getPath("/modules", modulePath.getFileName().toString());
+
+                        if (Files.isDirectory(moduleRoot.resolve(internalPackageName))) {
+                            packageToModule.put(internalPackageName, moduleRoot);
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean canLoad(String internalName) {
+        Path path = getPath(internalName);
+        return (path != null) && Files.isRegularFile(path);
+    }
+
+    @Override
+    public byte[] load(String internalName) throws LoaderException {
+        Path path = getPath(internalName);
+
+        if ((path == null) || !Files.isRegularFile(path)) {
+            return null;
+        }
+
+        try {
+            return Files.readAllBytes(path);
+        } catch (IOException e) {
+            throw new LoaderException(e);
+        }
+    }
+
+    /**
+     * Close the file system opened for the image of an other runtime. Does nothing for the image of the current
+     * runtime.
+     */
+    @Override
+    public void close() {
+        if (fileSystemOwner) {
+            fileSystemOwner = false;
+
+            try {
+                fileSystem.close();
+            } catch (IOException ignore) {
+                // Nothing to do
+            }
+        }
+    }
+
+    protected Path getPath(String internalName) {
+        int lastSlash = internalName.lastIndexOf('/');
+
+        if (lastSlash == -1) {
+            // Types of the unnamed package are not in the image
+            return null;
+        }
+
+        Path moduleRoot = packageToModule.get(internalName.substring(0, lastSlash));
+        return (moduleRoot == null) ? null : moduleRoot.resolve(internalName + ".class");
+    }
+}
@@ -0,0 +1,523 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.loader;
+
+import org.jd.core.v1.api.loader.ByteBufferLoader;
+import org.jd.core.v1.api.loader.LoaderException;
+import org.jd.core.v1.util.ConcurrentCache;
+import org.jd.core.v1.util.DefaultList;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Loader reading the '.class' entries of a ZIP or JAR file mapped in memory.<br><br>
+ *
+ * The central directory is parsed once by the constructor into an open addressing table of entry name hashes and
+ * central directory offsets: names are not decoded, and 'canLoad' allocates nothing. Entries are inflated by 'load'
+ * on demand; the inflated bytes of the most recently loaded entries may be kept in a bounded cache. Stored entries are
+ * returned by 'loadByteBuffer' as slices of the mapping, without copy. This loader is thread safe.<br><br>
+ *
+ * Archives larger than 2 GB are not supported. The mapping is released by the garbage collector after 'close'.<br>
+ */
+public class MappedZipLoader implements ByteBufferLoader, Closeable {
+    protected static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    protected static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+    protected static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    protected static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+    protected static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    protected static final int STORED = 0;
+    protected static final int DEFLATED = 8;
+
+    protected static final String CLASS_SUFFIX = ".class";
+
+    protected File file;
+    protected RandomAccessFile randomAccessFile;
+    protected MappedByteBuffer buffer;
+    protected ConcurrentCache<String, byte[]> cache;
+
+    // Open addressing table: 'table' contains entry indexes + 1, 0 if the slot is free
+    protected int[] table;
+    protected int[] hashes;
+    protected int[] offsets;
+    protected int count;
+
+    public MappedZipLoader(File file) throws LoaderException {
+        this(file, 0);
+    }
+
+    /**
+     * @param maxCacheSize maximum number of inflated entries kept in memory, 0 to disable the cache
+     */
+    public MappedZipLoader(File file, int maxCacheSize) throws LoaderException {
+        this.file = file;
+
+        if (maxCacheSize > 0) {
+            this.cache = new ConcurrentCache<>(Math.max(maxCacheSize, 2));
+        }
+
+        try {
+            randomAccessFile = new RandomAccessFile(file, "r");
+
+            FileChannel channel = randomAccessFile.getChannel();
+            long size = channel.size();
+
+            if (size > Integer.MAX_VALUE)
+                throw new LoaderException("Archive too large: " + file);
+
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            readCentralDirectory();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw new LoaderException(e);
+        } catch (LoaderException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the number of '.class' entries
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the internal names of the '.class' entries, in central directory order
+     */
+    public DefaultList<String> getInternalNames() {
+        DefaultList<String> internalNames = new DefaultList<>(count);
+
+        for (int i=0; i<count; i++) {
+            int offset = offsets[i];
+            int nameLength = buffer.getShort(offset + 28) & 0xFFFF;
+            internalNames.add(decodeName(offset + 46, nameLength - CLASS_SUFFIX.length()));
+        }
+
+        return internalNames;
+    }
+
+    @Override
+    public boolean canLoad(String internalName) {
+        return indexOf(internalName) != -1;
+    }
+
+    /**
+     * @return the inflated class file, a copy of the cached one if the cache is enabled: the caller may modify it
+     */
+    @Override
+    public byte[] load(String internalName) throws LoaderException {
+        if (cache != null) {
+            byte[] data = cache.get(internalName);
+
+            if (data != null) {
+                return data.clone();
+            }
+        }
+
+        ByteBuffer entry = readEntry(internalName);
+
+        if (entry == null) {
+            return null;
+        }
+
+        byte[] data;
+
+        if (entry.hasArray()) {
+            // Inflated entry
+            data = entry.array();
+        } else {
+            data = new byte[entry.remaining()];
+            entry.get(data);
+        }
+
+        if (cache != null) {
+            data = cache.putIfAbsent(internalName, data).clone();
+        }
+
+        return data;
+    }
+
+    /**
+     * @return a read-only slice of the mapped file for stored entries, a buffer of inflated bytes otherwise
+     */
+    @Override
+    public ByteBuffer loadByteBuffer(String internalName) throws LoaderException {
+        if (cache != null) {
+            byte[] data = cache.get(internalName);
+
+            if (data != null) {
+                return ByteBuffer.wrap(data).asReadOnlyBuffer();
+            }
+        }
+
+        ByteBuffer entry = readEntry(internalName);
+
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.hasArray()) {
+            // Inflated entry
+            byte[] data = entry.array();
+
+            if (cache != null) {
+                data = cache.putIfAbsent(internalName, data);
+            }
+
+            return ByteBuffer.wrap(data).asReadOnlyBuffer();
+        }
+
+        return entry;
+    }
+
+    protected ByteBuffer readEntry(String internalName) throws LoaderException {
+        int index = indexOf(internalName);
+
+        if (index == -1) {
+            return null;
+        }
+
+        try {
+            return readEntry(offsets[index]);
+        } catch (DataFormatException | RuntimeException e) {
+            throw new LoaderException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        table = hashes = offsets = new int[0];
+        count = 0;
+
+        if (cache != null) {
+            cache.clear();
+        }
+
+        if (randomAccessFile != null) {
+            try {
+                randomAccessFile.close();
+            } catch (IOException ignore) {
+                // Nothing to do
+            }
+        }
+    }
+
+    protected void readCentralDirectory() throws LoaderException {
+        int limit = buffer.limit();
+        int end = -1;
+
+        // Search the 'end of central directory' record, followed by a comment of 64 KB at most
+        for (int i=limit-22, min=Math.max(0, limit-22-0xFFFF); i>=min; i--) {
+            if (buffer.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                end = i;
+                break;
+            }
+        }
+
+        if (end == -1)
+            throw new LoaderException("Invalid ZIP file: " + file);
+
+        long entryCount = buffer.getShort(end + 10) & 0xFFFF;
+        long directoryOffset = buffer.getInt(end + 16) & 0xFFFFFFFFL;
+
+        if ((entryCount == 0xFFFF) || (directoryOffset == 0xFFFFFFFFL)) {
+            // ZIP64 archive
+            int locator = end - 20;
+
+            if ((locator >= 0) && (buffer.getInt(locator) == ZIP64_LOCATOR_SIGNATURE)) {
+                long zip64End = buffer.getLong(locator + 8);
+
+                if ((zip64End < 0) || (zip64End > limit - 56) || (buffer.getInt((int)zip64End) != ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE))
+                    throw new LoaderException("Invalid ZIP64 file: " + file);
+
+                entryCount = buffer.getLong((int)zip64End + 32);
+                directoryOffset = buffer.getLong((int)zip64End + 48);
+            }
+        }
+
+        if ((entryCount < 0) || (entryCount > limit / 46) || (directoryOffset < 0) || (directoryOffset > limit))
+            throw new LoaderException("Invalid ZIP file: " + file);
+
+        int capacity = Integer.highestOneBit(Math.max((int)entryCount, 1) * 2 - 1) << 1;
+
+        table = new int[capacity];
+        hashes = new int[(int)entryCount];
+        offsets = new int[(int)entryCount];
+
+        int offset = (int)directoryOffset;
+
+        for (long i=0; i<entryCount; i++) {
+            if ((offset > limit - 46) || (buffer.getInt(offset) != CENTRAL_DIRECTORY_SIGNATURE))
+                throw new LoaderException("Invalid central directory entry in " + file);
+
+            int nameLength = buffer.getShort(offset + 28) & 0xFFFF;
+            int extraLength = buffer.getShort(offset + 30) & 0xFFFF;
+            int commentLength = buffer.getShort(offset + 32) & 0xFFFF;
+            int nameOffset = offset + 46;
+
+            if (endsWithClassSuffix(nameOffset, nameLength)) {
+                addEntry(offset, nameOffset, nameLength - CLASS_SUFFIX.length());
+            }
+
+            offset = nameOffset + nameLength + extraLength + commentLength;
+        }
+    }
+
+    protected boolean endsWithClassSuffix(int nameOffset, int nameLength) {
+        int suffixLength = CLASS_SUFFIX.length();
+
+        if (nameLength <= suffixLength) {
+            return false;
+        }
+
+        for (int i=0, j=nameOffset+nameLength-suffixLength; i<suffixLength; i++, j++) {
+            if (buffer.get(j) != CLASS_SUFFIX.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    protected void addEntry(int offset, int nameOffset, int length) {
+        int hash = hashName(nameOffset, length);
+        int mask = table.length - 1;
+
+        for (int slot=hash & mask; ; slot=(slot + 1) & mask) {
+            int index = table[slot] - 1;
+
+            if (index == -1) {
+                hashes[count] = hash;
+                offsets[count] = offset;
+                table[slot] = ++count;
+                return;
+            }
+
+            if ((hashes[index] == hash) && nameEquals(offsets[index] + 46, length, nameOffset)) {
+                // Duplicate entry: keep the first one
+                return;
+            }
+        }
+    }
+
+    protected int indexOf(String internalName) {
+        int[] table = this.table;
+        int hash = internalName.hashCode();
+        int mask = table.length - 1;
+
+        if (mask < 0) {
+            return -1;
+        }
+
+        for (int slot=hash & mask; ; slot=(slot + 1) & mask) {
+            int index = table[slot] - 1;
+
+            if (index == -1) {
+                return -1;
+            }
+
+            if ((hashes[index] == hash) && nameEquals(offsets[index], internalName)) {
+                return index;
+            }
+        }
+    }
+
+    /**
+     * @return the 'String.hashCode()' of the decoded name
+     */
+    protected int hashName(int nameOffset, int length) {
+        int hash = 0;
+
+        for (int i=nameOffset, end=nameOffset+length; i<end; i++) {
+            byte b = buffer.get(i);
+
+            if (b < 0) {
+                // Non ASCII name
+                return decodeName(nameOffset, length).hashCode();
+            }
+
+            hash = 31 * hash + b;
+        }
+
+        return hash;
+    }
+
+    protected boolean nameEquals(int nameOffset1, int length, int nameOffset2) {
+        for (int i=0; i<length; i++) {
+            if (buffer.get(nameOffset1 + i) != buffer.get(nameOffset2 + i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    protected boolean nameEquals(int offset, String internalName) {
+        int nameOffset = offset + 46;
+        int length = (buffer.getShort(offset + 28) & 0xFFFF) - CLASS_SUFFIX.length();
+
+        if (length == internalName.length()) {
+            for (int i=0; i<length; i++) {
+                byte b = buffer.get(nameOffset + i);
+
+                if (b < 0) {
+                    // Non ASCII name
+                    return internalName.equals(decodeName(nameOffset, length));
+                }
+                if (b != internalName.charAt(i)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        // Non ASCII names are longer in UTF-8 than in UTF-16
+        return (length > internalName.length()) && internalName.equals(decodeName(nameOffset, length));
+    }
+
+    protected String decodeName(int nameOffset, int length) {
+        byte[] bytes = new byte[length];
+
+        for (int i=0; i<length; i++) {
+            bytes[i] = buffer.get(nameOffset + i);
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    protected ByteBuffer readEntry(int offset) throws LoaderException, DataFormatException {
+        int method = buffer.getShort(offset + 10) & 0xFFFF;
+        long compressedSize = buffer.getInt(offset + 20) & 0xFFFFFFFFL;
+        long size = buffer.getInt(offset + 24) & 0xFFFFFFFFL;
+        long localOffset = buffer.getInt(offset + 42) & 0xFFFFFFFFL;
+
+        if ((size == 0xFFFFFFFFL) || (compressedSize == 0xFFFFFFFFL) || (localOffset == 0xFFFFFFFFL)) {
+            // Read the ZIP64 extended information extra field
+            int nameLength = buffer.getShort(offset + 28) & 0xFFFF;
+            int extraLength = buffer.getShort(offset + 30) & 0xFFFF;
+            int extra = offset + 46 + nameLength;
+            int extraEnd = extra + extraLength;
+
+            while (extra + 4 <= extraEnd) {
+                int id = buffer.getShort(extra) & 0xFFFF;
+                int length = buffer.getShort(extra + 2) & 0xFFFF;
+
+                if (id == 0x0001) {
+                    int field = extra + 4;
+
+                    if (size == 0xFFFFFFFFL) {
+                        size = buffer.getLong(field);
+                        field += 8;
+                    }
+                    if (compressedSize == 0xFFFFFFFFL) {
+                        compressedSize = buffer.getLong(field);
+                        field += 8;
+                    }
+                    if (localOffset == 0xFFFFFFFFL) {
+                        localOffset = buffer.getLong(field);
+                    }
+                    break;
+                }
+
+                extra += 4 + length;
+            }
+        }
+
+        int limit = buffer.limit();
+
+        if ((localOffset < 0) || (localOffset > limit - 30) || (buffer.getInt((int)localOffset) != LOCAL_FILE_HEADER_SIGNATURE))
+            throw new LoaderException("Invalid local file header in " + file);
+
+        int dataOffset = (int)localOffset + 30 + (buffer.getShort((int)localOffset + 26) & 0xFFFF) + (buffer.getShort((int)localOffset + 28) & 0xFFFF);
+
+        if ((size > Integer.MAX_VALUE) || (compressedSize < 0) || (compressedSize > limit - dataOffset))
+            throw new LoaderException("Invalid entry size in " + file);
+
+        switch (method) {
+            case STORED:
+                if (compressedSize != size)
+                    throw new LoaderException("Invalid stored entry size in " + file);
+
+                ByteBuffer duplicate = buffer.duplicate();
+                duplicate.limit(dataOffset + (int)size);
+                duplicate.position(dataOffset);
+                return duplicate.slice();
+            case DEFLATED:
+                byte[] data = new byte[(int)size];
+                Inflater inflater = new Inflater(true);
+
+                try {
+                    byte[] input = new byte[(int)Math.min(compressedSize + 1, 8 * 1024)];
+                    int inputOffset = dataOffset;
+                    int inputEnd = dataOffset + (int)compressedSize;
+                    int length = 0;
+
+                    while ((length < data.length) && !inflater.finished()) {
+                        if (inflater.needsInput()) {
+                            int inputLength = Math.min(input.length, inputEnd - inputOffset);
+
+                            if (inputLength == 0) {
+                                if (inputOffset > inputEnd)
+                                    throw new LoaderException("Truncated deflated entry in " + file);
+                                // "nowrap" inflaters may need an extra dummy byte
+                                input[0] = 0;
+                                inputOffset++;
+                                inflater.setInput(input, 0, 1);
+                            } else {
+                                copy(inputOffset, input, 0, inputLength);
+                                inflater.setInput(input, 0, inputLength);
+                                inputOffset += inputLength;
+                            }
+                        }
+
+                        int inflated = inflater.inflate(data, length, data.length - length);
+
+                        if ((inflated == 0) && inflater.needsDictionary())
+                            throw new LoaderException("Invalid deflated entry in " + file);
+
+                        length += inflated;
+                    }
+
+                    if (length != data.length)
+                        throw new LoaderException("Invalid deflated entry size in " + file);
+
+                    return ByteBuffer.wrap(data);
+                } finally {
+                    inflater.end();
+                }
+            default:
+                throw new LoaderException("Unsupported compression method " + method + " in " + file);
+        }
+    }
+
+    protected void copy(int offset, byte[] bytes, int bytesOffset, int length) {
+        // Absolute bulk reads are not available in Java 8: use a duplicate to keep 'buffer' thread safe
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset);
+        duplicate.get(bytes, bytesOffset, length);
+    }
+}
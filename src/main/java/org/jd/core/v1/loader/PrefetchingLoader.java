@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.loader;
+
+import org.jd.core.v1.api.loader.ByteBufferLoader;
+import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.api.loader.LoaderException;
+import org.jd.core.v1.util.ConcurrentCache;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Loader fetching class files in the background, for slow loaders (remote stores, compressed archives).<br><br>
+ *
+ * 'prefetch' starts loading a type on the executor; 'load', 'loadByteBuffer' and 'canLoad' wait for the pending
+ * result instead of calling the loader again. Results, including missing types, are kept in a bounded cache of
+ * futures. When the decompiler uses this loader, the deserializer prefetches the super types and the inner types of
+ * each parsed type and parses the inner types concurrently; {@link org.jd.core.v1.service.converter.classfiletojavasyntax.util.TypeMaker}
+ * then finds the super types in the cache. This loader is thread safe if the loader is thread safe.<br>
+ */
+public class PrefetchingLoader implements ByteBufferLoader {
+    public static final int DEFAULT_MAX_CACHE_SIZE = 1024;
+
+    protected Loader loader;
+    protected Executor executor;
+    protected ConcurrentCache<String, CompletableFuture<ByteBuffer>> futures;
+
+    /**
+     * Fetch on the common fork-join pool.
+     */
+    public PrefetchingLoader(Loader loader) {
+        this(loader, ForkJoinPool.commonPool(), DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    /**
+     * @param executor     executor of the fetches, for example a pool sized for the latency of the loader
+     * @param maxCacheSize maximum number of fetched class files kept in memory
+     */
+    public PrefetchingLoader(Loader loader, Executor executor, int maxCacheSize) {
+        this.loader = loader;
+        this.executor = executor;
+        this.futures = new ConcurrentCache<>(maxCacheSize);
+    }
+
+    public Loader getLoader() {
+        return loader;
+    }
+
+    /**
+     * Start loading 'internalName' in the background, if not already loaded or loading.
+     */
+    public void prefetch(String internalName) {
+        if ((internalName != null) && (futures.get(internalName) == null)) {
+            CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+
+            if (futures.putIfAbsent(internalName, future) == future) {
+                try {
+                    executor.execute(() -> complete(future, internalName));
+                } catch (RuntimeException e) {
+                    // Rejected execution -> Load in the current thread
+                    complete(future, internalName);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean canLoad(String internalName) {
+        CompletableFuture<ByteBuffer> future = futures.get(internalName);
+
+        if (future == null) {
+            return loader.canLoad(internalName);
+        }
+
+        try {
+            return future.join() != null;
+        } catch (CompletionException e) {
+            return loader.canLoad(internalName);
+        }
+    }
+
+    /**
+     * @return a copy of the cached class file: the caller may modify it
+     */
+    @Override
+    public byte[] load(String internalName) throws LoaderException {
+        ByteBuffer buffer = loadByteBuffer(internalName);
+
+        if (buffer == null) {
+            return null;
+        }
+
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        return data;
+    }
+
+    @Override
+    public ByteBuffer loadByteBuffer(String internalName) throws LoaderException {
+        CompletableFuture<ByteBuffer> future = futures.get(internalName);
+
+        if (future == null) {
+            CompletableFuture<ByteBuffer> newFuture = new CompletableFuture<>();
+
+            future = futures.putIfAbsent(internalName, newFuture);
+
+            if (future == newFuture) {
+                complete(future, internalName);
+            }
+        }
+
+        try {
+            ByteBuffer buffer = future.join();
+            return (buffer == null) ? null : buffer.duplicate();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof LoaderException) {
+                throw (LoaderException)cause;
+            }
+
+            throw new LoaderException(cause);
+        }
+    }
+
+    protected void complete(CompletableFuture<ByteBuffer> future, String internalName) {
+        try {
+            if (loader instanceof ByteBufferLoader) {
+                future.complete(((ByteBufferLoader)loader).loadByteBuffer(internalName));
+            } else {
+                byte[] data = loader.load(internalName);
+                future.complete((data == null) ? null : ByteBuffer.wrap(data));
+            }
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+}
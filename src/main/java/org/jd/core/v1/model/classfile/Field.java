@@ -8,16 +8,17 @@
 package org.jd.core.v1.model.classfile;
 
 import org.jd.core.v1.model.classfile.attribute.Attribute;
+import org.jd.core.v1.model.classfile.attribute.AttributeName;
+import org.jd.core.v1.model.classfile.attribute.AttributeTable;
 
-import java.util.Map;
 
 public class Field {
     protected int accessFlags;
     protected String name;
     protected String descriptor;
-    protected Map<String, Attribute> attributes;
+    protected AttributeTable attributes;
 
-    public Field(int accessFlags, String name, String descriptor, Map<String, Attribute> attributes) {
+    public Field(int accessFlags, String name, String descriptor, AttributeTable attributes) {
         this.accessFlags = accessFlags;
         this.name = name;
         this.descriptor = descriptor;
@@ -36,9 +37,12 @@ public class Field {
         return descriptor;
     }
 
-    @SuppressWarnings("unchecked")
     public <T extends Attribute> T getAttribute(String name) {
-        return (attributes == null) ? null : (T)attributes.get(name);
+        return (attributes == null) ? null : attributes.getAttribute(name);
+    }
+
+    public <T extends Attribute> T getAttribute(AttributeName name) {
+        return (attributes == null) ? null : attributes.getAttribute(name);
     }
 
     @Override
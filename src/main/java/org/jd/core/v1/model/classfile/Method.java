@@ -8,17 +8,17 @@
 package org.jd.core.v1.model.classfile;
 
 import org.jd.core.v1.model.classfile.attribute.Attribute;
-
-import java.util.Map;
+import org.jd.core.v1.model.classfile.attribute.AttributeName;
+import org.jd.core.v1.model.classfile.attribute.AttributeTable;
 
 public class Method {
     protected int accessFlags;
     protected String name;
     protected String descriptor;
-    protected Map<String, Attribute> attributes;
+    protected AttributeTable attributes;
     protected ConstantPool constants;
 
-    public Method(int accessFlags, String name, String descriptor, Map<String, Attribute> attributes, ConstantPool constants) {
+    public Method(int accessFlags, String name, String descriptor, AttributeTable attributes, ConstantPool constants) {
         this.accessFlags = accessFlags;
         this.name = name;
         this.descriptor = descriptor;
@@ -41,9 +41,12 @@ public class Method {
         return descriptor;
     }
 
-    @SuppressWarnings("unchecked")
     public <T extends Attribute> T getAttribute(String name) {
-        return (attributes == null) ? null : (T)attributes.get(name);
+        return (attributes == null) ? null : attributes.getAttribute(name);
+    }
+
+    public <T extends Attribute> T getAttribute(AttributeName name) {
+        return (attributes == null) ? null : attributes.getAttribute(name);
     }
 
     public ConstantPool getConstants() {
@@ -7,23 +7,36 @@
 
 package org.jd.core.v1.model.classfile.attribute;
 
-import java.util.Map;
+import java.nio.ByteBuffer;
 
+/**
+ * The byte code is kept as a view of the class file: it is copied into an array by the first call to 'getCode()'.<br>
+ */
 public class AttributeCode implements Attribute {
     protected int maxStack;
     protected int maxLocals;
-    protected byte[] code;
+    protected ByteBuffer codeBuffer;
+    protected volatile byte[] code;
     protected CodeException[] exceptionTable;
-    protected Map<String, Attribute> attributes;
+    protected AttributeTable attributes;
 
-    public AttributeCode(int maxStack, int maxLocals, byte[] code, CodeException[] exceptionTable, Map<String, Attribute> attributes) {
+    public AttributeCode(int maxStack, int maxLocals, byte[] code, CodeException[] exceptionTable, AttributeTable attributes) {
         this.maxStack = maxStack;
         this.maxLocals = maxLocals;
+        this.codeBuffer = (code == null) ? null : ByteBuffer.wrap(code).asReadOnlyBuffer();
         this.code = code;
         this.exceptionTable = exceptionTable;
         this.attributes = attributes;
     }
 
+    public AttributeCode(int maxStack, int maxLocals, ByteBuffer codeBuffer, CodeException[] exceptionTable, AttributeTable attributes) {
+        this.maxStack = maxStack;
+        this.maxLocals = maxLocals;
+        this.codeBuffer = codeBuffer;
+        this.exceptionTable = exceptionTable;
+        this.attributes = attributes;
+    }
+
     public int getMaxStack() {
         return maxStack;
     }
@@ -32,7 +45,26 @@ public class AttributeCode implements Attribute {
         return maxLocals;
     }
 
+    public int getCodeLength() {
+        return (codeBuffer == null) ? 0 : codeBuffer.remaining();
+    }
+
+    /**
+     * @return a read-only view of the byte code, null if the code is empty
+     */
+    public ByteBuffer getCodeBuffer() {
+        return (codeBuffer == null) ? null : codeBuffer.duplicate();
+    }
+
     public byte[] getCode() {
+        byte[] code = this.code;
+
+        if ((code == null) && (codeBuffer != null)) {
+            code = new byte[codeBuffer.remaining()];
+            codeBuffer.duplicate().get(code);
+            this.code = code;
+        }
+
         return code;
     }
 
@@ -40,8 +72,11 @@ public class AttributeCode implements Attribute {
         return exceptionTable;
     }
 
-    @SuppressWarnings("unchecked")
     public <T extends Attribute> T getAttribute(String name) {
-        return (attributes == null) ? null : (T)attributes.get(name);
+        return (attributes == null) ? null : attributes.getAttribute(name);
+    }
+
+    public <T extends Attribute> T getAttribute(AttributeName name) {
+        return (attributes == null) ? null : attributes.getAttribute(name);
     }
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.model.classfile.attribute;
+
+import java.util.HashMap;
+
+/**
+ * Attributes decoded by the deserializer. The other attributes are 'UNKNOWN'.<br>
+ */
+public enum AttributeName {
+    ANNOTATION_DEFAULT("AnnotationDefault"),
+    BOOTSTRAP_METHODS("BootstrapMethods"),
+    CODE("Code"),
+    CONSTANT_VALUE("ConstantValue"),
+    DEPRECATED("Deprecated"),
+    EXCEPTIONS("Exceptions"),
+    INNER_CLASSES("InnerClasses"),
+    LINE_NUMBER_TABLE("LineNumberTable"),
+    LOCAL_VARIABLE_TABLE("LocalVariableTable"),
+    LOCAL_VARIABLE_TYPE_TABLE("LocalVariableTypeTable"),
+    METHOD_PARAMETERS("MethodParameters"),
+    MODULE("Module"),
+    MODULE_MAIN_CLASS("ModuleMainClass"),
+    MODULE_PACKAGES("ModulePackages"),
+    RUNTIME_INVISIBLE_ANNOTATIONS("RuntimeInvisibleAnnotations"),
+    RUNTIME_INVISIBLE_PARAMETER_ANNOTATIONS("RuntimeInvisibleParameterAnnotations"),
+    RUNTIME_VISIBLE_ANNOTATIONS("RuntimeVisibleAnnotations"),
+    RUNTIME_VISIBLE_PARAMETER_ANNOTATIONS("RuntimeVisibleParameterAnnotations"),
+    SIGNATURE("Signature"),
+    SOURCE_FILE("SourceFile"),
+    SYNTHETIC("Synthetic"),
+    UNKNOWN(null);
+
+    protected static final AttributeName[] VALUES = values();
+    protected static final HashMap<String, AttributeName> NAME_TO_ATTRIBUTE_NAME = new HashMap<>();
+
+    static {
+        for (AttributeName attributeName : VALUES) {
+            if (attributeName.name != null) {
+                NAME_TO_ATTRIBUTE_NAME.put(attributeName.name, attributeName);
+            }
+        }
+    }
+
+    protected final String name;
+
+    AttributeName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the name of the attribute in class files, null for 'UNKNOWN'
+     */
+    public String getName() {
+        return name;
+    }
+
+    public static AttributeName valueOf(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * @return the attribute named 'name', 'UNKNOWN' if the deserializer doesn't decode it
+     */
+    public static AttributeName get(String name) {
+        AttributeName attributeName = NAME_TO_ATTRIBUTE_NAME.get(name);
+        return (attributeName == null) ? UNKNOWN : attributeName;
+    }
+}
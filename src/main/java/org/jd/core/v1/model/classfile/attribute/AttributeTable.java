@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.model.classfile.attribute;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Attributes of a class file, a field, a method or a 'Code' attribute, parsed on first access.<br><br>
+ *
+ * The deserializer only records the kind and the offset of each attribute: a member costs three small arrays until
+ * one of its attributes is requested. Unknown attributes are never decoded: their names are read from the constant
+ * pool only when an unknown name is requested.<br><br>
+ *
+ * The methods of a type may be parsed concurrently (see 'parallelMethods'): the parsed attributes are published
+ * through an {@link AtomicReferenceArray}. Two threads requesting an attribute which isn't parsed yet may both parse
+ * it; the first stored instance is returned to both.<br>
+ */
+public class AttributeTable {
+    protected static final Attribute ABSENT = new Attribute() {};
+
+    protected Parser parser;
+    protected byte[] names;
+    protected int[] offsets;
+    protected AtomicReferenceArray<Attribute> attributes;
+
+    /**
+     * @param names   ordinals of the {@link AttributeName}s, in class file order
+     * @param offsets offsets of the contents of the attributes, in class file order
+     */
+    public AttributeTable(Parser parser, byte[] names, int[] offsets) {
+        this.parser = parser;
+        this.names = names;
+        this.offsets = offsets;
+        this.attributes = new AtomicReferenceArray<>(names.length);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public AttributeName getName(int index) {
+        return AttributeName.valueOf(names[index]);
+    }
+
+    public <T extends Attribute> T getAttribute(String name) {
+        AttributeName attributeName = AttributeName.get(name);
+
+        if (attributeName != AttributeName.UNKNOWN) {
+            return getAttribute(attributeName);
+        }
+
+        byte ordinal = (byte)AttributeName.UNKNOWN.ordinal();
+
+        for (int i=names.length-1; i>=0; i--) {
+            if ((names[i] == ordinal) && name.equals(parser.getUnknownAttributeName(offsets[i]))) {
+                return getAttribute(i);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the last attribute named 'name', as the deserializer keeps the last one
+     */
+    public <T extends Attribute> T getAttribute(AttributeName name) {
+        byte ordinal = (byte)name.ordinal();
+
+        for (int i=names.length-1; i>=0; i--) {
+            if (names[i] == ordinal) {
+                return getAttribute(i);
+            }
+        }
+
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <T extends Attribute> T getAttribute(int index) {
+        Attribute attribute = attributes.get(index);
+
+        if (attribute == null) {
+            attribute = parser.parse(getName(index), offsets[index]);
+
+            if (attribute == null) {
+                attribute = ABSENT;
+            }
+
+            if (!attributes.compareAndSet(index, null, attribute)) {
+                attribute = attributes.get(index);
+            }
+        }
+
+        return (attribute == ABSENT) ? null : (T)attribute;
+    }
+
+    public interface Parser {
+        /**
+         * @return the attribute, null if empty
+         */
+        Attribute parse(AttributeName name, int offset);
+
+        String getUnknownAttributeName(int offset);
+    }
+}
@@ -25,7 +25,7 @@ public abstract class Constant {
     public static final byte CONSTANT_InvokeDynamic      = 18;
     public static final byte CONSTANT_MemberRef          = 19; // Unofficial constant
 
-    protected byte tag;
+    protected final byte tag;
 
     public Constant(byte tag) {
         this.tag = tag;
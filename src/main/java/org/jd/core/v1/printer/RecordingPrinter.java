@@ -0,0 +1,372 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.printer;
+
+import org.jd.core.v1.api.printer.Printer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Printer recording the calls in a compact binary form, and forwarding them to an other printer, if any. The
+ * recorded calls are sent to any printer by 'replay'.<br><br>
+ *
+ * Each call is stored as an operation code followed by its arguments. Integers are stored as variable length
+ * quantities. Strings are stored once: the next occurrences are replaced by their index. Characters are stored as
+ * variable length quantities, without loss for invalid UTF-16 strings.<br>
+ */
+public class RecordingPrinter implements Printer {
+    protected static final int START = 1;
+    protected static final int END = 2;
+    protected static final int TEXT = 3;
+    protected static final int NUMERIC_CONSTANT = 4;
+    protected static final int STRING_CONSTANT = 5;
+    protected static final int KEYWORD = 6;
+    protected static final int DECLARATION = 7;
+    protected static final int REFERENCE = 8;
+    protected static final int INDENT = 9;
+    protected static final int UNINDENT = 10;
+    protected static final int START_LINE = 11;
+    protected static final int END_LINE = 12;
+    protected static final int EXTRA_LINE = 13;
+    protected static final int START_MARKER = 14;
+    protected static final int END_MARKER = 15;
+
+    protected Printer printer;
+    protected byte[] data = new byte[1024];
+    protected int length;
+    protected HashMap<String, Integer> strings = new HashMap<>();
+
+    public RecordingPrinter() {}
+
+    /**
+     * @param printer printer receiving the calls, null if none
+     */
+    public RecordingPrinter(Printer printer) {
+        this.printer = printer;
+    }
+
+    /**
+     * @return the recorded calls
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(data, length);
+    }
+
+    /**
+     * Send the calls recorded by a {@link RecordingPrinter} to 'printer'.
+     *
+     * @throws IllegalArgumentException if 'data' is not a valid recording
+     */
+    public static void replay(byte[] data, Printer printer) {
+        new Player(data).play(printer);
+    }
+
+    /**
+     * @return true if 'data' is a valid and complete recording, ending with a call to 'end':
+     *         {@link #replay(byte[], Printer)} won't fail after sending a part of the calls
+     */
+    public static boolean isValid(byte[] data) {
+        try {
+            Player player = new Player(data);
+
+            player.play(new NullPrinter());
+            return player.operation == END;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // --- Printer --- //
+    @Override
+    public void start(int maxLineNumber, int majorVersion, int minorVersion) {
+        if (printer != null) printer.start(maxLineNumber, majorVersion, minorVersion);
+        write(START);
+        write(maxLineNumber);
+        write(majorVersion);
+        write(minorVersion);
+    }
+
+    @Override
+    public void end() {
+        if (printer != null) printer.end();
+        write(END);
+    }
+
+    @Override
+    public void printText(String text) {
+        if (printer != null) printer.printText(text);
+        write(TEXT);
+        write(text);
+    }
+
+    @Override
+    public void printNumericConstant(String constant) {
+        if (printer != null) printer.printNumericConstant(constant);
+        write(NUMERIC_CONSTANT);
+        write(constant);
+    }
+
+    @Override
+    public void printStringConstant(String constant, String ownerInternalName) {
+        if (printer != null) printer.printStringConstant(constant, ownerInternalName);
+        write(STRING_CONSTANT);
+        write(constant);
+        write(ownerInternalName);
+    }
+
+    @Override
+    public void printKeyword(String keyword) {
+        if (printer != null) printer.printKeyword(keyword);
+        write(KEYWORD);
+        write(keyword);
+    }
+
+    @Override
+    public void printDeclaration(int type, String internalTypeName, String name, String descriptor) {
+        if (printer != null) printer.printDeclaration(type, internalTypeName, name, descriptor);
+        write(DECLARATION);
+        write(type);
+        write(internalTypeName);
+        write(name);
+        write(descriptor);
+    }
+
+    @Override
+    public void printReference(int type, String internalTypeName, String name, String descriptor, String ownerInternalName) {
+        if (printer != null) printer.printReference(type, internalTypeName, name, descriptor, ownerInternalName);
+        write(REFERENCE);
+        write(type);
+        write(internalTypeName);
+        write(name);
+        write(descriptor);
+        write(ownerInternalName);
+    }
+
+    @Override
+    public void indent() {
+        if (printer != null) printer.indent();
+        write(INDENT);
+    }
+
+    @Override
+    public void unindent() {
+        if (printer != null) printer.unindent();
+        write(UNINDENT);
+    }
+
+    @Override
+    public void startLine(int lineNumber) {
+        if (printer != null) printer.startLine(lineNumber);
+        write(START_LINE);
+        write(lineNumber);
+    }
+
+    @Override
+    public void endLine() {
+        if (printer != null) printer.endLine();
+        write(END_LINE);
+    }
+
+    @Override
+    public void extraLine(int count) {
+        if (printer != null) printer.extraLine(count);
+        write(EXTRA_LINE);
+        write(count);
+    }
+
+    @Override
+    public void startMarker(int type) {
+        if (printer != null) printer.startMarker(type);
+        write(START_MARKER);
+        write(type);
+    }
+
+    @Override
+    public void endMarker(int type) {
+        if (printer != null) printer.endMarker(type);
+        write(END_MARKER);
+        write(type);
+    }
+
+    /**
+     * Write an unsigned variable length quantity; negative values take 5 bytes.
+     */
+    protected void write(int value) {
+        if (length + 5 > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+        }
+
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte)((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        data[length++] = (byte)value;
+    }
+
+    /**
+     * Write 0 for null, the index + 1 of a string already written, or the next index + 1 followed by the characters.
+     */
+    protected void write(String s) {
+        if (s == null) {
+            write(0);
+        } else {
+            Integer index = strings.get(s);
+
+            if (index != null) {
+                write(index + 1);
+            } else {
+                int count = strings.size();
+
+                strings.put(s, count);
+                write(count + 1);
+                write(s.length());
+
+                for (int i=0, len=s.length(); i<len; i++) {
+                    write(s.charAt(i));
+                }
+            }
+        }
+    }
+
+    protected static class Player {
+        protected byte[] data;
+        protected int offset;
+        protected int operation;
+        protected String[] strings = new String[64];
+        protected int stringCount;
+
+        public Player(byte[] data) {
+            this.data = data;
+        }
+
+        public void play(Printer printer) {
+            try {
+                while (offset < data.length) {
+                    switch (operation = readInt()) {
+                        case START:
+                            printer.start(readInt(), readInt(), readInt());
+                            break;
+                        case END:
+                            printer.end();
+                            break;
+                        case TEXT:
+                            printer.printText(readString());
+                            break;
+                        case NUMERIC_CONSTANT:
+                            printer.printNumericConstant(readString());
+                            break;
+                        case STRING_CONSTANT:
+                            printer.printStringConstant(readString(), readString());
+                            break;
+                        case KEYWORD:
+                            printer.printKeyword(readString());
+                            break;
+                        case DECLARATION:
+                            printer.printDeclaration(readInt(), readString(), readString(), readString());
+                            break;
+                        case REFERENCE:
+                            printer.printReference(readInt(), readString(), readString(), readString(), readString());
+                            break;
+                        case INDENT:
+                            printer.indent();
+                            break;
+                        case UNINDENT:
+                            printer.unindent();
+                            break;
+                        case START_LINE:
+                            printer.startLine(readInt());
+                            break;
+                        case END_LINE:
+                            printer.endLine();
+                            break;
+                        case EXTRA_LINE:
+                            printer.extraLine(readInt());
+                            break;
+                        case START_MARKER:
+                            printer.startMarker(readInt());
+                            break;
+                        case END_MARKER:
+                            printer.endMarker(readInt());
+                            break;
+                        default:
+                            throw new IllegalArgumentException("Invalid operation code at offset " + offset);
+                    }
+                }
+            } catch (ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Truncated recording", e);
+            }
+        }
+
+        protected int readInt() {
+            int value = 0;
+
+            for (int shift=0; ; shift+=7) {
+                byte b = data[offset++];
+
+                value |= (b & 0x7F) << shift;
+
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        protected String readString() {
+            int index = readInt() - 1;
+
+            if (index == -1) {
+                return null;
+            }
+            if (index < stringCount) {
+                return strings[index];
+            }
+            if (index != stringCount) {
+                throw new IllegalArgumentException("Invalid string index at offset " + offset);
+            }
+
+            int count = readInt();
+
+            if ((count < 0) || (count > data.length - offset)) {
+                // A character takes at least one byte
+                throw new IllegalArgumentException("Invalid string length at offset " + offset);
+            }
+
+            char[] chars = new char[count];
+
+            for (int i=0; i<count; i++) {
+                chars[i] = (char)readInt();
+            }
+
+            if (stringCount == strings.length) {
+                strings = Arrays.copyOf(strings, stringCount * 2);
+            }
+
+            return strings[stringCount++] = new String(chars);
+        }
+    }
+
+    protected static class NullPrinter implements Printer {
+        @Override public void start(int maxLineNumber, int majorVersion, int minorVersion) {}
+        @Override public void end() {}
+        @Override public void printText(String text) {}
+        @Override public void printNumericConstant(String constant) {}
+        @Override public void printStringConstant(String constant, String ownerInternalName) {}
+        @Override public void printKeyword(String keyword) {}
+        @Override public void printDeclaration(int type, String internalTypeName, String name, String descriptor) {}
+        @Override public void printReference(int type, String internalTypeName, String name, String descriptor, String ownerInternalName) {}
+        @Override public void indent() {}
+        @Override public void unindent() {}
+        @Override public void startLine(int lineNumber) {}
+        @Override public void endLine() {}
+        @Override public void extraLine(int count) {}
+        @Override public void startMarker(int type) {}
+        @Override public void endMarker(int type) {}
+    }
+}
@@ -13,6 +13,9 @@ import org.jd.core.v1.model.processor.Processor;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.processor.ConvertClassFileProcessor;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.processor.UpdateJavaSyntaxTreeProcessor;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.TypeMaker;
+import org.jd.core.v1.util.ClassBudget;
+
+import java.util.Map;
 
 /**
  * Convert ClassFile model to Java syntax model.<br><br>
@@ -20,20 +23,38 @@ import org.jd.core.v1.service.converter.classfiletojavasyntax.util.TypeMaker;
  * Input:  {@link org.jd.core.v1.model.classfile.ClassFile}<br>
  * Output: {@link org.jd.core.v1.model.javasyntax.CompilationUnit}<br>
  *
+ * This processor is thread safe: the {@link TypeMaker} is created for each call, unless the message already contains
+ * one (see {@link org.jd.core.v1.DecompilationSession}), and the state of the sub-processors is kept in per-thread
+ * contexts.<br><br>
+ *
+ * The budget of the type, if configured, is stored in the header 'classBudget' and used by the next processors.<br><br>
+ *
+ * If the configuration entry 'outline' is set, the statements of most methods are not created (see
+ * {@link UpdateJavaSyntaxTreeProcessor}).<br>
+ *
  * @see ConvertClassFileProcessor
  */
 public class ClassFileToJavaSyntaxProcessor implements Processor {
-    protected static final ConvertClassFileProcessor CONVERT_CLASS_FILE_PROCESSOR = new ConvertClassFileProcessor();
-    protected static final UpdateJavaSyntaxTreeProcessor UPDATE_JAVA_SYNTAX_TREE_PROCESSOR = new UpdateJavaSyntaxTreeProcessor();
+    protected ConvertClassFileProcessor convertClassFileProcessor = new ConvertClassFileProcessor();
+    protected UpdateJavaSyntaxTreeProcessor updateJavaSyntaxTreeProcessor = new UpdateJavaSyntaxTreeProcessor();
 
     public void process(Message message) throws Exception {
         Loader loader = message.getHeader("loader");
+        TypeMaker typeMaker = message.getHeader("typeMaker");
+
+        if ((typeMaker == null) || (typeMaker.getLoader() != loader)) {
+            typeMaker = new TypeMaker(loader);
+            message.setHeader("typeMaker", typeMaker);
+        }
 
-        TypeMaker typeMaker = new TypeMaker(loader);
+        if (message.getHeader("classBudget") == null) {
+            String mainInternalTypeName = message.getHeader("mainInternalTypeName");
+            Map<String, Object> configuration = message.getHeader("configuration");
 
-        message.setHeader("typeMaker", typeMaker);
+            message.setHeader("classBudget", ClassBudget.create(mainInternalTypeName, configuration));
+        }
 
-        CONVERT_CLASS_FILE_PROCESSOR.process(message);
-        UPDATE_JAVA_SYNTAX_TREE_PROCESSOR.process(message);
+        convertClassFileProcessor.process(message);
+        updateJavaSyntaxTreeProcessor.process(message);
     }
 }
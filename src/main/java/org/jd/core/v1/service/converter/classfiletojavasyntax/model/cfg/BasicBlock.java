@@ -9,8 +9,7 @@ package org.jd.core.v1.service.converter.classfiletojavasyntax.model.cfg;
 
 import org.jd.core.v1.util.DefaultList;
 
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.*;
 
 public class BasicBlock {
     public static final int TYPE_DELETED                         = 0;
@@ -61,6 +60,11 @@ public class BasicBlock {
 
     protected static final DefaultList<ExceptionHandler> EMPTY_EXCEPTION_HANDLERS = DefaultList.emptyList();
     protected static final DefaultList<SwitchCase> EMPTY_SWITCH_CASES = DefaultList.emptyList();
+    protected static final Set<BasicBlock> EMPTY_PREDECESSORS = new AbstractSet<BasicBlock>() {
+        public Iterator<BasicBlock> iterator() { return Collections.emptyIterator(); }
+        public int size() { return 0; }
+        public boolean add(BasicBlock e) { return false; }
+    };
 
     public static final BasicBlock SWITCH_BREAK = new ImmutableBasicBlock(TYPE_SWITCH_BREAK);
     public static final BasicBlock LOOP_START = new ImmutableBasicBlock(TYPE_LOOP_START);
@@ -86,13 +90,9 @@ public class BasicBlock {
     protected BasicBlock sub2;
     protected DefaultList<ExceptionHandler> exceptionHandlers = EMPTY_EXCEPTION_HANDLERS;
     protected DefaultList<SwitchCase> switchCases = EMPTY_SWITCH_CASES;
-    protected HashSet<BasicBlock> predecessors;
+    protected Set<BasicBlock> predecessors;
 
     public BasicBlock(ControlFlowGraph controlFlowGraph, int index, BasicBlock original) {
-        this(controlFlowGraph, index, original, new HashSet<>());
-    }
-
-    public BasicBlock(ControlFlowGraph controlFlowGraph, int index, BasicBlock original, HashSet<BasicBlock> predecessors) {
         this.controlFlowGraph = controlFlowGraph;
         this.index = index;
         this.type = original.type;
@@ -106,24 +106,28 @@ public class BasicBlock {
         this.sub2 = original.sub2;
         this.exceptionHandlers = original.exceptionHandlers;
         this.switchCases = original.switchCases;
-        this.predecessors = predecessors;
+        this.predecessors = newPredecessors(controlFlowGraph, index);
     }
 
     public BasicBlock(ControlFlowGraph controlFlowGraph, int index, int type, int fromOffset, int toOffset, boolean inverseCondition) {
-        this(controlFlowGraph, index, type, fromOffset, toOffset, inverseCondition, new HashSet<>());
-    }
-
-    public BasicBlock(ControlFlowGraph controlFlowGraph, int index, int type, int fromOffset, int toOffset, boolean inverseCondition, HashSet<BasicBlock> predecessors) {
         this.controlFlowGraph = controlFlowGraph;
         this.index = index;
         this.type = type;
         this.fromOffset = fromOffset;
         this.toOffset = toOffset;
         this.next = this.branch = this.condition = this.sub1 = this.sub2 = END;
-        this.predecessors = predecessors;
+        this.predecessors = newPredecessors(controlFlowGraph, index);
         this.inverseCondition = inverseCondition;
     }
 
+    /**
+     * @return a view of the predecessors stored by the control flow graph, an empty set ignoring the additions for
+     *         the blocks without graph
+     */
+    protected static Set<BasicBlock> newPredecessors(ControlFlowGraph controlFlowGraph, int index) {
+        return (controlFlowGraph == null) ? EMPTY_PREDECESSORS : new ControlFlowGraph.PredecessorSet(controlFlowGraph, index);
+    }
+
     public ControlFlowGraph getControlFlowGraph() {
         return controlFlowGraph;
     }
@@ -216,7 +220,7 @@ public class BasicBlock {
         this.sub2 = sub2;
     }
 
-    public HashSet<BasicBlock> getPredecessors() {
+    public Set<BasicBlock> getPredecessors() {
         return predecessors;
     }
 
@@ -499,12 +503,7 @@ public class BasicBlock {
 
     protected static class ImmutableBasicBlock extends BasicBlock {
         public ImmutableBasicBlock(int type) {
-            super(
-                null, -1, type, 0, 0, true,
-                new HashSet<BasicBlock>() {
-                    public boolean add(BasicBlock e) { return false; }
-                }
-            );
+            super(null, -1, type, 0, 0, true);
         }
 
         public int getFirstLineNumber() { return 0; }
@@ -8,9 +8,14 @@
 package org.jd.core.v1.service.converter.classfiletojavasyntax.model.cfg;
 
 import org.jd.core.v1.model.classfile.Method;
+import org.jd.core.v1.util.Budget;
 import org.jd.core.v1.util.DefaultList;
 
-import java.util.HashSet;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 public class ControlFlowGraph {
     protected Method method;
@@ -19,7 +24,16 @@ public class ControlFlowGraph {
             throw new RuntimeException("Unexpected call");
         }
     };
-    protected int[] offsetToLineNumbers = null;
+    // Line numbers, by runs of offsets sorted by start offset
+    protected int[] lineNumberStartOffsets = null;
+    protected int[] lineNumbers = null;
+    protected int codeLength;
+    protected Budget budget = null;
+
+    // Predecessors of the blocks, by index: a single predecessor is stored inline, more in a sorted array
+    protected int[] predecessorCounts = new int[16];
+    protected int[] firstPredecessorIndexes = new int[16];
+    protected int[][] predecessorIndexes = new int[16][];
 
     public ControlFlowGraph(Method method) {
         this.method = method;
@@ -59,17 +73,244 @@ public class ControlFlowGraph {
         return basicBlock;
     }
 
-    public BasicBlock newBasicBlock(int type, int fromOffset, int toOffset, HashSet<BasicBlock> predecessors) {
-        BasicBlock basicBlock = new BasicBlock(this, list.size(), type, fromOffset, toOffset, true, predecessors);
-        list.add(basicBlock);
+    public BasicBlock newBasicBlock(int type, int fromOffset, int toOffset, Set<BasicBlock> predecessors) {
+        BasicBlock basicBlock = newBasicBlock(type, fromOffset, toOffset);
+        basicBlock.getPredecessors().addAll(predecessors);
         return basicBlock;
     }
 
-    public void setOffsetToLineNumbers(int[] offsetToLineNumbers) {
-        this.offsetToLineNumbers = offsetToLineNumbers;
+    public int getPredecessorCount(int index) {
+        return (index < predecessorCounts.length) ? predecessorCounts[index] : 0;
+    }
+
+    /**
+     * @return the index of the predecessor at 'position' of the block 'index'; the predecessors are sorted by index
+     */
+    public int getPredecessorIndex(int index, int position) {
+        int[] indexes = predecessorIndexes[index];
+        return (indexes == null) ? firstPredecessorIndexes[index] : indexes[position];
+    }
+
+    /**
+     * @return the position of the predecessor 'predecessorIndex' of the block 'index', a negative value if not found
+     */
+    public int searchPredecessor(int index, int predecessorIndex) {
+        int count = getPredecessorCount(index);
+
+        if (count == 0) {
+            return -1;
+        }
+
+        int[] indexes = predecessorIndexes[index];
+
+        if (indexes == null) {
+            return (firstPredecessorIndexes[index] == predecessorIndex) ? 0 : -1;
+        }
+
+        return Arrays.binarySearch(indexes, 0, count, predecessorIndex);
+    }
+
+    public boolean addPredecessor(int index, int predecessorIndex) {
+        if (index >= predecessorCounts.length) {
+            int length = Math.max(index + 1, 2 * predecessorCounts.length);
+
+            predecessorCounts = Arrays.copyOf(predecessorCounts, length);
+            firstPredecessorIndexes = Arrays.copyOf(firstPredecessorIndexes, length);
+            predecessorIndexes = Arrays.copyOf(predecessorIndexes, length);
+        }
+
+        int count = predecessorCounts[index];
+        int[] indexes = predecessorIndexes[index];
+
+        if (indexes == null) {
+            if (count == 0) {
+                firstPredecessorIndexes[index] = predecessorIndex;
+                predecessorCounts[index] = 1;
+                return true;
+            }
+            if (firstPredecessorIndexes[index] == predecessorIndex) {
+                return false;
+            }
+
+            // Second predecessor -> Move the first one to an array
+            indexes = predecessorIndexes[index] = new int[4];
+            indexes[0] = firstPredecessorIndexes[index];
+        }
+
+        int position = Arrays.binarySearch(indexes, 0, count, predecessorIndex);
+
+        if (position >= 0) {
+            return false;
+        }
+
+        position = -(position + 1);
+
+        if (count == indexes.length) {
+            indexes = predecessorIndexes[index] = Arrays.copyOf(indexes, 2 * count);
+        }
+
+        System.arraycopy(indexes, position, indexes, position + 1, count - position);
+        indexes[position] = predecessorIndex;
+        predecessorCounts[index] = count + 1;
+
+        return true;
+    }
+
+    public boolean removePredecessor(int index, int predecessorIndex) {
+        int position = searchPredecessor(index, predecessorIndex);
+
+        if (position < 0) {
+            return false;
+        }
+
+        removePredecessorAt(index, position);
+
+        return true;
+    }
+
+    protected void removePredecessorAt(int index, int position) {
+        int count = --predecessorCounts[index];
+        int[] indexes = predecessorIndexes[index];
+
+        if (indexes != null) {
+            System.arraycopy(indexes, position + 1, indexes, position, count - position);
+
+            if (count <= 1) {
+                // Single predecessor -> Move it inline
+                firstPredecessorIndexes[index] = indexes[0];
+                predecessorIndexes[index] = null;
+            }
+        }
+    }
+
+    public void clearPredecessors(int index) {
+        if (index < predecessorCounts.length) {
+            predecessorCounts[index] = 0;
+            predecessorIndexes[index] = null;
+        }
+    }
+
+    /**
+     * @param startOffsets the first offsets of the runs of instructions with the same line number, in ascending order,
+     *                     the first one being 0
+     * @param lineNumbers  the line numbers of the runs
+     * @param codeLength   the length of the byte code
+     */
+    public void setLineNumbers(int[] startOffsets, int[] lineNumbers, int codeLength) {
+        this.lineNumberStartOffsets = startOffsets;
+        this.lineNumbers = lineNumbers;
+        this.codeLength = codeLength;
     }
 
     public int getLineNumber(int offset) {
-        return (offsetToLineNumbers == null) ? 0 : offsetToLineNumbers[offset];
+        if (lineNumbers == null) {
+            return 0;
+        }
+        if ((offset < 0) || (offset >= codeLength)) {
+            throw new ArrayIndexOutOfBoundsException(offset);
+        }
+
+        int position = Arrays.binarySearch(lineNumberStartOffsets, offset);
+
+        return lineNumbers[(position >= 0) ? position : -(position + 2)];
+    }
+
+    public Budget getBudget() {
+        return budget;
+    }
+
+    public void setBudget(Budget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Count a step of the reducers and of the statement maker.
+     *
+     * @throws org.jd.core.v1.util.BudgetExceededException if the budget of the method is exceeded
+     */
+    public void checkBudget() {
+        if (budget != null) {
+            budget.step();
+        }
+    }
+
+    /**
+     * View of the predecessors of a block, in ascending order of index.
+     */
+    protected static class PredecessorSet extends AbstractSet<BasicBlock> {
+        protected ControlFlowGraph cfg;
+        protected int index;
+
+        public PredecessorSet(ControlFlowGraph cfg, int index) {
+            this.cfg = cfg;
+            this.index = index;
+        }
+
+        @Override
+        public int size() {
+            return cfg.getPredecessorCount(index);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return (o instanceof BasicBlock) && (cfg.searchPredecessor(index, ((BasicBlock)o).getIndex()) >= 0);
+        }
+
+        /**
+         * @throws IllegalArgumentException if 'basicBlock' is not a block of a graph, as {@link BasicBlock#END}
+         */
+        @Override
+        public boolean add(BasicBlock basicBlock) {
+            int predecessorIndex = basicBlock.getIndex();
+
+            if (predecessorIndex < 0) {
+                throw new IllegalArgumentException("Invalid predecessor: " + basicBlock);
+            }
+
+            return cfg.addPredecessor(index, predecessorIndex);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return (o instanceof BasicBlock) && cfg.removePredecessor(index, ((BasicBlock)o).getIndex());
+        }
+
+        @Override
+        public void clear() {
+            cfg.clearPredecessors(index);
+        }
+
+        @Override
+        public Iterator<BasicBlock> iterator() {
+            return new Iterator<BasicBlock>() {
+                protected int position = 0;
+                protected boolean removable = false;
+
+                @Override
+                public boolean hasNext() {
+                    return position < cfg.getPredecessorCount(index);
+                }
+
+                @Override
+                public BasicBlock next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    removable = true;
+                    return cfg.list.get(cfg.getPredecessorIndex(index, position++));
+                }
+
+                @Override
+                public void remove() {
+                    if (!removable) {
+                        throw new IllegalStateException();
+                    }
+
+                    removable = false;
+                    cfg.removePredecessorAt(index, --position);
+                }
+            };
+        }
     }
 }
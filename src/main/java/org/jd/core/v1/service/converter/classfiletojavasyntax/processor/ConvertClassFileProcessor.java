@@ -150,18 +150,18 @@ public class ConvertClassFileProcessor implements Processor {
             for (Method method : methods) {
                 String name = method.getName();
                 BaseAnnotationReference annotationReferences = convertAnnotationReferences(converter, method);
-                AttributeAnnotationDefault annotationDefault = method.getAttribute("AnnotationDefault");
+                AttributeAnnotationDefault annotationDefault = method.getAttribute(AttributeName.ANNOTATION_DEFAULT);
                 ElementValue defaultAnnotationValue = null;
 
                 if (annotationDefault != null) {
                     defaultAnnotationValue = converter.convert(annotationDefault.getDefaultValue());
                 }
 
-                AttributeCode code = method.getAttribute("Code");
+                AttributeCode code = method.getAttribute(AttributeName.CODE);
                 int firstLineNumber = 0;
 
                 if (code != null) {
-                    AttributeLineNumberTable lineNumberTable = code.getAttribute("LineNumberTable");
+                    AttributeLineNumberTable lineNumberTable = code.getAttribute(AttributeName.LINE_NUMBER_TABLE);
                     if (lineNumberTable != null) {
                         firstLineNumber = lineNumberTable.getLineNumberTable()[0].getLineNumber();
                     }
@@ -224,28 +224,28 @@ public class ConvertClassFileProcessor implements Processor {
     }
 
     protected BaseAnnotationReference convertAnnotationReferences(AnnotationConverter converter, ClassFile classFile) {
-        Annotations visibles = classFile.getAttribute("RuntimeVisibleAnnotations");
-        Annotations invisibles = classFile.getAttribute("RuntimeInvisibleAnnotations");
+        Annotations visibles = classFile.getAttribute(AttributeName.RUNTIME_VISIBLE_ANNOTATIONS);
+        Annotations invisibles = classFile.getAttribute(AttributeName.RUNTIME_INVISIBLE_ANNOTATIONS);
 
         return converter.convert(visibles, invisibles);
     }
 
     protected BaseAnnotationReference convertAnnotationReferences(AnnotationConverter converter, Field field) {
-        Annotations visibles = field.getAttribute("RuntimeVisibleAnnotations");
-        Annotations invisibles = field.getAttribute("RuntimeInvisibleAnnotations");
+        Annotations visibles = field.getAttribute(AttributeName.RUNTIME_VISIBLE_ANNOTATIONS);
+        Annotations invisibles = field.getAttribute(AttributeName.RUNTIME_INVISIBLE_ANNOTATIONS);
 
         return converter.convert(visibles, invisibles);
     }
 
     protected BaseAnnotationReference convertAnnotationReferences(AnnotationConverter converter, Method method) {
-        Annotations visibles = method.getAttribute("RuntimeVisibleAnnotations");
-        Annotations invisibles = method.getAttribute("RuntimeInvisibleAnnotations");
+        Annotations visibles = method.getAttribute(AttributeName.RUNTIME_VISIBLE_ANNOTATIONS);
+        Annotations invisibles = method.getAttribute(AttributeName.RUNTIME_INVISIBLE_ANNOTATIONS);
 
         return converter.convert(visibles, invisibles);
     }
 
     protected ExpressionVariableInitializer convertFieldInitializer(Field field, Type typeField) {
-        AttributeConstantValue acv = field.getAttribute("ConstantValue");
+        AttributeConstantValue acv = field.getAttribute(AttributeName.CONSTANT_VALUE);
 
         if (acv == null) {
             return null;
@@ -278,7 +278,7 @@ public class ConvertClassFileProcessor implements Processor {
     }
 
     protected ModuleDeclaration convertModuleDeclaration(ClassFile classFile) {
-        AttributeModule attributeModule = classFile.getAttribute("Module");
+        AttributeModule attributeModule = classFile.getAttribute(AttributeName.MODULE);
         List<ModuleDeclaration.ModuleInfo> requires = convertModuleDeclarationModuleInfo(attributeModule.getRequires());
         List<ModuleDeclaration.PackageInfo> exports = convertModuleDeclarationPackageInfo(attributeModule.getExports());
         List<ModuleDeclaration.PackageInfo> opens = convertModuleDeclarationPackageInfo(attributeModule.getOpens());
@@ -7,30 +7,53 @@
 
 package org.jd.core.v1.service.converter.classfiletojavasyntax.processor;
 
+import org.jd.core.v1.api.DecompilationListener;
 import org.jd.core.v1.model.javasyntax.CompilationUnit;
 import org.jd.core.v1.model.message.Message;
 import org.jd.core.v1.model.processor.Processor;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.TypeMaker;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.visitor.UpdateJavaSyntaxTreeStep1Visitor;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.visitor.UpdateJavaSyntaxTreeStep2Visitor;
+import org.jd.core.v1.util.ClassBudget;
+
+import java.util.Map;
 
 /**
  * Create statements, init fields, merge declarations.<br><br>
  *
  * Input:  {@link CompilationUnit}<br>
- * Output: {@link CompilationUnit}<br>
+ * Output: {@link CompilationUnit}<br><br>
+ *
+ * The step 1 visitor depends on the {@link TypeMaker} of the message and is created for each call. The step 2 visitor
+ * does not: one instance is kept and reused by thread.<br><br>
+ *
+ * If the configuration entry 'parallelMethods' is set, the methods of a type are parsed concurrently.<br><br>
+ *
+ * If the configuration entry 'decompilationListener' is set, the measures of each method are sent to the
+ * {@link DecompilationListener}.<br><br>
+ *
+ * If the configuration entry 'outline' is set, only the methods on which the declarations depend are parsed (see
+ * {@link org.jd.core.v1.service.converter.classfiletojavasyntax.visitor.CreateInstructionsVisitor}).<br>
  */
 public class UpdateJavaSyntaxTreeProcessor implements Processor {
+    protected ThreadLocal<UpdateJavaSyntaxTreeStep2Visitor> updateJavaSyntaxTreeStep2Visitors = ThreadLocal.withInitial(UpdateJavaSyntaxTreeStep2Visitor::new);
 
     @Override
     public void process(Message message) throws Exception {
         TypeMaker typeMaker = message.getHeader("typeMaker");
         CompilationUnit compilationUnit = message.getBody();
+        Map<String, Object> configuration = message.getHeader("configuration");
+        Object parallelMethodsConfiguration = (configuration == null) ? "false" : configuration.get("parallelMethods");
+        boolean parallelMethods = (parallelMethodsConfiguration == null) ? false : !"false".equals(parallelMethodsConfiguration.toString());
+        Object outlineConfiguration = (configuration == null) ? "false" : configuration.get("outline");
+        boolean outline = (outlineConfiguration == null) ? false : !"false".equals(outlineConfiguration.toString());
+        ClassBudget classBudget = message.getHeader("classBudget");
+        DecompilationListener listener = (configuration == null) ? null : (DecompilationListener)configuration.get("decompilationListener");
 
-        UpdateJavaSyntaxTreeStep1Visitor updateJavaSyntaxTreeStep1Visitor = new UpdateJavaSyntaxTreeStep1Visitor(typeMaker);
+        UpdateJavaSyntaxTreeStep1Visitor updateJavaSyntaxTreeStep1Visitor = new UpdateJavaSyntaxTreeStep1Visitor(typeMaker, parallelMethods, outline, classBudget, listener);
         updateJavaSyntaxTreeStep1Visitor.visit(compilationUnit);
 
-        UpdateJavaSyntaxTreeStep2Visitor updateJavaSyntaxTreeStep2Visitor = new UpdateJavaSyntaxTreeStep2Visitor();
+        UpdateJavaSyntaxTreeStep2Visitor updateJavaSyntaxTreeStep2Visitor = updateJavaSyntaxTreeStep2Visitors.get();
         updateJavaSyntaxTreeStep2Visitor.visit(compilationUnit);
     }
 }
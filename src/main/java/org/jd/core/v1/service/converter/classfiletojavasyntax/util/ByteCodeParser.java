@@ -12,6 +12,7 @@ import org.jd.core.v1.model.classfile.ConstantPool;
 import org.jd.core.v1.model.classfile.Method;
 import org.jd.core.v1.model.classfile.attribute.AttributeBootstrapMethods;
 import org.jd.core.v1.model.classfile.attribute.AttributeCode;
+import org.jd.core.v1.model.classfile.attribute.AttributeName;
 import org.jd.core.v1.model.classfile.attribute.BootstrapMethod;
 import org.jd.core.v1.model.classfile.constant.*;
 import org.jd.core.v1.model.javasyntax.AbstractJavaSyntaxVisitor;
@@ -67,7 +68,7 @@ public class ByteCodeParser {
         this.typeMaker = typeMaker;
         this.localVariableMaker = localVariableMaker;
         this.internalTypeName = internalTypeName;
-        this.attributeBootstrapMethods = classFile.getAttribute("BootstrapMethods");
+        this.attributeBootstrapMethods = classFile.getAttribute(AttributeName.BOOTSTRAP_METHODS);
         this.bodyDeclaration = bodyDeclaration;
         this.returnedType = returnedType;
     }
@@ -80,7 +81,7 @@ public class ByteCodeParser {
 
         Method method = cfg.getMethod();
         ConstantPool constants = method.getConstants();
-        byte[] code = method.<AttributeCode>getAttribute("Code").getCode();
+        byte[] code = method.<AttributeCode>getAttribute(AttributeName.CODE).getCode();
 
         Expression indexRef, arrayRef, valueRef, expression1, expression2, expression3;
         Type type1, type2, type3;
@@ -1986,7 +1987,7 @@ public class ByteCodeParser {
             return false;
 
         Method method = cfg.getMethod();
-        byte[] code = method.<AttributeCode>getAttribute("Code").getCode();
+        byte[] code = method.<AttributeCode>getAttribute(AttributeName.CODE).getCode();
         int opcode = code[offset] & 255;
 
         if (opcode != 178) // GETSTATIC
@@ -2021,7 +2022,7 @@ public class ByteCodeParser {
         }
 
         Method method = cfg.getMethod();
-        byte[] code = method.<AttributeCode>getAttribute("Code").getCode();
+        byte[] code = method.<AttributeCode>getAttribute(AttributeName.CODE).getCode();
         int opcode = code[offset] & 255;
 
         switch (opcode) {
@@ -2038,7 +2039,7 @@ public class ByteCodeParser {
     }
 
     public static int searchNextOpcode(BasicBlock basicBlock, int maxOffset) {
-        byte[] code = basicBlock.getControlFlowGraph().getMethod().<AttributeCode>getAttribute("Code").getCode();
+        byte[] code = basicBlock.getControlFlowGraph().getMethod().<AttributeCode>getAttribute(AttributeName.CODE).getCode();
         int offset = basicBlock.getFromOffset();
         int toOffset = basicBlock.getToOffset();
 
@@ -2139,7 +2140,7 @@ public class ByteCodeParser {
     }
 
     public static int getLastOpcode(BasicBlock basicBlock) {
-        byte[] code = basicBlock.getControlFlowGraph().getMethod().<AttributeCode>getAttribute("Code").getCode();
+        byte[] code = basicBlock.getControlFlowGraph().getMethod().<AttributeCode>getAttribute(AttributeName.CODE).getCode();
         int offset = basicBlock.getFromOffset();
         int toOffset = basicBlock.getToOffset();
 
@@ -2242,7 +2243,7 @@ public class ByteCodeParser {
     public static int evalStackDepth(BasicBlock bb) {
         Method method = bb.getControlFlowGraph().getMethod();
         ConstantPool constants = method.getConstants();
-        AttributeCode attributeCode = method.getAttribute("Code");
+        AttributeCode attributeCode = method.getAttribute(AttributeName.CODE);
         byte[] code = attributeCode.getCode();
         return evalStackDepth(constants, code, bb);
     }
@@ -97,7 +97,7 @@ import org.jd.core.v1.model.classfile.constant.*;
 public class ByteCodeWriter {
 
     public static String write(String linePrefix, Method method) {
-        AttributeCode attributeCode = method.getAttribute("Code");
+        AttributeCode attributeCode = method.getAttribute(AttributeName.CODE);
 
         if (attributeCode == null) {
             return null;
@@ -115,7 +115,7 @@ public class ByteCodeWriter {
     }
 
     public static String write(String linePrefix, Method method, int fromOffset, int toOffset) {
-        AttributeCode attributeCode = method.getAttribute("Code");
+        AttributeCode attributeCode = method.getAttribute(AttributeName.CODE);
 
         if (attributeCode == null) {
             return null;
@@ -321,7 +321,7 @@ public class ByteCodeWriter {
     }
 
     protected static void writeLineNumberTable(String linePrefix, StringBuilder sb, AttributeCode attributeCode) {
-        AttributeLineNumberTable lineNumberTable = attributeCode.getAttribute("LineNumberTable");
+        AttributeLineNumberTable lineNumberTable = attributeCode.getAttribute(AttributeName.LINE_NUMBER_TABLE);
 
         if (lineNumberTable != null) {
             sb.append(linePrefix).append("Line number table:\n");
@@ -336,7 +336,7 @@ public class ByteCodeWriter {
     }
 
     protected static void writeLocalVariableTable(String linePrefix, StringBuilder sb, AttributeCode attributeCode) {
-        AttributeLocalVariableTable localVariableTable = attributeCode.getAttribute("LocalVariableTable");
+        AttributeLocalVariableTable localVariableTable = attributeCode.getAttribute(AttributeName.LOCAL_VARIABLE_TABLE);
 
         if (localVariableTable != null) {
             sb.append(linePrefix).append("Local variable table:\n");
@@ -352,7 +352,7 @@ public class ByteCodeWriter {
             }
         }
 
-        AttributeLocalVariableTypeTable localVariableTypeTable = attributeCode.getAttribute("LocalVariableTypeTable");
+        AttributeLocalVariableTypeTable localVariableTypeTable = attributeCode.getAttribute(AttributeName.LOCAL_VARIABLE_TYPE_TABLE);
 
         if (localVariableTypeTable != null) {
             sb.append(linePrefix).append("Local variable type table:\n");
@@ -19,111 +19,57 @@ import static org.jd.core.v1.service.converter.classfiletojavasyntax.model.cfg.B
 public class ControlFlowGraphLoopReducer {
     protected static final LoopComparator LOOP_COMPARATOR = new LoopComparator();
 
-    public static BitSet[] buildDominatorIndexes(ControlFlowGraph cfg) {
-        List<BasicBlock> list = cfg.getBasicBlocks();
-        int length = list.size();
-        BitSet[] arrayOfDominatorIndexes = new BitSet[length];
-
-        BitSet initial = new BitSet(length);
-        initial.set(0);
-        arrayOfDominatorIndexes[0] = initial;
-
-        for (int i=0; i<length; i++) {
-            initial = new BitSet(length);
-            initial.flip(0, length);
-            arrayOfDominatorIndexes[i] = initial;
-        }
-
-        initial = arrayOfDominatorIndexes[0];
-        initial.clear();
-        initial.set(0);
-
-        boolean change;
-
-        do {
-            change = false;
-
-            for (BasicBlock basicBlock : list) {
-                int index = basicBlock.getIndex();
-
-                BitSet dominatorIndexes = arrayOfDominatorIndexes[index];
-
-                initial = (BitSet)dominatorIndexes.clone();
+    public static DominatorTree buildDominatorTree(ControlFlowGraph cfg) {
+        return new DominatorTree(cfg);
+    }
 
-                for (BasicBlock predecessorBB : basicBlock.getPredecessors()) {
-                    dominatorIndexes.and(arrayOfDominatorIndexes[predecessorBB.getIndex()]);
-                }
+    public static List<Loop> identifyNaturalLoops(ControlFlowGraph cfg, DominatorTree dominatorTree) {
+        ScratchArena arena = ScratchArena.get();
 
-                dominatorIndexes.set(index);
-                change |= (! initial.equals(dominatorIndexes));
-            }
-        } while (change);
+        arena.open();
 
-        return arrayOfDominatorIndexes;
+        try {
+            return identifyNaturalLoops(cfg, dominatorTree, arena);
+        } finally {
+            arena.close();
+        }
     }
 
-    public static List<Loop> identifyNaturalLoops(ControlFlowGraph cfg, BitSet[] arrayOfDominatorIndexes) {
+    /**
+     * The loop nesting forest and the temporary arrays are borrowed from 'arena'.
+     */
+    protected static List<Loop> identifyNaturalLoops(ControlFlowGraph cfg, DominatorTree dominatorTree, ScratchArena arena) {
         List<BasicBlock> list = cfg.getBasicBlocks();
         int length = list.size();
-        BitSet[] arrayOfMemberIndexes = new BitSet[length];
+        LoopNestingForest forest = new LoopNestingForest(cfg, dominatorTree, arena);
+        int[][] arrayOfMemberIndexes = arena.newIntArrays(length);
 
         // Identify loop members
         for (int i=0; i<length; i++) {
-            BasicBlock current = list.get(i);
-            BitSet dominatorIndexes = arrayOfDominatorIndexes[i];
-
-            switch (current.getType()) {
-                case TYPE_CONDITIONAL_BRANCH:
-                    int index = current.getBranch().getIndex();
-
-                    if ((index >= 0) && dominatorIndexes.get(index)) {
-                        // 'branch' is a dominator -> Back edge found
-                        arrayOfMemberIndexes[index] = searchLoopMemberIndexes(length, arrayOfMemberIndexes[index], current, current.getBranch());
-                    }
-                case TYPE_STATEMENTS:
-                case TYPE_GOTO:
-                    index = current.getNext().getIndex();
-
-                    if ((index >= 0) && dominatorIndexes.get(index)) {
-                        // 'next' is a dominator -> Back edge found
-                        arrayOfMemberIndexes[index] = searchLoopMemberIndexes(length, arrayOfMemberIndexes[index], current, current.getNext());
-                    }
-                    break;
-                case TYPE_SWITCH_DECLARATION:
-                    for (SwitchCase switchCase : current.getSwitchCases()) {
-                        index = switchCase.getBasicBlock().getIndex();
-
-                        if ((index >= 0) && dominatorIndexes.get(index)) {
-                            // 'switchCase' is a dominator -> Back edge found
-                            arrayOfMemberIndexes[index] = searchLoopMemberIndexes(length, arrayOfMemberIndexes[index], current, switchCase.getBasicBlock());
-                        }
-                    }
-                    break;
+            if (forest.isHeader(i)) {
+                arrayOfMemberIndexes[i] = forest.getMemberIndexes(i);
             }
         }
 
         // Loops & 'try' statements
         for (int i=0; i<length; i++) {
             if (arrayOfMemberIndexes[i] != null) {
-                BitSet memberIndexes = arrayOfMemberIndexes[i];
+                int[] memberIndexes = arrayOfMemberIndexes[i];
                 int maxOffset = -1;
 
-                for (int j=0; j<length; j++) {
-                    if (memberIndexes.get(j)) {
-                        int offset = list.get(j).getFromOffset();
-                        if (maxOffset < offset) {
-                            maxOffset = offset;
-                        }
+                for (int index : memberIndexes) {
+                    int offset = list.get(index).getFromOffset();
+                    if (maxOffset < offset) {
+                        maxOffset = offset;
                     }
                 }
 
                 BasicBlock start = list.get(i);
-                BitSet startDominatorIndexes = arrayOfDominatorIndexes[i];
 
                 if ((start.getType() == TYPE_TRY_DECLARATION) && (maxOffset != start.getFromOffset()) && (maxOffset < start.getExceptionHandlers().getFirst().getBasicBlock().getFromOffset())) {
                     // 'try' statement outside the loop
                     BasicBlock newStart = start.getNext();
-                    HashSet<BasicBlock> newStartPredecessors = newStart.getPredecessors();
+                    Set<BasicBlock> newStartPredecessors = newStart.getPredecessors();
 
                     // Loop in 'try' statement
                     Iterator<BasicBlock> iterator = start.getPredecessors().iterator();
@@ -131,15 +77,14 @@ public class ControlFlowGraphLoopReducer {
                     while (iterator.hasNext()) {
                         BasicBlock predecessor = iterator.next();
 
-                        if (!startDominatorIndexes.get(predecessor.getIndex())) {
+                        if (!dominatorTree.dominates(predecessor.getIndex(), i)) {
                             iterator.remove();
                             predecessor.replace(start, newStart);
                             newStartPredecessors.add(predecessor);
                         }
                     }
 
-                    memberIndexes.clear(start.getIndex());
-                    arrayOfMemberIndexes[newStart.getIndex()] = memberIndexes;
+                    arrayOfMemberIndexes[newStart.getIndex()] = removeIndex(memberIndexes, i);
                     arrayOfMemberIndexes[i] = null;
                 }
             }
@@ -150,53 +95,49 @@ public class ControlFlowGraphLoopReducer {
 
         for (int i=0; i<length; i++) {
             if (arrayOfMemberIndexes[i] != null) {
-                BitSet memberIndexes = arrayOfMemberIndexes[i];
+                int[] memberIndexes = arrayOfMemberIndexes[i];
 
                 // Unoptimize loop
                 BasicBlock start = list.get(i);
-                BitSet startDominatorIndexes = arrayOfDominatorIndexes[i];
-
-                BitSet searchZoneIndexes = new BitSet(length);
-                searchZoneIndexes.or(startDominatorIndexes);
-                searchZoneIndexes.flip(0, length);
-                searchZoneIndexes.set(start.getIndex());
+                SearchZone searchZone = new SearchZone(dominatorTree, i);
 
                 if (start.getType() == TYPE_CONDITIONAL_BRANCH) {
                     if ((start.getNext() != start) &&
                         (start.getBranch() != start) &&
-                        memberIndexes.get(start.getNext().getIndex()) &&
-                        memberIndexes.get(start.getBranch().getIndex()))
+                        (Arrays.binarySearch(memberIndexes, start.getNext().getIndex()) >= 0) &&
+                        (Arrays.binarySearch(memberIndexes, start.getBranch().getIndex()) >= 0))
                     {
                         // 'next' & 'branch' blocks are inside the loop -> Split loop ?
-                        BitSet nextIndexes = new BitSet(length);
-                        BitSet branchIndexes = new BitSet(length);
+                        BitSet memberZoneIndexes = new BitSet();
+                        BitSet nextIndexes = new BitSet();
+                        BitSet branchIndexes = new BitSet();
 
-                        recursiveForwardSearchLoopMemberIndexes(nextIndexes, memberIndexes, start.getNext(), start);
-                        recursiveForwardSearchLoopMemberIndexes(branchIndexes, memberIndexes, start.getBranch(), start);
+                        for (int index : memberIndexes) {
+                            memberZoneIndexes.set(index);
+                        }
+
+                        recursiveForwardSearchLoopMemberIndexes(nextIndexes, memberZoneIndexes, start.getNext(), start);
+                        recursiveForwardSearchLoopMemberIndexes(branchIndexes, memberZoneIndexes, start.getBranch(), start);
 
                         BitSet commonMemberIndexes = (BitSet)nextIndexes.clone();
                         commonMemberIndexes.and(branchIndexes);
 
-                        BitSet onlyLoopHeaderIndex = new BitSet(length);
-                        onlyLoopHeaderIndex.set(i);
-
-                        if (commonMemberIndexes.equals(onlyLoopHeaderIndex)) {
+                        if ((commonMemberIndexes.cardinality() == 1) && commonMemberIndexes.get(i)) {
                             // Only 'start' is the common basic block -> Split loop
-                            loops.add(makeLoop(list, start, searchZoneIndexes, memberIndexes));
+                            loops.add(makeLoop(list, start, searchZone, memberIndexes));
 
-                            branchIndexes.flip(0, length);
-                            searchZoneIndexes.and(branchIndexes);
-                            searchZoneIndexes.set(start.getIndex());
+                            searchZone.removeAll(branchIndexes);
+                            searchZone.add(i);
 
-                            loops.add(makeLoop(list, start, searchZoneIndexes, nextIndexes));
+                            loops.add(makeLoop(list, start, searchZone, nextIndexes.stream().toArray()));
                         } else {
-                            loops.add(makeLoop(list, start, searchZoneIndexes, memberIndexes));
+                            loops.add(makeLoop(list, start, searchZone, memberIndexes));
                         }
                     } else {
-                        loops.add(makeLoop(list, start, searchZoneIndexes, memberIndexes));
+                        loops.add(makeLoop(list, start, searchZone, memberIndexes));
                     }
                 } else {
-                    loops.add(makeLoop(list, start, searchZoneIndexes, memberIndexes));
+                    loops.add(makeLoop(list, start, searchZone, memberIndexes));
                 }
             }
         }
@@ -206,54 +147,40 @@ public class ControlFlowGraphLoopReducer {
         return loops;
     }
 
-    protected static BitSet searchLoopMemberIndexes(int length, BitSet memberIndexes, BasicBlock current, BasicBlock start) {
-        BitSet visited = new BitSet(length);
+    protected static int[] removeIndex(int[] indexes, int index) {
+        int position = Arrays.binarySearch(indexes, index);
 
-        recursiveBackwardSearchLoopMemberIndexes(visited, current, start);
-
-        if (memberIndexes == null) {
-            return visited;
-        } else {
-            memberIndexes.or(visited);
-            return memberIndexes;
+        if (position < 0) {
+            return indexes;
         }
-    }
 
-    protected static void recursiveBackwardSearchLoopMemberIndexes(BitSet visited, BasicBlock current, BasicBlock start) {
-        if (visited.get(current.getIndex()) == false) {
-            visited.set(current.getIndex());
+        int[] newIndexes = new int[indexes.length - 1];
 
-            if (current != start) {
-                for (BasicBlock predecessor : current.getPredecessors()) {
-                    recursiveBackwardSearchLoopMemberIndexes(visited, predecessor, start);
-                }
-            }
-        }
+        System.arraycopy(indexes, 0, newIndexes, 0, position);
+        System.arraycopy(indexes, position + 1, newIndexes, position, newIndexes.length - position);
+
+        return newIndexes;
     }
 
-    protected static Loop makeLoop(List<BasicBlock> list, BasicBlock start, BitSet searchZoneIndexes, BitSet memberIndexes) {
-        int length = list.size();
+    protected static Loop makeLoop(List<BasicBlock> list, BasicBlock start, SearchZone searchZone, int[] loopMemberIndexes) {
         int maxOffset = -1;
 
-        for (int i=0; i<length; i++) {
-            if (memberIndexes.get(i)) {
-                int offset = checkMaxOffset(list.get(i));
-                if (maxOffset < offset) {
-                    maxOffset = offset;
-                }
+        for (int index : loopMemberIndexes) {
+            int offset = checkMaxOffset(list.get(index));
+            if (maxOffset < offset) {
+                maxOffset = offset;
             }
         }
 
         // Extend members
-        memberIndexes.clear();
-        recursiveForwardSearchLoopMemberIndexes(memberIndexes, searchZoneIndexes, start, maxOffset);
+        BitSet memberIndexes = new BitSet();
+
+        recursiveForwardSearchLoopMemberIndexes(memberIndexes, searchZone, start, maxOffset);
 
         HashSet<BasicBlock> members = new HashSet<>(memberIndexes.cardinality());
 
-        for (int i=0; i<length; i++) {
-            if (memberIndexes.get(i)) {
-                members.add(list.get(i));
-            }
+        for (int i=memberIndexes.nextSetBit(0); i>=0; i=memberIndexes.nextSetBit(i+1)) {
+            members.add(list.get(i));
         }
 
         // Search 'end' block
@@ -320,17 +247,17 @@ public class ControlFlowGraphLoopReducer {
 
         // Extend last member
         if (end != END) {
-            HashSet<BasicBlock> m = new HashSet<>(members);
+            BasicBlock[] m = members.toArray(new BasicBlock[members.size()]);
             HashSet<BasicBlock> set = new HashSet<>();
 
             for (BasicBlock member : m) {
                 if ((member.getType() == TYPE_CONDITIONAL_BRANCH) && (member != start)) {
                     set.clear();
-                    if (recursiveForwardSearchLastLoopMemberIndexes(members, searchZoneIndexes, set, member.getNext(), end)) {
+                    if (recursiveForwardSearchLastLoopMemberIndexes(members, searchZone, set, member.getNext(), end)) {
                         members.addAll(set);
                     }
                     set.clear();
-                    if (recursiveForwardSearchLastLoopMemberIndexes(members, searchZoneIndexes, set, member.getBranch(), end)) {
+                    if (recursiveForwardSearchLastLoopMemberIndexes(members, searchZone, set, member.getBranch(), end)) {
                         members.addAll(set);
                     }
                 }
@@ -402,93 +329,134 @@ public class ControlFlowGraphLoopReducer {
         return offset;
     }
 
+    /**
+     * Mark the blocks of the search zone reachable from 'current' without going through 'target'. The search uses
+     * an explicit stack; the successors of the gotos of ternary operators are marked at the end, as a depth first
+     * recursion would do.<br>
+     */
     protected static void recursiveForwardSearchLoopMemberIndexes(BitSet visited, BitSet searchZoneIndexes, BasicBlock current, BasicBlock target) {
-        if (!current.matchType(GROUP_END) && (visited.get(current.getIndex()) == false) && (searchZoneIndexes.get(current.getIndex()) == true)) {
-            visited.set(current.getIndex());
+        DefaultList<BasicBlock> stack = new DefaultList<>();
+        DefaultList<BasicBlock> gotoInTernaryOperators = new DefaultList<>();
 
-            if (current != target) {
-                recursiveForwardSearchLoopMemberIndexes(visited, searchZoneIndexes, current.getNext(), target);
-                recursiveForwardSearchLoopMemberIndexes(visited, searchZoneIndexes, current.getBranch(), target);
+        stack.add(current);
 
-                for (SwitchCase switchCase : current.getSwitchCases()) {
-                    recursiveForwardSearchLoopMemberIndexes(visited, searchZoneIndexes, switchCase.getBasicBlock(), target);
-                }
+        while (!stack.isEmpty()) {
+            current = stack.removeLast();
 
-                for (ExceptionHandler exceptionHandler : current.getExceptionHandlers()) {
-                    recursiveForwardSearchLoopMemberIndexes(visited, searchZoneIndexes, exceptionHandler.getBasicBlock(), target);
-                }
+            if (!current.matchType(GROUP_END) && (visited.get(current.getIndex()) == false) && (searchZoneIndexes.get(current.getIndex()) == true)) {
+                visited.set(current.getIndex());
 
-                if (current.getType() == TYPE_GOTO_IN_TERNARY_OPERATOR) {
-                    visited.set(current.getNext().getIndex());
+                if (current != target) {
+                    pushSuccessors(stack, current);
+
+                    if (current.getType() == TYPE_GOTO_IN_TERNARY_OPERATOR) {
+                        gotoInTernaryOperators.add(current);
+                    }
                 }
             }
         }
+
+        for (BasicBlock gotoInTernaryOperator : gotoInTernaryOperators) {
+            visited.set(gotoInTernaryOperator.getNext().getIndex());
+        }
     }
 
-    protected static void recursiveForwardSearchLoopMemberIndexes(BitSet visited, BitSet searchZoneIndexes, BasicBlock current, int maxOffset) {
-        if (!current.matchType(TYPE_END|TYPE_LOOP_START|TYPE_LOOP_CONTINUE|TYPE_LOOP_END|TYPE_SWITCH_BREAK) &&
-            (visited.get(current.getIndex()) == false) &&
-            (searchZoneIndexes.get(current.getIndex()) == true) &&
-            (current.getFromOffset() <= maxOffset))
-        {
-            visited.set(current.getIndex());
+    protected static void recursiveForwardSearchLoopMemberIndexes(BitSet visited, SearchZone searchZone, BasicBlock current, int maxOffset) {
+        DefaultList<BasicBlock> stack = new DefaultList<>();
+        DefaultList<BasicBlock> gotoInTernaryOperators = new DefaultList<>();
 
-            recursiveForwardSearchLoopMemberIndexes(visited, searchZoneIndexes, current.getNext(), maxOffset);
-            recursiveForwardSearchLoopMemberIndexes(visited, searchZoneIndexes, current.getBranch(), maxOffset);
+        stack.add(current);
 
-            for (SwitchCase switchCase : current.getSwitchCases()) {
-                recursiveForwardSearchLoopMemberIndexes(visited, searchZoneIndexes, switchCase.getBasicBlock(), maxOffset);
-            }
+        while (!stack.isEmpty()) {
+            current = stack.removeLast();
 
-            for (ExceptionHandler exceptionHandler : current.getExceptionHandlers()) {
-                recursiveForwardSearchLoopMemberIndexes(visited, searchZoneIndexes, exceptionHandler.getBasicBlock(), maxOffset);
-            }
+            if (!current.matchType(TYPE_END|TYPE_LOOP_START|TYPE_LOOP_CONTINUE|TYPE_LOOP_END|TYPE_SWITCH_BREAK) &&
+                (visited.get(current.getIndex()) == false) &&
+                searchZone.contains(current.getIndex()) &&
+                (current.getFromOffset() <= maxOffset))
+            {
+                visited.set(current.getIndex());
+
+                pushSuccessors(stack, current);
 
-            if (current.getType() == TYPE_GOTO_IN_TERNARY_OPERATOR) {
-                visited.set(current.getNext().getIndex());
+                if (current.getType() == TYPE_GOTO_IN_TERNARY_OPERATOR) {
+                    gotoInTernaryOperators.add(current);
+                }
             }
         }
+
+        for (BasicBlock gotoInTernaryOperator : gotoInTernaryOperators) {
+            visited.set(gotoInTernaryOperator.getNext().getIndex());
+        }
     }
 
-    protected static boolean recursiveForwardSearchLastLoopMemberIndexes(HashSet<BasicBlock> members, BitSet searchZoneIndexes, HashSet<BasicBlock> set, BasicBlock current, BasicBlock end) {
-        if ((current == end) || members.contains(current) || set.contains(current)) {
-            return true;
-        } else if (current.matchType(GROUP_SINGLE_SUCCESSOR)) {
-            if (!inSearchZone(current.getNext(), searchZoneIndexes) || !predecessorsInSearchZone(current, searchZoneIndexes)) {
-                searchZoneIndexes.clear(current.getIndex());
-                return true;
-            } else {
-                set.add(current);
-                return recursiveForwardSearchLastLoopMemberIndexes(members, searchZoneIndexes, set, current.getNext(), end);
-            }
-        } else if (current.getType() == TYPE_CONDITIONAL_BRANCH) {
-            if (!inSearchZone(current.getNext(), searchZoneIndexes) || !inSearchZone(current.getBranch(), searchZoneIndexes) || !predecessorsInSearchZone(current, searchZoneIndexes)) {
-                searchZoneIndexes.clear(current.getIndex());
-                return true;
-            } else {
-                set.add(current);
-                return recursiveForwardSearchLastLoopMemberIndexes(members, searchZoneIndexes, set, current.getNext(), end) |
-                       recursiveForwardSearchLastLoopMemberIndexes(members, searchZoneIndexes, set, current.getBranch(), end);
-            }
-        } else if (current.matchType(GROUP_END)) {
-            if (!predecessorsInSearchZone(current, searchZoneIndexes)) {
-                if (current.getIndex() >= 0) {
-                    searchZoneIndexes.clear(current.getIndex());
+    protected static void pushSuccessors(DefaultList<BasicBlock> stack, BasicBlock basicBlock) {
+        stack.add(basicBlock.getNext());
+        stack.add(basicBlock.getBranch());
+
+        for (SwitchCase switchCase : basicBlock.getSwitchCases()) {
+            stack.add(switchCase.getBasicBlock());
+        }
+
+        for (ExceptionHandler exceptionHandler : basicBlock.getExceptionHandlers()) {
+            stack.add(exceptionHandler.getBasicBlock());
+        }
+    }
+
+    /**
+     * Search the blocks between 'current' and 'end', in the order of a depth first recursion, with an explicit stack.
+     *
+     * @return true if one of the paths reaches 'end', a member, a block of 'set' or a block leaving the search zone
+     */
+    protected static boolean recursiveForwardSearchLastLoopMemberIndexes(HashSet<BasicBlock> members, SearchZone searchZone, HashSet<BasicBlock> set, BasicBlock current, BasicBlock end) {
+        DefaultList<BasicBlock> stack = new DefaultList<>();
+        boolean found = false;
+
+        stack.add(current);
+
+        while (!stack.isEmpty()) {
+            current = stack.removeLast();
+
+            if ((current == end) || members.contains(current) || set.contains(current)) {
+                found = true;
+            } else if (current.matchType(GROUP_SINGLE_SUCCESSOR)) {
+                if (!inSearchZone(current.getNext(), searchZone) || !predecessorsInSearchZone(current, searchZone)) {
+                    searchZone.remove(current.getIndex());
+                    found = true;
+                } else {
+                    set.add(current);
+                    stack.add(current.getNext());
                 }
-            } else {
-                set.add(current);
+            } else if (current.getType() == TYPE_CONDITIONAL_BRANCH) {
+                if (!inSearchZone(current.getNext(), searchZone) || !inSearchZone(current.getBranch(), searchZone) || !predecessorsInSearchZone(current, searchZone)) {
+                    searchZone.remove(current.getIndex());
+                    found = true;
+                } else {
+                    set.add(current);
+                    // Search 'next' first
+                    stack.add(current.getBranch());
+                    stack.add(current.getNext());
+                }
+            } else if (current.matchType(GROUP_END)) {
+                if (!predecessorsInSearchZone(current, searchZone)) {
+                    if (current.getIndex() >= 0) {
+                        searchZone.remove(current.getIndex());
+                    }
+                } else {
+                    set.add(current);
+                }
+                found = true;
             }
-            return true;
         }
 
-        return false;
+        return found;
     }
 
-    protected static boolean predecessorsInSearchZone(BasicBlock basicBlock, BitSet searchZoneIndexes) {
+    protected static boolean predecessorsInSearchZone(BasicBlock basicBlock, SearchZone searchZone) {
         Set<BasicBlock> predecessors = basicBlock.getPredecessors();
 
         for (BasicBlock predecessor : predecessors) {
-            if (!inSearchZone(predecessor, searchZoneIndexes)) {
+            if (!inSearchZone(predecessor, searchZone)) {
                 return false;
             }
         }
@@ -496,8 +464,8 @@ public class ControlFlowGraphLoopReducer {
         return true;
     }
 
-    protected static boolean inSearchZone(BasicBlock basicBlock, BitSet searchZoneIndexes) {
-        return basicBlock.matchType(TYPE_END|TYPE_RETURN|TYPE_RET|TYPE_LOOP_END|TYPE_LOOP_START|TYPE_INFINITE_GOTO|TYPE_JUMP) || searchZoneIndexes.get(basicBlock.getIndex());
+    protected static boolean inSearchZone(BasicBlock basicBlock, SearchZone searchZone) {
+        return basicBlock.matchType(TYPE_END|TYPE_RETURN|TYPE_RET|TYPE_LOOP_END|TYPE_LOOP_START|TYPE_INFINITE_GOTO|TYPE_JUMP) || searchZone.contains(basicBlock.getIndex());
     }
 
     protected static BasicBlock recheckEndBlock(Set<BasicBlock> members, BasicBlock end) {
@@ -648,19 +616,30 @@ public class ControlFlowGraphLoopReducer {
     }
 
     protected static BasicBlock newJumpBasicBlock(BasicBlock bb, BasicBlock target) {
-        HashSet<BasicBlock> predecessors = new HashSet<>();
+        BasicBlock jump = bb.getControlFlowGraph().newBasicBlock(TYPE_JUMP, bb.getFromOffset(), target.getFromOffset());
 
-        predecessors.add(bb);
+        jump.getPredecessors().add(bb);
         target.getPredecessors().remove(bb);
 
-        return bb.getControlFlowGraph().newBasicBlock(TYPE_JUMP, bb.getFromOffset(), target.getFromOffset(), predecessors);
+        return jump;
     }
 
     public static void reduce(ControlFlowGraph cfg) {
-        BitSet[] arrayOfDominatorIndexes = buildDominatorIndexes(cfg);
-        List<Loop> loops = identifyNaturalLoops(cfg, arrayOfDominatorIndexes);
+        ScratchArena arena = ScratchArena.get();
+        List<Loop> loops;
+
+        arena.open();
+
+        try {
+            // The dominator tree is only used to identify the loops
+            loops = identifyNaturalLoops(cfg, new DominatorTree(cfg, arena), arena);
+        } finally {
+            arena.close();
+        }
 
         for (int i=0, loopsLength=loops.size(); i<loopsLength; i++) {
+            cfg.checkBudget();
+
             Loop loop = loops.get(i);
             BasicBlock startBB = loop.getStart();
             BasicBlock loopBB = reduceLoop(loop);
@@ -685,6 +664,46 @@ public class ControlFlowGraphLoopReducer {
         }
     }
 
+    /**
+     * Blocks not dominating strictly the start block of a loop, stored as the set of the excluded blocks. The zone of
+     * a start block not reachable from the start block of the graph only contains the start block.
+     */
+    protected static class SearchZone {
+        protected BitSet excludedIndexes = new BitSet();
+        protected int startIndex;
+        protected boolean reachable;
+
+        public SearchZone(DominatorTree dominatorTree, int startIndex) {
+            this.startIndex = startIndex;
+            this.reachable = dominatorTree.isReachable(startIndex);
+
+            if (reachable) {
+                for (int dominator = dominatorTree.getImmediateDominator(startIndex); dominator != -1; dominator = dominatorTree.getImmediateDominator(dominator)) {
+                    excludedIndexes.set(dominator);
+                }
+            }
+        }
+
+        public boolean contains(int index) {
+            return (reachable || (index == startIndex)) && !excludedIndexes.get(index);
+        }
+
+        public void remove(int index) {
+            excludedIndexes.set(index);
+        }
+
+        public void removeAll(BitSet indexes) {
+            excludedIndexes.or(indexes);
+        }
+
+        /**
+         * @param index index of a block removed from the zone, or of the start block
+         */
+        public void add(int index) {
+            excludedIndexes.clear(index);
+        }
+    }
+
     /*
      * Smaller loop first
      */
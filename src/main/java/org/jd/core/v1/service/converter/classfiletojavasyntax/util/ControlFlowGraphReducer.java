@@ -8,9 +8,11 @@
 package org.jd.core.v1.service.converter.classfiletojavasyntax.util;
 
 import org.jd.core.v1.model.classfile.attribute.AttributeCode;
+import org.jd.core.v1.model.classfile.attribute.AttributeName;
 import org.jd.core.v1.model.javasyntax.expression.Expression;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.model.cfg.BasicBlock;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.model.cfg.ControlFlowGraph;
+import org.jd.core.v1.util.DefaultList;
 
 import java.util.*;
 
@@ -26,9 +28,54 @@ public class ControlFlowGraphReducer {
         return reduce(visited, start, jsrTargets);
     }
 
+    /**
+     * Reduce the blocks reachable from 'basicBlock'.<br><br>
+     *
+     * The reduction runs on an explicit stack of frames, not on the call stack: sequences of blocks with a single
+     * successor are followed in a loop, and a frame is pushed for each block whose successors must be reduced before
+     * it. The blocks are reduced in the same order as a depth first recursion.<br>
+     */
     public static boolean reduce(BitSet visited, BasicBlock basicBlock, BitSet jsrTargets) {
-        if (!basicBlock.matchType(GROUP_END) && (visited.get(basicBlock.getIndex()) == false)) {
+        Frame frame = newFrame(visited, basicBlock, jsrTargets);
+
+        if (frame == null) {
+            return true;
+        }
+
+        DefaultList<Frame> stack = new DefaultList<>();
+        boolean reduced = true;
+
+        stack.add(frame);
+
+        do {
+            frame = stack.getLast();
+
+            if (frame.step(reduced)) {
+                // Reduce a successor
+                Frame child = newFrame(frame.childVisited, frame.child, jsrTargets);
+
+                if (child == null) {
+                    reduced = true;
+                } else {
+                    stack.add(child);
+                }
+            } else {
+                stack.removeLast();
+                reduced = frame.reduced;
+            }
+        } while (!stack.isEmpty());
+
+        return reduced;
+    }
+
+    /**
+     * @return the frame reducing the first block of the sequence 'basicBlock' having several successors, null if the
+     *         sequence is reduced
+     */
+    protected static Frame newFrame(BitSet visited, BasicBlock basicBlock, BitSet jsrTargets) {
+        while (!basicBlock.matchType(GROUP_END) && (visited.get(basicBlock.getIndex()) == false)) {
             visited.set(basicBlock.getIndex());
+            basicBlock.getControlFlowGraph().checkBudget();
 
             switch (basicBlock.getType()) {
                 case TYPE_START:
@@ -40,37 +87,28 @@ public class ControlFlowGraphReducer {
                 case TYPE_TRY_JSR:
                 case TYPE_TRY_ECLIPSE:
                 case TYPE_GOTO_IN_TERNARY_OPERATOR:
-                    return reduce(visited, basicBlock.getNext(), jsrTargets);
+                    basicBlock = basicBlock.getNext();
+                    break;
                 case TYPE_CONDITIONAL_BRANCH:
                 case TYPE_CONDITION:
                 case TYPE_CONDITION_OR:
                 case TYPE_CONDITION_AND:
                 case TYPE_CONDITION_TERNARY_OPERATOR:
-                    return reduceConditionalBranch(visited, basicBlock, jsrTargets);
+                    return new ConditionalBranchFrame(visited, basicBlock, jsrTargets);
                 case TYPE_SWITCH_DECLARATION:
-                    return reduceSwitchDeclaration(visited, basicBlock, jsrTargets);
+                    return new SwitchDeclarationFrame(visited, basicBlock, jsrTargets);
                 case TYPE_TRY_DECLARATION:
-                    return reduceTryDeclaration(visited, basicBlock, jsrTargets);
+                    return new TryDeclarationFrame(visited, basicBlock, jsrTargets);
                 case TYPE_JSR:
-                    return reduceJsr(visited, basicBlock, jsrTargets);
+                    return new JsrFrame(visited, basicBlock, jsrTargets);
                 case TYPE_LOOP:
-                    return reduceLoop(visited, basicBlock, jsrTargets);
+                    return new LoopFrame(visited, basicBlock, jsrTargets);
+                default:
+                    return null;
             }
         }
 
-        return true;
-    }
-
-    protected static boolean reduceConditionalBranch(BitSet visited, BasicBlock basicBlock, BitSet jsrTargets) {
-        while (aggregateConditionalBranches(basicBlock));
-
-        assert basicBlock.matchType(GROUP_CONDITION);
-
-        if (reduce(visited, basicBlock.getNext(), jsrTargets) & reduce(visited, basicBlock.getBranch(), jsrTargets)) {
-            return reduceConditionalBranch(basicBlock);
-        }
-
-        return false;
+        return null;
     }
 
     protected static boolean reduceConditionalBranch(BasicBlock basicBlock) {
@@ -257,101 +295,32 @@ public class ControlFlowGraphReducer {
         basicBlock.setNext(next);
     }
 
+    /**
+     * Aggregate the conditional branches following 'basicBlock'. The aggregations run on an explicit stack: a
+     * condition is aggregated after the conditions of its successors.<br>
+     */
     protected static boolean aggregateConditionalBranches(BasicBlock basicBlock) {
+        DefaultList<ConditionalBranchAggregation> stack = new DefaultList<>();
+        ConditionalBranchAggregation aggregation = new ConditionalBranchAggregation(basicBlock);
         boolean change = false;
 
-        BasicBlock next = basicBlock.getNext();
-        BasicBlock branch = basicBlock.getBranch();
-
-        if ((next.getType() == TYPE_GOTO_IN_TERNARY_OPERATOR) && (next.getPredecessors().size() == 1)) {
-            BasicBlock nextNext = next.getNext();
+        for (;;) {
+            BasicBlock bb = aggregation.step(change);
 
-            if (nextNext.matchType(TYPE_CONDITIONAL_BRANCH|TYPE_CONDITION)) {
-                if (branch.matchType(TYPE_STATEMENTS|TYPE_GOTO_IN_TERNARY_OPERATOR) && (nextNext == branch.getNext()) && (branch.getPredecessors().size() == 1) && (nextNext.getPredecessors().size() == 2)) {
-                    int stackDepth = ByteCodeParser.evalStackDepth(basicBlock);
-                    int stackDepthNextNext = ByteCodeParser.evalStackDepth(nextNext);
-
-                    if (stackDepth+1 == -stackDepthNextNext) {
-                        updateConditionTernaryOperator(basicBlock, nextNext);
-                        return true;
-                    }
-                }
-                if ((nextNext.getNext() == branch) && checkJdk118TernaryOperatorPattern(next, nextNext, 153)) { // IFEQ
-                    convertConditionalBranchToGotoInTernaryOperator(basicBlock, next, nextNext);
-                    return true;
-                }
-                if ((nextNext.getBranch() == branch) && checkJdk118TernaryOperatorPattern(next, nextNext, 154)) { // IFNE
-                    convertConditionalBranchToGotoInTernaryOperator(basicBlock, next, nextNext);
-                    return true;
-                }
-                if (nextNext.getPredecessors().size() == 1) {
-                    convertGotoInTernaryOperatorToCondition(next, nextNext);
-                    return true;
-                }
-            }
-        }
+            if (bb != null) {
+                // Aggregate the conditional branches following a successor
+                stack.add(aggregation);
+                aggregation = new ConditionalBranchAggregation(bb);
+            } else {
+                change = aggregation.change;
 
-        if (next.matchType(TYPE_CONDITIONAL_BRANCH|GROUP_CONDITION)) {
-            // Test line numbers
-            int lineNumber1 = basicBlock.getLastLineNumber();
-            int lineNumber2 = next.getFirstLineNumber();
-
-            if ((lineNumber2-lineNumber1) <= 1) {
-                change = aggregateConditionalBranches(next);
-
-                if (next.matchType(TYPE_CONDITIONAL_BRANCH|GROUP_CONDITION) && (next.getPredecessors().size() == 1)) {
-                    // Aggregate conditional branches
-                    if (next.getNext() == branch) {
-                        updateConditionalBranches(basicBlock, createLeftCondition(basicBlock), TYPE_CONDITION_OR, next);
-                        return true;
-                    } else if (next.getBranch() == branch) {
-                        updateConditionalBranches(basicBlock, createLeftInverseCondition(basicBlock), TYPE_CONDITION_AND, next);
-                        return true;
-                    } else if (branch.matchType(TYPE_CONDITIONAL_BRANCH|GROUP_CONDITION)) {
-                        change = aggregateConditionalBranches(branch);
-
-                        if (branch.matchType(TYPE_CONDITIONAL_BRANCH|GROUP_CONDITION)) {
-                            if ((next.getNext() == branch.getNext()) && (next.getBranch() == branch.getBranch())) {
-                                updateConditionTernaryOperator2(basicBlock);
-                                return true;
-                            } else if ((next.getBranch() == branch.getNext()) && (next.getNext() == branch.getBranch())) {
-                                updateConditionTernaryOperator2(basicBlock);
-                                branch.inverseCondition();
-                                return true;
-                            }
-                        }
-                    }
+                if (stack.isEmpty()) {
+                    return change;
                 }
-            }
-        }
-
-        if (branch.matchType(TYPE_CONDITIONAL_BRANCH|GROUP_CONDITION)) {
-            // Test line numbers
-            int lineNumber1 = basicBlock.getLastLineNumber();
-            int lineNumber2 = branch.getFirstLineNumber();
-
-            if ((lineNumber2-lineNumber1) <= 1) {
-                change = aggregateConditionalBranches(branch);
 
-                if (branch.matchType(TYPE_CONDITIONAL_BRANCH|GROUP_CONDITION) && (branch.getPredecessors().size() == 1)) {
-                    // Aggregate conditional branches
-                    if (branch.getBranch() == next) {
-                        updateConditionalBranches(basicBlock, createLeftCondition(basicBlock), TYPE_CONDITION_AND, branch);
-                        return true;
-                    } else if (branch.getNext() == next) {
-                        updateConditionalBranches(basicBlock, createLeftInverseCondition(basicBlock), TYPE_CONDITION_OR, branch);
-                        return true;
-                    }
-                }
+                aggregation = stack.removeLast();
             }
         }
-
-        if (basicBlock.getType() == TYPE_CONDITIONAL_BRANCH) {
-            basicBlock.setType(TYPE_CONDITION);
-            return true;
-        }
-
-        return change;
     }
 
     protected static BasicBlock createLeftCondition(BasicBlock basicBlock) {
@@ -477,7 +446,7 @@ public class ControlFlowGraphReducer {
 
     protected static boolean checkJdk118TernaryOperatorPattern(BasicBlock next, BasicBlock nextNext, int ifByteCode) {
         if ((nextNext.getToOffset() - nextNext.getFromOffset()) == 3) {
-            byte[] code = next.getControlFlowGraph().getMethod().<AttributeCode>getAttribute("Code").getCode();
+            byte[] code = next.getControlFlowGraph().getMethod().<AttributeCode>getAttribute(AttributeName.CODE).getCode();
             int nextFromOffset = next.getFromOffset();
             int nextNextFromOffset = nextNext.getFromOffset();
             return (code[nextFromOffset] == 3) &&                                                               // ICONST_0
@@ -489,7 +458,7 @@ public class ControlFlowGraphReducer {
         return false;
     }
 
-    protected static boolean reduceSwitchDeclaration(BitSet visited, BasicBlock basicBlock, BitSet jsrTargets) {
+    protected static BasicBlock prepareSwitchDeclaration(BasicBlock basicBlock) {
         SwitchCase defaultSC = null;
         SwitchCase lastSC = null;
         int maxOffset = -1;
@@ -572,12 +541,10 @@ public class ControlFlowGraphReducer {
             }
         }
 
-        boolean reduced = true;
-
-        for (SwitchCase switchCase : basicBlock.getSwitchCases()) {
-            reduced &= reduce(visited, switchCase.getBasicBlock(), jsrTargets);
-        }
+        return end;
+    }
 
+    protected static void updateSwitchDeclaration(BasicBlock basicBlock, BasicBlock end) {
         for (SwitchCase switchCase : basicBlock.getSwitchCases()) {
             BasicBlock bb = switchCase.getBasicBlock();
 
@@ -602,9 +569,7 @@ public class ControlFlowGraphReducer {
         // Change type
         basicBlock.setType(TYPE_SWITCH);
         basicBlock.setNext(end);
-        endPredecessors.add(basicBlock);
-
-        return reduced & reduce(visited, basicBlock.getNext(), jsrTargets);
+        end.getPredecessors().add(basicBlock);
     }
 
     protected static boolean searchLoopStart(BasicBlock basicBlock, int maxOffset) {
@@ -653,144 +618,6 @@ public class ControlFlowGraphReducer {
         return false;
     }
 
-    protected static boolean reduceTryDeclaration(BitSet visited, BasicBlock basicBlock, BitSet jsrTargets) {
-        boolean reduced = true;
-        BasicBlock finallyBB = null;
-
-        for (BasicBlock.ExceptionHandler exceptionHandler : basicBlock.getExceptionHandlers()) {
-            if (exceptionHandler.getInternalThrowableName() == null) {
-                reduced = reduce(visited, exceptionHandler.getBasicBlock(), jsrTargets);
-                finallyBB = exceptionHandler.getBasicBlock();
-                break;
-            }
-        }
-
-        BasicBlock jsrTarget = searchJsrTarget(basicBlock, jsrTargets);
-
-        reduced &= reduce(visited, basicBlock.getNext(), jsrTargets);
-
-        BasicBlock tryBB = basicBlock.getNext();
-
-        if (tryBB.matchType(GROUP_SYNTHETIC)) {
-            return false;
-        }
-
-        int maxOffset = basicBlock.getFromOffset();
-        boolean tryWithResourcesFlag = true;
-        BasicBlock tryWithResourcesBB = null;
-
-        for (BasicBlock.ExceptionHandler exceptionHandler : basicBlock.getExceptionHandlers()) {
-            if (exceptionHandler.getInternalThrowableName() != null) {
-                reduced &= reduce(visited, exceptionHandler.getBasicBlock(), jsrTargets);
-            }
-
-            BasicBlock bb = exceptionHandler.getBasicBlock();
-
-            if (bb.matchType(GROUP_SYNTHETIC)) {
-                return false;
-            }
-
-            if (maxOffset < bb.getFromOffset()) {
-                maxOffset = bb.getFromOffset();
-            }
-
-            if (tryWithResourcesFlag) {
-                Set<BasicBlock> predecessors = bb.getPredecessors();
-
-                if (predecessors.size() == 1) {
-                    tryWithResourcesFlag = false;
-                } else {
-                    assert predecessors.size() == 2;
-
-                    if (tryWithResourcesBB == null) {
-                        for (BasicBlock predecessor : predecessors) {
-                            if (predecessor != basicBlock) {
-                                assert predecessor.getType() == TYPE_TRY_DECLARATION;
-                                tryWithResourcesBB = predecessor;
-                                break;
-                            }
-                        }
-                    } else if (!predecessors.contains(tryWithResourcesBB)) {
-                        tryWithResourcesFlag = false;
-                    }
-                }
-            }
-        }
-
-        if (tryWithResourcesFlag) {
-            // One of 'try-with-resources' patterns
-            for (BasicBlock.ExceptionHandler exceptionHandler : basicBlock.getExceptionHandlers()) {
-                exceptionHandler.getBasicBlock().getPredecessors().remove(basicBlock);
-            }
-            for (BasicBlock predecessor : basicBlock.getPredecessors()) {
-                predecessor.replace(basicBlock, tryBB);
-                tryBB.replace(basicBlock, predecessor);
-            }
-            basicBlock.setType(TYPE_DELETED);
-        } else if (reduced) {
-            BasicBlock end = searchEndBlock(basicBlock, maxOffset);
-
-            updateBlock(tryBB, end, maxOffset);
-
-            if ((finallyBB != null) && (basicBlock.getExceptionHandlers().size() == 1) && (tryBB.getType() == TYPE_TRY) && (tryBB.getNext() == END) && (basicBlock.getFromOffset() == tryBB.getFromOffset()) && !containsFinally(tryBB)) {
-                // Merge inner try
-                basicBlock.getExceptionHandlers().addAll(0, tryBB.getExceptionHandlers());
-
-                for (BasicBlock.ExceptionHandler exceptionHandler : tryBB.getExceptionHandlers()) {
-                    Set<BasicBlock> predecessors = exceptionHandler.getBasicBlock().getPredecessors();
-                    predecessors.clear();
-                    predecessors.add(basicBlock);
-                }
-
-                tryBB.setType(TYPE_DELETED);
-                tryBB = tryBB.getSub1();
-                Set<BasicBlock> predecessors = tryBB.getPredecessors();
-                predecessors.clear();
-                predecessors.add(basicBlock);
-            }
-
-            // Update blocks
-            int toOffset = maxOffset;
-
-            for (BasicBlock.ExceptionHandler exceptionHandler : basicBlock.getExceptionHandlers()) {
-                BasicBlock bb = exceptionHandler.getBasicBlock();
-
-                if (bb == end) {
-                    exceptionHandler.setBasicBlock(END);
-                } else {
-                    int offset = (bb.getFromOffset() == maxOffset) ? end.getFromOffset() : maxOffset;
-                    BasicBlock last = updateBlock(bb, end, offset);
-
-                    if (toOffset < last.getToOffset()) {
-                        toOffset = last.getToOffset();
-                    }
-                }
-            }
-
-            basicBlock.setSub1(tryBB);
-            basicBlock.setNext(end);
-            end.getPredecessors().add(basicBlock);
-
-            if (jsrTarget == null) {
-                // Change type
-                if ((finallyBB != null) && checkEclipseFinallyPattern(basicBlock, finallyBB, maxOffset)) {
-                    basicBlock.setType(TYPE_TRY_ECLIPSE);
-                } else {
-                    basicBlock.setType(TYPE_TRY);
-                }
-            } else {
-                // Change type
-                basicBlock.setType(TYPE_TRY_JSR);
-                // Merge 1.1 to 1.4 sub try block
-                removeJsrAndMergeSubTry(basicBlock);
-            }
-
-            basicBlock.setToOffset(toOffset);
-        }
-
-        return reduced;
-    }
-
     protected static boolean containsFinally(BasicBlock basicBlock) {
         for (ExceptionHandler exceptionHandler : basicBlock.getExceptionHandlers()) {
             if (exceptionHandler.getInternalThrowableName() == null) {
@@ -967,10 +794,7 @@ public class ControlFlowGraphReducer {
         }
     }
 
-    protected static boolean reduceJsr(BitSet visited, BasicBlock basicBlock, BitSet jsrTargets) {
-        BasicBlock branch = basicBlock.getBranch();
-        boolean reduced = reduce(visited, basicBlock.getNext(), jsrTargets) & reduce(visited, branch, jsrTargets);
-
+    protected static boolean reduceJsr(BasicBlock basicBlock, BasicBlock branch, boolean reduced, BitSet jsrTargets) {
         if ((branch.getIndex() >= 0) && jsrTargets.get(branch.getIndex())) {
             // Reduce JSR
             int delta = basicBlock.getToOffset() - basicBlock.getFromOffset();
@@ -1028,58 +852,6 @@ public class ControlFlowGraphReducer {
         return reduced;
     }
 
-    protected static boolean reduceLoop(BitSet visited, BasicBlock basicBlock, BitSet jsrTargets) {
-        Object clone = visited.clone();
-        boolean reduced = reduce(visited, basicBlock.getSub1(), jsrTargets);
-
-        if (reduced == false) {
-            BitSet visitedMembers = new BitSet();
-            BasicBlock updateBasicBlock = searchUpdateBlockAndCreateContinueLoop(visitedMembers, basicBlock.getSub1());
-
-            visited = (BitSet)((BitSet)clone).clone();
-            reduced = reduce(visited, basicBlock.getSub1(), jsrTargets);
-
-            if (updateBasicBlock != null) {
-                BasicBlock ifBasicBlock = basicBlock.getControlFlowGraph().newBasicBlock(TYPE_IF, basicBlock.getSub1().getFromOffset(), basicBlock.getToOffset());
-
-                ifBasicBlock.setCondition(END);
-                ifBasicBlock.setSub1(basicBlock.getSub1());
-                ifBasicBlock.setNext(updateBasicBlock);
-                updateBasicBlock.getPredecessors().add(ifBasicBlock);
-                basicBlock.setSub1(ifBasicBlock);
-            }
-
-            if (reduced == false) {
-                visitedMembers.clear();
-
-                BasicBlock conditionalBranch = getLastConditionalBranch(visitedMembers, basicBlock.getSub1());
-
-                if ((conditionalBranch != null) && (conditionalBranch.getNext() == LOOP_START)) {
-                    visitedMembers.clear();
-                    visitedMembers.set(conditionalBranch.getIndex());
-                    changeEndLoopToJump(visitedMembers, basicBlock.getNext(), basicBlock.getSub1());
-
-                    BasicBlock newLoopBB = basicBlock.getControlFlowGraph().newBasicBlock(basicBlock);
-                    Set<BasicBlock> predecessors = conditionalBranch.getPredecessors();
-
-                    for (BasicBlock predecessor : predecessors) {
-                        predecessor.replace(conditionalBranch, LOOP_END);
-                    }
-
-                    newLoopBB.setNext(conditionalBranch);
-                    predecessors.clear();
-                    predecessors.add(newLoopBB);
-                    basicBlock.setSub1(newLoopBB);
-
-                    visitedMembers.clear();
-                    reduced = reduce(visitedMembers, newLoopBB, jsrTargets);
-                }
-            }
-        }
-
-        return reduced & reduce(visited, basicBlock.getNext(), jsrTargets);
-    }
-
     protected static BasicBlock getLastConditionalBranch(BitSet visited, BasicBlock basicBlock) {
         if (!basicBlock.matchType(GROUP_END) && (visited.get(basicBlock.getIndex()) == false)) {
             visited.set(basicBlock.getIndex());
@@ -1422,12 +1194,12 @@ public class ControlFlowGraphReducer {
     }
 
     protected static BasicBlock newJumpBasicBlock(BasicBlock bb, BasicBlock target) {
-        HashSet<BasicBlock> predecessors = new HashSet<>();
+        BasicBlock jump = bb.getControlFlowGraph().newBasicBlock(TYPE_JUMP, bb.getFromOffset(), target.getFromOffset());
 
-        predecessors.add(bb);
+        jump.getPredecessors().add(bb);
         target.getPredecessors().remove(bb);
 
-        return bb.getControlFlowGraph().newBasicBlock(TYPE_JUMP, bb.getFromOffset(), target.getFromOffset(), predecessors);
+        return jump;
     }
 
     protected static BasicBlock clone(BasicBlock bb, BasicBlock next) {
@@ -1438,4 +1210,516 @@ public class ControlFlowGraphReducer {
         bb.setNext(clone);
         return clone;
     }
+
+    /**
+     * Frame of the reduction of a block with several successors. 'step' is called until it returns false: the first
+     * call starts the reduction, the next calls resume it with the result of the reduction of 'child'.<br>
+     */
+    protected abstract static class Frame {
+        protected BitSet visited;
+        protected BasicBlock basicBlock;
+        protected BitSet jsrTargets;
+        protected int state;
+        protected boolean reduced = true;
+        protected BitSet childVisited;
+        protected BasicBlock child;
+
+        public Frame(BitSet visited, BasicBlock basicBlock, BitSet jsrTargets) {
+            this.visited = visited;
+            this.basicBlock = basicBlock;
+            this.jsrTargets = jsrTargets;
+        }
+
+        /**
+         * @param childReduced result of the reduction of the successor requested by the previous step
+         * @return true to request the reduction of 'child', false if 'reduced' is the result of the frame
+         */
+        public abstract boolean step(boolean childReduced);
+
+        protected boolean call(int nextState, BasicBlock child) {
+            return call(nextState, visited, child);
+        }
+
+        protected boolean call(int nextState, BitSet childVisited, BasicBlock child) {
+            this.state = nextState;
+            this.childVisited = childVisited;
+            this.child = child;
+            return true;
+        }
+
+        protected boolean complete(boolean reduced) {
+            this.reduced = reduced;
+            return false;
+        }
+    }
+
+    protected static class ConditionalBranchFrame extends Frame {
+        protected boolean nextReduced;
+
+        public ConditionalBranchFrame(BitSet visited, BasicBlock basicBlock, BitSet jsrTargets) {
+            super(visited, basicBlock, jsrTargets);
+        }
+
+        @Override
+        public boolean step(boolean childReduced) {
+            switch (state) {
+                case 0:
+                    while (aggregateConditionalBranches(basicBlock));
+
+                    assert basicBlock.matchType(GROUP_CONDITION);
+
+                    return call(1, basicBlock.getNext());
+                case 1:
+                    nextReduced = childReduced;
+                    return call(2, basicBlock.getBranch());
+                default:
+                    return complete((nextReduced & childReduced) && reduceConditionalBranch(basicBlock));
+            }
+        }
+    }
+
+    protected static class SwitchDeclarationFrame extends Frame {
+        protected BasicBlock end;
+        protected Iterator<SwitchCase> switchCaseIterator;
+
+        public SwitchDeclarationFrame(BitSet visited, BasicBlock basicBlock, BitSet jsrTargets) {
+            super(visited, basicBlock, jsrTargets);
+        }
+
+        @Override
+        public boolean step(boolean childReduced) {
+            switch (state) {
+                case 0:
+                    end = prepareSwitchDeclaration(basicBlock);
+                    switchCaseIterator = basicBlock.getSwitchCases().iterator();
+                    break;
+                case 1:
+                    reduced &= childReduced;
+                    break;
+                default:
+                    return complete(reduced & childReduced);
+            }
+
+            if (switchCaseIterator.hasNext()) {
+                return call(1, switchCaseIterator.next().getBasicBlock());
+            }
+
+            updateSwitchDeclaration(basicBlock, end);
+
+            return call(2, basicBlock.getNext());
+        }
+    }
+
+    protected static class TryDeclarationFrame extends Frame {
+        protected BasicBlock.ExceptionHandler finallyExceptionHandler;
+        protected BasicBlock finallyBB;
+        protected BasicBlock jsrTarget;
+        protected BasicBlock tryBB;
+        protected int maxOffset;
+        protected boolean tryWithResourcesFlag = true;
+        protected BasicBlock tryWithResourcesBB;
+        protected Iterator<BasicBlock.ExceptionHandler> exceptionHandlerIterator;
+        protected BasicBlock.ExceptionHandler exceptionHandler;
+
+        public TryDeclarationFrame(BitSet visited, BasicBlock basicBlock, BitSet jsrTargets) {
+            super(visited, basicBlock, jsrTargets);
+        }
+
+        @Override
+        public boolean step(boolean childReduced) {
+            switch (state) {
+                case 0:
+                    for (BasicBlock.ExceptionHandler exceptionHandler : basicBlock.getExceptionHandlers()) {
+                        if (exceptionHandler.getInternalThrowableName() == null) {
+                            finallyExceptionHandler = exceptionHandler;
+                            return call(1, exceptionHandler.getBasicBlock());
+                        }
+                    }
+
+                    jsrTarget = searchJsrTarget(basicBlock, jsrTargets);
+                    return call(2, basicBlock.getNext());
+                case 1:
+                    reduced = childReduced;
+                    finallyBB = finallyExceptionHandler.getBasicBlock();
+                    jsrTarget = searchJsrTarget(basicBlock, jsrTargets);
+                    return call(2, basicBlock.getNext());
+                case 2:
+                    reduced &= childReduced;
+                    tryBB = basicBlock.getNext();
+
+                    if (tryBB.matchType(GROUP_SYNTHETIC)) {
+                        return complete(false);
+                    }
+
+                    maxOffset = basicBlock.getFromOffset();
+                    exceptionHandlerIterator = basicBlock.getExceptionHandlers().iterator();
+                    break;
+                default:
+                    reduced &= childReduced;
+
+                    if (!checkExceptionHandler()) {
+                        return complete(false);
+                    }
+                    break;
+            }
+
+            while (exceptionHandlerIterator.hasNext()) {
+                exceptionHandler = exceptionHandlerIterator.next();
+
+                if (exceptionHandler.getInternalThrowableName() != null) {
+                    return call(3, exceptionHandler.getBasicBlock());
+                }
+
+                if (!checkExceptionHandler()) {
+                    return complete(false);
+                }
+            }
+
+            return complete(updateTryDeclaration());
+        }
+
+        protected boolean checkExceptionHandler() {
+            BasicBlock bb = exceptionHandler.getBasicBlock();
+
+            if (bb.matchType(GROUP_SYNTHETIC)) {
+                return false;
+            }
+
+            if (maxOffset < bb.getFromOffset()) {
+                maxOffset = bb.getFromOffset();
+            }
+
+            if (tryWithResourcesFlag) {
+                Set<BasicBlock> predecessors = bb.getPredecessors();
+
+                if (predecessors.size() == 1) {
+                    tryWithResourcesFlag = false;
+                } else {
+                    assert predecessors.size() == 2;
+
+                    if (tryWithResourcesBB == null) {
+                        for (BasicBlock predecessor : predecessors) {
+                            if (predecessor != basicBlock) {
+                                assert predecessor.getType() == TYPE_TRY_DECLARATION;
+                                tryWithResourcesBB = predecessor;
+                                break;
+                            }
+                        }
+                    } else if (!predecessors.contains(tryWithResourcesBB)) {
+                        tryWithResourcesFlag = false;
+                    }
+                }
+            }
+
+            return true;
+        }
+
+        protected boolean updateTryDeclaration() {
+            if (tryWithResourcesFlag) {
+                // One of 'try-with-resources' patterns
+                for (BasicBlock.ExceptionHandler exceptionHandler : basicBlock.getExceptionHandlers()) {
+                    exceptionHandler.getBasicBlock().getPredecessors().remove(basicBlock);
+                }
+                for (BasicBlock predecessor : basicBlock.getPredecessors()) {
+                    predecessor.replace(basicBlock, tryBB);
+                    tryBB.replace(basicBlock, predecessor);
+                }
+                basicBlock.setType(TYPE_DELETED);
+            } else if (reduced) {
+                BasicBlock end = searchEndBlock(basicBlock, maxOffset);
+
+                updateBlock(tryBB, end, maxOffset);
+
+                if ((finallyBB != null) && (basicBlock.getExceptionHandlers().size() == 1) && (tryBB.getType() == TYPE_TRY) && (tryBB.getNext() == END) && (basicBlock.getFromOffset() == tryBB.getFromOffset()) && !containsFinally(tryBB)) {
+                    // Merge inner try
+                    basicBlock.getExceptionHandlers().addAll(0, tryBB.getExceptionHandlers());
+
+                    for (BasicBlock.ExceptionHandler exceptionHandler : tryBB.getExceptionHandlers()) {
+                        Set<BasicBlock> predecessors = exceptionHandler.getBasicBlock().getPredecessors();
+                        predecessors.clear();
+                        predecessors.add(basicBlock);
+                    }
+
+                    tryBB.setType(TYPE_DELETED);
+                    tryBB = tryBB.getSub1();
+                    Set<BasicBlock> predecessors = tryBB.getPredecessors();
+                    predecessors.clear();
+                    predecessors.add(basicBlock);
+                }
+
+                // Update blocks
+                int toOffset = maxOffset;
+
+                for (BasicBlock.ExceptionHandler exceptionHandler : basicBlock.getExceptionHandlers()) {
+                    BasicBlock bb = exceptionHandler.getBasicBlock();
+
+                    if (bb == end) {
+                        exceptionHandler.setBasicBlock(END);
+                    } else {
+                        int offset = (bb.getFromOffset() == maxOffset) ? end.getFromOffset() : maxOffset;
+                        BasicBlock last = updateBlock(bb, end, offset);
+
+                        if (toOffset < last.getToOffset()) {
+                            toOffset = last.getToOffset();
+                        }
+                    }
+                }
+
+                basicBlock.setSub1(tryBB);
+                basicBlock.setNext(end);
+                end.getPredecessors().add(basicBlock);
+
+                if (jsrTarget == null) {
+                    // Change type
+                    if ((finallyBB != null) && checkEclipseFinallyPattern(basicBlock, finallyBB, maxOffset)) {
+                        basicBlock.setType(TYPE_TRY_ECLIPSE);
+                    } else {
+                        basicBlock.setType(TYPE_TRY);
+                    }
+                } else {
+                    // Change type
+                    basicBlock.setType(TYPE_TRY_JSR);
+                    // Merge 1.1 to 1.4 sub try block
+                    removeJsrAndMergeSubTry(basicBlock);
+                }
+
+                basicBlock.setToOffset(toOffset);
+            }
+
+            return reduced;
+        }
+    }
+
+    protected static class JsrFrame extends Frame {
+        protected BasicBlock branch;
+        protected boolean nextReduced;
+
+        public JsrFrame(BitSet visited, BasicBlock basicBlock, BitSet jsrTargets) {
+            super(visited, basicBlock, jsrTargets);
+        }
+
+        @Override
+        public boolean step(boolean childReduced) {
+            switch (state) {
+                case 0:
+                    branch = basicBlock.getBranch();
+                    return call(1, basicBlock.getNext());
+                case 1:
+                    nextReduced = childReduced;
+                    return call(2, branch);
+                default:
+                    return complete(reduceJsr(basicBlock, branch, nextReduced & childReduced, jsrTargets));
+            }
+        }
+    }
+
+    protected static class LoopFrame extends Frame {
+        protected BitSet clone;
+        protected BitSet visitedMembers;
+        protected BasicBlock updateBasicBlock;
+
+        public LoopFrame(BitSet visited, BasicBlock basicBlock, BitSet jsrTargets) {
+            super(visited, basicBlock, jsrTargets);
+        }
+
+        @Override
+        public boolean step(boolean childReduced) {
+            switch (state) {
+                case 0:
+                    clone = (BitSet)visited.clone();
+                    return call(1, basicBlock.getSub1());
+                case 1:
+                    if (childReduced == false) {
+                        visitedMembers = new BitSet();
+                        updateBasicBlock = searchUpdateBlockAndCreateContinueLoop(visitedMembers, basicBlock.getSub1());
+
+                        visited = (BitSet)clone.clone();
+                        return call(2, basicBlock.getSub1());
+                    }
+                    return call(4, basicBlock.getNext());
+                case 2:
+                    reduced = childReduced;
+
+                    if (updateBasicBlock != null) {
+                        BasicBlock ifBasicBlock = basicBlock.getControlFlowGraph().newBasicBlock(TYPE_IF, basicBlock.getSub1().getFromOffset(), basicBlock.getToOffset());
+
+                        ifBasicBlock.setCondition(END);
+                        ifBasicBlock.setSub1(basicBlock.getSub1());
+                        ifBasicBlock.setNext(updateBasicBlock);
+                        updateBasicBlock.getPredecessors().add(ifBasicBlock);
+                        basicBlock.setSub1(ifBasicBlock);
+                    }
+
+                    if (reduced == false) {
+                        visitedMembers.clear();
+
+                        BasicBlock conditionalBranch = getLastConditionalBranch(visitedMembers, basicBlock.getSub1());
+
+                        if ((conditionalBranch != null) && (conditionalBranch.getNext() == LOOP_START)) {
+                            visitedMembers.clear();
+                            visitedMembers.set(conditionalBranch.getIndex());
+                            changeEndLoopToJump(visitedMembers, basicBlock.getNext(), basicBlock.getSub1());
+
+                            BasicBlock newLoopBB = basicBlock.getControlFlowGraph().newBasicBlock(basicBlock);
+                            Set<BasicBlock> predecessors = conditionalBranch.getPredecessors();
+
+                            for (BasicBlock predecessor : predecessors) {
+                                predecessor.replace(conditionalBranch, LOOP_END);
+                            }
+
+                            newLoopBB.setNext(conditionalBranch);
+                            predecessors.clear();
+                            predecessors.add(newLoopBB);
+                            basicBlock.setSub1(newLoopBB);
+
+                            visitedMembers.clear();
+                            return call(3, visitedMembers, newLoopBB);
+                        }
+                    }
+                    return call(4, basicBlock.getNext());
+                case 3:
+                    reduced = childReduced;
+                    return call(4, basicBlock.getNext());
+                default:
+                    return complete(reduced & childReduced);
+            }
+        }
+    }
+
+    /**
+     * State of the aggregation of the conditional branches following a block. 'step' returns the successor whose
+     * conditional branches must be aggregated before resuming, or null if 'change' is the result.<br>
+     */
+    protected static class ConditionalBranchAggregation {
+        protected BasicBlock basicBlock;
+        protected BasicBlock next;
+        protected BasicBlock branch;
+        protected int state;
+        protected boolean change;
+
+        public ConditionalBranchAggregation(BasicBlock basicBlock) {
+            this.basicBlock = basicBlock;
+            this.next = basicBlock.getNext();
+            this.branch = basicBlock.getBranch();
+        }
+
+        public BasicBlock step(boolean childChange) {
+            switch (state) {
+                case 0:
+                    if ((next.getType() == TYPE_GOTO_IN_TERNARY_OPERATOR) && (next.getPredecessors().size() == 1)) {
+                        BasicBlock nextNext = next.getNext();
+
+                        if (nextNext.matchType(TYPE_CONDITIONAL_BRANCH|TYPE_CONDITION)) {
+                            if (branch.matchType(TYPE_STATEMENTS|TYPE_GOTO_IN_TERNARY_OPERATOR) && (nextNext == branch.getNext()) && (branch.getPredecessors().size() == 1) && (nextNext.getPredecessors().size() == 2)) {
+                                int stackDepth = ByteCodeParser.evalStackDepth(basicBlock);
+                                int stackDepthNextNext = ByteCodeParser.evalStackDepth(nextNext);
+
+                                if (stackDepth+1 == -stackDepthNextNext) {
+                                    updateConditionTernaryOperator(basicBlock, nextNext);
+                                    return complete(true);
+                                }
+                            }
+                            if ((nextNext.getNext() == branch) && checkJdk118TernaryOperatorPattern(next, nextNext, 153)) { // IFEQ
+                                convertConditionalBranchToGotoInTernaryOperator(basicBlock, next, nextNext);
+                                return complete(true);
+                            }
+                            if ((nextNext.getBranch() == branch) && checkJdk118TernaryOperatorPattern(next, nextNext, 154)) { // IFNE
+                                convertConditionalBranchToGotoInTernaryOperator(basicBlock, next, nextNext);
+                                return complete(true);
+                            }
+                            if (nextNext.getPredecessors().size() == 1) {
+                                convertGotoInTernaryOperatorToCondition(next, nextNext);
+                                return complete(true);
+                            }
+                        }
+                    }
+
+                    if (next.matchType(TYPE_CONDITIONAL_BRANCH|GROUP_CONDITION)) {
+                        // Test line numbers
+                        int lineNumber1 = basicBlock.getLastLineNumber();
+                        int lineNumber2 = next.getFirstLineNumber();
+
+                        if ((lineNumber2-lineNumber1) <= 1) {
+                            return call(1, next);
+                        }
+                    }
+                    break;
+                case 1:
+                    change = childChange;
+
+                    if (next.matchType(TYPE_CONDITIONAL_BRANCH|GROUP_CONDITION) && (next.getPredecessors().size() == 1)) {
+                        // Aggregate conditional branches
+                        if (next.getNext() == branch) {
+                            updateConditionalBranches(basicBlock, createLeftCondition(basicBlock), TYPE_CONDITION_OR, next);
+                            return complete(true);
+                        } else if (next.getBranch() == branch) {
+                            updateConditionalBranches(basicBlock, createLeftInverseCondition(basicBlock), TYPE_CONDITION_AND, next);
+                            return complete(true);
+                        } else if (branch.matchType(TYPE_CONDITIONAL_BRANCH|GROUP_CONDITION)) {
+                            return call(2, branch);
+                        }
+                    }
+                    break;
+                case 2:
+                    change = childChange;
+
+                    if (branch.matchType(TYPE_CONDITIONAL_BRANCH|GROUP_CONDITION)) {
+                        if ((next.getNext() == branch.getNext()) && (next.getBranch() == branch.getBranch())) {
+                            updateConditionTernaryOperator2(basicBlock);
+                            return complete(true);
+                        } else if ((next.getBranch() == branch.getNext()) && (next.getNext() == branch.getBranch())) {
+                            updateConditionTernaryOperator2(basicBlock);
+                            branch.inverseCondition();
+                            return complete(true);
+                        }
+                    }
+                    break;
+                default:
+                    change = childChange;
+
+                    if (branch.matchType(TYPE_CONDITIONAL_BRANCH|GROUP_CONDITION) && (branch.getPredecessors().size() == 1)) {
+                        // Aggregate conditional branches
+                        if (branch.getBranch() == next) {
+                            updateConditionalBranches(basicBlock, createLeftCondition(basicBlock), TYPE_CONDITION_AND, branch);
+                            return complete(true);
+                        } else if (branch.getNext() == next) {
+                            updateConditionalBranches(basicBlock, createLeftInverseCondition(basicBlock), TYPE_CONDITION_OR, branch);
+                            return complete(true);
+                        }
+                    }
+                    return complete();
+            }
+
+            if (branch.matchType(TYPE_CONDITIONAL_BRANCH|GROUP_CONDITION)) {
+                // Test line numbers
+                int lineNumber1 = basicBlock.getLastLineNumber();
+                int lineNumber2 = branch.getFirstLineNumber();
+
+                if ((lineNumber2-lineNumber1) <= 1) {
+                    return call(3, branch);
+                }
+            }
+
+            return complete();
+        }
+
+        protected BasicBlock call(int nextState, BasicBlock child) {
+            this.state = nextState;
+            return child;
+        }
+
+        protected BasicBlock complete() {
+            if (basicBlock.getType() == TYPE_CONDITIONAL_BRANCH) {
+                basicBlock.setType(TYPE_CONDITION);
+                return complete(true);
+            }
+
+            return null;
+        }
+
+        protected BasicBlock complete(boolean change) {
+            this.change = change;
+            return null;
+        }
+    }
 }
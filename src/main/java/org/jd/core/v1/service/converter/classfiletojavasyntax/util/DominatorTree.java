@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.service.converter.classfiletojavasyntax.util;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.model.cfg.ControlFlowGraph;
+
+/**
+ * Dominator tree of a control flow graph, rooted at its start block.<br><br>
+ *
+ * The immediate dominators are computed with the algorithm of Cooper, Harvey and Kennedy ("A Simple, Fast Dominance
+ * Algorithm"), over the reverse postorder of the blocks. The edges are read from the predecessor indexes. The tree is
+ * then numbered by a depth first walk: 'dominates' compares the intervals of the two blocks.<br><br>
+ *
+ * A block not reachable from the start block is dominated by all the blocks, as with the iterative data flow
+ * equations initialized to the full set.<br>
+ */
+public class DominatorTree {
+    protected static final int UNDEFINED = -1;
+
+    protected int[] immediateDominators;
+    protected int[] preorder;
+    protected int[] postorder;
+
+    public DominatorTree(ControlFlowGraph cfg) {
+        this(cfg, null);
+    }
+
+    /**
+     * @param lender arena lending the arrays of the tree in the scope of the caller, null to allocate them. A tree
+     *               built on borrowed arrays must not be used once this scope is closed.
+     */
+    public DominatorTree(ControlFlowGraph cfg, ScratchArena lender) {
+        int length = cfg.getBasicBlocks().size();
+
+        if (lender == null) {
+            this.immediateDominators = new int[length];
+            this.preorder = new int[length];
+            this.postorder = new int[length];
+        } else {
+            this.immediateDominators = lender.newInts(length);
+            this.preorder = lender.newInts(length);
+            this.postorder = lender.newInts(length);
+        }
+
+        ScratchArena arena = ScratchArena.get();
+
+        arena.open();
+
+        try {
+            build(cfg, arena);
+        } finally {
+            arena.close();
+        }
+    }
+
+    /**
+     * The temporary arrays are borrowed from 'arena'.
+     */
+    protected void build(ControlFlowGraph cfg, ScratchArena arena) {
+        int length = cfg.getBasicBlocks().size();
+
+        // Predecessors and successors, as compressed arrays
+        int[] predecessorStarts = arena.newInts(length + 1);
+        int[] successorStarts = arena.newInts(length + 1);
+
+        for (int i=0; i<length; i++) {
+            int count = 0;
+
+            for (int j=0, predecessorCount=cfg.getPredecessorCount(i); j<predecessorCount; j++) {
+                int index = cfg.getPredecessorIndex(i, j);
+
+                if ((index >= 0) && (index < length)) {
+                    count++;
+                    successorStarts[index + 1]++;
+                }
+            }
+
+            predecessorStarts[i + 1] = predecessorStarts[i] + count;
+        }
+
+        for (int i=0; i<length; i++) {
+            successorStarts[i + 1] += successorStarts[i];
+        }
+
+        int[] predecessors = arena.newInts(predecessorStarts[length]);
+        int[] successors = arena.newInts(predecessorStarts[length]);
+        int[] successorEnds = arena.newInts(length);
+
+        System.arraycopy(successorStarts, 0, successorEnds, 0, length);
+
+        for (int i=0; i<length; i++) {
+            int position = predecessorStarts[i];
+
+            for (int j=0, predecessorCount=cfg.getPredecessorCount(i); j<predecessorCount; j++) {
+                int index = cfg.getPredecessorIndex(i, j);
+
+                if ((index >= 0) && (index < length)) {
+                    predecessors[position++] = index;
+                    successors[successorEnds[index]++] = i;
+                }
+            }
+        }
+
+        // Reverse postorder
+        int[] order = arena.newInts(length);
+        int[] orderNumbers = arena.newInts(length);
+        int count = depthFirstSearch(arena, length, successorStarts, successors, order, orderNumbers);
+
+        // Immediate dominators
+        int[] idoms = immediateDominators;
+
+        for (int i=0; i<length; i++) {
+            idoms[i] = UNDEFINED;
+        }
+
+        if (length > 0) {
+            idoms[0] = 0;
+        }
+
+        boolean change = true;
+
+        while (change) {
+            change = false;
+
+            for (int i=1; i<count; i++) {
+                cfg.checkBudget();
+
+                int index = order[i];
+                int newIdom = UNDEFINED;
+
+                for (int j=predecessorStarts[index], end=predecessorStarts[index + 1]; j<end; j++) {
+                    int predecessor = predecessors[j];
+
+                    if (idoms[predecessor] != UNDEFINED) {
+                        newIdom = (newIdom == UNDEFINED) ? predecessor : intersect(idoms, orderNumbers, predecessor, newIdom);
+                    }
+                }
+
+                if (idoms[index] != newIdom) {
+                    idoms[index] = newIdom;
+                    change = true;
+                }
+            }
+        }
+
+        // Intervals of the tree
+        int[] childStarts = arena.newInts(length + 1);
+
+        for (int i=1; i<length; i++) {
+            if (idoms[i] != UNDEFINED) {
+                childStarts[idoms[i] + 1]++;
+            }
+        }
+
+        for (int i=0; i<length; i++) {
+            childStarts[i + 1] += childStarts[i];
+        }
+
+        int[] children = arena.newInts(childStarts[length]);
+        int[] childEnds = arena.newInts(length);
+
+        System.arraycopy(childStarts, 0, childEnds, 0, length);
+
+        for (int i=1; i<length; i++) {
+            if (idoms[i] != UNDEFINED) {
+                children[childEnds[idoms[i]]++] = i;
+            }
+        }
+
+        for (int i=0; i<length; i++) {
+            preorder[i] = postorder[i] = UNDEFINED;
+        }
+
+        if (length > 0) {
+            int[] stack = arena.newInts(length);
+            int[] positions = arena.newInts(length);
+            int top = 0;
+            int preorderNumber = 0;
+            int postorderNumber = 0;
+
+            stack[0] = 0;
+            positions[0] = childStarts[0];
+            preorder[0] = preorderNumber++;
+
+            while (top >= 0) {
+                int index = stack[top];
+
+                if (positions[top] < childStarts[index + 1]) {
+                    int child = children[positions[top]++];
+
+                    stack[++top] = child;
+                    positions[top] = childStarts[child];
+                    preorder[child] = preorderNumber++;
+                } else {
+                    postorder[index] = postorderNumber++;
+                    top--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Number the blocks reachable from the start block in reverse postorder.
+     *
+     * @return the number of reachable blocks
+     */
+    protected static int depthFirstSearch(ScratchArena arena, int length, int[] successorStarts, int[] successors, int[] order, int[] orderNumbers) {
+        for (int i=0; i<length; i++) {
+            orderNumbers[i] = UNDEFINED;
+        }
+
+        if (length == 0) {
+            return 0;
+        }
+
+        int[] stack = arena.newInts(length);
+        int[] positions = arena.newInts(length);
+        boolean[] visited = arena.newBooleans(length);
+        int top = 0;
+        int position = length;
+
+        stack[0] = 0;
+        positions[0] = successorStarts[0];
+        visited[0] = true;
+
+        while (top >= 0) {
+            int index = stack[top];
+
+            if (positions[top] < successorStarts[index + 1]) {
+                int successor = successors[positions[top]++];
+
+                if (!visited[successor]) {
+                    visited[successor] = true;
+                    stack[++top] = successor;
+                    positions[top] = successorStarts[successor];
+                }
+            } else {
+                order[--position] = index;
+                top--;
+            }
+        }
+
+        // Move the reachable blocks to the beginning of 'order'
+        int count = length - position;
+
+        System.arraycopy(order, position, order, 0, count);
+
+        for (int i=0; i<count; i++) {
+            orderNumbers[order[i]] = i;
+        }
+
+        return count;
+    }
+
+    protected static int intersect(int[] idoms, int[] orderNumbers, int finger1, int finger2) {
+        while (finger1 != finger2) {
+            while (orderNumbers[finger1] > orderNumbers[finger2]) {
+                finger1 = idoms[finger1];
+            }
+            while (orderNumbers[finger2] > orderNumbers[finger1]) {
+                finger2 = idoms[finger2];
+            }
+        }
+
+        return finger1;
+    }
+
+    /**
+     * @return the index of the immediate dominator of the block 'index', -1 for the start block and for the blocks
+     *         not reachable from the start block
+     */
+    public int getImmediateDominator(int index) {
+        return (index == 0) ? UNDEFINED : immediateDominators[index];
+    }
+
+    public boolean isReachable(int index) {
+        return immediateDominators[index] != UNDEFINED;
+    }
+
+    /**
+     * @return true if each path from the start block to the block 'index' goes through the block 'dominatorIndex';
+     *         a block dominates itself
+     */
+    public boolean dominates(int dominatorIndex, int index) {
+        if (preorder[index] == UNDEFINED) {
+            // Unreachable block
+            return true;
+        }
+        if (preorder[dominatorIndex] == UNDEFINED) {
+            return false;
+        }
+
+        return (preorder[dominatorIndex] <= preorder[index]) && (postorder[index] <= postorder[dominatorIndex]);
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.service.converter.classfiletojavasyntax.util;
+
+import org.jd.core.v1.util.ConcurrentCache;
+import org.jd.core.v1.util.DefaultList;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Transitive closures of the type hierarchy, used by {@link TypeMaker#isAssignable}.<br><br>
+ *
+ * Each type name gets a dense id on first use. The closure of a type is the sorted array of the ids of its direct and
+ * indirect super types, computed once, on first query, from the closures already known: 'isAssignable' is a binary
+ * search in a short array. Super types that cannot be loaded are kept in the closure as unresolved names; the answers
+ * of the fallback predicate for these types are memoized by pair.<br><br>
+ *
+ * Closures are kept in a bounded cache. When the number of ids exceeds 'maxIdCount', ids, closures and memoized
+ * answers are dropped together. This index is thread safe.<br>
+ */
+public class HierarchyIndex {
+    protected static final String[] EMPTY_ARRAY = new String[0];
+
+    protected Function<String, String[]> superTypeNamesProvider;
+    protected BiPredicate<String, String> unresolvedTypePredicate;
+    protected int maxCacheSize;
+    protected int maxIdCount;
+    protected volatile Generation generation;
+
+    /**
+     * @param superTypeNamesProvider  returns the direct super type names of a type (null elements are ignored), or
+     *                                null if the type cannot be loaded
+     * @param unresolvedTypePredicate tells if a type is assignable from a type that cannot be loaded, null to answer
+     *                                false
+     * @param maxCacheSize            maximum number of closures and of memoized answers
+     */
+    public HierarchyIndex(Function<String, String[]> superTypeNamesProvider, BiPredicate<String, String> unresolvedTypePredicate, int maxCacheSize) {
+        this.superTypeNamesProvider = superTypeNamesProvider;
+        this.unresolvedTypePredicate = unresolvedTypePredicate;
+        this.maxCacheSize = maxCacheSize;
+        this.maxIdCount = Math.max(maxCacheSize * 4, 1024);
+        this.generation = new Generation(maxCacheSize);
+    }
+
+    /**
+     * @return true if 'parentInternalName' is a direct or indirect super type of 'childInternalName'
+     */
+    public boolean isAssignable(String parentInternalName, String childInternalName) {
+        Generation g = generation;
+
+        if (g.ids.size() > maxIdCount) {
+            g = generation = new Generation(maxCacheSize);
+        }
+
+        Closure closure = g.getClosure(childInternalName);
+        Integer parentId = g.ids.get(parentInternalName);
+
+        if ((parentId != null) && (Arrays.binarySearch(closure.ids, parentId) >= 0)) {
+            return true;
+        }
+
+        if (unresolvedTypePredicate != null) {
+            for (String unresolvedName : closure.unresolvedNames) {
+                String key = parentInternalName + ' ' + unresolvedName;
+                Boolean assignable = g.unresolvedAnswers.get(key);
+
+                if (assignable == null) {
+                    assignable = unresolvedTypePredicate.test(parentInternalName, unresolvedName);
+                    g.unresolvedAnswers.put(key, assignable);
+                }
+
+                if (assignable) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    public void clear() {
+        generation = new Generation(maxCacheSize);
+    }
+
+    /**
+     * @return the number of type names having an id in the current generation
+     */
+    public int getIdCount() {
+        return generation.ids.size();
+    }
+
+    protected class Generation {
+        protected ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+        protected AtomicInteger nextId = new AtomicInteger();
+        protected ConcurrentCache<String, Closure> closures;
+        protected ConcurrentCache<String, Boolean> unresolvedAnswers;
+
+        public Generation(int maxCacheSize) {
+            this.closures = new ConcurrentCache<>(maxCacheSize);
+            this.unresolvedAnswers = new ConcurrentCache<>(maxCacheSize);
+        }
+
+        protected int getId(String internalName) {
+            Integer id = ids.get(internalName);
+            return (id != null) ? id : ids.computeIfAbsent(internalName, k -> nextId.getAndIncrement());
+        }
+
+        protected Closure getClosure(String internalName) {
+            Closure closure = closures.get(internalName);
+
+            if (closure == null) {
+                closure = closures.putIfAbsent(internalName, createClosure(internalName));
+            }
+
+            return closure;
+        }
+
+        /**
+         * Walk the super types breadth first, stopping on the types whose closure is known. Cycles of invalid class
+         * files are ignored.
+         */
+        protected Closure createClosure(String internalName) {
+            String[] superTypeNames = superTypeNamesProvider.apply(internalName);
+
+            if (superTypeNames == null) {
+                return new Closure(new int[0], new String[] { internalName });
+            }
+
+            HashSet<String> visited = new HashSet<>();
+            DefaultList<String> queue = new DefaultList<>();
+            DefaultList<String> unresolvedNames = null;
+            int[] closureIds = new int[8];
+            int count = 0;
+
+            visited.add(internalName);
+            addAll(queue, visited, superTypeNames);
+
+            for (int i=0; i<queue.size(); i++) {
+                String name = queue.get(i);
+
+                if (count + 1 > closureIds.length) {
+                    closureIds = Arrays.copyOf(closureIds, closureIds.length * 2);
+                }
+
+                closureIds[count++] = getId(name);
+
+                Closure closure = closures.get(name);
+
+                if (closure != null) {
+                    if (count + closure.ids.length > closureIds.length) {
+                        closureIds = Arrays.copyOf(closureIds, Math.max(closureIds.length * 2, count + closure.ids.length));
+                    }
+
+                    System.arraycopy(closure.ids, 0, closureIds, count, closure.ids.length);
+                    count += closure.ids.length;
+
+                    if (closure.unresolvedNames.length > 0) {
+                        if (unresolvedNames == null) {
+                            unresolvedNames = new DefaultList<>();
+                        }
+
+                        unresolvedNames.addAll(Arrays.asList(closure.unresolvedNames));
+                    }
+                } else {
+                    superTypeNames = superTypeNamesProvider.apply(name);
+
+                    if (superTypeNames == null) {
+                        if (unresolvedNames == null) {
+                            unresolvedNames = new DefaultList<>();
+                        }
+
+                        unresolvedNames.add(name);
+                    } else {
+                        addAll(queue, visited, superTypeNames);
+                    }
+                }
+            }
+
+            // Sort and remove duplicates
+            Arrays.sort(closureIds, 0, count);
+
+            int length = 0;
+
+            for (int i=0; i<count; i++) {
+                if ((length == 0) || (closureIds[length - 1] != closureIds[i])) {
+                    closureIds[length++] = closureIds[i];
+                }
+            }
+
+            String[] unresolved = (unresolvedNames == null) ? EMPTY_ARRAY : new HashSet<>(unresolvedNames).toArray(EMPTY_ARRAY);
+
+            return new Closure(Arrays.copyOf(closureIds, length), unresolved);
+        }
+
+        protected void addAll(DefaultList<String> queue, HashSet<String> visited, String[] names) {
+            for (String name : names) {
+                if ((name != null) && visited.add(name)) {
+                    queue.add(name);
+                }
+            }
+        }
+    }
+
+    protected static class Closure {
+        protected final int[] ids;
+        protected final String[] unresolvedNames;
+
+        public Closure(int[] ids, String[] unresolvedNames) {
+            this.ids = ids;
+            this.unresolvedNames = unresolvedNames;
+        }
+    }
+}
@@ -129,8 +129,8 @@ public class LocalVariableMaker {
             // Create list of parameterTypes
             formalParameters = new FormalParameters();
 
-            AttributeParameterAnnotations rvpa = method.getAttribute("RuntimeVisibleParameterAnnotations");
-            AttributeParameterAnnotations ripa = method.getAttribute("RuntimeInvisibleParameterAnnotations");
+            AttributeParameterAnnotations rvpa = method.getAttribute(AttributeName.RUNTIME_VISIBLE_PARAMETER_ANNOTATIONS);
+            AttributeParameterAnnotations ripa = method.getAttribute(AttributeName.RUNTIME_INVISIBLE_PARAMETER_ANNOTATIONS);
 
             if ((rvpa == null) && (ripa == null)) {
                 for (int parameterIndex=0, variableIndex=firstVariableIndex; parameterIndex<=lastParameterIndex; parameterIndex++, variableIndex++) {
@@ -168,11 +168,11 @@ public class LocalVariableMaker {
     }
 
     protected void initLocalVariablesFromAttributes(Method method) {
-        AttributeCode code = method.getAttribute("Code");
+        AttributeCode code = method.getAttribute(AttributeName.CODE);
 
         // Init local variables from attributes
         if (code != null) {
-            AttributeLocalVariableTable localVariableTable = code.getAttribute("LocalVariableTable");
+            AttributeLocalVariableTable localVariableTable = code.getAttribute(AttributeName.LOCAL_VARIABLE_TABLE);
 
             if (localVariableTable != null) {
                 boolean staticFlag = (method.getAccessFlags() & FLAG_STATIC) != 0;
@@ -202,7 +202,7 @@ public class LocalVariableMaker {
                 }
             }
 
-            AttributeLocalVariableTypeTable localVariableTypeTable = code.getAttribute("LocalVariableTypeTable");
+            AttributeLocalVariableTypeTable localVariableTypeTable = code.getAttribute(AttributeName.LOCAL_VARIABLE_TYPE_TABLE);
 
             if (localVariableTypeTable != null) {
                 UpdateTypeVisitor updateTypeVisitor = new UpdateTypeVisitor(localVariableSet);
@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.service.converter.classfiletojavasyntax.util;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.model.cfg.BasicBlock;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.model.cfg.ControlFlowGraph;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.jd.core.v1.service.converter.classfiletojavasyntax.model.cfg.BasicBlock.*;
+
+/**
+ * Nesting forest of the natural loops of a control flow graph.<br><br>
+ *
+ * A back edge is an edge whose target dominates its source; the natural loop of a header contains the blocks reaching
+ * the source of one of its back edges without going through the header. The loops are built with the algorithm of
+ * Tarjan and Havlak: the headers are processed from the innermost to the outermost, in reverse preorder of the
+ * dominator tree, and the backward search of a loop collapses each inner loop into its header with a union-find
+ * structure. Each reachable block is searched once, by its innermost loop.<br><br>
+ *
+ * The blocks not reachable from the start block are dominated by all the blocks: they may belong to several loops
+ * which are not nested. They are searched again for each loop.<br>
+ */
+public class LoopNestingForest {
+    protected static final int UNDEFINED = -1;
+    protected static final int[] EMPTY_INDEXES = new int[0];
+
+    protected ControlFlowGraph cfg;
+    protected List<BasicBlock> list;
+    protected DominatorTree dominatorTree;
+    protected boolean[] headers;
+    protected boolean[] headerMembers;
+    protected int[] parents;
+    protected int[] representatives;
+    protected int[][] unreachableMemberIndexes;
+    protected int[] childStarts;
+    protected int[] children;
+    protected int[] stamps;
+    protected int stamp;
+    protected int[] stack;
+    protected int[] buffer;
+    protected int bufferSize;
+
+    public LoopNestingForest(ControlFlowGraph cfg, DominatorTree dominatorTree) {
+        this(cfg, dominatorTree, null);
+    }
+
+    /**
+     * @param lender arena lending the arrays of the forest in the scope of the caller, null to allocate them. A forest
+     *               built on borrowed arrays must not be used once this scope is closed.
+     */
+    public LoopNestingForest(ControlFlowGraph cfg, DominatorTree dominatorTree, ScratchArena lender) {
+        this.cfg = cfg;
+        this.list = cfg.getBasicBlocks();
+        this.dominatorTree = dominatorTree;
+
+        int length = list.size();
+
+        if (lender == null) {
+            this.headers = new boolean[length];
+            this.headerMembers = new boolean[length];
+            this.parents = new int[length];
+            this.representatives = new int[length];
+            this.unreachableMemberIndexes = new int[length][];
+            this.stamps = new int[length];
+            this.stack = new int[length];
+            this.childStarts = new int[length + 1];
+            this.children = new int[length];
+        } else {
+            this.headers = lender.newBooleans(length);
+            this.headerMembers = lender.newBooleans(length);
+            this.parents = lender.newInts(length);
+            this.representatives = lender.newInts(length);
+            this.unreachableMemberIndexes = lender.newIntArrays(length);
+            this.stamps = lender.newInts(length);
+            this.stack = lender.newInts(length);
+            this.childStarts = lender.newInts(length + 1);
+            this.children = lender.newInts(length);
+        }
+
+        this.buffer = new int[16];
+
+        for (int i=0; i<length; i++) {
+            parents[i] = UNDEFINED;
+            representatives[i] = i;
+        }
+
+        ScratchArena arena = ScratchArena.get();
+
+        arena.open();
+
+        try {
+            build(cfg, arena);
+        } finally {
+            arena.close();
+        }
+    }
+
+    /**
+     * The temporary arrays are borrowed from 'arena'.
+     */
+    protected void build(ControlFlowGraph cfg, ScratchArena arena) {
+        int length = list.size();
+
+        // Back edges, sorted by header
+        searchBackEdges();
+
+        int[] backEdges = buffer;
+        int backEdgeCount = bufferSize / 2;
+        int[] sourceStarts = arena.newInts(length + 1);
+        int[] sources = arena.newInts(backEdgeCount);
+
+        for (int i=0; i<backEdgeCount; i++) {
+            sourceStarts[backEdges[2*i] + 1]++;
+        }
+
+        for (int i=0; i<length; i++) {
+            sourceStarts[i + 1] += sourceStarts[i];
+        }
+
+        int[] sourceEnds = arena.newInts(length);
+
+        System.arraycopy(sourceStarts, 0, sourceEnds, 0, length);
+
+        for (int i=0; i<backEdgeCount; i++) {
+            sources[sourceEnds[backEdges[2*i]]++] = backEdges[2*i + 1];
+        }
+
+        // Reachable headers, from the innermost to the outermost
+        int[] preorder = dominatorTree.preorder;
+        int[] blocksInPreorder = arena.newInts(length);
+        int reachableCount = 0;
+
+        for (int i=0; i<length; i++) {
+            if (preorder[i] != UNDEFINED) {
+                blocksInPreorder[preorder[i]] = i;
+                reachableCount++;
+            }
+        }
+
+        for (int i=reachableCount-1; i>=0; i--) {
+            int header = blocksInPreorder[i];
+
+            if (sourceStarts[header] < sourceStarts[header + 1]) {
+                cfg.checkBudget();
+                searchLoop(header, sources, sourceStarts[header], sourceStarts[header + 1]);
+            }
+        }
+
+        // Loops of unreachable headers
+        for (int i=0; i<length; i++) {
+            if ((preorder[i] == UNDEFINED) && (sourceStarts[i] < sourceStarts[i + 1])) {
+                cfg.checkBudget();
+                searchLoop(i, sources, sourceStarts[i], sourceStarts[i + 1]);
+            }
+        }
+
+        // Children of the headers; a block has at most one parent
+        for (int i=0; i<length; i++) {
+            if (parents[i] != UNDEFINED) {
+                childStarts[parents[i] + 1]++;
+            }
+        }
+
+        for (int i=0; i<length; i++) {
+            childStarts[i + 1] += childStarts[i];
+        }
+
+        int[] childEnds = arena.newInts(length);
+
+        System.arraycopy(childStarts, 0, childEnds, 0, length);
+
+        for (int i=0; i<length; i++) {
+            if (parents[i] != UNDEFINED) {
+                children[childEnds[parents[i]]++] = i;
+            }
+        }
+    }
+
+    /**
+     * Store the pairs (header index, source index) of the back edges in 'buffer'.
+     */
+    protected void searchBackEdges() {
+        bufferSize = 0;
+
+        for (int i=0, length=list.size(); i<length; i++) {
+            BasicBlock current = list.get(i);
+
+            switch (current.getType()) {
+                case TYPE_CONDITIONAL_BRANCH:
+                    addBackEdge(current.getBranch().getIndex(), i);
+                case TYPE_STATEMENTS:
+                case TYPE_GOTO:
+                    addBackEdge(current.getNext().getIndex(), i);
+                    break;
+                case TYPE_SWITCH_DECLARATION:
+                    for (SwitchCase switchCase : current.getSwitchCases()) {
+                        addBackEdge(switchCase.getBasicBlock().getIndex(), i);
+                    }
+                    break;
+            }
+        }
+    }
+
+    protected void addBackEdge(int header, int source) {
+        if ((header >= 0) && dominatorTree.dominates(header, source)) {
+            add(header);
+            add(source);
+        }
+    }
+
+    protected void searchLoop(int header, int[] sources, int start, int end) {
+        boolean reachable = dominatorTree.isReachable(header);
+        int top = 0;
+
+        headers[header] = true;
+        bufferSize = 0;
+        stamp++;
+
+        for (int i=start; i<end; i++) {
+            int source = sources[i];
+
+            if (!reachable || !dominatorTree.isReachable(source)) {
+                searchUnreachableMembers(header, source);
+            } else if (source == header) {
+                headerMembers[header] = true;
+            } else {
+                // The backward search from a reachable source reaches the header
+                headerMembers[header] = true;
+
+                int representative = find(source);
+
+                if (representative != header) {
+                    parents[representative] = header;
+                    representatives[representative] = header;
+                    stack[top++] = representative;
+                }
+            }
+        }
+
+        while (top > 0) {
+            int index = stack[--top];
+
+            for (int i=0, count=cfg.getPredecessorCount(index); i<count; i++) {
+                int predecessorIndex = cfg.getPredecessorIndex(index, i);
+
+                if (!dominatorTree.isReachable(predecessorIndex)) {
+                    searchUnreachableMembers(header, predecessorIndex);
+                } else {
+                    int representative = find(predecessorIndex);
+
+                    if (representative != header) {
+                        parents[representative] = header;
+                        representatives[representative] = header;
+                        stack[top++] = representative;
+                    }
+                }
+            }
+        }
+
+        if (bufferSize > 0) {
+            unreachableMemberIndexes[header] = Arrays.copyOf(buffer, bufferSize);
+        }
+    }
+
+    /**
+     * Search the blocks reaching 'index' without going through 'header', as long as they are not reachable from the
+     * start block. The predecessors of an unreachable block are unreachable.
+     */
+    protected void searchUnreachableMembers(int header, int index) {
+        int bottom = list.size();
+        int top = bottom;
+
+        // Use the end of 'stack' as a second stack
+        if (stamps[index] != stamp) {
+            stamps[index] = stamp;
+            stack[--top] = index;
+        }
+
+        while (top < bottom) {
+            index = stack[top++];
+
+            if (index == header) {
+                headerMembers[header] = true;
+            } else {
+                add(index);
+
+                for (int i=0, count=cfg.getPredecessorCount(index); i<count; i++) {
+                    int predecessorIndex = cfg.getPredecessorIndex(index, i);
+
+                    if (stamps[predecessorIndex] != stamp) {
+                        stamps[predecessorIndex] = stamp;
+                        stack[--top] = predecessorIndex;
+                    }
+                }
+            }
+        }
+    }
+
+    protected int find(int index) {
+        int root = index;
+
+        while (representatives[root] != root) {
+            root = representatives[root];
+        }
+
+        // Path compression
+        while (representatives[index] != root) {
+            int next = representatives[index];
+            representatives[index] = root;
+            index = next;
+        }
+
+        return root;
+    }
+
+    protected void add(int value) {
+        if (bufferSize == buffer.length) {
+            buffer = Arrays.copyOf(buffer, 2 * bufferSize);
+        }
+
+        buffer[bufferSize++] = value;
+    }
+
+    /**
+     * @return true if the block 'index' is the target of a back edge
+     */
+    public boolean isHeader(int index) {
+        return headers[index];
+    }
+
+    /**
+     * @return the header of the innermost loop containing the block 'index', the enclosing loop for a header, -1 if
+     *         none. Only defined for the blocks reachable from the start block.
+     */
+    public int getParent(int index) {
+        return parents[index];
+    }
+
+    /**
+     * @return the indexes of the members of the loop 'header', nested loops included, in ascending order
+     */
+    public int[] getMemberIndexes(int header) {
+        if (!headers[header]) {
+            return EMPTY_INDEXES;
+        }
+
+        int top = 0;
+
+        bufferSize = 0;
+        stamp++;
+
+        if (headerMembers[header]) {
+            stamps[header] = stamp;
+            add(header);
+        }
+
+        stack[top++] = header;
+
+        while (top > 0) {
+            int index = stack[--top];
+            int[] indexes = unreachableMemberIndexes[index];
+
+            if (indexes != null) {
+                for (int unreachableIndex : indexes) {
+                    if (stamps[unreachableIndex] != stamp) {
+                        stamps[unreachableIndex] = stamp;
+                        add(unreachableIndex);
+                    }
+                }
+            }
+
+            for (int i=childStarts[index], end=childStarts[index + 1]; i<end; i++) {
+                int child = children[i];
+
+                stamps[child] = stamp;
+                add(child);
+
+                if (headers[child]) {
+                    stack[top++] = child;
+                }
+            }
+        }
+
+        int[] memberIndexes = Arrays.copyOf(buffer, bufferSize);
+
+        Arrays.sort(memberIndexes);
+
+        return memberIndexes;
+    }
+}
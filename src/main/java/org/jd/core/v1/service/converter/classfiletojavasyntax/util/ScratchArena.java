@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.service.converter.classfiletojavasyntax.util;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Per-thread pool of the scratch arrays of the control flow graph maker and of the loop reducer.<br><br>
+ *
+ * The arrays are borrowed between 'open' and 'close', and returned by 'close'; the scopes may be nested. A borrowed
+ * array may be longer than requested: the callers use the requested length, never 'array.length'. The arrays are
+ * cleared when they are returned, so a borrowed array is always filled with zeros or nulls: the callers must not write
+ * beyond the requested length. Outside of a scope, the arrays are allocated.<br>
+ */
+public class ScratchArena {
+    protected static final ThreadLocal<ScratchArena> ARENAS = ThreadLocal.withInitial(ScratchArena::new);
+
+    protected Pool<int[]> ints = new Pool<>(int[]::new, a -> a.length, (a, length) -> Arrays.fill(a, 0, length, 0));
+    protected Pool<boolean[]> booleans = new Pool<>(boolean[]::new, a -> a.length, (a, length) -> Arrays.fill(a, 0, length, false));
+    protected Pool<int[][]> intArrays = new Pool<>(int[][]::new, a -> a.length, (a, length) -> Arrays.fill(a, 0, length, null));
+    protected int[] marks = new int[3 * 4];
+    protected int depth;
+
+    public static ScratchArena get() {
+        return ARENAS.get();
+    }
+
+    public void open() {
+        if (marks.length == 3 * depth) {
+            marks = Arrays.copyOf(marks, 2 * marks.length);
+        }
+
+        int i = 3 * depth++;
+
+        marks[i] = ints.count;
+        marks[i + 1] = booleans.count;
+        marks[i + 2] = intArrays.count;
+    }
+
+    public void close() {
+        int i = 3 * --depth;
+
+        ints.release(marks[i]);
+        booleans.release(marks[i + 1]);
+        intArrays.release(marks[i + 2]);
+    }
+
+    public int[] newInts(int length) {
+        return (depth == 0) ? new int[length] : ints.borrow(length);
+    }
+
+    public boolean[] newBooleans(int length) {
+        return (depth == 0) ? new boolean[length] : booleans.borrow(length);
+    }
+
+    public int[][] newIntArrays(int length) {
+        return (depth == 0) ? new int[length][] : intArrays.borrow(length);
+    }
+
+    protected static class Pool<A> {
+        protected IntFunction<A> factory;
+        protected ToIntFunction<A> lengthFunction;
+        protected ObjIntConsumer<A> clearFunction;
+        protected Object[] arrays = new Object[8];
+        protected int[] lengths = new int[8];
+        protected int count;
+
+        public Pool(IntFunction<A> factory, ToIntFunction<A> lengthFunction, ObjIntConsumer<A> clearFunction) {
+            this.factory = factory;
+            this.lengthFunction = lengthFunction;
+            this.clearFunction = clearFunction;
+        }
+
+        @SuppressWarnings("unchecked")
+        public A borrow(int length) {
+            if (count == arrays.length) {
+                arrays = Arrays.copyOf(arrays, 2 * count);
+                lengths = Arrays.copyOf(lengths, 2 * count);
+            }
+
+            A array = (A)arrays[count];
+
+            if ((array == null) || (lengthFunction.applyAsInt(array) < length)) {
+                arrays[count] = array = factory.apply(length);
+            }
+
+            lengths[count++] = length;
+
+            return array;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void release(int mark) {
+            while (count > mark) {
+                count--;
+                clearFunction.accept((A)arrays[count], lengths[count]);
+            }
+        }
+    }
+}
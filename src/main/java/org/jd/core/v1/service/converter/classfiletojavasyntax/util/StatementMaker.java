@@ -10,6 +10,7 @@ package org.jd.core.v1.service.converter.classfiletojavasyntax.util;
 import org.jd.core.v1.model.classfile.ClassFile;
 import org.jd.core.v1.model.classfile.Constants;
 import org.jd.core.v1.model.classfile.attribute.AttributeCode;
+import org.jd.core.v1.model.classfile.attribute.AttributeName;
 import org.jd.core.v1.model.javasyntax.AbstractJavaSyntaxVisitor;
 import org.jd.core.v1.model.javasyntax.declaration.FieldDeclarator;
 import org.jd.core.v1.model.javasyntax.declaration.MethodDeclaration;
@@ -32,6 +33,7 @@ import org.jd.core.v1.service.converter.classfiletojavasyntax.model.javasyntax.s
 import org.jd.core.v1.service.converter.classfiletojavasyntax.model.javasyntax.statement.ClassFileTryStatement;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.model.localvariable.AbstractLocalVariable;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.visitor.*;
+import org.jd.core.v1.util.Budget;
 import org.jd.core.v1.util.DefaultList;
 import org.jd.core.v1.util.DefaultStack;
 
@@ -42,7 +44,6 @@ import static org.jd.core.v1.service.converter.classfiletojavasyntax.model.cfg.B
 public class StatementMaker {
     protected static final SwitchCaseComparator SWITCH_CASE_COMPARATOR = new SwitchCaseComparator();
     protected static final NullExpression FINALLY_EXCEPTION_EXPRESSION = new NullExpression(new ObjectType("java/lang/Exception", "java.lang.Exception", "Exception"));
-    protected static final MergeTryWithResourcesStatementVisitor MERGE_TRY_WITH_RESOURCES_STATEMENT_VISITOR = new MergeTryWithResourcesStatementVisitor();
 
     protected TypeMaker typeMaker;
     protected LocalVariableMaker localVariableMaker;
@@ -56,8 +57,11 @@ public class StatementMaker {
     protected final UpdateIntegerConstantTypeVisitor updateIntegerConstantTypeVisitor;
     protected SearchFirstLineNumberVisitor searchFirstLineNumberVisitor = new SearchFirstLineNumberVisitor();
     protected MemberVisitor memberVisitor = new MemberVisitor();
+    protected MergeTryWithResourcesStatementVisitor mergeTryWithResourcesStatementVisitor = new MergeTryWithResourcesStatementVisitor();
     protected boolean removeFinallyStatementsFlag = false;
     protected boolean mergeTryWithResourcesStatementFlag = false;
+    protected Budget budget = null;
+    protected DefaultList<IfReturnStatements> ifReturnStatements = new DefaultList<>();
 
     public StatementMaker(
             TypeMaker typeMaker, LocalVariableMaker localVariableMaker,
@@ -78,6 +82,7 @@ public class StatementMaker {
         Statements jumps = new Statements();
         WatchDog watchdog = new WatchDog();
 
+        budget = cfg.getBudget();
         localVariableMaker.pushFrame(statements);
 
         // Generate statements
@@ -91,7 +96,7 @@ public class StatementMaker {
 
         // Merge 'try-with-resources' statements
         if (mergeTryWithResourcesStatementFlag) {
-            statements.accept(MERGE_TRY_WITH_RESOURCES_STATEMENT_VISITOR);
+            statements.accept(mergeTryWithResourcesStatementVisitor);
         }
 
         // Replace pattern "synthetic_local_var = ...; return synthetic_local_var;" with "return ...;"
@@ -118,29 +123,48 @@ public class StatementMaker {
     }
 
     /**
-     * A recursive, next neighbour first, statements builder from basic blocks.
+     * A next neighbour first, statements builder from basic blocks. The sequence of next neighbours is followed in a
+     * loop: only the sub blocks are built recursively.
      *
      * @param basicBlock Current basic block
      * @param statements List to populate
      */
-    @SuppressWarnings("unchecked")
     protected void makeStatements(WatchDog watchdog, BasicBlock basicBlock, Statements statements, Statements jumps) {
+        int ifReturnStatementCount = ifReturnStatements.size();
+
+        while (basicBlock != null) {
+            basicBlock = makeStatement(watchdog, basicBlock, statements, jumps);
+        }
+
+        // Merge the 'if' statements of the sequence, from the last one
+        while (ifReturnStatements.size() > ifReturnStatementCount) {
+            mergeIfReturnStatements(ifReturnStatements.removeLast(), statements);
+        }
+    }
+
+    /**
+     * @return the next neighbour of 'basicBlock' to build, null if none
+     */
+    @SuppressWarnings("unchecked")
+    protected BasicBlock makeStatement(WatchDog watchdog, BasicBlock basicBlock, Statements statements, Statements jumps) {
         Statements subStatements, elseStatements;
         Expression condition, exp1, exp2;
 
+        if (budget != null) {
+            budget.step();
+        }
+
         switch (basicBlock.getType()) {
             case TYPE_START:
                 watchdog.check(basicBlock, basicBlock.getNext());
-                makeStatements(watchdog, basicBlock.getNext(), statements, jumps);
-                break;
+                return basicBlock.getNext();
             case TYPE_END:
                 break;
             case TYPE_STATEMENTS:
                 watchdog.check(basicBlock, basicBlock.getNext());
             case TYPE_THROW:
                 parseByteCode(basicBlock, statements);
-                makeStatements(watchdog, basicBlock.getNext(), statements, jumps);
-                break;
+                return basicBlock.getNext();
             case TYPE_RETURN:
                 statements.add(ReturnStatement.RETURN);
                 break;
@@ -149,20 +173,16 @@ public class StatementMaker {
                 parseByteCode(basicBlock, statements);
                 break;
             case TYPE_SWITCH:
-                parseSwitch(watchdog, basicBlock, statements, jumps);
-                break;
+                return parseSwitch(watchdog, basicBlock, statements, jumps);
             case TYPE_SWITCH_BREAK:
                 statements.add(BreakStatement.BREAK);
                 break;
             case TYPE_TRY:
-                parseTry(watchdog, basicBlock, statements, jumps, false, false);
-                break;
+                return parseTry(watchdog, basicBlock, statements, jumps, false, false);
             case TYPE_TRY_JSR:
-                parseTry(watchdog, basicBlock, statements, jumps, true, false);
-                break;
+                return parseTry(watchdog, basicBlock, statements, jumps, true, false);
             case TYPE_TRY_ECLIPSE:
-                parseTry(watchdog, basicBlock, statements, jumps, false, true);
-                break;
+                return parseTry(watchdog, basicBlock, statements, jumps, false, true);
             case TYPE_JSR:
                 parseJSR(watchdog, basicBlock, statements, jumps);
                 break;
@@ -170,8 +190,7 @@ public class StatementMaker {
                 parseByteCode(basicBlock, statements);
                 break;
             case TYPE_IF:
-                parseIf(watchdog, basicBlock, statements, jumps);
-                break;
+                return parseIf(watchdog, basicBlock, statements, jumps);
             case TYPE_IF_ELSE:
                 watchdog.check(basicBlock, basicBlock.getCondition());
                 makeStatements(watchdog, basicBlock.getCondition(), statements, jumps);
@@ -186,8 +205,7 @@ public class StatementMaker {
                 elseStatements = makeSubStatements(watchdog, basicBlock.getSub2(), statements, jumps);
                 statements.add(new IfElseStatement(condition, subStatements, elseStatements));
                 watchdog.check(basicBlock, basicBlock.getNext());
-                makeStatements(watchdog, basicBlock.getNext(), statements, jumps);
-                break;
+                return basicBlock.getNext();
             case TYPE_CONDITION:
                 parseByteCode(basicBlock, statements);
                 break;
@@ -234,11 +252,9 @@ public class StatementMaker {
                 exp2 = makeExpression(watchdog, basicBlock.getSub2(), statements, jumps);
                 stack.push(parseTernaryOperator(basicBlock.getFirstLineNumber(), condition, exp1, exp2));
                 watchdog.check(basicBlock, basicBlock.getNext());
-                makeStatements(watchdog, basicBlock.getNext(), statements, jumps);
-                break;
+                return basicBlock.getNext();
             case TYPE_LOOP:
-                parseLoop(watchdog, basicBlock, statements, jumps);
-                break;
+                return parseLoop(watchdog, basicBlock, statements, jumps);
             case TYPE_LOOP_START:
             case TYPE_LOOP_CONTINUE:
                 statements.add(ContinueStatement.CONTINUE);
@@ -258,6 +274,8 @@ public class StatementMaker {
                 assert false : "Unexpected basic block: " + basicBlock.getTypeName() + ':' + basicBlock.getIndex();
                 break;
         }
+
+        return null;
     }
 
     protected Statements<Statement> makeSubStatements(WatchDog watchdog, BasicBlock basicBlock, Statements<Statement> statements, Statements jumps, Statements<Statement> updateStatements) {
@@ -325,7 +343,7 @@ public class StatementMaker {
         }
     }
 
-    protected void parseSwitch(WatchDog watchdog, BasicBlock basicBlock, Statements<Statement> statements, Statements jumps) {
+    protected BasicBlock parseSwitch(WatchDog watchdog, BasicBlock basicBlock, Statements<Statement> statements, Statements jumps) {
         parseByteCode(basicBlock, statements);
 
         List<SwitchCase> switchCases = basicBlock.getSwitchCases();
@@ -380,11 +398,11 @@ public class StatementMaker {
             SwitchStatementMaker.makeSwitchEnum(bodyDeclaration, switchStatement);
         }
 
-        makeStatements(watchdog, basicBlock.getNext(), statements, jumps);
+        return basicBlock.getNext();
     }
 
     @SuppressWarnings("unchecked")
-    protected void parseTry(WatchDog watchdog, BasicBlock basicBlock, Statements statements, Statements jumps, boolean jsr, boolean eclipse) {
+    protected BasicBlock parseTry(WatchDog watchdog, BasicBlock basicBlock, Statements statements, Statements jumps, boolean jsr, boolean eclipse) {
         Statements tryStatements;
         DefaultList<TryStatement.CatchClause> catchClauses = new DefaultList<>();
         Statements<Statement> finallyStatements = null;
@@ -447,7 +465,7 @@ public class StatementMaker {
                 int index = ByteCodeParser.getExceptionLocalVariableIndex(bb);
                 ObjectType ot = typeMaker.makeFromInternalTypeName(exceptionHandler.getInternalThrowableName());
                 int offset = bb.getFromOffset();
-                byte[] code = bb.getControlFlowGraph().getMethod().<AttributeCode>getAttribute("Code").getCode();
+                byte[] code = bb.getControlFlowGraph().getMethod().<AttributeCode>getAttribute(AttributeName.CODE).getCode();
 
                 if (code[offset] == 58) {
                     offset += 2; // ASTORE
@@ -501,7 +519,7 @@ public class StatementMaker {
         }
 
         statements.add(statement);
-        makeStatements(watchdog, basicBlock.getNext(), statements, jumps);
+        return basicBlock.getNext();
     }
 
     protected void removeExceptionReference(Statements catchStatements) {
@@ -538,7 +556,7 @@ public class StatementMaker {
     }
 
     @SuppressWarnings("unchecked")
-    protected void parseIf(WatchDog watchdog, BasicBlock basicBlock, Statements statements, Statements jumps) {
+    protected BasicBlock parseIf(WatchDog watchdog, BasicBlock basicBlock, Statements statements, Statements jumps) {
         BasicBlock condition = basicBlock.getCondition();
 
         if (condition.getType() == BasicBlock.TYPE_CONDITION_AND) {
@@ -571,7 +589,6 @@ public class StatementMaker {
             }
 
             statements.add(new AssertStatement(cond, message));
-            makeStatements(watchdog, basicBlock.getNext(), statements, jumps);
         } else {
             makeStatements(watchdog, basicBlock.getCondition(), statements, jumps);
             Expression cond = stack.pop();
@@ -581,29 +598,37 @@ public class StatementMaker {
                 stack.copy(backup);
             }
             statements.add(new IfStatement(cond, subStatements));
-            int index = statements.size();
-            makeStatements(watchdog, basicBlock.getNext(), statements, jumps);
 
-            if ((subStatements.size() == 1) &&
-                    (index+1 == statements.size()) &&
-                    (subStatements.get(0).getClass() == ReturnExpressionStatement.class) &&
-                    (statements.get(index).getClass() == ReturnExpressionStatement.class)) {
-                ReturnExpressionStatement cfres1 = (ReturnExpressionStatement)subStatements.get(0);
+            if ((subStatements.size() == 1) && (subStatements.get(0).getClass() == ReturnExpressionStatement.class)) {
+                // Merged with the next 'return' statement, once the sequence is built
+                ifReturnStatements.add(new IfReturnStatements(cond, (ReturnExpressionStatement)subStatements.get(0), statements.size()));
+            }
+        }
 
-                if (cond.getLineNumber() >= cfres1.getLineNumber()) {
-                    ReturnExpressionStatement cfres2 = (ReturnExpressionStatement)statements.get(index);
+        return basicBlock.getNext();
+    }
 
-                    if (cfres1.getLineNumber() == cfres2.getLineNumber()) {
-                        statements.subList(index-1, statements.size()).clear();
-                        statements.add(new ReturnExpressionStatement(new TernaryOperatorExpression(cfres1.getLineNumber(), cond, cfres1.getExpression(), cfres2.getExpression())));
-                    }
+    @SuppressWarnings("unchecked")
+    protected static void mergeIfReturnStatements(IfReturnStatements ifReturnStatements, Statements statements) {
+        int index = ifReturnStatements.index;
+
+        if ((index+1 == statements.size()) && (statements.get(index).getClass() == ReturnExpressionStatement.class)) {
+            Expression cond = ifReturnStatements.condition;
+            ReturnExpressionStatement cfres1 = ifReturnStatements.returnStatement;
+
+            if (cond.getLineNumber() >= cfres1.getLineNumber()) {
+                ReturnExpressionStatement cfres2 = (ReturnExpressionStatement)statements.get(index);
+
+                if (cfres1.getLineNumber() == cfres2.getLineNumber()) {
+                    statements.subList(index-1, statements.size()).clear();
+                    statements.add(new ReturnExpressionStatement(new TernaryOperatorExpression(cfres1.getLineNumber(), cond, cfres1.getExpression(), cfres2.getExpression())));
                 }
             }
         }
     }
 
     @SuppressWarnings("unchecked")
-    protected void parseLoop(WatchDog watchdog, BasicBlock basicBlock, Statements statements, Statements jumps) {
+    protected BasicBlock parseLoop(WatchDog watchdog, BasicBlock basicBlock, Statements statements, Statements jumps) {
         BasicBlock sub1 = basicBlock.getSub1();
         Statements<Statement> updateStatements = null;
 
@@ -619,8 +644,7 @@ public class StatementMaker {
                 // 'while' or 'for' loop
                 makeStatements(watchdog, ifBB.getCondition(), statements, jumps);
                 statements.add(LoopStatementMaker.makeLoop(localVariableMaker, basicBlock, statements, stack.pop(), makeSubStatements(watchdog, ifBB.getSub1(), statements, jumps, updateStatements), jumps));
-                makeStatements(watchdog, basicBlock.getNext(), statements, jumps);
-                return;
+                return basicBlock.getNext();
             }
 
             if (ifBB.getSub1() == LOOP_END) {
@@ -640,8 +664,7 @@ public class StatementMaker {
                     statements.add(LoopStatementMaker.makeLoop(localVariableMaker, basicBlock, statements, stack.pop(), makeSubStatements(watchdog, ifBB.getNext(), statements, jumps, updateStatements), jumps));
                 }
 
-                makeStatements(watchdog, basicBlock.getNext(), statements, jumps);
-                return;
+                return basicBlock.getNext();
             }
         }
 
@@ -679,7 +702,7 @@ public class StatementMaker {
             statements.add(LoopStatementMaker.makeLoop(basicBlock, statements, makeSubStatements(watchdog, sub1, statements, jumps, updateStatements), jumps));
         }
 
-        makeStatements(watchdog, basicBlock.getNext(), statements, jumps);
+        return basicBlock.getNext();
     }
 
     protected int countStartLoop(BasicBlock bb) {
@@ -875,25 +898,32 @@ public class StatementMaker {
 
     @SuppressWarnings("unchecked")
     protected Expression createObjectTypeReferenceDotClassExpression(int lineNumber, String fieldName, MethodInvocationExpression mie) {
-        // Add SYNTHETIC flags to field
-        memberVisitor.init(fieldName);
-
-        for (ClassFileFieldDeclaration field : bodyDeclaration.getFieldDeclarations()) {
-            field.getFieldDeclarators().accept(memberVisitor);
-            if (memberVisitor.found()) {
-                field.setFlags(field.getFlags() | Constants.ACC_SYNTHETIC);
-                break;
+        // Methods of a same type may be parsed concurrently: the flags are already set in this case
+        synchronized (bodyDeclaration) {
+            // Add SYNTHETIC flags to field
+            memberVisitor.init(fieldName);
+
+            for (ClassFileFieldDeclaration field : bodyDeclaration.getFieldDeclarations()) {
+                field.getFieldDeclarators().accept(memberVisitor);
+                if (memberVisitor.found()) {
+                    if ((field.getFlags() & Constants.ACC_SYNTHETIC) == 0) {
+                        field.setFlags(field.getFlags() | Constants.ACC_SYNTHETIC);
+                    }
+                    break;
+                }
             }
-        }
 
-        // Add SYNTHETIC flags to method named 'class$'
-        memberVisitor.init("class$");
+            // Add SYNTHETIC flags to method named 'class$'
+            memberVisitor.init("class$");
 
-        for (ClassFileConstructorOrMethodDeclaration member : bodyDeclaration.getMethodDeclarations()) {
-            member.accept(memberVisitor);
-            if (memberVisitor.found()) {
-                member.setFlags(member.getFlags() | Constants.ACC_SYNTHETIC);
-                break;
+            for (ClassFileConstructorOrMethodDeclaration member : bodyDeclaration.getMethodDeclarations()) {
+                member.accept(memberVisitor);
+                if (memberVisitor.found()) {
+                    if ((member.getFlags() & Constants.ACC_SYNTHETIC) == 0) {
+                        member.setFlags(member.getFlags() | Constants.ACC_SYNTHETIC);
+                    }
+                    break;
+                }
             }
         }
 
@@ -979,6 +1009,18 @@ public class StatementMaker {
         }
     }
 
+    protected static class IfReturnStatements {
+        protected Expression condition;
+        protected ReturnExpressionStatement returnStatement;
+        protected int index;
+
+        public IfReturnStatements(Expression condition, ReturnExpressionStatement returnStatement, int index) {
+            this.condition = condition;
+            this.returnStatement = returnStatement;
+            this.index = index;
+        }
+    }
+
     protected static class NopBitSet extends BitSet {
         @Override public boolean get(int var1) { return false; }
         @Override public void set(int var1) {}
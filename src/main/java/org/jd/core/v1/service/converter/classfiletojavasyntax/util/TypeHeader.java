@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.service.converter.classfiletojavasyntax.util;
+
+import org.jd.core.v1.service.deserializer.classfile.ClassFileFormatException;
+import org.jd.core.v1.service.deserializer.classfile.ClassFileReader;
+import org.jd.core.v1.util.StringInterner;
+
+import java.io.UTFDataFormatException;
+
+/**
+ * Header of a class file: access flags, super type, interfaces, class signature and entries of the attribute
+ * 'InnerClasses'. Headers are immutable and may be shared by several threads.<br><br>
+ *
+ * 'scan' reads a class file in one pass: the constant pool is skipped, except the offsets of the UTF-8 constants and
+ * the name indexes of the class constants; only the needed UTF-8 constants are decoded. Fields and methods are
+ * skipped.<br>
+ */
+public final class TypeHeader {
+    protected static final String[] EMPTY_STRINGS = new String[0];
+    protected static final int[] EMPTY_INTS = new int[0];
+
+    protected final String internalTypeName;
+    protected final int accessFlags;
+    protected final String[] superClassAndInterfaceNames;
+    protected final String signature;
+    protected final String[] innerTypeNames;
+    protected final String[] outerTypeNames;
+    protected final int[] innerAccessFlags;
+
+    public TypeHeader(String internalTypeName, int accessFlags, String[] superClassAndInterfaceNames, String signature, String[] innerTypeNames, String[] outerTypeNames, int[] innerAccessFlags) {
+        this.internalTypeName = internalTypeName;
+        this.accessFlags = accessFlags;
+        this.superClassAndInterfaceNames = superClassAndInterfaceNames;
+        this.signature = signature;
+        this.innerTypeNames = innerTypeNames;
+        this.outerTypeNames = outerTypeNames;
+        this.innerAccessFlags = innerAccessFlags;
+    }
+
+    public static TypeHeader scan(ClassFileReader reader) throws UTFDataFormatException {
+        return scan(reader, null);
+    }
+
+    /**
+     * @param interner interner of the type names, null if none
+     */
+    public static TypeHeader scan(ClassFileReader reader, StringInterner interner) throws UTFDataFormatException {
+        if (reader.readInt() != ClassFileReader.JAVA_MAGIC_NUMBER)
+            throw new ClassFileFormatException("Invalid CLASS file");
+
+        // Skip 'minorVersion', 'majorVersion'
+        reader.skip(2 * 2);
+
+        int count = reader.readUnsignedShort();
+        int[] utf8Offsets = new int[count];
+        int[] classNameIndexes = new int[count];
+
+        for (int i=1; i<count; i++) {
+            int tag = reader.readByte();
+
+            switch (tag) {
+                case 1:
+                    utf8Offsets[i] = reader.getOffset();
+                    reader.skip(reader.readUnsignedShort());
+                    break;
+                case 7:
+                    classNameIndexes[i] = reader.readUnsignedShort();
+                    break;
+                case 8: case 16: case 19: case 20:
+                    reader.skip(2);
+                    break;
+                case 15:
+                    reader.skip(3);
+                    break;
+                case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18:
+                    reader.skip(4);
+                    break;
+                case 5: case 6:
+                    reader.skip(8);
+                    i++;
+                    break;
+                default:
+                    throw new ClassFileFormatException("Invalid constant pool entry");
+            }
+        }
+
+        Scanner scanner = new Scanner(reader, utf8Offsets, classNameIndexes, interner);
+        int accessFlags = reader.readUnsignedShort();
+        String internalTypeName = scanner.readClassName(reader.readUnsignedShort());
+        String superTypeName = scanner.readClassName(reader.readUnsignedShort());
+
+        count = reader.readUnsignedShort();
+
+        String[] superClassAndInterfaceNames = new String[count + 1];
+
+        superClassAndInterfaceNames[0] = superTypeName;
+
+        for (int i=1; i<=count; i++) {
+            superClassAndInterfaceNames[i] = scanner.readClassName(reader.readUnsignedShort());
+        }
+
+        // Skip fields and methods
+        for (int k=0; k<2; k++) {
+            count = reader.readUnsignedShort();
+
+            for (int i=0; i<count; i++) {
+                // Skip 'accessFlags', 'nameIndex', 'descriptorIndex'
+                reader.skip(3 * 2);
+                skipAttributes(reader);
+            }
+        }
+
+        String signature = null;
+        String[] innerTypeNames = EMPTY_STRINGS;
+        String[] outerTypeNames = EMPTY_STRINGS;
+        int[] innerAccessFlags = EMPTY_INTS;
+        boolean innerClassesFound = false;
+
+        count = reader.readUnsignedShort();
+
+        for (int i=0; i<count; i++) {
+            String attributeName = scanner.readUTF8(reader.readUnsignedShort());
+            int attributeLength = reader.readInt();
+            int end = reader.getOffset() + attributeLength;
+
+            if ("InnerClasses".equals(attributeName) && !innerClassesFound) {
+                int innerCount = reader.readUnsignedShort();
+
+                innerClassesFound = true;
+                innerTypeNames = new String[innerCount];
+                outerTypeNames = new String[innerCount];
+                innerAccessFlags = new int[innerCount];
+
+                for (int j=0; j<innerCount; j++) {
+                    innerTypeNames[j] = scanner.readClassName(reader.readUnsignedShort());
+                    outerTypeNames[j] = scanner.readClassName(reader.readUnsignedShort());
+                    // Skip 'innerNameIndex'
+                    reader.skip(2);
+                    innerAccessFlags[j] = reader.readUnsignedShort();
+                }
+            } else if ("Signature".equals(attributeName)) {
+                signature = scanner.readUTF8(reader.readUnsignedShort());
+            }
+
+            reader.skip(end - reader.getOffset());
+        }
+
+        return new TypeHeader(internalTypeName, accessFlags, superClassAndInterfaceNames, signature, innerTypeNames, outerTypeNames, innerAccessFlags);
+    }
+
+    protected static void skipAttributes(ClassFileReader reader) {
+        int count = reader.readUnsignedShort();
+
+        for (int i=0; i<count; i++) {
+            // Skip 'attributeNameIndex'
+            reader.skip(2);
+            reader.skip(reader.readInt());
+        }
+    }
+
+    public String getInternalTypeName() {
+        return internalTypeName;
+    }
+
+    public int getAccessFlags() {
+        return accessFlags;
+    }
+
+    /**
+     * @return the super type name followed by the interface names, the super type name being null for
+     *         'java/lang/Object'. The array must not be modified.
+     */
+    public String[] getSuperClassAndInterfaceNames() {
+        return superClassAndInterfaceNames;
+    }
+
+    public String getSuperTypeName() {
+        return superClassAndInterfaceNames[0];
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    /**
+     * @return the number of entries of the attribute 'InnerClasses'
+     */
+    public int getInnerClassCount() {
+        return innerTypeNames.length;
+    }
+
+    public String getInnerTypeName(int index) {
+        return innerTypeNames[index];
+    }
+
+    /**
+     * @return the outer type name of the entry 'index', null for anonymous and local types
+     */
+    public String getOuterTypeName(int index) {
+        return outerTypeNames[index];
+    }
+
+    public int getInnerAccessFlags(int index) {
+        return innerAccessFlags[index];
+    }
+
+    /**
+     * @return the index of the first entry of 'innerTypeName' in the attribute 'InnerClasses', -1 if not found
+     */
+    public int indexOfInnerClass(String innerTypeName) {
+        for (int i=0; i<innerTypeNames.length; i++) {
+            if (innerTypeName.equals(innerTypeNames[i])) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    protected static class Scanner {
+        protected ClassFileReader reader;
+        protected int[] utf8Offsets;
+        protected int[] classNameIndexes;
+        protected StringInterner interner;
+
+        public Scanner(ClassFileReader reader, int[] utf8Offsets, int[] classNameIndexes, StringInterner interner) {
+            this.reader = reader;
+            this.utf8Offsets = utf8Offsets;
+            this.classNameIndexes = classNameIndexes;
+            this.interner = interner;
+        }
+
+        public String readUTF8(int index) throws UTFDataFormatException {
+            String s = reader.readUTF8At(utf8Offsets[index]);
+            return (interner == null) ? s : interner.intern(s);
+        }
+
+        /**
+         * @return the name of the class constant 'index', null if 'index' is 0
+         */
+        public String readClassName(int index) throws UTFDataFormatException {
+            return (index == 0) ? null : readUTF8(classNameIndexes[index]);
+        }
+    }
+}
@@ -0,0 +1,653 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.service.converter.classfiletojavasyntax.util;
+
+import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.loader.MappedZipLoader;
+import org.jd.core.v1.service.deserializer.classfile.ClassFileReader;
+import org.jd.core.v1.util.DefaultList;
+import org.jd.core.v1.util.StringInterner;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Index of the type headers of an archive, stored in a file and mapped in memory.<br><br>
+ *
+ * For each type, the index holds the access flags, the super type, the interfaces, the class signature, the outer type
+ * and the inner types. {@link TypeMaker} reads them from the index instead of the class files: a process decompiling
+ * a few types of a large class path does not read the headers of all the referenced types again. The index file is
+ * named after the SHA-256 hash of the archive path. It holds the length, the modification date and the SHA-256 hash of
+ * the archive content: the index is reused without reading the archive if the length and the date match. If only the
+ * date differs, the content hash is checked and the date of the index is updated; otherwise the index is
+ * rebuilt.<br><br>
+ *
+ * The file is made of a header, an open addressing table of record offsets, the strings (32 bits length and UTF-8
+ * bytes) and the records. The offsets are checked when the file is opened: an invalid file is rebuilt. Strings are
+ * decoded on demand. The index is immutable and thread safe.<br><br>
+ *
+ * Types with an invalid class file and anonymous or local types whose outer type is not in the archive are not
+ * indexed: {@link TypeMaker} reads their class files.<br>
+ */
+public class TypeHeaderIndex {
+    public static final String FILE_SUFFIX = ".jdix";
+
+    protected static final int MAGIC = 0x4A444958;
+    protected static final int VERSION = 2;
+    protected static final int HASH_LENGTH = 32;
+    // Header: magic, version, archive length, archive modification date, archive hash, size, table length
+    protected static final int ARCHIVE_LENGTH_OFFSET = 8;
+    protected static final int ARCHIVE_LAST_MODIFIED_OFFSET = 16;
+    protected static final int HASH_OFFSET = 24;
+    protected static final int SIZE_OFFSET = HASH_OFFSET + HASH_LENGTH;
+    protected static final int TABLE_LENGTH_OFFSET = SIZE_OFFSET + 4;
+    protected static final int HEADER_LENGTH = TABLE_LENGTH_OFFSET + 4;
+
+    // Record: name hash, name, access flags, inner access flags, super type name, outer type name, signature, interface names, inner type names
+    protected static final int NAME_OFFSET = 4;
+    protected static final int ACCESS_FLAGS_OFFSET = 8;
+    protected static final int INNER_ACCESS_FLAGS_OFFSET = 10;
+    protected static final int SUPER_TYPE_NAME_OFFSET = 12;
+    protected static final int OUTER_TYPE_NAME_OFFSET = 16;
+    protected static final int SIGNATURE_OFFSET = 20;
+    protected static final int INTERFACES_OFFSET = 24;
+
+    protected static final String[] EMPTY_ARRAY = new String[0];
+
+    protected ByteBuffer buffer;
+    protected StringInterner interner = StringInterner.getDefault();
+    protected int size;
+    protected int tableLength;
+
+    protected TypeHeaderIndex(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.size = buffer.getInt(SIZE_OFFSET);
+        this.tableLength = buffer.getInt(TABLE_LENGTH_OFFSET);
+    }
+
+    /**
+     * Open the index of the archive of 'loader' in 'directory', creating it if needed.
+     */
+    public static TypeHeaderIndex getOrCreate(MappedZipLoader loader, File directory) throws IOException {
+        File archive = loader.getFile();
+        File file = new File(directory, toHexString(hash(archive.getCanonicalPath())) + FILE_SUFFIX);
+        TypeHeaderIndex index = open(file, archive);
+
+        if (index == null) {
+            write(file, archive, loader, loader.getInternalNames());
+            index = open(file, archive);
+
+            if (index == null)
+                throw new IOException("Invalid index file: " + file);
+        }
+
+        return index;
+    }
+
+    /**
+     * @return the index mapped from 'file', null if the file does not exist, is invalid or is the index of an other
+     *         archive content
+     */
+    public static TypeHeaderIndex open(File file, File archive) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+
+            if ((length < HEADER_LENGTH) || (length > Integer.MAX_VALUE)) {
+                return null;
+            }
+
+            // The mapping stays valid after closing the channel
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+
+            if ((buffer.getInt(0) != MAGIC) || (buffer.getInt(4) != VERSION)) {
+                return null;
+            }
+
+            int tableLength = buffer.getInt(TABLE_LENGTH_OFFSET);
+
+            if ((tableLength <= 0) || (Integer.bitCount(tableLength) != 1) || (HEADER_LENGTH + 4L * tableLength > length)) {
+                return null;
+            }
+
+            if (!isValid(buffer, tableLength, (int)length)) {
+                return null;
+            }
+
+            long archiveLength = archive.length();
+            long archiveLastModified = archive.lastModified();
+
+            if (buffer.getLong(ARCHIVE_LENGTH_OFFSET) != archiveLength) {
+                return null;
+            }
+
+            if (buffer.getLong(ARCHIVE_LAST_MODIFIED_OFFSET) != archiveLastModified) {
+                // Same length, other date: compare the contents
+                byte[] archiveHash = hash(archive);
+
+                for (int i=0; i<HASH_LENGTH; i++) {
+                    if (buffer.get(HASH_OFFSET + i) != archiveHash[i]) {
+                        return null;
+                    }
+                }
+
+                updateLastModified(file, archiveLastModified);
+            }
+
+            return new TypeHeaderIndex(buffer);
+        }
+    }
+
+    /**
+     * Check the table, the records and the string offsets: the readers of the index trust them.
+     *
+     * @return true if all the offsets are in the file and the table has a free slot
+     */
+    protected static boolean isValid(ByteBuffer buffer, int tableLength, int length) {
+        int stringsOffset = HEADER_LENGTH + 4 * tableLength;
+        int size = buffer.getInt(SIZE_OFFSET);
+        int count = 0;
+
+        if ((size < 0) || (size >= tableLength)) {
+            return false;
+        }
+
+        for (int slot=0; slot<tableLength; slot++) {
+            int record = buffer.getInt(HEADER_LENGTH + 4 * slot);
+
+            if (record != 0) {
+                count++;
+
+                if ((record < stringsOffset) || (record > length - (INTERFACES_OFFSET + 2))) {
+                    return false;
+                }
+                if (!isValidString(buffer, stringsOffset, length, buffer.getInt(record + NAME_OFFSET), false) ||
+                    !isValidString(buffer, stringsOffset, length, buffer.getInt(record + SUPER_TYPE_NAME_OFFSET), true) ||
+                    !isValidString(buffer, stringsOffset, length, buffer.getInt(record + OUTER_TYPE_NAME_OFFSET), true) ||
+                    !isValidString(buffer, stringsOffset, length, buffer.getInt(record + SIGNATURE_OFFSET), true)) {
+                    return false;
+                }
+
+                // Interface names, then inner type names
+                long offset = record + INTERFACES_OFFSET;
+
+                for (int i=0; i<2; i++) {
+                    int nameCount = buffer.getShort((int)offset) & 0xFFFF;
+
+                    offset += 2;
+
+                    if (offset + 4L * nameCount + ((i == 0) ? 2 : 0) > length) {
+                        return false;
+                    }
+
+                    for (int j=0; j<nameCount; j++, offset+=4) {
+                        if (!isValidString(buffer, stringsOffset, length, buffer.getInt((int)offset), false)) {
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+
+        return count == size;
+    }
+
+    protected static boolean isValidString(ByteBuffer buffer, int stringsOffset, int length, int offset, boolean nullable) {
+        if (offset == 0) {
+            return nullable;
+        }
+        if ((offset < stringsOffset) || (offset > length - 4)) {
+            return false;
+        }
+
+        int stringLength = buffer.getInt(offset);
+
+        return (stringLength >= 0) && (stringLength <= length - 4 - offset);
+    }
+
+    /**
+     * Store the new modification date of an unchanged archive. Concurrent readers find either date: both describe
+     * the same content.
+     */
+    protected static void updateLastModified(File file, long archiveLastModified) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.allocate(8);
+
+            bytes.putLong(0, archiveLastModified);
+            channel.write(bytes, ARCHIVE_LAST_MODIFIED_OFFSET);
+        } catch (IOException ignore) {
+            // Read only index -> The content hash is checked again at next opening
+        }
+    }
+
+    /**
+     * Write the index of the types 'internalTypeNames' of 'loader', whose archive is 'archive'. The file is written
+     * next to 'file' and then renamed: concurrent processes never map a partial index.
+     */
+    public static void write(File file, File archive, Loader loader, Collection<String> internalTypeNames) throws IOException {
+        // Length and date first: a modification during the build is detected at next opening
+        long archiveLength = archive.length();
+        long archiveLastModified = archive.lastModified();
+        byte[] archiveHash = hash(archive);
+        HashMap<String, Header> headers = new HashMap<>();
+
+        for (String internalTypeName : internalTypeNames) {
+            try {
+                ClassFileReader reader = ClassFileReader.load(loader, internalTypeName);
+
+                if (reader != null) {
+                    Header header = new Header(TypeHeader.scan(reader));
+
+                    if (internalTypeName.equals(header.name)) {
+                        headers.put(internalTypeName, header);
+                    }
+                }
+            } catch (Exception ignore) {
+                // Invalid class file: not indexed
+            }
+        }
+
+        DefaultList<Header> list = resolveOuterTypeNames(headers);
+        File directory = file.getAbsoluteFile().getParentFile();
+
+        if (directory != null) {
+            Files.createDirectories(directory.toPath());
+        }
+
+        File tmpFile = File.createTempFile(file.getName(), ".tmp", directory);
+
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                writeIndex(out, archiveLength, archiveLastModified, archiveHash, list);
+            }
+
+            try {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * @return the SHA-256 hash of the content of 'file'
+     */
+    public static byte[] hash(File file) throws IOException {
+        try (InputStream is = new FileInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+
+            while ((read = is.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    protected static byte[] hash(String s) throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * @return the number of indexed types
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(String internalTypeName) {
+        return find(internalTypeName) != -1;
+    }
+
+    /**
+     * @return the access flags of the class file, -1 if the type is not indexed
+     */
+    public int getAccessFlags(String internalTypeName) {
+        int record = find(internalTypeName);
+        return (record == -1) ? -1 : buffer.getShort(record + ACCESS_FLAGS_OFFSET) & 0xFFFF;
+    }
+
+    /**
+     * @return the access flags of the 'InnerClasses' entry of the type, 0 for top level types, -1 if the type is not indexed
+     */
+    public int getInnerAccessFlags(String internalTypeName) {
+        int record = find(internalTypeName);
+        return (record == -1) ? -1 : buffer.getShort(record + INNER_ACCESS_FLAGS_OFFSET) & 0xFFFF;
+    }
+
+    /**
+     * @return the super type name followed by the interface names, the super type name being null for
+     *         'java/lang/Object'; null if the type is not indexed
+     */
+    public String[] getSuperClassAndInterfaceNames(String internalTypeName) {
+        int record = find(internalTypeName);
+
+        if (record == -1) {
+            return null;
+        }
+
+        int count = buffer.getShort(record + INTERFACES_OFFSET) & 0xFFFF;
+        String[] names = new String[count + 1];
+
+        names[0] = getString(buffer.getInt(record + SUPER_TYPE_NAME_OFFSET));
+
+        for (int i=1, offset=record+INTERFACES_OFFSET+2; i<=count; i++, offset+=4) {
+            names[i] = getString(buffer.getInt(offset));
+        }
+
+        return names;
+    }
+
+    /**
+     * @return the outer type name, as found by {@link TypeMaker}; null for top level types and for not indexed types
+     */
+    public String getOuterTypeName(String internalTypeName) {
+        int record = find(internalTypeName);
+        return (record == -1) ? null : getString(buffer.getInt(record + OUTER_TYPE_NAME_OFFSET));
+    }
+
+    /**
+     * @return the names of the types whose outer type is 'internalTypeName', null if the type is not indexed
+     */
+    public String[] getInnerTypeNames(String internalTypeName) {
+        int record = find(internalTypeName);
+
+        if (record == -1) {
+            return null;
+        }
+
+        int offset = record + INTERFACES_OFFSET;
+
+        offset += 2 + 4 * (buffer.getShort(offset) & 0xFFFF);
+
+        int count = buffer.getShort(offset) & 0xFFFF;
+
+        if (count == 0) {
+            return EMPTY_ARRAY;
+        }
+
+        String[] names = new String[count];
+
+        for (int i=0; i<count; i++) {
+            names[i] = getString(buffer.getInt(offset + 2 + 4 * i));
+        }
+
+        return names;
+    }
+
+    /**
+     * @return the class signature, null if the type has no signature or is not indexed
+     */
+    public String getSignature(String internalTypeName) {
+        int record = find(internalTypeName);
+        return (record == -1) ? null : getString(buffer.getInt(record + SIGNATURE_OFFSET));
+    }
+
+    /**
+     * @return the offset of the record of 'internalTypeName', -1 if the type is not indexed
+     */
+    protected int find(String internalTypeName) {
+        int hash = internalTypeName.hashCode();
+        int mask = tableLength - 1;
+
+        for (int slot=hash & mask; ; slot=(slot + 1) & mask) {
+            int record = buffer.getInt(HEADER_LENGTH + 4 * slot);
+
+            if (record == 0) {
+                return -1;
+            }
+
+            if ((buffer.getInt(record) == hash) && stringEquals(buffer.getInt(record + NAME_OFFSET), internalTypeName)) {
+                return record;
+            }
+        }
+    }
+
+    protected boolean stringEquals(int offset, String s) {
+        int length = buffer.getInt(offset);
+
+        if (length == s.length()) {
+            for (int i=0; i<length; i++) {
+                byte b = buffer.get(offset + 4 + i);
+
+                if (b < 0) {
+                    // Non ASCII string
+                    return s.equals(getString(offset));
+                }
+                if (b != s.charAt(i)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        // Non ASCII strings are longer in UTF-8 than in UTF-16
+        return (length > s.length()) && s.equals(getString(offset));
+    }
+
+    protected String getString(int offset) {
+        if (offset == 0) {
+            return null;
+        }
+
+        int length = buffer.getInt(offset);
+        byte[] bytes = new byte[length];
+
+        // Absolute reads: the buffer is shared by the threads
+        for (int i=0; i<length; i++) {
+            bytes[i] = buffer.get(offset + 4 + i);
+        }
+
+        return interner.intern(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    protected static DefaultList<Header> resolveOuterTypeNames(HashMap<String, Header> headers) {
+        DefaultList<Header> list = new DefaultList<>(headers.size());
+
+        for (Header header : headers.values()) {
+            if (header.anonymousOrLocal) {
+                // Same rule as 'TypeMaker': the outer type must declare the type in its 'InnerClasses' attribute
+                int lastDollar = header.name.lastIndexOf('$');
+
+                if (lastDollar != -1) {
+                    String outerTypeName = header.name.substring(0, lastDollar);
+                    Header outerHeader = headers.get(outerTypeName);
+
+                    if (outerHeader == null) {
+                        // Outer type out of the archive: not indexed
+                        continue;
+                    }
+                    if (outerHeader.innerClassNames.contains(header.name)) {
+                        header.outerTypeName = outerTypeName;
+                    }
+                }
+            }
+
+            list.add(header);
+        }
+
+        // Sort the headers to write the same file for the same archive
+        list.sort(Comparator.comparing(h -> h.name));
+
+        HashMap<String, Header> indexedHeaders = new HashMap<>();
+
+        for (Header header : list) {
+            indexedHeaders.put(header.name, header);
+        }
+
+        for (Header header : list) {
+            if (header.outerTypeName != null) {
+                Header outerHeader = indexedHeaders.get(header.outerTypeName);
+
+                if (outerHeader != null) {
+                    outerHeader.innerTypeNames.add(header.name);
+                }
+            }
+        }
+
+        return list;
+    }
+
+    protected static void writeIndex(DataOutputStream out, long archiveLength, long archiveLastModified, byte[] archiveHash, List<Header> headers) throws IOException {
+        int tableLength = Integer.highestOneBit(Math.max(headers.size(), 1) * 2 - 1) << 1;
+        int stringsOffset = HEADER_LENGTH + 4 * tableLength;
+
+        // Strings
+        ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+        DataOutputStream stringOut = new DataOutputStream(stringBytes);
+        HashMap<String, Integer> stringOffsets = new HashMap<>();
+
+        for (Header header : headers) {
+            addString(stringOut, stringOffsets, stringsOffset, header.name);
+            addString(stringOut, stringOffsets, stringsOffset, header.superTypeName);
+            addString(stringOut, stringOffsets, stringsOffset, header.outerTypeName);
+            addString(stringOut, stringOffsets, stringsOffset, header.signature);
+
+            for (String name : header.interfaceNames) {
+                addString(stringOut, stringOffsets, stringsOffset, name);
+            }
+        }
+
+        // Records
+        int recordsOffset = stringsOffset + stringOut.size();
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream recordOut = new DataOutputStream(recordBytes);
+        int[] table = new int[tableLength];
+        int mask = tableLength - 1;
+
+        for (Header header : headers) {
+            int record = recordsOffset + recordOut.size();
+            int hash = header.name.hashCode();
+            int slot = hash & mask;
+
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+
+            table[slot] = record;
+
+            recordOut.writeInt(hash);
+            recordOut.writeInt(stringOffsets.get(header.name));
+            recordOut.writeShort(header.accessFlags);
+            recordOut.writeShort(header.innerAccessFlags);
+            recordOut.writeInt(getStringOffset(stringOffsets, header.superTypeName));
+            recordOut.writeInt(getStringOffset(stringOffsets, header.outerTypeName));
+            recordOut.writeInt(getStringOffset(stringOffsets, header.signature));
+            recordOut.writeShort(header.interfaceNames.length);
+
+            for (String name : header.interfaceNames) {
+                recordOut.writeInt(stringOffsets.get(name));
+            }
+
+            recordOut.writeShort(header.innerTypeNames.size());
+
+            for (String name : header.innerTypeNames) {
+                recordOut.writeInt(stringOffsets.get(name));
+            }
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(archiveLength);
+        out.writeLong(archiveLastModified);
+        out.write(archiveHash, 0, HASH_LENGTH);
+        out.writeInt(headers.size());
+        out.writeInt(tableLength);
+
+        for (int record : table) {
+            out.writeInt(record);
+        }
+
+        stringBytes.writeTo(out);
+        recordBytes.writeTo(out);
+    }
+
+    protected static void addString(DataOutputStream out, HashMap<String, Integer> stringOffsets, int stringsOffset, String s) throws IOException {
+        if ((s != null) && !stringOffsets.containsKey(s)) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+
+            stringOffsets.put(s, stringsOffset + out.size());
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    protected static int getStringOffset(HashMap<String, Integer> stringOffsets, String s) {
+        return (s == null) ? 0 : stringOffsets.get(s);
+    }
+
+    protected static String toHexString(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Header of a class file, as written in the index.
+     */
+    protected static class Header {
+        protected String name;
+        protected int accessFlags;
+        protected int innerAccessFlags;
+        protected String superTypeName;
+        protected String[] interfaceNames;
+        protected String signature;
+        protected String outerTypeName;
+        protected boolean anonymousOrLocal;
+        protected HashSet<String> innerClassNames = new HashSet<>();
+        protected ArrayList<String> innerTypeNames = new ArrayList<>();
+
+        public Header(TypeHeader typeHeader) {
+            String[] superClassAndInterfaceNames = typeHeader.getSuperClassAndInterfaceNames();
+
+            this.name = typeHeader.getInternalTypeName();
+            this.accessFlags = typeHeader.getAccessFlags();
+            this.superTypeName = typeHeader.getSuperTypeName();
+            this.interfaceNames = Arrays.copyOfRange(superClassAndInterfaceNames, 1, superClassAndInterfaceNames.length);
+            this.signature = typeHeader.getSignature();
+
+            for (int i=0, count=typeHeader.getInnerClassCount(); i<count; i++) {
+                innerClassNames.add(typeHeader.getInnerTypeName(i));
+            }
+
+            // First entry of the type, as in 'TypeMaker'
+            int index = typeHeader.indexOfInnerClass(name);
+
+            if (index != -1) {
+                this.innerAccessFlags = typeHeader.getInnerAccessFlags(index);
+                this.outerTypeName = typeHeader.getOuterTypeName(index);
+                this.anonymousOrLocal = (outerTypeName == null);
+            }
+        }
+    }
+}
@@ -8,48 +8,115 @@
 package org.jd.core.v1.service.converter.classfiletojavasyntax.util;
 
 import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.loader.JrtLoader;
 import org.jd.core.v1.model.classfile.ClassFile;
 import org.jd.core.v1.model.classfile.Field;
 import org.jd.core.v1.model.classfile.Method;
 import org.jd.core.v1.model.classfile.attribute.AttributeExceptions;
+import org.jd.core.v1.model.classfile.attribute.AttributeName;
 import org.jd.core.v1.model.classfile.attribute.AttributeSignature;
-import org.jd.core.v1.model.classfile.constant.ConstantClass;
 import org.jd.core.v1.model.javasyntax.type.*;
-import org.jd.core.v1.service.deserializer.classfile.ClassFileFormatException;
 import org.jd.core.v1.service.deserializer.classfile.ClassFileReader;
+import org.jd.core.v1.util.ConcurrentCache;
 import org.jd.core.v1.util.DefaultList;
+import org.jd.core.v1.util.StringInterner;
 
+import java.util.Arrays;
 import java.util.HashMap;
 
 import static org.jd.core.v1.model.javasyntax.type.ObjectType.TYPE_UNDEFINED_OBJECT;
 
-/*
- * https://jcp.org/aboutJava/communityprocess/maintenance/jsr924/JVMS-SE5.0-Ch4-ClassFile.pdf
+/**
+ * Thread safe: caches are concurrent, object types are shared through 'putIfAbsent' and class files are read
+ * without shared buffer. The class file of a referenced type is scanned once into an immutable {@link TypeHeader},
+ * read by the searches of outer types and by the hierarchy. The loader must be thread safe if several threads use
+ * the same instance.<br><br>
+ *
+ * Each cache holds at most 'maxCacheSize' entries: a type maker may be shared by all the decompilations of a
+ * {@link org.jd.core.v1.DecompilationSession} without growing with the number of decompiled types. The transitive
+ * closures of the hierarchies, used by 'isAssignable', are kept in a {@link HierarchyIndex}.<br><br>
+ *
+ * Types not found by the loader are searched by the platform loader, by default the loader of the runtime image of
+ * the current JVM (see {@link JrtLoader#getDefault()}). Without platform loader (Java 8 runtime), these types are
+ * searched by reflection, with the class loader of the decompiler.<br><br>
  *
- * https://docs.oracle.com/javase/tutorial/extra/generics/methods.html
+ * The hierarchies and the outer types of the types of a {@link TypeHeaderIndex} are read from the index, without
+ * loading their class files. The index must describe types of 'loader'.<br><br>
  *
- * http://www.angelikalanger.com/GenericsFAQ/JavaGenericsFAQ.html
+ * https://jcp.org/aboutJava/communityprocess/maintenance/jsr924/JVMS-SE5.0-Ch4-ClassFile.pdf<br>
+ * https://docs.oracle.com/javase/tutorial/extra/generics/methods.html<br>
+ * http://www.angelikalanger.com/GenericsFAQ/JavaGenericsFAQ.html<br>
  */
 public class TypeMaker {
-    protected HashMap<String, Type> signatureToType = new HashMap<>(1024);
-    protected HashMap<String, Type> internalTypeNameFieldNameToType = new HashMap<>(1024);
-    protected HashMap<String, MethodTypes> internalTypeNameMethodNameDescriptorToMethodTypes = new HashMap<>(1024);
-    protected HashMap<String, MethodTypes> signatureToMethodTypes = new HashMap<>(1024);
+    public static final int DEFAULT_MAX_CACHE_SIZE = 1024 * 64;
+
+    protected static final String[] EMPTY_STRING_ARRAY = new String[0];
+
+    protected static final HashMap<String, Type> SIGNATURE_TO_TYPE = new HashMap<>();
+
+    static {
+        SIGNATURE_TO_TYPE.put("B", PrimitiveType.TYPE_BYTE);
+        SIGNATURE_TO_TYPE.put("C", PrimitiveType.TYPE_CHAR);
+        SIGNATURE_TO_TYPE.put("D", PrimitiveType.TYPE_DOUBLE);
+        SIGNATURE_TO_TYPE.put("F", PrimitiveType.TYPE_FLOAT);
+        SIGNATURE_TO_TYPE.put("I", PrimitiveType.TYPE_INT);
+        SIGNATURE_TO_TYPE.put("J", PrimitiveType.TYPE_LONG);
+        SIGNATURE_TO_TYPE.put("S", PrimitiveType.TYPE_SHORT);
+        SIGNATURE_TO_TYPE.put("Z", PrimitiveType.TYPE_BOOLEAN);
+        SIGNATURE_TO_TYPE.put("java/lang/Class", ObjectType.TYPE_CLASS);
+        SIGNATURE_TO_TYPE.put("java/lang/Object", ObjectType.TYPE_OBJECT);
+        SIGNATURE_TO_TYPE.put("java/lang/String", ObjectType.TYPE_STRING);
+    }
+
+    protected StringInterner interner = StringInterner.getDefault();
+    protected ConcurrentCache<String, Type> signatureToType;
+    protected ConcurrentCache<MemberKey, Type> internalTypeNameFieldNameToType;
+    protected ConcurrentCache<MemberKey, MethodTypes> internalTypeNameMethodNameDescriptorToMethodTypes;
+    protected ConcurrentCache<Object, MethodTypes> signatureToMethodTypes;
 
     public TypeMaker(Loader loader) {
+        this(loader, DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    public TypeMaker(Loader loader, int maxCacheSize) {
+        this(loader, JrtLoader.getDefault(), maxCacheSize);
+    }
+
+    /**
+     * @param platformLoader loader of the types not found by 'loader', null to search them by reflection
+     */
+    public TypeMaker(Loader loader, Loader platformLoader, int maxCacheSize) {
+        this(loader, platformLoader, null, maxCacheSize);
+    }
+
+    /**
+     * @param platformLoader   loader of the types not found by 'loader', null to search them by reflection
+     * @param typeHeaderIndex  index of types of 'loader', null if none
+     */
+    public TypeMaker(Loader loader, Loader platformLoader, TypeHeaderIndex typeHeaderIndex, int maxCacheSize) {
         this.loader = loader;
+        this.platformLoader = platformLoader;
+        this.typeHeaderIndex = typeHeaderIndex;
+        this.signatureToType = new ConcurrentCache<>(maxCacheSize);
+        this.internalTypeNameFieldNameToType = new ConcurrentCache<>(maxCacheSize);
+        this.internalTypeNameMethodNameDescriptorToMethodTypes = new ConcurrentCache<>(maxCacheSize);
+        this.signatureToMethodTypes = new ConcurrentCache<>(maxCacheSize);
+        this.descriptorToObjectType = new ConcurrentCache<>(maxCacheSize);
+        this.internalTypeNameToObjectType = new ConcurrentCache<>(maxCacheSize);
+        this.typeHeaders = new ConcurrentCache<>(maxCacheSize);
+        this.hierarchyIndex = new HierarchyIndex(this::getSuperClassAndInterfaceNames, this::isAssignableFromUnresolvedType, maxCacheSize);
+    }
 
-        signatureToType.put("B", PrimitiveType.TYPE_BYTE);
-        signatureToType.put("C", PrimitiveType.TYPE_CHAR);
-        signatureToType.put("D", PrimitiveType.TYPE_DOUBLE);
-        signatureToType.put("F", PrimitiveType.TYPE_FLOAT);
-        signatureToType.put("I", PrimitiveType.TYPE_INT);
-        signatureToType.put("J", PrimitiveType.TYPE_LONG);
-        signatureToType.put("S", PrimitiveType.TYPE_SHORT);
-        signatureToType.put("Z", PrimitiveType.TYPE_BOOLEAN);
-        signatureToType.put("java/lang/Class", ObjectType.TYPE_CLASS);
-        signatureToType.put("java/lang/Object", ObjectType.TYPE_OBJECT);
-        signatureToType.put("java/lang/String", ObjectType.TYPE_STRING);
+    public Loader getLoader() {
+        return loader;
+    }
+
+    public Loader getPlatformLoader() {
+        return platformLoader;
+    }
+
+    public TypeHeaderIndex getTypeHeaderIndex() {
+        return typeHeaderIndex;
     }
 
     /**
@@ -65,7 +132,7 @@ public class TypeMaker {
 
         typeTypes.thisType = makeFromInternalTypeName(internalTypeName);
 
-        AttributeSignature attributeSignature = classFile.getAttribute("Signature");
+        AttributeSignature attributeSignature = classFile.getAttribute(AttributeName.SIGNATURE);
 
         if (attributeSignature == null) {
             // Create 'typeSignature' with classFile start
@@ -122,8 +189,8 @@ public class TypeMaker {
     }
 
     public MethodTypes parseConstructorSignature(ClassFile classFile, Method method) {
-        String key = classFile.getInternalTypeName() + ":<init>" + method.getDescriptor();
-        AttributeSignature attributeSignature = method.getAttribute("Signature");
+        MemberKey key = new MemberKey(classFile.getInternalTypeName(), "<init>", method.getDescriptor());
+        AttributeSignature attributeSignature = method.getAttribute(AttributeName.SIGNATURE);
         MethodTypes methodTypes;
 
         if (attributeSignature == null) {
@@ -160,8 +227,8 @@ public class TypeMaker {
     }
 
     public MethodTypes parseMethodSignature(ClassFile classFile, Method method) {
-        String key = classFile.getInternalTypeName() + ':' + method.getName() + method.getDescriptor();
-        AttributeSignature attributeSignature = method.getAttribute("Signature");
+        MemberKey key = new MemberKey(classFile.getInternalTypeName(), method.getName(), method.getDescriptor());
+        AttributeSignature attributeSignature = method.getAttribute(AttributeName.SIGNATURE);
         String signature = (attributeSignature == null) ? method.getDescriptor() : attributeSignature.getSignature();
         MethodTypes methodTypes = parseMethodSignature(signature, method);
 
@@ -171,23 +238,32 @@ public class TypeMaker {
     }
 
     public Type parseFieldSignature(ClassFile classFile, Field field) {
-        String key = classFile.getInternalTypeName() + ':' + field.getName();
-        AttributeSignature attributeSignature = field.getAttribute("Signature");
+        MemberKey key = new MemberKey(classFile.getInternalTypeName(), field.getName(), null);
+        AttributeSignature attributeSignature = field.getAttribute(AttributeName.SIGNATURE);
         String signature = (attributeSignature == null) ? field.getDescriptor() : attributeSignature.getSignature();
         Type type = makeFromSignature(signature);
 
-        internalTypeNameFieldNameToType.put(key, type);
+        if (type != null) {
+            internalTypeNameFieldNameToType.put(key, type);
+        }
 
         return type;
     }
 
     public Type makeFromSignature(String signature) {
-        Type type = signatureToType.get(signature);
+        Type type = SIGNATURE_TO_TYPE.get(signature);
+
+        if (type == null) {
+            type = signatureToType.get(signature);
+        }
 
         if (type == null) {
             SignatureReader reader = new SignatureReader(signature);
             type = parseReferenceTypeSignature(reader);
-            signatureToType.put(signature, type);
+
+            if (type != null) {
+                signatureToType.put(signature, type);
+            }
         }
 
         return type;
@@ -211,20 +287,14 @@ public class TypeMaker {
      */
     @SuppressWarnings("unchecked")
     protected MethodTypes parseMethodSignature(String signature, Method method) {
-        String cacheKey = signature;
+        Object cacheKey = signature;
         boolean containsThrowsSignature = (signature.indexOf('^') != -1);
 
         if (!containsThrowsSignature && (method != null)) {
-            AttributeExceptions attributeExceptions = method.getAttribute("Exceptions");
+            AttributeExceptions attributeExceptions = method.getAttribute(AttributeName.EXCEPTIONS);
 
             if (attributeExceptions != null) {
-                StringBuilder sb = new StringBuilder(signature);
-
-                for (String exceptionTypeName : attributeExceptions.getExceptionTypeNames()) {
-                    sb.append("^L").append(exceptionTypeName).append(';');
-                }
-
-                cacheKey = sb.toString();
+                cacheKey = new MethodSignatureKey(signature, attributeExceptions.getExceptionTypeNames());
             }
         }
 
@@ -271,7 +341,7 @@ public class TypeMaker {
             if (firstException == null) {
                 // Signature does not contain exceptions
                 if (method != null) {
-                    AttributeExceptions attributeExceptions = method.getAttribute("Exceptions");
+                    AttributeExceptions attributeExceptions = method.getAttribute(AttributeName.EXCEPTIONS);
 
                     if (attributeExceptions != null) {
                         String[] exceptionTypeNames = attributeExceptions.getExceptionTypeNames();
@@ -802,6 +872,69 @@ public class TypeMaker {
         public BaseType exceptions;
     }
 
+    /**
+     * Key of a field or of a method: no string is built. Interned names are compared by reference.
+     */
+    protected static final class MemberKey {
+        protected final String internalTypeName;
+        protected final String name;
+        protected final String descriptor;
+        protected final int hashCode;
+
+        public MemberKey(String internalTypeName, String name, String descriptor) {
+            this.internalTypeName = internalTypeName;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.hashCode = 31 * (31 * internalTypeName.hashCode() + name.hashCode()) + ((descriptor == null) ? 0 : descriptor.hashCode());
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof MemberKey)) return false;
+
+            MemberKey other = (MemberKey)o;
+
+            return (hashCode == other.hashCode) && internalTypeName.equals(other.internalTypeName) && name.equals(other.name) &&
+                    ((descriptor == null) ? (other.descriptor == null) : descriptor.equals(other.descriptor));
+        }
+    }
+
+    /**
+     * Key of a method descriptor or signature without throws signature, completed by the 'Exceptions' attribute.
+     */
+    protected static final class MethodSignatureKey {
+        protected final String signature;
+        protected final String[] exceptionTypeNames;
+        protected final int hashCode;
+
+        public MethodSignatureKey(String signature, String[] exceptionTypeNames) {
+            this.signature = signature;
+            this.exceptionTypeNames = exceptionTypeNames;
+            this.hashCode = 31 * signature.hashCode() + Arrays.hashCode(exceptionTypeNames);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof MethodSignatureKey)) return false;
+
+            MethodSignatureKey other = (MethodSignatureKey)o;
+
+            return (hashCode == other.hashCode) && signature.equals(other.signature) && Arrays.equals(exceptionTypeNames, other.exceptionTypeNames);
+        }
+    }
+
     protected static final HashMap<String, ObjectType> INTERNALNAME_TO_OBJECTTYPE = new HashMap<>();
     protected static final HashMap<String, ObjectType> INTERNALNAME_TO_OBJECTPRIMITIVETYPE = new HashMap<>();
 
@@ -828,10 +961,13 @@ public class TypeMaker {
         INTERNALNAME_TO_OBJECTPRIMITIVETYPE.put(ObjectType.TYPE_PRIMITIVE_VOID.getInternalName(),    ObjectType.TYPE_PRIMITIVE_VOID);
     }
 
-    protected HashMap<String, ObjectType> descriptorToObjectType = new HashMap<>(1024);
-    protected HashMap<String, ObjectType> internalTypeNameToObjectType = new HashMap<>(1024);
-    protected HashMap<String, String[]> hierarchy = new HashMap<>(1024);
+    protected ConcurrentCache<String, ObjectType> descriptorToObjectType;
+    protected ConcurrentCache<String, ObjectType> internalTypeNameToObjectType;
+    protected ConcurrentCache<String, TypeHeader> typeHeaders;
+    protected HierarchyIndex hierarchyIndex;
     protected Loader loader;
+    protected Loader platformLoader;
+    protected TypeHeaderIndex typeHeaderIndex;
 
     public ObjectType makeFromDescriptor(String descriptor) {
         ObjectType ot = descriptorToObjectType.get(descriptor);
@@ -878,13 +1014,13 @@ public class TypeMaker {
             // Search class file with loader, first
             ot = loadFromLoader(internalTypeName);
 
-            if (ot == null) {
+            if ((ot == null) && (platformLoader == null)) {
                 // File not found with the loader -> Try to load class with system class loader
                 ot = loadFromClassLoader(internalTypeName);
             }
 
             if (ot == null) {
-                // File not found with the system class loader -> Create type just from 'internalTypeName'
+                // File not found -> Create type just from 'internalTypeName'
                 ot = create(internalTypeName);
             }
         }
@@ -900,7 +1036,7 @@ public class TypeMaker {
         try {
             ObjectType ot = internalTypeNameToObjectType.get(internalTypeName);
 
-            if ((ot == null) && loader.canLoad(internalTypeName)) {
+            if ((ot == null) && canLoad(internalTypeName)) {
                 String outerTypeName = getOuterTypeName(internalTypeName);
 
                 if (outerTypeName == null) {
@@ -931,7 +1067,7 @@ public class TypeMaker {
                     }
                 }
 
-                internalTypeNameToObjectType.put(internalTypeName, ot);
+                ot = putObjectType(internalTypeName, ot);
             }
 
             return ot;
@@ -970,7 +1106,9 @@ public class TypeMaker {
             } catch (ClassNotFoundException ignore) {
             }
 
-            internalTypeNameToObjectType.put(internalTypeName, ot);
+            if (ot != null) {
+                ot = putObjectType(internalTypeName, ot);
+            }
         }
 
         return ot;
@@ -1002,9 +1140,14 @@ public class TypeMaker {
             ot = new ObjectType(internalTypeName, qualifiedName, name);
         }
 
-        internalTypeNameToObjectType.put(internalTypeName, ot);
+        return putObjectType(internalTypeName, ot);
+    }
 
-        return ot;
+    /**
+     * @return the object type already stored by an other thread, if any, or 'ot'
+     */
+    private ObjectType putObjectType(String internalTypeName, ObjectType ot) {
+        return internalTypeNameToObjectType.putIfAbsent(internalTypeName, ot);
     }
 
     public boolean isAssignable(ObjectType parent, ObjectType child) {
@@ -1019,246 +1162,130 @@ public class TypeMaker {
             if (parentInternalName.equals(childInternalName) || parentInternalName.equals("java/lang/Object"))
                 return true;
 
-            return recursiveIsAssignable(parentInternalName, childInternalName);
+            return hierarchyIndex.isAssignable(parentInternalName, childInternalName);
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private boolean recursiveIsAssignable(String parentInternalName, String childInternalName) {
-        if (childInternalName.equals("java/lang/Object"))
-            return false;
-
-        String[] superClassAndInterfaceNames = hierarchy.get(childInternalName);
-
-        if (superClassAndInterfaceNames == null) {
-            try {
-                if (loader.canLoad(childInternalName)) {
-                    loadFromLoader(childInternalName);
-                    superClassAndInterfaceNames = hierarchy.get(childInternalName);
-                } else {
-                    Class childClazz = getClass().getClassLoader().loadClass(childInternalName.replace('/', '.'));
-                    Class parentClazz = getClass().getClassLoader().loadClass(parentInternalName.replace('/', '.'));
-                    return parentClazz.isAssignableFrom(childClazz);
-                }
-            } catch (Exception ignore) {
-                return false;
-            }
+    /**
+     * @return the super type name followed by the interface names, null if the type cannot be loaded
+     */
+    private String[] getSuperClassAndInterfaceNames(String internalTypeName) {
+        if (internalTypeName.equals("java/lang/Object")) {
+            return EMPTY_STRING_ARRAY;
         }
 
-        if (superClassAndInterfaceNames != null) {
-            for (String name : superClassAndInterfaceNames) {
-                if (parentInternalName.equals(name))
-                    return true;
-            }
+        if (typeHeaderIndex != null) {
+            String[] superClassAndInterfaceNames = typeHeaderIndex.getSuperClassAndInterfaceNames(internalTypeName);
 
-            for (String name : superClassAndInterfaceNames) {
-                if (recursiveIsAssignable(parentInternalName, name))
-                    return true;
+            if (superClassAndInterfaceNames != null) {
+                return superClassAndInterfaceNames;
             }
         }
 
-        return false;
-    }
-
-    private String getOuterTypeName(String internalTypeName) throws Exception {
-        return loadTypeAndApplyFunction(internalTypeName, null, searchOuterTypeName);
-    }
-
-    private Object[] constants = new Object[1000];
+        if (!canLoad(internalTypeName)) {
+            return null;
+        }
 
-    @FunctionalInterface
-    private interface Function {
-        String apply(ClassFileReader reader, String typeName, String innerTypeName) throws Exception;
+        try {
+            TypeHeader header = getTypeHeader(internalTypeName);
+            return (header == null) ? null : header.getSuperClassAndInterfaceNames();
+        } catch (Exception ignore) {
+            // Invalid class file
+            return EMPTY_STRING_ARRAY;
+        }
     }
 
-    private Function checkInnerTypeName = (reader, typeName, innerTypeName) -> {
-        int count = reader.readUnsignedShort();
-
-        for(int i=0; i < count; i++) {
-            int innerTypeIndex = reader.readUnsignedShort();
-
-            // Skip 'outerTypeIndex', 'innerNameIndex' & innerAccessFlags'
-            reader.skip(3 * 2);
-
-            ConstantClass cc = (ConstantClass)constants[innerTypeIndex];
-            String innerInternalTypeName = (String)constants[cc.getNameIndex()];
-
-            if (innerTypeName.equals(innerInternalTypeName)) {
-                return typeName;
-            }
+    /**
+     * @return true if 'parentInternalName' is assignable from a type not found by the loaders, according to the class
+     *         loader of the decompiler if there is no platform loader
+     */
+    @SuppressWarnings("unchecked")
+    private boolean isAssignableFromUnresolvedType(String parentInternalName, String childInternalName) {
+        if (platformLoader != null) {
+            return false;
         }
 
-        return null;
-    };
-
-    private Function searchOuterTypeName = (reader, typeName, innerTypeName) -> {
-        int count = reader.readUnsignedShort();
-
-        for(int i=0; i < count; i++) {
-            int innerTypeIndex = reader.readUnsignedShort();
-            int outerTypeIndex = reader.readUnsignedShort();
-
-            // Skip 'innerNameIndex' & innerAccessFlags'
-            reader.skip(2 * 2);
-
-            ConstantClass cc = (ConstantClass)constants[innerTypeIndex];
-            innerTypeName = (String)constants[cc.getNameIndex()];
-
-            if (innerTypeName.equals(typeName)) {
-                if (outerTypeIndex == 0) {
-                    // Synthetic inner class -> Search outer class
-                    int lastDollar = typeName.lastIndexOf('$');
-
-                    if (lastDollar != -1) {
-                        String outerTypeName = typeName.substring(0, lastDollar);
-                        return loadTypeAndApplyFunction(outerTypeName, typeName, checkInnerTypeName);
-                    }
-
-                    return null;
-                } else {
-                    // Return 'outerTypeName'
-                    cc = (ConstantClass)constants[outerTypeIndex];
-                    return (String)constants[cc.getNameIndex()];
-                }
-            }
+        try {
+            Class childClazz = getClass().getClassLoader().loadClass(childInternalName.replace('/', '.'));
+            Class parentClazz = getClass().getClassLoader().loadClass(parentInternalName.replace('/', '.'));
+            return parentClazz.isAssignableFrom(childClazz);
+        } catch (Exception ignore) {
+            return false;
         }
+    }
 
-        return null;
-    };
-
-    private String loadTypeAndApplyFunction(String typeName, String innerTypeName, Function function) throws Exception {
-        byte[] data = loader.load(typeName);
-
-        if (data == null) {
-            return null;
-        } else {
-            ClassFileReader reader = new ClassFileReader(data);
-
-            int magic = reader.readInt();
-
-            if (magic != ClassFileReader.JAVA_MAGIC_NUMBER)
-                throw new ClassFileFormatException("Invalid CLASS file");
-
-            // Skip 'minorVersion', 'majorVersion'
-            reader.skip(2 * 2);
-
-            Object[] constants = loadConstants(reader);
-
-            // Skip 'accessFlags' & 'thisClassIndex'
-            reader.skip(2 * 2);
-
-            // Load super class name
-            int superClassIndex = reader.readUnsignedShort();
-            String superClassName;
+    private boolean canLoad(String internalTypeName) {
+        return ((typeHeaderIndex != null) && typeHeaderIndex.contains(internalTypeName)) || loader.canLoad(internalTypeName) || ((platformLoader != null) && platformLoader.canLoad(internalTypeName));
+    }
 
-            if (superClassIndex == 0) {
-                superClassName = null;
-            } else {
-                ConstantClass cc = (ConstantClass)constants[superClassIndex];
-                superClassName = (String)constants[cc.getNameIndex()];
-            }
+    private ClassFileReader load(String internalTypeName) throws Exception {
+        ClassFileReader reader = ClassFileReader.load(loader, internalTypeName);
 
-            // Load interface blackListNames
-            int count = reader.readUnsignedShort();
-            String[] superClassAndInterfaceNames = new String[count + 1];
+        if ((reader == null) && (platformLoader != null)) {
+            reader = ClassFileReader.load(platformLoader, internalTypeName);
+        }
 
-            superClassAndInterfaceNames[0] = superClassName;
+        return reader;
+    }
 
-            for (int i = 1; i <= count; i++) {
-                int interfaceIndex = reader.readUnsignedShort();
-                ConstantClass cc = (ConstantClass)constants[interfaceIndex];
-                superClassAndInterfaceNames[i] = (String)constants[cc.getNameIndex()];
-            }
+    /**
+     * @return the header of the type, scanned once and cached, null if the type cannot be loaded
+     */
+    private TypeHeader getTypeHeader(String internalTypeName) throws Exception {
+        TypeHeader header = typeHeaders.get(internalTypeName);
 
-            hierarchy.put(typeName, superClassAndInterfaceNames);
+        if (header == null) {
+            ClassFileReader reader = load(internalTypeName);
 
-            // Skip fields
-            count = reader.readUnsignedShort();
-            for (int i = 0; i < count; i++) {
-                // skip 'accessFlags', 'nameIndex', 'signatureIndex'
-                reader.skip(3 * 2);
-                skipAttributes(reader);
+            if (reader == null) {
+                return null;
             }
 
-            // Skip methods
-            count = reader.readUnsignedShort();
-            for (int i = 0; i < count; i++) {
-                // skip 'accessFlags', 'nameIndex', 'signatureIndex'
-                reader.skip(3 * 2);
-                skipAttributes(reader);
-            }
+            header = typeHeaders.putIfAbsent(internalTypeName, TypeHeader.scan(reader, interner));
+        }
 
-            // Load attributes
-            count = reader.readUnsignedShort();
-            for (int i = 0; i < count; i++) {
-                int attributeNameIndex = reader.readUnsignedShort();
-                int attributeLength = reader.readInt();
+        return header;
+    }
 
-                String name = (String)constants[attributeNameIndex];
+    private String getOuterTypeName(String internalTypeName) throws Exception {
+        if ((typeHeaderIndex != null) && typeHeaderIndex.contains(internalTypeName)) {
+            return typeHeaderIndex.getOuterTypeName(internalTypeName);
+        }
 
-                if ("InnerClasses".equals(name)) {
-                    return function.apply(reader, typeName, innerTypeName);
-                } else {
-                    reader.skip(attributeLength);
-                }
-            }
+        TypeHeader header = getTypeHeader(internalTypeName);
 
+        if (header == null) {
             return null;
         }
-    }
 
-    private Object[] loadConstants(ClassFileReader reader) throws Exception {
-        int count = reader.readUnsignedShort();
+        int index = header.indexOfInnerClass(internalTypeName);
 
-        if (count == 0)
+        if (index == -1) {
             return null;
-
-        if (constants.length < count) {
-            constants = new Object[count];
         }
 
-        for (int i=1; i<count; i++) {
-            int tag = reader.readByte();
-
-            switch (tag) {
-                case 1:
-                    constants[i] = reader.readUTF8();
-                    break;
-                case 7:
-                    constants[i] = new ConstantClass(reader.readUnsignedShort());
-                    break;
-                case 8: case 16: case 19: case 20:
-                    reader.skip(2);
-                    break;
-                case 15:
-                    reader.skip(3);
-                    break;
-                case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18:
-                    reader.skip(4);
-                    break;
-                case 5: case 6:
-                    reader.skip(8);
-                    i++;
-                    break;
-                default:
-                    throw new ClassFileFormatException("Invalid constant pool entry");
-            }
+        String outerTypeName = header.getOuterTypeName(index);
+
+        if (outerTypeName != null) {
+            return outerTypeName;
         }
 
-        return constants;
-    }
+        // Synthetic inner class -> Search outer class
+        int lastDollar = internalTypeName.lastIndexOf('$');
 
-    private static void skipAttributes(ClassFileReader reader) {
-        int count = reader.readUnsignedShort();
+        if (lastDollar == -1) {
+            return null;
+        }
 
-        for (int i = 0; i < count; i++) {
-            // skip 'attributeNameIndex'
-            reader.skip(2);
+        outerTypeName = internalTypeName.substring(0, lastDollar);
 
-            int attributeLength = reader.readInt();
+        TypeHeader outerHeader = getTypeHeader(outerTypeName);
 
-            reader.skip(attributeLength);
+        if ((outerHeader != null) && (outerHeader.indexOfInnerClass(internalTypeName) != -1)) {
+            return interner.intern(outerTypeName);
         }
+
+        return null;
     }
 
     public MethodTypes makeMethodTypes(String descriptor) {
@@ -1267,7 +1294,7 @@ public class TypeMaker {
 
     public MethodTypes makeMethodTypes(ObjectType objectType, String methodName, String descriptor) {
         if (objectType.getDimension() == 0) {
-            String key = objectType.getInternalName() + ':' + methodName + descriptor;
+            MemberKey key = new MemberKey(objectType.getInternalName(), methodName, descriptor);
 
             if (internalTypeNameMethodNameDescriptorToMethodTypes.containsKey(key)) {
                 MethodTypes methodTypes = internalTypeNameMethodNameDescriptorToMethodTypes.get(key);
@@ -1288,7 +1315,7 @@ public class TypeMaker {
 
     public Type makeFieldType(ObjectType objectType, String fieldName, String descriptor) {
         if (objectType.getDimension() == 0) {
-            String key = objectType.getInternalName() + ':' + fieldName;
+            MemberKey key = new MemberKey(objectType.getInternalName(), fieldName, null);
 
             if (internalTypeNameFieldNameToType.containsKey(key)) {
                 Type type = internalTypeNameFieldNameToType.get(key);
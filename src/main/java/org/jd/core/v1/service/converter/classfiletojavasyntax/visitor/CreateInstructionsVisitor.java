@@ -7,27 +7,73 @@
 
 package org.jd.core.v1.service.converter.classfiletojavasyntax.visitor;
 
+import org.jd.core.v1.api.DecompilationListener;
 import org.jd.core.v1.model.classfile.ClassFile;
 import org.jd.core.v1.model.classfile.Method;
+import org.jd.core.v1.model.classfile.attribute.AttributeCode;
+import org.jd.core.v1.model.classfile.attribute.AttributeName;
 import org.jd.core.v1.model.javasyntax.AbstractJavaSyntaxVisitor;
 import org.jd.core.v1.model.javasyntax.declaration.*;
 import org.jd.core.v1.model.javasyntax.statement.ByteCodeStatement;
 import org.jd.core.v1.model.javasyntax.type.ObjectType;
 import org.jd.core.v1.model.javasyntax.type.Type;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.model.cfg.BasicBlock;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.model.cfg.ControlFlowGraph;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.model.javasyntax.declaration.ClassFileBodyDeclaration;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.model.javasyntax.declaration.ClassFileConstructorOrMethodDeclaration;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.model.javasyntax.declaration.ClassFileFieldDeclaration;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.*;
+import org.jd.core.v1.util.Budget;
+import org.jd.core.v1.util.BudgetExceededException;
+import org.jd.core.v1.util.ClassBudget;
+import org.jd.core.v1.util.DefaultList;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinTask;
 
 import static org.jd.core.v1.model.javasyntax.declaration.Declaration.*;
 
+/**
+ * Create the statements of the constructors and methods.<br><br>
+ *
+ * Synthetic, bridge and accessor methods are parsed first, in declaration order: their statements are inlined by the
+ * other methods. If 'parallelMethods' is set, the other methods are parsed concurrently: on the current fork-join
+ * pool if the visitor runs in a fork-join task, on the common pool otherwise. The flags of the methods are set before
+ * the tasks are forked: the method 'class$' and its cache fields are hidden first, as in outline mode, and the tasks
+ * do not change the flags of the other members.<br><br>
+ *
+ * If a {@link ClassBudget} is set, a method exceeding its budget, or parsed after the type budget is exceeded, is
+ * written as byte code.<br><br>
+ *
+ * If a {@link DecompilationListener} is set, the measures of each method are sent to the listener.<br><br>
+ *
+ * If 'outline' is set, only the methods on which the declarations depend are parsed: the constructors and the static
+ * initializers (field initializers, enum constants, default constructors) and the synthetic methods they may inline.
+ * The statements of the other methods with byte code are replaced by {@link #OMITTED_STATEMENTS}.<br>
+ */
 public class CreateInstructionsVisitor extends AbstractJavaSyntaxVisitor {
+    public static final ByteCodeStatement OMITTED_STATEMENTS = new ByteCodeStatement("// ...");
+
     protected TypeMaker typeMaker;
+    protected boolean parallelMethods;
+    protected boolean outline;
+    protected ClassBudget classBudget;
+    protected DecompilationListener listener;
 
     public CreateInstructionsVisitor(TypeMaker typeMaker) {
+        this(typeMaker, false, null, null);
+    }
+
+    public CreateInstructionsVisitor(TypeMaker typeMaker, boolean parallelMethods, ClassBudget classBudget, DecompilationListener listener) {
+        this(typeMaker, parallelMethods, false, classBudget, listener);
+    }
+
+    public CreateInstructionsVisitor(TypeMaker typeMaker, boolean parallelMethods, boolean outline, ClassBudget classBudget, DecompilationListener listener) {
         this.typeMaker = typeMaker;
+        this.parallelMethods = parallelMethods;
+        this.outline = outline;
+        this.classBudget = classBudget;
+        this.listener = listener;
     }
 
     @Override
@@ -43,6 +89,10 @@ public class CreateInstructionsVisitor extends AbstractJavaSyntaxVisitor {
         List<ClassFileConstructorOrMethodDeclaration> methods = bodyDeclaration.getMethodDeclarations();
 
         if (methods != null) {
+            if (outline || parallelMethods) {
+                hideDotClassMembers(bodyDeclaration);
+            }
+
             for (ClassFileConstructorOrMethodDeclaration method : methods) {
                 if ((method.getFlags() & (FLAG_SYNTHETIC|FLAG_BRIDGE)) != 0) {
                     method.accept(this);
@@ -64,14 +114,51 @@ public class CreateInstructionsVisitor extends AbstractJavaSyntaxVisitor {
                 }
             }
 
-            for (ClassFileConstructorOrMethodDeclaration method : methods) {
-                if ((method.getFlags() & (FLAG_SYNTHETIC|FLAG_BRIDGE)) == 0) {
-                    method.accept(this);
+            if (parallelMethods) {
+                DefaultList<ForkJoinTask<?>> tasks = new DefaultList<>(methods.size());
+
+                for (ClassFileConstructorOrMethodDeclaration method : methods) {
+                    if ((method.getFlags() & (FLAG_SYNTHETIC|FLAG_BRIDGE)) == 0) {
+                        tasks.add(ForkJoinTask.adapt(() -> method.accept(this)));
+                    }
+                }
+
+                if (tasks.size() > 1) {
+                    ForkJoinTask.invokeAll(tasks);
+                } else if (tasks.size() == 1) {
+                    tasks.getFirst().invoke();
+                }
+            } else {
+                for (ClassFileConstructorOrMethodDeclaration method : methods) {
+                    if ((method.getFlags() & (FLAG_SYNTHETIC|FLAG_BRIDGE)) == 0) {
+                        method.accept(this);
+                    }
                 }
             }
         }
     }
 
+    /**
+     * Hide the method 'class$' and its cache fields, generated for '.class' expressions before Java 5. In sequential
+     * full mode, they are hidden by {@link StatementMaker} when it finds an expression using them.
+     */
+    protected static void hideDotClassMembers(ClassFileBodyDeclaration bodyDeclaration) {
+        for (ClassFileConstructorOrMethodDeclaration method : bodyDeclaration.getMethodDeclarations()) {
+            if (((method.getFlags() & FLAG_STATIC) != 0) && method.getMethod().getName().equals("class$") && method.getMethod().getDescriptor().equals("(Ljava/lang/String;)Ljava/lang/Class;")) {
+                method.setFlags(method.getFlags() | FLAG_SYNTHETIC);
+
+                if (bodyDeclaration.getFieldDeclarations() != null) {
+                    for (ClassFileFieldDeclaration field : bodyDeclaration.getFieldDeclarations()) {
+                        if (((field.getFlags() & FLAG_STATIC) != 0) && (field.getFieldDeclarators() instanceof FieldDeclarator) && ((FieldDeclarator)field.getFieldDeclarators()).getName().startsWith("class$")) {
+                            field.setFlags(field.getFlags() | FLAG_SYNTHETIC);
+                        }
+                    }
+                }
+                break;
+            }
+        }
+    }
+
     @Override
     public void visit(FieldDeclaration declaration) {}
 
@@ -99,39 +186,110 @@ public class CreateInstructionsVisitor extends AbstractJavaSyntaxVisitor {
         createParametersVariablesAndStatements(comdwln, localVariableMaker);
     }
 
+    /**
+     * @return true if the statements of the method are needed to create the declarations of its type in outline mode
+     */
+    protected static boolean isParsedInOutline(ClassFileConstructorOrMethodDeclaration comdwln) {
+        return !(comdwln instanceof MethodDeclaration) || ((comdwln.getFlags() & (FLAG_SYNTHETIC|FLAG_BRIDGE)) != 0);
+    }
+
     protected void createParametersVariablesAndStatements(ClassFileConstructorOrMethodDeclaration comdwln, LocalVariableMaker localVariableMaker) {
         ClassFile classFile = comdwln.getClassFile();
         ClassFileBodyDeclaration bodyDeclaration = comdwln.getBodyDeclaration();
         Method method = comdwln.getMethod();
+
+        if (outline && !isParsedInOutline(comdwln)) {
+            if (method.getAttribute(AttributeName.CODE) != null) {
+                comdwln.setStatements(OMITTED_STATEMENTS);
+            }
+
+            createParametersVariables(comdwln, localVariableMaker);
+            return;
+        }
+
         Type returnedType = comdwln.getReturnedType();
         StatementMaker statementMaker = new StatementMaker(typeMaker, localVariableMaker, classFile, bodyDeclaration, returnedType);
 
+        Budget budget = null;
+        long time = (listener == null) ? 0 : System.nanoTime();
+        int basicBlockCount = 0, loopCount = 0;
+        boolean reduced = false;
+
         try {
+            if (classBudget != null) {
+                budget = classBudget.newMethodBudget();
+                budget.check();
+            }
+
             ControlFlowGraph cfg = ControlFlowGraphMaker.make(method);
 
             if (cfg != null) {
+                cfg.setBudget(budget);
+                basicBlockCount = cfg.getBasicBlocks().size();
                 ControlFlowGraphGotoReducer.reduce(cfg);
                 ControlFlowGraphLoopReducer.reduce(cfg);
 
-                if (ControlFlowGraphReducer.reduce(cfg)) {
+                if (listener != null) {
+                    loopCount = countLoops(cfg);
+                }
+
+                reduced = ControlFlowGraphReducer.reduce(cfg);
+
+                if (reduced) {
                     comdwln.setStatements(statementMaker.make(cfg));
                 } else {
                     comdwln.setStatements(new ByteCodeStatement(ByteCodeWriter.write("// ", method)));
                 }
             }
+        } catch (BudgetExceededException e) {
+            classBudget.methodBudgetExceeded(classFile.getInternalTypeName(), method.getName(), method.getDescriptor(), e.getMessage());
+            comdwln.setStatements(new ByteCodeStatement(ByteCodeWriter.write("// ", method)));
         } catch (Exception e) {
             assert ExceptionUtil.printStackTrace(e);
             comdwln.setStatements(new ByteCodeStatement(ByteCodeWriter.write("// ", method)));
+        } finally {
+            if (budget != null) {
+                budget.flush();
+            }
         }
 
-        if ((classFile.getAccessFlags() & FLAG_INTERFACE) != 0) {
-            comdwln.setFlags(comdwln.getFlags() & ~(FLAG_PUBLIC|FLAG_ABSTRACT));
+        if (listener != null) {
+            AttributeCode attributeCode = method.getAttribute(AttributeName.CODE);
+            int codeLength = (attributeCode == null) ? 0 : attributeCode.getCodeLength();
+            boolean byteCode = (comdwln.getStatements() != null) && (comdwln.getStatements().getClass() == ByteCodeStatement.class);
+
+            time = System.nanoTime() - time;
+            listener.methodCompleted(classFile.getInternalTypeName(), method.getName(), method.getDescriptor(), time, codeLength, basicBlockCount, loopCount, reduced, byteCode);
+        }
+
+        createParametersVariables(comdwln, localVariableMaker);
+    }
+
+    protected void createParametersVariables(ClassFileConstructorOrMethodDeclaration comdwln, LocalVariableMaker localVariableMaker) {
+        ClassFileBodyDeclaration bodyDeclaration = comdwln.getBodyDeclaration();
+
+        if ((comdwln.getClassFile().getAccessFlags() & FLAG_INTERFACE) != 0) {
+            synchronized (bodyDeclaration) {
+                comdwln.setFlags(comdwln.getFlags() & ~(FLAG_PUBLIC|FLAG_ABSTRACT));
+            }
         }
 
         localVariableMaker.make();
         comdwln.setFormalParameters(localVariableMaker.getFormalParameters());
     }
 
+    protected static int countLoops(ControlFlowGraph cfg) {
+        int count = 0;
+
+        for (BasicBlock basicBlock : cfg.getBasicBlocks()) {
+            if (basicBlock.getType() == BasicBlock.TYPE_LOOP) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
     @Override
     public void visit(ClassDeclaration declaration) {
         safeAccept(declaration.getBodyDeclaration());
@@ -7,10 +7,12 @@
 
 package org.jd.core.v1.service.converter.classfiletojavasyntax.visitor;
 
+import org.jd.core.v1.api.DecompilationListener;
 import org.jd.core.v1.model.javasyntax.AbstractJavaSyntaxVisitor;
 import org.jd.core.v1.model.javasyntax.declaration.*;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.model.javasyntax.declaration.ClassFileBodyDeclaration;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.TypeMaker;
+import org.jd.core.v1.util.ClassBudget;
 
 public class UpdateJavaSyntaxTreeStep1Visitor extends AbstractJavaSyntaxVisitor {
     protected InitInnerClassVisitor initInnerClassStep1Visitor = new InitInnerClassVisitor();
@@ -18,7 +20,15 @@ public class UpdateJavaSyntaxTreeStep1Visitor extends AbstractJavaSyntaxVisitor
     protected CreateInstructionsVisitor createInstructionsVisitor;
 
     public UpdateJavaSyntaxTreeStep1Visitor(TypeMaker typeMaker) {
-        createInstructionsVisitor = new CreateInstructionsVisitor(typeMaker);
+        this(typeMaker, false, null, null);
+    }
+
+    public UpdateJavaSyntaxTreeStep1Visitor(TypeMaker typeMaker, boolean parallelMethods, ClassBudget classBudget, DecompilationListener listener) {
+        this(typeMaker, parallelMethods, false, classBudget, listener);
+    }
+
+    public UpdateJavaSyntaxTreeStep1Visitor(TypeMaker typeMaker, boolean parallelMethods, boolean outline, ClassBudget classBudget, DecompilationListener listener) {
+        createInstructionsVisitor = new CreateInstructionsVisitor(typeMaker, parallelMethods, outline, classBudget, listener);
     }
 
     @Override
@@ -13,15 +13,14 @@ import org.jd.core.v1.service.converter.classfiletojavasyntax.model.javasyntax.d
 import org.jd.core.v1.service.converter.classfiletojavasyntax.model.javasyntax.declaration.ClassFileEnumDeclaration;
 
 public class UpdateJavaSyntaxTreeStep2Visitor extends AbstractJavaSyntaxVisitor {
-    protected static final AggregateFieldsVisitor AGGREGATE_FIELDS_VISITOR = new AggregateFieldsVisitor();
-    protected static final SortMembersVisitor SORT_MEMBERS_VISITOR = new SortMembersVisitor();
-
     protected InitInnerClassVisitor.UpdateNewExpressionVisitor initInnerClassStep2Visitor = new InitInnerClassVisitor.UpdateNewExpressionVisitor();
     protected InitStaticFieldVisitor initStaticFieldVisitor = new InitStaticFieldVisitor();
     protected InitInstanceFieldVisitor initInstanceFieldVisitor = new InitInstanceFieldVisitor();
     protected InitEnumVisitor initEnumVisitor = new InitEnumVisitor();
     protected UpdateBridgeMethodVisitor replaceBridgeMethodVisitor = new UpdateBridgeMethodVisitor();
     protected RemoveDefaultConstructorVisitor removeDefaultConstructorVisitor = new RemoveDefaultConstructorVisitor();
+    protected AggregateFieldsVisitor aggregateFieldsVisitor = new AggregateFieldsVisitor();
+    protected SortMembersVisitor sortMembersVisitor = new SortMembersVisitor();
 
     protected TypeDeclaration typeDeclaration;
 
@@ -44,8 +43,8 @@ public class UpdateJavaSyntaxTreeStep2Visitor extends AbstractJavaSyntaxVisitor
         initStaticFieldVisitor.visit(declaration);
         initInstanceFieldVisitor.visit(declaration);
         removeDefaultConstructorVisitor.visit(declaration);
-        AGGREGATE_FIELDS_VISITOR.visit(declaration);
-        SORT_MEMBERS_VISITOR.visit(declaration);
+        aggregateFieldsVisitor.visit(declaration);
+        sortMembersVisitor.visit(declaration);
 
         if ((bodyDeclaration.getOuterBodyDeclaration() == null) && (bodyDeclaration.getInnerTypeDeclarations() != null) && replaceBridgeMethodVisitor.init(bodyDeclaration)) {
             // Replace bridge method invocation
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.service.deserializer.classfile;
+
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Class file reader parsing the remaining bytes of a buffer with absolute reads: the buffer is neither copied nor
+ * modified. 'offset' is relative to the position of the buffer at creation.<br>
+ */
+public class ByteBufferClassFileReader extends ClassFileReader {
+    protected ByteBuffer buffer;
+    protected int start;
+    protected byte[] utf8Buffer;
+
+    public ByteBufferClassFileReader(ByteBuffer buffer) {
+        super(null);
+        this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        this.start = buffer.position();
+    }
+
+    protected ByteBufferClassFileReader(ByteBuffer buffer, int start, int offset) {
+        super(null);
+        this.buffer = buffer;
+        this.start = start;
+        this.offset = offset;
+    }
+
+    @Override
+    public ClassFileReader readerAt(int offset) {
+        return new ByteBufferClassFileReader(buffer, start, offset);
+    }
+
+    @Override
+    public byte readByte() {
+        return buffer.get(start + offset++);
+    }
+
+    @Override
+    public int readUnsignedByte() {
+        return buffer.get(start + offset++) & 0xff;
+    }
+
+    @Override
+    public int readUnsignedShort() {
+        int value = buffer.getShort(start + offset) & 0xffff;
+        offset += 2;
+        return value;
+    }
+
+    @Override
+    public int readInt() {
+        int value = buffer.getInt(start + offset);
+        offset += 4;
+        return value;
+    }
+
+    @Override
+    public float readFloat() {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    @Override
+    public long readLong() {
+        long value = buffer.getLong(start + offset);
+        offset += 8;
+        return value;
+    }
+
+    @Override
+    public void readFully(byte target[]) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(start + offset);
+        duplicate.get(target);
+        offset += target.length;
+    }
+
+    @Override
+    public ByteBuffer readByteBuffer(int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.limit(start + offset + length);
+        duplicate.position(start + offset);
+        offset += length;
+        return duplicate.slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    public String readUTF8At(int offset) throws UTFDataFormatException {
+        int length = buffer.getShort(start + offset) & 0xffff;
+
+        if (buffer.hasArray()) {
+            return decodeUTF8(buffer.array(), buffer.arrayOffset() + start + offset + 2, length);
+        }
+
+        // Called by several threads: no shared buffer
+        byte[] bytes = new byte[length];
+
+        for (int i=0, index=start+offset+2; i<length; i++) {
+            bytes[i] = buffer.get(index++);
+        }
+
+        return decodeUTF8(bytes, 0, length);
+    }
+
+    @Override
+    public String readUTF8() throws UTFDataFormatException {
+        int length = readUnsignedShort();
+        String s;
+
+        if (buffer.hasArray()) {
+            s = decodeUTF8(buffer.array(), buffer.arrayOffset() + start + offset, length);
+        } else {
+            if ((utf8Buffer == null) || (utf8Buffer.length < length)) {
+                utf8Buffer = new byte[Math.max(length, 256)];
+            }
+
+            for (int i=0, index=start+offset; i<length; i++) {
+                utf8Buffer[i] = buffer.get(index++);
+            }
+
+            s = decodeUTF8(utf8Buffer, 0, length);
+        }
+
+        offset += length;
+        return s;
+    }
+}
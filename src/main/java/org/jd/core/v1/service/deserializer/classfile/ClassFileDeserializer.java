@@ -8,6 +8,7 @@
 package org.jd.core.v1.service.deserializer.classfile;
 
 import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.loader.PrefetchingLoader;
 import org.jd.core.v1.model.classfile.ClassFile;
 import org.jd.core.v1.model.classfile.ConstantPool;
 import org.jd.core.v1.model.classfile.Field;
@@ -15,69 +16,86 @@ import org.jd.core.v1.model.classfile.Method;
 import org.jd.core.v1.model.classfile.attribute.*;
 import org.jd.core.v1.model.classfile.constant.*;
 import org.jd.core.v1.util.DefaultList;
+import org.jd.core.v1.util.StringInterner;
 
 import java.io.UTFDataFormatException;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinTask;
 
 import static org.jd.core.v1.model.classfile.Constants.ACC_SYNTHETIC;
 
 
+/**
+ * If the loader is a {@link PrefetchingLoader}, the super types of each type are prefetched as soon as its header is
+ * parsed, and the inner types are prefetched and parsed concurrently, on the current fork-join pool if the
+ * deserializer runs in a fork-join task, on the common pool otherwise.<br><br>
+ *
+ * Names, descriptors and signatures are shared with the other class files through the default {@link StringInterner}.<br>
+ */
 public class ClassFileDeserializer {
+    protected StringInterner interner = StringInterner.getDefault();
 
     public ClassFile loadClassFile(Loader loader, String internalTypeName) throws Exception {
         return innerLoadClassFile(loader, internalTypeName);
     }
 
     public ClassFile innerLoadClassFile(Loader loader, String internalTypeName) throws Exception {
-        byte[] data = loader.load(internalTypeName);
+        ClassFileReader reader = ClassFileReader.load(loader, internalTypeName);
 
-        if (data == null) {
+        if (reader == null) {
             return null;
         }
 
-        ClassFileReader reader = new ClassFileReader(data);
+        PrefetchingLoader prefetchingLoader = (loader instanceof PrefetchingLoader) ? (PrefetchingLoader)loader : null;
 
         // Load main type
-        ClassFile classFile = loadClassFile(reader);
+        ClassFile classFile = loadClassFile(reader, prefetchingLoader);
 
         // Load inner types
-        AttributeInnerClasses aic = classFile.getAttribute("InnerClasses");
+        AttributeInnerClasses aic = classFile.getAttribute(AttributeName.INNER_CLASSES);
 
         if (aic != null) {
-            DefaultList<ClassFile> innerClassFiles = new DefaultList<>();
+            DefaultList<InnerClass> innerClasses = new DefaultList<>();
             String innerTypePrefix = internalTypeName + '$';
 
             for (InnerClass ic : aic.getInnerClasses()) {
                 if (!internalTypeName.equals(ic.getInnerTypeName())) {
                     if (internalTypeName.equals(ic.getOuterTypeName()) || ic.getInnerTypeName().startsWith(innerTypePrefix)) {
-                        ClassFile innerClassFile = innerLoadClassFile(loader, ic.getInnerTypeName());
-                        int flags = ic.getInnerAccessFlags();
-                        int length;
-
-                        if (ic.getInnerTypeName().startsWith(innerTypePrefix)) {
-                            length = internalTypeName.length() + 1;
-                        } else {
-                            length = ic.getInnerTypeName().indexOf('$') + 1;
-                        }
-
-                        if (Character.isDigit(ic.getInnerTypeName().charAt(length))) {
-                            flags |= ACC_SYNTHETIC;
-                        }
-
-                        if (innerClassFile == null) {
-                            // Inner class not found. Create an empty one.
-                            innerClassFile = new ClassFile(classFile.getMajorVersion(), classFile.getMinorVersion(), 0, internalTypeName, "java/lang/Object", null, null, null, null);
-                        }
-
-                        innerClassFile.setOuterClassFile(classFile);
-                        innerClassFile.setAccessFlags(flags);
-                        innerClassFiles.add(innerClassFile);
+                        innerClasses.add(ic);
                     }
                 }
             }
 
+            if (!innerClasses.isEmpty()) {
+                ClassFile[] loadedInnerClassFiles = loadInnerClassFiles(loader, prefetchingLoader, innerClasses);
+                DefaultList<ClassFile> innerClassFiles = new DefaultList<>(innerClasses.size());
+
+                for (int i=0, size=innerClasses.size(); i<size; i++) {
+                    InnerClass ic = innerClasses.get(i);
+                    ClassFile innerClassFile = loadedInnerClassFiles[i];
+                    int flags = ic.getInnerAccessFlags();
+                    int length;
+
+                    if (ic.getInnerTypeName().startsWith(innerTypePrefix)) {
+                        length = internalTypeName.length() + 1;
+                    } else {
+                        length = ic.getInnerTypeName().indexOf('$') + 1;
+                    }
+
+                    if (Character.isDigit(ic.getInnerTypeName().charAt(length))) {
+                        flags |= ACC_SYNTHETIC;
+                    }
+
+                    if (innerClassFile == null) {
+                        // Inner class not found. Create an empty one.
+                        innerClassFile = new ClassFile(classFile.getMajorVersion(), classFile.getMinorVersion(), 0, internalTypeName, "java/lang/Object", null, null, null, null);
+                    }
+
+                    innerClassFile.setOuterClassFile(classFile);
+                    innerClassFile.setAccessFlags(flags);
+                    innerClassFiles.add(innerClassFile);
+                }
 
-            if (!innerClassFiles.isEmpty()) {
                 classFile.setInnerClassFiles(innerClassFiles);
             }
         }
@@ -85,7 +103,54 @@ public class ClassFileDeserializer {
         return classFile;
     }
 
+    /**
+     * @return the inner types, null for missing types
+     */
+    protected ClassFile[] loadInnerClassFiles(Loader loader, PrefetchingLoader prefetchingLoader, DefaultList<InnerClass> innerClasses) throws Exception {
+        int size = innerClasses.size();
+        ClassFile[] innerClassFiles = new ClassFile[size];
+
+        if ((prefetchingLoader == null) || (size == 1)) {
+            for (int i=0; i<size; i++) {
+                innerClassFiles[i] = innerLoadClassFile(loader, innerClasses.get(i).getInnerTypeName());
+            }
+        } else {
+            Exception[] exceptions = new Exception[size];
+            DefaultList<ForkJoinTask<?>> tasks = new DefaultList<>(size);
+
+            for (InnerClass ic : innerClasses) {
+                prefetchingLoader.prefetch(ic.getInnerTypeName());
+            }
+
+            for (int i=0; i<size; i++) {
+                int index = i;
+
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    try {
+                        innerClassFiles[index] = innerLoadClassFile(loader, innerClasses.get(index).getInnerTypeName());
+                    } catch (Exception e) {
+                        exceptions[index] = e;
+                    }
+                }));
+            }
+
+            ForkJoinTask.invokeAll(tasks);
+
+            for (Exception exception : exceptions) {
+                if (exception != null) {
+                    throw exception;
+                }
+            }
+        }
+
+        return innerClassFiles;
+    }
+
     protected ClassFile loadClassFile(ClassFileReader reader) throws UTFDataFormatException {
+        return loadClassFile(reader, null);
+    }
+
+    protected ClassFile loadClassFile(ClassFileReader reader, PrefetchingLoader prefetchingLoader) throws UTFDataFormatException {
         int magic = reader.readInt();
 
         if (magic != ClassFileReader.JAVA_MAGIC_NUMBER)
@@ -94,7 +159,7 @@ public class ClassFileDeserializer {
         int minorVersion = reader.readUnsignedShort();
         int majorVersion = reader.readUnsignedShort();
 
-        ConstantPool constants = new ConstantPool(loadConstants(reader));
+        ConstantPool constants = loadConstants(reader);
 
         int accessFlags = reader.readUnsignedShort();
         int thisClassIndex = reader.readUnsignedShort();
@@ -103,27 +168,45 @@ public class ClassFileDeserializer {
         String internalTypeName = constants.getConstantTypeName(thisClassIndex);
         String superTypeName = (superClassIndex == 0) ? null : constants.getConstantTypeName(superClassIndex);
         String[] interfaceTypeNames = loadInterfaces(reader, constants);
-        Field[] fields = loadFields(reader, constants);
-        Method[] methods = loadMethods(reader, constants);
-        HashMap<String, Attribute> attributes = loadAttributes(reader, constants);
+
+        if (prefetchingLoader != null) {
+            // Super types are loaded by the converter
+            prefetchingLoader.prefetch(superTypeName);
+
+            if (interfaceTypeNames != null) {
+                for (String interfaceTypeName : interfaceTypeNames) {
+                    prefetchingLoader.prefetch(interfaceTypeName);
+                }
+            }
+        }
+
+        AttributeParser parser = new AttributeParser(reader, constants);
+        Field[] fields = loadFields(reader, parser);
+        Method[] methods = loadMethods(reader, parser);
+        AttributeTable attributes = loadAttributes(reader, parser);
 
         return new ClassFile(majorVersion, minorVersion, accessFlags, internalTypeName, superTypeName, interfaceTypeNames, fields, methods, attributes);
     }
 
-    protected Constant[] loadConstants(ClassFileReader reader) throws UTFDataFormatException {
+    /**
+     * UTF-8 constants are decoded on first access, see {@link LazyConstantPool}.
+     */
+    protected ConstantPool loadConstants(ClassFileReader reader) {
         int count = reader.readUnsignedShort();
 
         if (count == 0)
-            return null;
+            return new ConstantPool(null);
 
         Constant[] constants = new Constant[count];
+        int[] utf8Offsets = new int[count];
 
         for (int i=1; i<count; i++) {
             int tag = reader.readByte();
 
             switch (tag) {
                 case 1:
-                    constants[i] = new ConstantUtf8(reader.readUTF8());
+                    utf8Offsets[i] = reader.getOffset();
+                    reader.skip(reader.readUnsignedShort());
                     break;
                 case 3:
                     constants[i] = new ConstantInteger(reader.readInt());
@@ -160,7 +243,7 @@ public class ClassFileDeserializer {
             }
         }
 
-        return constants;
+        return new LazyConstantPool(constants, reader, utf8Offsets, interner);
     }
 
     protected String[] loadInterfaces(ClassFileReader reader, ConstantPool constants) {
@@ -178,18 +261,19 @@ public class ClassFileDeserializer {
         return interfaceTypeNames;
     }
 
-    protected Field[] loadFields(ClassFileReader reader, ConstantPool constants) {
+    protected Field[] loadFields(ClassFileReader reader, AttributeParser parser) {
         int count = reader.readUnsignedShort();
         if (count == 0)
             return null;
 
+        ConstantPool constants = parser.getConstants();
         Field[] fields = new Field[count];
 
         for (int i=0; i<count; i++) {
             int accessFlags = reader.readUnsignedShort();
             int nameIndex = reader.readUnsignedShort();
             int signatureIndex = reader.readUnsignedShort();
-            HashMap<String, Attribute> attributes = loadAttributes(reader, constants);
+            AttributeTable attributes = loadAttributes(reader, parser);
 
             String name = constants.getConstantUtf8(nameIndex);
             String signature = constants.getConstantUtf8(signatureIndex);
@@ -200,18 +284,19 @@ public class ClassFileDeserializer {
         return fields;
     }
 
-    protected Method[] loadMethods(ClassFileReader reader, ConstantPool constants) {
+    protected Method[] loadMethods(ClassFileReader reader, AttributeParser parser) {
         int count = reader.readUnsignedShort();
         if (count == 0)
             return null;
 
+        ConstantPool constants = parser.getConstants();
         Method[] methods = new Method[count];
 
         for (int i=0; i<count; i++) {
             int accessFlags = reader.readUnsignedShort();
             int nameIndex = reader.readUnsignedShort();
             int signatureIndex = reader.readUnsignedShort();
-            HashMap<String, Attribute> attributes = loadAttributes(reader, constants);
+            AttributeTable attributes = loadAttributes(reader, parser);
 
             String name = constants.getConstantUtf8(nameIndex);
             String signature = constants.getConstantUtf8(signatureIndex);
@@ -222,12 +307,18 @@ public class ClassFileDeserializer {
         return methods;
     }
 
-    protected HashMap<String, Attribute> loadAttributes(ClassFileReader reader, ConstantPool constants) {
+    /**
+     * Record the kind and the offset of each attribute: attributes are parsed on first access by
+     * {@link #loadAttribute(AttributeParser, AttributeName, int)}.
+     */
+    protected AttributeTable loadAttributes(ClassFileReader reader, AttributeParser parser) {
         int count = reader.readUnsignedShort();
         if (count == 0)
             return null;
 
-        HashMap<String, Attribute> attributes = new HashMap<>();
+        ConstantPool constants = parser.getConstants();
+        byte[] names = new byte[count];
+        int[] offsets = new int[count];
 
         for (int i=0; i<count; i++) {
             int attributeNameIndex = reader.readUnsignedShort();
@@ -235,103 +326,97 @@ public class ClassFileDeserializer {
 
             Constant constant = constants.getConstant(attributeNameIndex);
 
-            if (constant.getTag() == Constant.CONSTANT_Utf8) {
-                String name = ((ConstantUtf8)constant).getValue();
-
-                switch (name) {
-                    case "AnnotationDefault":
-                        attributes.put(name, new AttributeAnnotationDefault(loadElementValue(reader, constants)));
-                        break;
-                    case "BootstrapMethods":
-                        attributes.put(name, new AttributeBootstrapMethods(loadBootstrapMethods(reader)));
-                        break;
-                    case "Code":
-                        attributes.put(name, new AttributeCode(
-                                reader.readUnsignedShort(), reader.readUnsignedShort(),
-                                loadCode(reader), loadCodeExceptions(reader), loadAttributes(reader, constants)));
-                        break;
-                    case "ConstantValue":
-                        if (attributeLength != 2)
-                            throw new ClassFileFormatException("Invalid attribute length");
-                        attributes.put(name, new AttributeConstantValue(loadConstantValue(reader, constants)));
-                        break;
-                    case "Deprecated":
-                        if (attributeLength != 0)
-                            throw new ClassFileFormatException("Invalid attribute length");
-                        attributes.put(name, new AttributeDeprecated());
-                        break;
-                    case "Exceptions":
-                        attributes.put(name, new AttributeExceptions(loadExceptionTypeNames(reader, constants)));
-                        break;
-                    case "InnerClasses":
-                        attributes.put(name, new AttributeInnerClasses(loadInnerClasses(reader, constants)));
-                        break;
-                    case "LocalVariableTable":
-                        LocalVariable[] localVariables = loadLocalVariables(reader, constants);
-                        if (localVariables != null)
-                            attributes.put(name, new AttributeLocalVariableTable(localVariables));
-                        break;
-                    case "LocalVariableTypeTable":
-                        attributes.put(name, new AttributeLocalVariableTypeTable(loadLocalVariableTypes(reader, constants)));
-                        break;
-                    case "LineNumberTable":
-                        attributes.put(name, new AttributeLineNumberTable(loadLineNumbers(reader)));
-                        break;
-                    case "MethodParameters":
-                        attributes.put(name, new AttributeMethodParameters(loadParameters(reader, constants)));
-                        break;
-                    case "Module":
-                        attributes.put(name, new AttributeModule(
-                                constants.getConstantTypeName(reader.readUnsignedShort()),
-                                reader.readUnsignedShort(),
-                                constants.getConstantUtf8(reader.readUnsignedShort()),
-                                loadModuleInfos(reader, constants),
-                                loadPackageInfos(reader, constants),
-                                loadPackageInfos(reader, constants),
-                                loadConstantClassNames(reader, constants),
-                                loadServiceInfos(reader, constants)));
-                        break;
-                    case "ModulePackages":
-                        attributes.put(name, new AttributeModulePackages(loadConstantClassNames(reader, constants)));
-                        break;
-                    case "ModuleMainClass":
-                        attributes.put(name, new AttributeModuleMainClass(constants.getConstant(reader.readUnsignedShort())));
-                        break;
-                    case "RuntimeInvisibleAnnotations":
-                    case "RuntimeVisibleAnnotations":
-                        Annotation[] annotations = loadAnnotations(reader, constants);
-                        if (annotations != null)
-                            attributes.put(name, new Annotations(annotations));
-                        break;
-                    case "RuntimeInvisibleParameterAnnotations":
-                    case "RuntimeVisibleParameterAnnotations":
-                        attributes.put(name, new AttributeParameterAnnotations(loadParameterAnnotations(reader, constants)));
-                        break;
-                    case "Signature":
-                        if (attributeLength != 2)
-                            throw new ClassFileFormatException("Invalid attribute length");
-                        attributes.put(name, new AttributeSignature(constants.getConstantUtf8(reader.readUnsignedShort())));
-                        break;
-                    case "SourceFile":
-                        if (attributeLength != 2)
-                            throw new ClassFileFormatException("Invalid attribute length");
-                        attributes.put(name, new AttributeSourceFile(constants.getConstantUtf8(reader.readUnsignedShort())));
-                        break;
-                    case "Synthetic":
-                        if (attributeLength != 0)
-                            throw new ClassFileFormatException("Invalid attribute length");
-                        attributes.put(name, new AttributeSynthetic());
-                        break;
-                    default:
-                        attributes.put(name, new UnknownAttribute());
-                        reader.skip(attributeLength);
-                }
-            } else {
+            if (constant.getTag() != Constant.CONSTANT_Utf8)
                 throw new ClassFileFormatException("Invalid attributes");
+
+            AttributeName name = AttributeName.get(((ConstantUtf8)constant).getValue());
+
+            switch (name) {
+                case CONSTANT_VALUE:
+                case SIGNATURE:
+                case SOURCE_FILE:
+                    if (attributeLength != 2)
+                        throw new ClassFileFormatException("Invalid attribute length");
+                    break;
+                case DEPRECATED:
+                case SYNTHETIC:
+                    if (attributeLength != 0)
+                        throw new ClassFileFormatException("Invalid attribute length");
+                    break;
             }
+
+            names[i] = (byte)name.ordinal();
+            offsets[i] = reader.getOffset();
+            reader.skip(attributeLength);
         }
 
-        return attributes;
+        return new AttributeTable(parser, names, offsets);
+    }
+
+    /**
+     * @param offset offset of the content of the attribute
+     * @return the attribute, null if empty
+     */
+    protected Attribute loadAttribute(AttributeParser parser, AttributeName name, int offset) {
+        ClassFileReader reader = parser.getReader().readerAt(offset);
+        ConstantPool constants = parser.getConstants();
+
+        switch (name) {
+            case ANNOTATION_DEFAULT:
+                return new AttributeAnnotationDefault(loadElementValue(reader, constants));
+            case BOOTSTRAP_METHODS:
+                return new AttributeBootstrapMethods(loadBootstrapMethods(reader));
+            case CODE:
+                return new AttributeCode(
+                        reader.readUnsignedShort(), reader.readUnsignedShort(),
+                        loadCode(reader), loadCodeExceptions(reader), loadAttributes(reader, parser));
+            case CONSTANT_VALUE:
+                return new AttributeConstantValue(loadConstantValue(reader, constants));
+            case DEPRECATED:
+                return new AttributeDeprecated();
+            case EXCEPTIONS:
+                return new AttributeExceptions(loadExceptionTypeNames(reader, constants));
+            case INNER_CLASSES:
+                return new AttributeInnerClasses(loadInnerClasses(reader, constants));
+            case LOCAL_VARIABLE_TABLE:
+                LocalVariable[] localVariables = loadLocalVariables(reader, constants);
+                return (localVariables == null) ? null : new AttributeLocalVariableTable(localVariables);
+            case LOCAL_VARIABLE_TYPE_TABLE:
+                return new AttributeLocalVariableTypeTable(loadLocalVariableTypes(reader, constants));
+            case LINE_NUMBER_TABLE:
+                return new AttributeLineNumberTable(loadLineNumbers(reader));
+            case METHOD_PARAMETERS:
+                return new AttributeMethodParameters(loadParameters(reader, constants));
+            case MODULE:
+                return new AttributeModule(
+                        constants.getConstantTypeName(reader.readUnsignedShort()),
+                        reader.readUnsignedShort(),
+                        constants.getConstantUtf8(reader.readUnsignedShort()),
+                        loadModuleInfos(reader, constants),
+                        loadPackageInfos(reader, constants),
+                        loadPackageInfos(reader, constants),
+                        loadConstantClassNames(reader, constants),
+                        loadServiceInfos(reader, constants));
+            case MODULE_PACKAGES:
+                return new AttributeModulePackages(loadConstantClassNames(reader, constants));
+            case MODULE_MAIN_CLASS:
+                return new AttributeModuleMainClass(constants.getConstant(reader.readUnsignedShort()));
+            case RUNTIME_INVISIBLE_ANNOTATIONS:
+            case RUNTIME_VISIBLE_ANNOTATIONS:
+                Annotation[] annotations = loadAnnotations(reader, constants);
+                return (annotations == null) ? null : new Annotations(annotations);
+            case RUNTIME_INVISIBLE_PARAMETER_ANNOTATIONS:
+            case RUNTIME_VISIBLE_PARAMETER_ANNOTATIONS:
+                return new AttributeParameterAnnotations(loadParameterAnnotations(reader, constants));
+            case SIGNATURE:
+                return new AttributeSignature(constants.getConstantUtf8(reader.readUnsignedShort()));
+            case SOURCE_FILE:
+                return new AttributeSourceFile(constants.getConstantUtf8(reader.readUnsignedShort()));
+            case SYNTHETIC:
+                return new AttributeSynthetic();
+            default:
+                return new UnknownAttribute();
+        }
     }
 
     protected ElementValue loadElementValue(ClassFileReader reader, ConstantPool constants) {
@@ -422,15 +507,13 @@ public class ClassFileDeserializer {
         return values;
     }
 
-    protected byte[] loadCode(ClassFileReader reader) {
+    protected ByteBuffer loadCode(ClassFileReader reader) {
         int code_length = reader.readInt();
         if (code_length == 0)
             return null;
 
-        byte[] code = new byte[code_length];
-        reader.readFully(code);
-
-        return code;
+        // Keep a view of the class file: the code is copied when a converter needs it
+        return reader.readByteBuffer(code_length);
     }
 
     protected CodeException[] loadCodeExceptions(ClassFileReader reader) {
@@ -674,4 +757,36 @@ public class ClassFileDeserializer {
 
         return parameterAnnotations;
     }
+
+    /**
+     * Parser of the attributes of a class file, shared by the attribute tables of its members.
+     */
+    protected class AttributeParser implements AttributeTable.Parser {
+        protected ClassFileReader reader;
+        protected ConstantPool constants;
+
+        public AttributeParser(ClassFileReader reader, ConstantPool constants) {
+            this.reader = reader;
+            this.constants = constants;
+        }
+
+        public ClassFileReader getReader() {
+            return reader;
+        }
+
+        public ConstantPool getConstants() {
+            return constants;
+        }
+
+        @Override
+        public Attribute parse(AttributeName name, int offset) {
+            return loadAttribute(this, name, offset);
+        }
+
+        @Override
+        public String getUnknownAttributeName(int offset) {
+            // 6 = attribute_name_index (2) + attribute_length (4)
+            return constants.getConstantUtf8(reader.readerAt(offset - 6).readUnsignedShort());
+        }
+    }
 }
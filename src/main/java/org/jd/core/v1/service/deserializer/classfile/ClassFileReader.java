@@ -7,7 +7,13 @@
 
 package org.jd.core.v1.service.deserializer.classfile;
 
+import org.jd.core.v1.api.loader.ByteBufferLoader;
+import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.api.loader.LoaderException;
+
 import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 public class ClassFileReader {
     public static final int JAVA_MAGIC_NUMBER = 0xCafeBabe;
@@ -19,6 +25,33 @@ public class ClassFileReader {
         this.data = data;
     }
 
+    /**
+     * @return a reader parsing the buffer of a {@link ByteBufferLoader} or the array of an other loader, null if the
+     *         type is not found
+     */
+    public static ClassFileReader load(Loader loader, String internalTypeName) throws LoaderException {
+        if (loader instanceof ByteBufferLoader) {
+            ByteBuffer buffer = ((ByteBufferLoader)loader).loadByteBuffer(internalTypeName);
+            return (buffer == null) ? null : new ByteBufferClassFileReader(buffer);
+        } else {
+            byte[] data = loader.load(internalTypeName);
+            return (data == null) ? null : new ClassFileReader(data);
+        }
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return a new reader of the same data, at 'offset'
+     */
+    public ClassFileReader readerAt(int offset) {
+        ClassFileReader reader = new ClassFileReader(data);
+        reader.offset = offset;
+        return reader;
+    }
+
     public void skip(int length) {
         offset += length;
     }
@@ -35,11 +68,11 @@ public class ClassFileReader {
         return ((data[offset++] & 0xff) << 8) | (data[offset++] & 0xff);
     }
 
-    public final int readInt() {
+    public int readInt() {
         return ((data[offset++] & 0xff) << 24) | ((data[offset++] & 0xff) << 16) | ((data[offset++] & 0xff) << 8) | (data[offset++] & 0xff);
     }
 
-    public final float readFloat() {
+    public float readFloat() {
         return Float.intBitsToFloat(readInt());
     }
 
@@ -59,9 +92,49 @@ public class ClassFileReader {
         offset += length;
     }
 
+    /**
+     * @return a read-only view of the next 'length' bytes
+     */
+    public ByteBuffer readByteBuffer(int length) {
+        ByteBuffer buffer = ByteBuffer.wrap(data, offset, length).slice().asReadOnlyBuffer();
+        offset += length;
+        return buffer;
+    }
+
     public String readUTF8() throws UTFDataFormatException {
-        int utflenx = readUnsignedShort();
+        int length = readUnsignedShort();
+        String s = decodeUTF8(data, offset, length);
+        offset += length;
+        return s;
+    }
+
+    /**
+     * Decode the UTF-8 constant at 'offset' without moving the reader. This method is thread safe.
+     *
+     * @param offset offset of the length of the constant
+     */
+    public String readUTF8At(int offset) throws UTFDataFormatException {
+        int length = ((data[offset] & 0xff) << 8) | (data[offset+1] & 0xff);
+        return decodeUTF8(data, offset+2, length);
+    }
+
+    protected static String decodeUTF8(byte[] data, int offset, int utflenx) throws UTFDataFormatException {
+        int maxOffset = offset + utflenx;
+        int i = offset;
+
+        while ((i < maxOffset) && (data[i] > 0)) {
+            i++;
+        }
+
+        if (i == maxOffset) {
+            // ASCII string without null character: no intermediate array with compact strings
+            return new String(data, offset, utflenx, StandardCharsets.ISO_8859_1);
+        }
+
+        return decodeModifiedUTF8(data, offset, utflenx);
+    }
 
+    protected static String decodeModifiedUTF8(byte[] data, int offset, int utflenx) throws UTFDataFormatException {
         char[] charArray = new char[utflenx];
         int maxOffset = offset + utflenx;
         int c, char2, char3;
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.service.deserializer.classfile;
+
+import org.jd.core.v1.model.classfile.ConstantPool;
+import org.jd.core.v1.model.classfile.constant.Constant;
+import org.jd.core.v1.model.classfile.constant.ConstantUtf8;
+import org.jd.core.v1.util.StringInterner;
+
+import java.io.UTFDataFormatException;
+
+/**
+ * Constant pool decoding the UTF-8 constants on first access.<br><br>
+ *
+ * The deserializer only records the offsets of the UTF-8 constants: most of them, such as the names of unused
+ * members of referenced types, are never decoded. Decoded constants are stored in the array of constants. Constants
+ * are immutable: concurrent accesses may decode the same constant twice, without other effect.<br><br>
+ *
+ * Decoded strings of 'MAX_INTERNED_LENGTH' characters or less (names, descriptors, signatures and most literals) are
+ * replaced by their canonical instance, if an interner is set.<br>
+ */
+public class LazyConstantPool extends ConstantPool {
+    public static final int MAX_INTERNED_LENGTH = 256;
+
+    protected ClassFileReader reader;
+    protected int[] utf8Offsets;
+    protected StringInterner interner;
+
+    /**
+     * @param utf8Offsets offsets of the lengths of the UTF-8 constants in 'reader', 0 for the other constants
+     */
+    public LazyConstantPool(Constant[] constants, ClassFileReader reader, int[] utf8Offsets) {
+        this(constants, reader, utf8Offsets, null);
+    }
+
+    public LazyConstantPool(Constant[] constants, ClassFileReader reader, int[] utf8Offsets, StringInterner interner) {
+        super(constants);
+        this.reader = reader;
+        this.utf8Offsets = utf8Offsets;
+        this.interner = interner;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Constant> T getConstant(int index) {
+        Constant constant = constants[index];
+
+        if ((constant == null) && (utf8Offsets[index] != 0)) {
+            try {
+                String value = reader.readUTF8At(utf8Offsets[index]);
+
+                if ((interner != null) && (value.length() <= MAX_INTERNED_LENGTH)) {
+                    value = interner.intern(value);
+                }
+
+                constant = new ConstantUtf8(value);
+            } catch (UTFDataFormatException e) {
+                throw new ClassFileFormatException("Invalid UTF-8 constant: " + e.getMessage());
+            }
+
+            constants[index] = constant;
+        }
+
+        return (T)constant;
+    }
+}
@@ -15,11 +15,16 @@ import org.jd.core.v1.model.processor.Processor;
 import org.jd.core.v1.service.fragmenter.javasyntaxtojavafragment.visitor.CompilationUnitVisitor;
 import org.jd.core.v1.service.fragmenter.javasyntaxtojavafragment.visitor.SearchImportsVisitor;
 
+import java.util.Map;
+
 /**
  * Convert a Java syntax model to a list of fragments.<br><br>
  *
  * Input:  {@link org.jd.core.v1.model.javasyntax.CompilationUnit}<br>
- * Output: List<{@link org.jd.core.v1.model.fragment.Fragment}><br>
+ * Output: List<{@link org.jd.core.v1.model.fragment.Fragment}><br><br>
+ *
+ * If the configuration entry 'outline' is set, method bodies are written as '{ ... }', static initializers are not
+ * written, and the imports are searched in the declarations only.<br>
  */
 public class JavaSyntaxToJavaFragmentProcessor implements Processor {
 
@@ -28,13 +33,16 @@ public class JavaSyntaxToJavaFragmentProcessor implements Processor {
         String mainInternalTypeName = message.getHeader("mainInternalTypeName");
         int majorVersion = message.getHeader("majorVersion");
         CompilationUnit compilationUnit = message.getBody();
+        Map<String, Object> configuration = message.getHeader("configuration");
+        Object outlineConfiguration = (configuration == null) ? "false" : configuration.get("outline");
+        boolean outline = (outlineConfiguration == null) ? false : !"false".equals(outlineConfiguration.toString());
 
-        SearchImportsVisitor importsVisitor = new SearchImportsVisitor(mainInternalTypeName);
+        SearchImportsVisitor importsVisitor = new SearchImportsVisitor(mainInternalTypeName, outline);
         importsVisitor.visit(compilationUnit);
         ImportsFragment importsFragment = importsVisitor.getImportsFragment();
         message.setHeader("maxLineNumber", importsVisitor.getMaxLineNumber());
 
-        CompilationUnitVisitor visitor = new CompilationUnitVisitor(loader, mainInternalTypeName, majorVersion, importsFragment);
+        CompilationUnitVisitor visitor = new CompilationUnitVisitor(loader, mainInternalTypeName, majorVersion, importsFragment, outline);
         visitor.visit(compilationUnit);
         message.setBody(visitor.getFragments());
     }
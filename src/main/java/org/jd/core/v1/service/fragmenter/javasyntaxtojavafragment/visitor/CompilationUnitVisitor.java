@@ -44,14 +44,25 @@ public class CompilationUnitVisitor extends StatementVisitor {
 
     public static final TextToken COMMENT_BRIDGE = new TextToken("/* bridge */");
     public static final TextToken COMMENT_SYNTHETIC = new TextToken("/* synthetic */");
+    public static final TextToken OMITTED_BODY = new TextToken("{ ... }");
 
     protected AnnotationVisitor annotationVisitor = new AnnotationVisitor();
     protected SingleLineStatementVisitor singleLineStatementVisitor = new SingleLineStatementVisitor();
     protected String mainInternalName;
+    protected boolean outline;
 
     public CompilationUnitVisitor(Loader loader, String mainInternalTypeName, int majorVersion, ImportsFragment importsFragment) {
+        this(loader, mainInternalTypeName, majorVersion, importsFragment, false);
+    }
+
+    /**
+     * @param outline if true, the bodies of the constructors, methods and static initializers are written as
+     *                '{ ... }'
+     */
+    public CompilationUnitVisitor(Loader loader, String mainInternalTypeName, int majorVersion, ImportsFragment importsFragment, boolean outline) {
         super(loader, mainInternalTypeName, majorVersion, importsFragment);
         this.mainInternalName = mainInternalTypeName;
+        this.outline = outline;
     }
 
     @Override
@@ -382,6 +393,10 @@ public class CompilationUnitVisitor extends StatementVisitor {
             if (statements == null) {
                 tokens.add(TextToken.SEMICOLON);
                 fragments.addTokensFragment(tokens);
+            } else if (outline) {
+                tokens.add(TextToken.SPACE);
+                tokens.add(OMITTED_BODY);
+                fragments.addTokensFragment(tokens);
             } else {
                 fragments.addTokensFragment(tokens);
                 singleLineStatementVisitor.init();
@@ -1149,6 +1164,10 @@ public class CompilationUnitVisitor extends StatementVisitor {
                     tokens.add(TextToken.SEMICOLON);
                     fragments.addTokensFragment(tokens);
                 }
+            } else if (outline) {
+                tokens.add(TextToken.SPACE);
+                tokens.add(OMITTED_BODY);
+                fragments.addTokensFragment(tokens);
             } else {
                 fragments.addTokensFragment(tokens);
                 singleLineStatementVisitor.init();
@@ -1208,11 +1227,17 @@ public class CompilationUnitVisitor extends StatementVisitor {
             tokens = new Tokens();
             tokens.add(STATIC);
             tokens.add(TextToken.SPACE);
-            fragments.addTokensFragment(tokens);
 
-            StartBodyFragment start = JavaFragmentFactory.addStartMethodBody(fragments);
-            statements.accept(this);
-            JavaFragmentFactory.addEndMethodBody(fragments, start);
+            if (outline) {
+                tokens.add(OMITTED_BODY);
+                fragments.addTokensFragment(tokens);
+            } else {
+                fragments.addTokensFragment(tokens);
+
+                StartBodyFragment start = JavaFragmentFactory.addStartMethodBody(fragments);
+                statements.accept(this);
+                JavaFragmentFactory.addEndMethodBody(fragments, start);
+            }
 
             fragments.add(EndMovableJavaBlockFragment.END_MOVABLE_BLOCK);
 
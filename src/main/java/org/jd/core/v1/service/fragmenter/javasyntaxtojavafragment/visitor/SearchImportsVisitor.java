@@ -23,10 +23,19 @@ public class SearchImportsVisitor extends AbstractJavaSyntaxVisitor {
     protected ImportsFragment importsFragment = JavaFragmentFactory.newImportsFragment();
     protected int maxLineNumber = 0;
     protected HashSet<String> internalTypeNames = new HashSet<>();
+    protected boolean outline;
 
     public SearchImportsVisitor(String mainInternalName) {
+        this(mainInternalName, false);
+    }
+
+    /**
+     * @param outline if true, the statements of the constructors, methods and static initializers are not visited
+     */
+    public SearchImportsVisitor(String mainInternalName, boolean outline) {
         int index = mainInternalName.lastIndexOf('/');
         this.internalPackagePrefix = (index == -1) ? "" : mainInternalName.substring(0, index + 1);
+        this.outline = outline;
     }
 
     @Override
@@ -70,7 +79,29 @@ public class SearchImportsVisitor extends AbstractJavaSyntaxVisitor {
         safeAccept(declaration.getAnnotationReferences());
         safeAccept(declaration.getFormalParameters());
         safeAccept(declaration.getExceptions());
-        safeAccept(declaration.getStatements());
+
+        if (!outline) {
+            safeAccept(declaration.getStatements());
+        }
+    }
+
+    @Override
+    public void visit(MethodDeclaration declaration) {
+        safeAccept(declaration.getAnnotationReferences());
+        declaration.getReturnedType().accept(this);
+        safeAccept(declaration.getFormalParameters());
+        safeAccept(declaration.getExceptionTypes());
+
+        if (!outline) {
+            safeAccept(declaration.getStatements());
+        }
+    }
+
+    @Override
+    public void visit(StaticInitializerDeclaration declaration) {
+        if (!outline) {
+            safeAccept(declaration.getStatements());
+        }
     }
 
     @Override
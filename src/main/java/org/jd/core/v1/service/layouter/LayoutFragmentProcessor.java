@@ -16,6 +16,7 @@ import org.jd.core.v1.service.layouter.model.Section;
 import org.jd.core.v1.service.layouter.util.VisitorsHolder;
 import org.jd.core.v1.service.layouter.visitor.BuildSectionsVisitor;
 import org.jd.core.v1.service.layouter.visitor.UpdateSpacerBetweenMovableBlocksVisitor;
+import org.jd.core.v1.util.ClassBudget;
 
 import java.util.List;
 import java.util.Map;
@@ -27,7 +28,9 @@ import static org.jd.core.v1.api.printer.Printer.UNKNOWN_LINE_NUMBER;
  * Layout (compact, expend, move) a list of fragments.<br><br>
  *
  * Input:  List<{@link Fragment}><br>
- * Output: List<{@link Fragment}><br>
+ * Output: List<{@link Fragment}><br><br>
+ *
+ * Line numbers are not realigned, or partially realigned, if the budget of the type is exceeded.<br>
  */
 public class LayoutFragmentProcessor implements Processor {
 
@@ -39,10 +42,12 @@ public class LayoutFragmentProcessor implements Processor {
         Map<String, Object> configuration = message.getHeader("configuration");
         Object realignLineNumbersConfiguration = (configuration == null) ? "false" : configuration.get("realignLineNumbers");
         boolean realignLineNumbers = (realignLineNumbersConfiguration == null) ? false : !"false".equals(realignLineNumbersConfiguration.toString());
+        ClassBudget classBudget = message.getHeader("classBudget");
 
         List<Fragment> fragments = message.getBody();
 
-        if ((maxLineNumber != UNKNOWN_LINE_NUMBER) && !containsByteCode && !showBridgeAndSynthetic && realignLineNumbers) {
+        if ((maxLineNumber != UNKNOWN_LINE_NUMBER) && !containsByteCode && !showBridgeAndSynthetic && realignLineNumbers &&
+            ((classBudget == null) || !classBudget.checkClassBudget())) {
             BuildSectionsVisitor buildSectionsVisitor = new BuildSectionsVisitor();
 
             // Create sections
@@ -118,6 +123,11 @@ public class LayoutFragmentProcessor implements Processor {
                 if (! mostConstrainedSection.releaseConstraints(holder)) {
                     break;
                 }
+
+                if ((classBudget != null) && classBudget.checkClassBudget()) {
+                    // Type budget exceeded -> Quit loop
+                    break;
+                }
             }
 
             // Force layout
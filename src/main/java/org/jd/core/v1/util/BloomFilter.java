@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.util;
+
+/**
+ * Bloom filter of strings: 'mightContain' returns false only if the string has not been added.<br><br>
+ *
+ * With 10 bits per expected element and 7 hash functions, the false positive rate is about 1%. Additions are not
+ * thread safe; a filter filled before being shared can be read by several threads.<br>
+ */
+public class BloomFilter {
+    protected static final int BITS_PER_ELEMENT = 10;
+    protected static final int HASH_COUNT = 7;
+
+    protected long[] bits;
+    protected int mask;
+
+    public BloomFilter(int expectedSize) {
+        int bitCount = Integer.highestOneBit(Math.max(expectedSize, 8) * BITS_PER_ELEMENT - 1) << 1;
+
+        this.bits = new long[bitCount >>> 6];
+        this.mask = bitCount - 1;
+    }
+
+    public void add(String s) {
+        int hash1 = mix(s.hashCode());
+        int hash2 = mix(hash1 ^ 0x9E3779B9) | 1;
+
+        for (int i=0; i<HASH_COUNT; i++) {
+            int index = (hash1 + i * hash2) & mask;
+            bits[index >>> 6] |= 1L << index;
+        }
+    }
+
+    public boolean mightContain(String s) {
+        int hash1 = mix(s.hashCode());
+        int hash2 = mix(hash1 ^ 0x9E3779B9) | 1;
+
+        for (int i=0; i<HASH_COUNT; i++) {
+            int index = (hash1 + i * hash2) & mask;
+
+            if ((bits[index >>> 6] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    protected static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        return hash ^ (hash >>> 16);
+    }
+}
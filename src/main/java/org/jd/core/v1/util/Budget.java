@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wall-clock and step limits of a task.<br><br>
+ *
+ * 'step()' is called by the owner thread of the budget; the steps are forwarded to the parent budget by blocks
+ * of 'CLOCK_CHECK_INTERVAL', the parent budget may be shared by several threads. A timeout or a maximum step count
+ * lower or equal to zero means 'unlimited'.<br>
+ */
+public class Budget {
+    protected static final long CLOCK_CHECK_INTERVAL = 256;
+
+    protected String name;
+    protected Budget parent;
+    protected long startTime = System.nanoTime();
+    protected long timeout;
+    protected long maxSteps;
+    protected long steps;
+    protected AtomicLong childSteps = new AtomicLong();
+
+    /**
+     * @param timeout timeout in milliseconds
+     */
+    public Budget(String name, Budget parent, long timeout, long maxSteps) {
+        this.name = name;
+        this.parent = parent;
+        this.timeout = (timeout > 0) ? timeout * 1_000_000L : 0;
+        this.maxSteps = maxSteps;
+    }
+
+    public Budget getParent() {
+        return parent;
+    }
+
+    public long getSteps() {
+        return steps + childSteps.get();
+    }
+
+    /**
+     * @throws BudgetExceededException if the step count of this budget is exceeded, or if the timeout or the step
+     *                                 count of this budget or of a parent budget is exceeded (checked every
+     *                                 'CLOCK_CHECK_INTERVAL' steps)
+     */
+    public void step() {
+        steps++;
+
+        if ((maxSteps > 0) && (steps > maxSteps)) {
+            throw new BudgetExceededException(name + " step budget exceeded (" + maxSteps + " steps)");
+        }
+
+        if ((steps & (CLOCK_CHECK_INTERVAL - 1)) == 0) {
+            if (parent != null) {
+                parent.childSteps.addAndGet(CLOCK_CHECK_INTERVAL);
+            }
+
+            check();
+        }
+    }
+
+    /**
+     * Forward the steps not yet counted by the parent budget. Called when the task ends.
+     */
+    public void flush() {
+        if (parent != null) {
+            parent.childSteps.addAndGet(steps & (CLOCK_CHECK_INTERVAL - 1));
+        }
+    }
+
+    /**
+     * @throws BudgetExceededException if this budget or a parent budget is exceeded
+     */
+    public void check() {
+        String reason = getExceededReason();
+
+        if (reason != null) {
+            throw new BudgetExceededException(reason);
+        }
+    }
+
+    public boolean isExceeded() {
+        return getExceededReason() != null;
+    }
+
+    /**
+     * @return a description of the exceeded limit, or null
+     */
+    public String getExceededReason() {
+        if ((timeout > 0) && (System.nanoTime() - startTime > timeout)) {
+            return name + " time budget exceeded (" + (timeout / 1_000_000L) + " ms)";
+        }
+        if ((maxSteps > 0) && (getSteps() > maxSteps)) {
+            return name + " step budget exceeded (" + maxSteps + " steps)";
+        }
+
+        return (parent == null) ? null : parent.getExceededReason();
+    }
+}
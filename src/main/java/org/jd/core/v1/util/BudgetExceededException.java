@@ -0,0 +1,16 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.util;
+
+public class BudgetExceededException extends RuntimeException {
+    private static final long serialVersionUID = -3917504217734815468L;
+
+    public BudgetExceededException(String s) {
+        super(s);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.util;
+
+import org.jd.core.v1.api.BudgetListener;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Budget of the decompilation of a type and of its inner types, created from the configuration entries:
+ * <ul>
+ *     <li>'classTimeout' and 'classMaxSteps': limits of the type</li>
+ *     <li>'methodTimeout' and 'methodMaxSteps': limits of each method</li>
+ *     <li>'budgetListener': the {@link BudgetListener} receiving the overruns</li>
+ * </ul>
+ * Timeouts are in milliseconds.<br>
+ */
+public class ClassBudget extends Budget {
+    protected String internalTypeName;
+    protected long methodTimeout;
+    protected long methodMaxSteps;
+    protected BudgetListener listener;
+    protected AtomicBoolean classBudgetExceeded = new AtomicBoolean();
+    protected volatile boolean methodBudgetExceeded;
+
+    public ClassBudget(String internalTypeName, long timeout, long maxSteps, long methodTimeout, long methodMaxSteps, BudgetListener listener) {
+        super("class", null, timeout, maxSteps);
+        this.internalTypeName = internalTypeName;
+        this.methodTimeout = methodTimeout;
+        this.methodMaxSteps = methodMaxSteps;
+        this.listener = listener;
+    }
+
+    /**
+     * @return a budget, or null if no limit is configured
+     */
+    public static ClassBudget create(String internalTypeName, Map<String, Object> configuration) {
+        if (configuration == null) {
+            return null;
+        }
+
+        long timeout = getLong(configuration, "classTimeout");
+        long maxSteps = getLong(configuration, "classMaxSteps");
+        long methodTimeout = getLong(configuration, "methodTimeout");
+        long methodMaxSteps = getLong(configuration, "methodMaxSteps");
+
+        if ((timeout <= 0) && (maxSteps <= 0) && (methodTimeout <= 0) && (methodMaxSteps <= 0)) {
+            return null;
+        }
+
+        BudgetListener listener = (BudgetListener)configuration.get("budgetListener");
+
+        return new ClassBudget(internalTypeName, timeout, maxSteps, methodTimeout, methodMaxSteps, listener);
+    }
+
+    public Budget newMethodBudget() {
+        return new Budget("method", this, methodTimeout, methodMaxSteps);
+    }
+
+    public void methodBudgetExceeded(String internalTypeName, String methodName, String descriptor, String reason) {
+        methodBudgetExceeded = true;
+
+        if (listener != null) {
+            listener.methodBudgetExceeded(internalTypeName, methodName, descriptor, reason);
+        }
+
+        checkClassBudget();
+    }
+
+    /**
+     * Report the overrun of the type budget, once.
+     *
+     * @return true if the type budget is exceeded
+     */
+    public boolean checkClassBudget() {
+        String reason = getExceededReason();
+
+        if (reason == null) {
+            return false;
+        }
+
+        if (classBudgetExceeded.compareAndSet(false, true) && (listener != null)) {
+            listener.classBudgetExceeded(internalTypeName, reason);
+        }
+
+        return true;
+    }
+
+    /**
+     * @return true if the budget of the type or of one of its methods was exceeded
+     */
+    public boolean isExceeded() {
+        return methodBudgetExceeded || (getExceededReason() != null);
+    }
+
+    protected static long getLong(Map<String, Object> configuration, String key) {
+        Object value = configuration.get(key);
+
+        if (value == null) {
+            return 0;
+        } else if (value instanceof Number) {
+            return ((Number)value).longValue();
+        } else {
+            return Long.parseLong(value.toString());
+        }
+    }
+}
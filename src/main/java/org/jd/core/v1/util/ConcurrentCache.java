@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread safe cache holding at most 'maxSize' entries.<br><br>
+ *
+ * Entries are stored in two generations: new entries go to the young generation, entries read from the old
+ * generation are copied to the young one. When the young generation is full, it becomes the old generation and the
+ * previous old generation is dropped: entries not used since the last rotation are evicted. Null keys and values are
+ * not supported.<br>
+ */
+public class ConcurrentCache<K, V> {
+    protected int generationSize;
+    protected volatile ConcurrentHashMap<K, V> young;
+    protected volatile ConcurrentHashMap<K, V> old;
+
+    public ConcurrentCache(int maxSize) {
+        if (maxSize < 2)
+            throw new IllegalArgumentException("Invalid max size: " + maxSize);
+
+        this.generationSize = maxSize / 2;
+        this.young = new ConcurrentHashMap<>(Math.min(generationSize, 1024));
+        this.old = new ConcurrentHashMap<>();
+    }
+
+    public int getMaxSize() {
+        return generationSize * 2;
+    }
+
+    public int size() {
+        return young.size() + old.size();
+    }
+
+    public V get(K key) {
+        V value = young.get(key);
+
+        if (value == null) {
+            value = old.get(key);
+
+            if (value != null) {
+                value = putIfAbsent(key, value);
+            }
+        }
+
+        return value;
+    }
+
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    public void put(K key, V value) {
+        young.put(key, value);
+        checkSize();
+    }
+
+    /**
+     * @return the value already stored, if any, or 'value'
+     */
+    public V putIfAbsent(K key, V value) {
+        V previous = young.putIfAbsent(key, value);
+
+        if (previous == null) {
+            checkSize();
+            return value;
+        }
+
+        return previous;
+    }
+
+    public void clear() {
+        synchronized (this) {
+            young = new ConcurrentHashMap<>();
+            old = new ConcurrentHashMap<>();
+        }
+    }
+
+    protected void checkSize() {
+        if (young.size() > generationSize) {
+            synchronized (this) {
+                if (young.size() > generationSize) {
+                    old = young;
+                    young = new ConcurrentHashMap<>(Math.min(generationSize, 1024));
+                }
+            }
+        }
+    }
+}
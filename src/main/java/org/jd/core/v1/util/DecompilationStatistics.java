@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.util;
+
+import org.jd.core.v1.api.DecompilationListener;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link DecompilationListener} aggregating the measures in counters and histograms.<br><br>
+ *
+ * Counters: 'methods', 'methods.reduced', 'methods.byteCode' and, for each stage, 'stage.[name].count',
+ * 'stage.[name].time' and 'stage.[name].allocatedBytes'.<br>
+ * Histograms: 'method.time', 'method.codeLength', 'method.basicBlockCount', 'method.loopCount' and, for each stage,
+ * 'stage.[name].time' and 'stage.[name].allocatedBytes'.<br>
+ */
+public class DecompilationStatistics implements DecompilationListener {
+    protected ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    protected ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    @Override
+    public void stageCompleted(String internalTypeName, String stage, long time, long allocatedBytes) {
+        String prefix = "stage." + stage;
+
+        increment(prefix + ".count", 1);
+        increment(prefix + ".time", time);
+        getHistogram(prefix + ".time").record(time);
+
+        if (allocatedBytes >= 0) {
+            increment(prefix + ".allocatedBytes", allocatedBytes);
+            getHistogram(prefix + ".allocatedBytes").record(allocatedBytes);
+        }
+    }
+
+    @Override
+    public void methodCompleted(String internalTypeName, String methodName, String descriptor, long time,
+                                int codeLength, int basicBlockCount, int loopCount, boolean reduced, boolean byteCode) {
+        increment("methods", 1);
+
+        if (reduced) {
+            increment("methods.reduced", 1);
+        }
+        if (byteCode) {
+            increment("methods.byteCode", 1);
+        }
+
+        getHistogram("method.time").record(time);
+        getHistogram("method.codeLength").record(codeLength);
+        getHistogram("method.basicBlockCount").record(basicBlockCount);
+        getHistogram("method.loopCount").record(loopCount);
+    }
+
+    public long getCounter(String name) {
+        AtomicLong counter = counters.get(name);
+        return (counter == null) ? 0 : counter.get();
+    }
+
+    public Histogram getHistogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    /**
+     * @return a sorted snapshot of the counters
+     */
+    public Map<String, Long> getCounters() {
+        TreeMap<String, Long> map = new TreeMap<>();
+
+        for (Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+            map.put(entry.getKey(), entry.getValue().get());
+        }
+
+        return map;
+    }
+
+    /**
+     * @return the histograms, sorted by name
+     */
+    public Map<String, Histogram> getHistograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    public void clear() {
+        counters.clear();
+        histograms.clear();
+    }
+
+    protected void increment(String name, long value) {
+        counters.computeIfAbsent(name, k -> new AtomicLong()).addAndGet(value);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        for (Map.Entry<String, Long> entry : getCounters().entrySet()) {
+            sb.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Histogram> entry : getHistograms().entrySet()) {
+            sb.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe histogram with power-of-two buckets: bucket 0 counts the values lower or equal to 0, bucket 'i' counts
+ * the values in [2^(i-1), 2^i).<br>
+ */
+public class Histogram {
+    protected static final int BUCKET_COUNT = 64;
+
+    protected AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    protected AtomicLong count = new AtomicLong();
+    protected AtomicLong sum = new AtomicLong();
+    protected AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    public void record(long value) {
+        buckets.incrementAndGet(getBucketIndex(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long current = max.get();
+
+        while ((current < value) && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    public long getMax() {
+        return (count.get() == 0) ? 0 : max.get();
+    }
+
+    public double getMean() {
+        long c = count.get();
+        return (c == 0) ? 0 : (double)sum.get() / c;
+    }
+
+    /**
+     * @return the lower bound of the bucket containing the given quantile
+     */
+    public long getQuantile(double quantile) {
+        long[] counts = getBucketCounts();
+        long total = 0;
+
+        for (long c : counts) {
+            total += c;
+        }
+
+        long rank = (long)Math.ceil(quantile * total);
+        long cumul = 0;
+
+        for (int i=0; i<BUCKET_COUNT; i++) {
+            cumul += counts[i];
+
+            if ((cumul >= rank) && (cumul > 0)) {
+                return getBucketLowerBound(i);
+            }
+        }
+
+        return 0;
+    }
+
+    public long[] getBucketCounts() {
+        long[] counts = new long[BUCKET_COUNT];
+
+        for (int i=0; i<BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+        }
+
+        return counts;
+    }
+
+    public static int getBucketIndex(long value) {
+        return (value <= 0) ? 0 : 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    public static long getBucketLowerBound(int index) {
+        return (index == 0) ? 0 : 1L << (index - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "Histogram{count=" + getCount() + ", mean=" + (long)getMean() + ", p50=" + getQuantile(0.5) + ", p99=" + getQuantile(0.99) + ", max=" + getMax() + "}";
+    }
+}
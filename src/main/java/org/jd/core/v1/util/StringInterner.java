@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2008-2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1.util;
+
+/**
+ * Thread safe and bounded table of canonical strings.<br><br>
+ *
+ * The default table is shared by the deserializer and {@link org.jd.core.v1.service.converter.classfiletojavasyntax.util.TypeMaker}:
+ * type names, member names, descriptors and signatures found in several class files are stored once. Unlike
+ * 'String.intern()', the table holds at most 'maxSize' strings, the least recently used being dropped first (see
+ * {@link ConcurrentCache}).<br>
+ */
+public class StringInterner {
+    public static final int DEFAULT_MAX_SIZE = 1024 * 64;
+
+    protected static final StringInterner DEFAULT = new StringInterner(DEFAULT_MAX_SIZE);
+
+    protected ConcurrentCache<String, String> strings;
+
+    public StringInterner(int maxSize) {
+        this.strings = new ConcurrentCache<>(maxSize);
+    }
+
+    public static StringInterner getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @return the canonical string equal to 's', null if 's' is null
+     */
+    public String intern(String s) {
+        if (s == null) {
+            return null;
+        }
+
+        String canonical = strings.get(s);
+        return (canonical == null) ? strings.putIfAbsent(s, s) : canonical;
+    }
+
+    public int size() {
+        return strings.size();
+    }
+
+    public void clear() {
+        strings.clear();
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2008, 2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1;
+
+import junit.framework.TestCase;
+import org.jd.core.v1.api.BudgetListener;
+import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.api.loader.LoaderException;
+import org.jd.core.v1.loader.ZipLoader;
+import org.jd.core.v1.printer.PlainTextPrinter;
+import org.jd.core.v1.util.Budget;
+import org.jd.core.v1.util.BudgetExceededException;
+import org.jd.core.v1.util.DefaultList;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+public class BudgetTest extends TestCase {
+    protected ClassFileToJavaSourceDecompiler decompiler = new ClassFileToJavaSourceDecompiler();
+
+    @Test
+    public void testLargeBudgets() throws Exception {
+        HashMap<String, Object> configuration = new HashMap<>();
+        Listener listener = new Listener();
+
+        configuration.put("realignLineNumbers", Boolean.TRUE);
+        String expected = decompile("org/jd/core/test/For", configuration);
+
+        configuration.put("methodTimeout", 60_000);
+        configuration.put("methodMaxSteps", "1000000");
+        configuration.put("classTimeout", 60_000L);
+        configuration.put("classMaxSteps", 10_000_000L);
+        configuration.put("budgetListener", listener);
+
+        assertEquals(expected, decompile("org/jd/core/test/For", configuration));
+        assertTrue(listener.methods.isEmpty());
+        assertTrue(listener.classes.isEmpty());
+    }
+
+    @Test
+    public void testMethodMaxSteps() throws Exception {
+        HashMap<String, Object> configuration = new HashMap<>();
+        Listener listener = new Listener();
+
+        configuration.put("realignLineNumbers", Boolean.TRUE);
+        configuration.put("methodMaxSteps", 10);
+        configuration.put("budgetListener", listener);
+
+        String source = decompile("org/jd/core/test/For", configuration);
+
+        assertTrue(source.indexOf("// Byte code:") != -1);
+        assertFalse(listener.methods.isEmpty());
+        assertTrue(listener.methods.get(0).startsWith("org/jd/core/test/For."));
+        assertTrue(listener.classes.isEmpty());
+    }
+
+    @Test
+    public void testClassMaxSteps() throws Exception {
+        HashMap<String, Object> configuration = new HashMap<>();
+        Listener listener = new Listener();
+
+        configuration.put("realignLineNumbers", Boolean.TRUE);
+        configuration.put("classMaxSteps", 1);
+        configuration.put("budgetListener", listener);
+
+        String source = decompile("org/jd/core/test/For", configuration);
+
+        // The first method is parsed, the next ones are written as byte code
+        assertTrue(source.indexOf("// Byte code:") != -1);
+        assertFalse(listener.methods.isEmpty());
+        assertEquals(1, listener.classes.size());
+        assertEquals("org/jd/core/test/For", listener.classes.get(0));
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        Budget parent = new Budget("class", null, 1, 0);
+        Budget budget = new Budget("method", parent, 0, 0);
+
+        Thread.sleep(10);
+
+        try {
+            budget.check();
+            fail("BudgetExceededException expected");
+        } catch (BudgetExceededException e) {
+            assertEquals("class time budget exceeded (1 ms)", e.getMessage());
+        }
+
+        try {
+            for (int i=0; i<1024; i++) {
+                budget.step();
+            }
+            fail("BudgetExceededException expected");
+        } catch (BudgetExceededException e) {
+            assertEquals("class time budget exceeded (1 ms)", e.getMessage());
+            // The clock is checked every 256 steps
+            assertEquals(256, budget.getSteps());
+        }
+    }
+
+    @Test
+    public void testClassTimeout() throws Exception {
+        HashMap<String, Object> configuration = new HashMap<>();
+        Listener listener = new Listener();
+
+        configuration.put("realignLineNumbers", Boolean.TRUE);
+        configuration.put("classTimeout", 1);
+        configuration.put("budgetListener", listener);
+
+        try (InputStream is = getClass().getResourceAsStream("/zip/data-java-jdk-1.8.0.zip")) {
+            ZipLoader zipLoader = new ZipLoader(is);
+            // Slow loader: the type budget is exceeded when the referenced types are loaded
+            Loader loader = new Loader() {
+                @Override
+                public boolean canLoad(String internalName) {
+                    sleep();
+                    return zipLoader.canLoad(internalName);
+                }
+
+                @Override
+                public byte[] load(String internalName) throws LoaderException {
+                    sleep();
+                    return zipLoader.load(internalName);
+                }
+            };
+            PlainTextPrinter printer = new PlainTextPrinter();
+
+            decompiler.decompile(loader, printer, "org/jd/core/test/For", configuration);
+
+            String source = printer.toString();
+
+            // The decompilation ends normally, the methods are written as byte code
+            assertTrue(source.indexOf("class For") != -1);
+            assertTrue(source.indexOf("// Byte code:") != -1);
+            assertFalse(listener.methods.isEmpty());
+            assertEquals(1, listener.classes.size());
+            assertEquals("org/jd/core/test/For", listener.classes.get(0));
+            assertEquals("class time budget exceeded (1 ms)", listener.reasons.get(0));
+        }
+    }
+
+    protected String decompile(String internalTypeName, Map<String, Object> configuration) throws Exception {
+        try (InputStream is = getClass().getResourceAsStream("/zip/data-java-jdk-1.8.0.zip")) {
+            ZipLoader loader = new ZipLoader(is);
+            PlainTextPrinter printer = new PlainTextPrinter();
+
+            decompiler.decompile(loader, printer, internalTypeName, configuration);
+
+            return printer.toString();
+        }
+    }
+
+    protected static void sleep() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    protected static class Listener implements BudgetListener {
+        protected DefaultList<String> methods = new DefaultList<>();
+        protected DefaultList<String> classes = new DefaultList<>();
+        protected DefaultList<String> reasons = new DefaultList<>();
+
+        @Override
+        public synchronized void methodBudgetExceeded(String internalTypeName, String methodName, String descriptor, String reason) {
+            methods.add(internalTypeName + '.' + methodName + descriptor);
+        }
+
+        @Override
+        public synchronized void classBudgetExceeded(String internalTypeName, String reason) {
+            classes.add(internalTypeName);
+            reasons.add(reason);
+        }
+    }
+}
@@ -11,12 +11,16 @@ import junit.framework.TestCase;
 import org.jd.core.v1.loader.ZipLoader;
 import org.jd.core.v1.model.classfile.ClassFile;
 import org.jd.core.v1.model.classfile.Field;
+import org.jd.core.v1.model.classfile.Method;
 import org.jd.core.v1.model.classfile.attribute.Annotations;
+import org.jd.core.v1.model.classfile.attribute.AttributeCode;
+import org.jd.core.v1.model.classfile.attribute.AttributeName;
 import org.jd.core.v1.model.classfile.attribute.ElementValueAnnotationValue;
 import org.jd.core.v1.model.classfile.attribute.ElementValuePrimitiveType;
 import org.jd.core.v1.model.classfile.constant.ConstantInteger;
 import org.jd.core.v1.model.classfile.constant.ConstantUtf8;
 import org.jd.core.v1.model.message.Message;
+import org.jd.core.v1.service.deserializer.classfile.ClassFileDeserializer;
 import org.jd.core.v1.service.deserializer.classfile.DeserializeClassFileProcessor;
 import org.junit.Test;
 
@@ -104,4 +108,24 @@ public class ClassFileDeserializerTest extends TestCase {
         assertEquals("()V", classFile.getMethods()[0].getDescriptor());
         assertNotNull(classFile.getMethods()[0].getAttribute("Code"));
     }
+
+    @Test
+    public void testLazyAttributes() throws Exception {
+        InputStream is = this.getClass().getResourceAsStream("/zip/data-java-jdk-1.7.0.zip");
+        ZipLoader loader = new ZipLoader(is);
+        ClassFile classFile = new ClassFileDeserializer().loadClassFile(loader, "org/jd/core/test/AnnotatedClass");
+        Method constructor = classFile.getMethods()[0];
+
+        // Attributes are parsed once
+        AttributeCode code = constructor.getAttribute("Code");
+        assertNotNull(code);
+        assertSame(code, constructor.getAttribute(AttributeName.CODE));
+        assertNotNull(code.getAttribute("LineNumberTable"));
+        assertSame(code.getAttribute("LineNumberTable"), code.getAttribute(AttributeName.LINE_NUMBER_TABLE));
+
+        assertNull(constructor.getAttribute("Signature"));
+        assertNull(constructor.getAttribute("UnknownAttribute"));
+        assertNull(classFile.getFields()[0].getAttribute(AttributeName.CODE));
+        assertNotNull(classFile.getAttribute(AttributeName.RUNTIME_INVISIBLE_ANNOTATIONS));
+    }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2008, 2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1;
+
+import junit.framework.TestCase;
+import org.jd.core.v1.loader.ZipLoader;
+import org.jd.core.v1.printer.PlainTextPrinter;
+import org.jd.core.v1.util.DefaultList;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ClassFileToJavaSourceBatchDecompilerTest extends TestCase {
+
+    @Test
+    public void testSortTopLevelTypes() throws Exception {
+        ZipLoader loader = newLoader("/zip/data-java-jdk-1.8.0.zip");
+        DefaultList<String> internalNames = getInternalNames(loader);
+        ClassFileToJavaSourceBatchDecompiler batchDecompiler = new ClassFileToJavaSourceBatchDecompiler(4);
+
+        String[] sortedInternalNames = batchDecompiler.sortTopLevelTypes(loader, internalNames);
+
+        assertTrue(sortedInternalNames.length > 0);
+        assertTrue(Arrays.asList(sortedInternalNames).contains("org/jd/core/test/AnonymousClass"));
+
+        for (String internalName : sortedInternalNames) {
+            // Inner and anonymous types are decompiled with their outer type
+            assertTrue(internalName.indexOf('$') == -1);
+        }
+
+        // Total code lengths, inner types included
+        HashMap<String, ClassFileToJavaSourceBatchDecompiler.TypeInfo> typeInfos = new HashMap<>();
+        HashMap<String, Long> totalCodeLengths = new HashMap<>();
+
+        for (String internalName : internalNames) {
+            typeInfos.put(internalName, batchDecompiler.loadTypeInfo(loader, internalName));
+        }
+
+        for (ClassFileToJavaSourceBatchDecompiler.TypeInfo typeInfo : typeInfos.values()) {
+            ClassFileToJavaSourceBatchDecompiler.TypeInfo outerTypeInfo = typeInfo;
+
+            while (outerTypeInfo.outerTypeName != null) {
+                outerTypeInfo = typeInfos.get(outerTypeInfo.outerTypeName);
+            }
+
+            totalCodeLengths.merge(outerTypeInfo.internalTypeName, typeInfo.codeLength, Long::sum);
+        }
+
+        boolean innerCodeCounted = false;
+
+        for (int i=0; i<sortedInternalNames.length; i++) {
+            long totalCodeLength = totalCodeLengths.get(sortedInternalNames[i]);
+
+            assertNull(typeInfos.get(sortedInternalNames[i]).outerTypeName);
+
+            if (i > 0) {
+                assertTrue(totalCodeLengths.get(sortedInternalNames[i-1]) >= totalCodeLength);
+            }
+
+            innerCodeCounted |= (totalCodeLength > typeInfos.get(sortedInternalNames[i]).codeLength);
+        }
+
+        assertTrue(innerCodeCounted);
+    }
+
+    @Test
+    public void testJdk180() throws Exception {
+        test("/zip/data-java-jdk-1.8.0.zip");
+    }
+
+    @Test
+    public void testEclipseJavaCompiler3130() throws Exception {
+        test("/zip/data-java-eclipse-java-compiler-3.13.0.zip");
+    }
+
+    protected void test(String path) throws Exception {
+        ZipLoader loader = newLoader(path);
+        DefaultList<String> internalNames = getInternalNames(loader);
+        Map<String, Object> configuration = Collections.singletonMap("realignLineNumbers", Boolean.TRUE);
+
+        // Decompile in parallel
+        ConcurrentHashMap<String, PlainTextPrinter> printers = new ConcurrentHashMap<>();
+        ClassFileToJavaSourceBatchDecompiler batchDecompiler = new ClassFileToJavaSourceBatchDecompiler(4);
+        Map<String, Throwable> errors = batchDecompiler.decompile(loader, internalName -> {
+            PlainTextPrinter printer = new PlainTextPrinter();
+            assertNull(printers.put(internalName, printer));
+            return printer;
+        }, internalNames, configuration);
+
+        // Decompile sequentially and compare
+        ClassFileToJavaSourceDecompiler decompiler = new ClassFileToJavaSourceDecompiler();
+        int count = 0;
+
+        for (String internalName : internalNames) {
+            if (internalName.indexOf('$') == -1) {
+                PlainTextPrinter printer = new PlainTextPrinter();
+
+                try {
+                    decompiler.decompile(loader, printer, internalName, configuration);
+                    assertFalse(errors.containsKey(internalName));
+                } catch (Throwable t) {
+                    assertTrue(errors.containsKey(internalName));
+                }
+
+                assertEquals(printer.toString(), printers.get(internalName).toString());
+                count++;
+            } else {
+                assertFalse(printers.containsKey(internalName));
+            }
+        }
+
+        assertEquals(count, printers.size());
+    }
+
+    protected static ZipLoader newLoader(String path) throws Exception {
+        try (InputStream is = ClassFileToJavaSourceBatchDecompilerTest.class.getResourceAsStream(path)) {
+            return new ZipLoader(is);
+        }
+    }
+
+    protected static DefaultList<String> getInternalNames(ZipLoader loader) {
+        DefaultList<String> internalNames = new DefaultList<>();
+
+        for (String path : loader.getMap().keySet()) {
+            if (path.endsWith(".class")) {
+                internalNames.add(path.substring(0, path.length() - 6)); // 6 = ".class".length()
+            }
+        }
+
+        return internalNames;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2008, 2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1;
+
+import junit.framework.TestCase;
+import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.api.loader.LoaderException;
+import org.jd.core.v1.loader.CompositeLoader;
+import org.jd.core.v1.loader.DirectoryLoader;
+import org.jd.core.v1.loader.MappedZipLoader;
+import org.jd.core.v1.loader.ZipLoader;
+import org.jd.core.v1.printer.PlainTextPrinter;
+import org.jd.core.v1.util.BloomFilter;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+public class CompositeLoaderTest extends TestCase {
+    @Test
+    public void testBloomFilter() throws Exception {
+        BloomFilter filter = new BloomFilter(1000);
+
+        for (int i=0; i<1000; i++) {
+            filter.add("org/jd/core/Type" + i);
+        }
+
+        int falsePositiveCount = 0;
+
+        for (int i=0; i<1000; i++) {
+            assertTrue(filter.mightContain("org/jd/core/Type" + i));
+
+            if (filter.mightContain("org/jd/core/Other" + i)) {
+                falsePositiveCount++;
+            }
+        }
+
+        assertTrue(falsePositiveCount < 50);
+    }
+
+    @Test
+    public void testResolution() throws Exception {
+        File file1 = new File(getClass().getResource("/zip/data-java-jdk-1.7.0.zip").toURI());
+        File file2 = new File(getClass().getResource("/zip/data-java-jdk-1.8.0.zip").toURI());
+
+        try (InputStream is = new FileInputStream(file2)) {
+            CountingLoader countingLoader = new CountingLoader(new ZipLoader(is));
+
+            try (CompositeLoader loader = new CompositeLoader(new MappedZipLoader(file1), countingLoader)) {
+                // Types of the first archive are not searched in the second one
+                assertTrue(loader.canLoad("org/jd/core/test/For"));
+                assertTrue(loader.canLoad("org/jd/core/test/For"));
+                assertTrue(Arrays.equals(loader.getLoaders().get(0).load("org/jd/core/test/For"), loader.load("org/jd/core/test/For")));
+                assertEquals(0, countingLoader.canLoadCount);
+
+                // Types of the second archive only
+                for (String path : countingLoader.loader.getMap().keySet()) {
+                    if (path.endsWith(".class")) {
+                        String internalName = path.substring(0, path.length() - 6); // 6 = ".class".length()
+                        assertTrue(path, loader.canLoad(internalName));
+                        assertNotNull(path, loader.load(internalName));
+                    }
+                }
+
+                // Missing types are searched once
+                countingLoader.canLoadCount = 0;
+
+                for (int i=0; i<3; i++) {
+                    assertFalse(loader.canLoad("java/lang/Missing"));
+                    assertNull(loader.load("java/lang/Missing"));
+                }
+
+                assertEquals(1, countingLoader.canLoadCount);
+            }
+        }
+    }
+
+    @Test
+    public void testFilteredLoaders() throws Exception {
+        File directory = Files.createTempDirectory("jd-core-test-").toFile();
+        File file = new File(getClass().getResource("/zip/data-java-jdk-1.8.0.zip").toURI());
+
+        try {
+            File classFile = new File(directory, "a/b/Test.class");
+            byte[] data = new byte[] { 1, 2, 3 };
+
+            assertTrue(classFile.getParentFile().mkdirs());
+            Files.write(classFile.toPath(), data);
+
+            CompositeLoader loader = CompositeLoader.fromClassPath(directory.getPath() + File.pathSeparator + file.getPath() + File.pathSeparator + new File(directory, "missing.jar").getPath());
+
+            try {
+                assertEquals(2, loader.getLoaders().size());
+                assertEquals(Arrays.asList("a/b/Test"), ((DirectoryLoader)loader.getLoaders().get(0)).getInternalNames());
+                assertTrue(Arrays.equals(data, loader.load("a/b/Test")));
+                assertTrue(loader.canLoad("org/jd/core/test/For"));
+                assertFalse(loader.canLoad("a/b/Missing"));
+
+                // All loaders can list their types: the composite loader can be filtered too
+                CountingLoader countingLoader = new CountingLoader(null);
+                CompositeLoader outerLoader = new CompositeLoader(loader, countingLoader);
+
+                assertTrue(outerLoader.canLoad("a/b/Test"));
+                assertEquals(0, countingLoader.canLoadCount);
+            } finally {
+                loader.close();
+            }
+        } finally {
+            new File(directory, "a/b/Test.class").delete();
+            new File(directory, "a/b").delete();
+            new File(directory, "a").delete();
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void testDecompilation() throws Exception {
+        File file = new File(getClass().getResource("/zip/data-java-jdk-1.8.0.zip").toURI());
+        ClassFileToJavaSourceDecompiler decompiler = new ClassFileToJavaSourceDecompiler();
+
+        try (InputStream is = new FileInputStream(file); CompositeLoader compositeLoader = new CompositeLoader(new MappedZipLoader(file))) {
+            ZipLoader loader = new ZipLoader(is);
+
+            for (Map.Entry<String, byte[]> entry : loader.getMap().entrySet()) {
+                String path = entry.getKey();
+
+                if (path.endsWith(".class") && (path.indexOf('$') == -1)) {
+                    String internalTypeName = path.substring(0, path.length() - 6); // 6 = ".class".length()
+                    PlainTextPrinter printer1 = new PlainTextPrinter();
+                    PlainTextPrinter printer2 = new PlainTextPrinter();
+
+                    decompiler.decompile(loader, printer1, internalTypeName);
+                    decompiler.decompile(compositeLoader, printer2, internalTypeName);
+
+                    assertEquals(internalTypeName, printer1.toString(), printer2.toString());
+                }
+            }
+        }
+    }
+
+    protected static class CountingLoader implements Loader {
+        protected ZipLoader loader;
+        protected int canLoadCount;
+
+        public CountingLoader(ZipLoader loader) {
+            this.loader = loader;
+        }
+
+        @Override
+        public boolean canLoad(String internalName) {
+            canLoadCount++;
+            return (loader != null) && loader.canLoad(internalName);
+        }
+
+        @Override
+        public byte[] load(String internalName) throws LoaderException {
+            return (loader == null) ? null : loader.load(internalName);
+        }
+    }
+}
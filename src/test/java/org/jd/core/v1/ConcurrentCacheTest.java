@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2008, 2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1;
+
+import junit.framework.TestCase;
+import org.jd.core.v1.loader.ClassPathLoader;
+import org.jd.core.v1.model.classfile.ClassFile;
+import org.jd.core.v1.service.deserializer.classfile.ClassFileDeserializer;
+import org.jd.core.v1.util.ConcurrentCache;
+import org.jd.core.v1.util.StringInterner;
+import org.junit.Test;
+
+public class ConcurrentCacheTest extends TestCase {
+
+    @Test
+    public void testMaxSize() throws Exception {
+        ConcurrentCache<String, Integer> cache = new ConcurrentCache<>(100);
+
+        for (int i=0; i<10_000; i++) {
+            cache.put("key" + i, i);
+            assertTrue(cache.size() <= cache.getMaxSize() + 1);
+        }
+
+        assertEquals(Integer.valueOf(9_999), cache.get("key9999"));
+        assertNull(cache.get("key0"));
+    }
+
+    @Test
+    public void testUsedEntriesAreKept() throws Exception {
+        ConcurrentCache<String, Integer> cache = new ConcurrentCache<>(100);
+
+        cache.put("used", -1);
+
+        for (int i=0; i<10_000; i++) {
+            cache.put("key" + i, i);
+            assertEquals(Integer.valueOf(-1), cache.get("used"));
+        }
+    }
+
+    @Test
+    public void testPutIfAbsent() throws Exception {
+        ConcurrentCache<String, Integer> cache = new ConcurrentCache<>(100);
+
+        assertEquals(Integer.valueOf(1), cache.putIfAbsent("key", 1));
+        assertEquals(Integer.valueOf(1), cache.putIfAbsent("key", 2));
+        assertTrue(cache.containsKey("key"));
+        assertFalse(cache.containsKey("other"));
+    }
+
+    @Test
+    public void testStringInterner() throws Exception {
+        StringInterner interner = new StringInterner(100);
+        String s1 = new String("java/lang/Object");
+        String s2 = new String("java/lang/Object");
+
+        assertNull(interner.intern(null));
+        assertSame(s1, interner.intern(s1));
+        assertSame(s1, interner.intern(s2));
+
+        for (int i=0; i<10_000; i++) {
+            interner.intern("name" + i);
+            assertTrue(interner.size() <= 101);
+        }
+
+        // Unused strings are dropped
+        assertSame(s2, interner.intern(s2));
+    }
+
+    @Test
+    public void testInternedConstants() throws Exception {
+        ClassFileDeserializer deserializer = new ClassFileDeserializer();
+        ClassPathLoader loader = new ClassPathLoader();
+        ClassFile classFile1 = deserializer.loadClassFile(loader, "org/jd/core/v1/ConcurrentCacheTest");
+        ClassFile classFile2 = deserializer.loadClassFile(loader, "org/jd/core/v1/ConcurrentCacheTest");
+
+        assertNotSame(classFile1, classFile2);
+        assertSame(classFile1.getSuperTypeName(), classFile2.getSuperTypeName());
+        assertSame(classFile1.getMethods()[0].getDescriptor(), classFile2.getMethods()[0].getDescriptor());
+    }
+}
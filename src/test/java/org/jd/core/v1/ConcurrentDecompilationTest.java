@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2008, 2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1;
+
+import junit.framework.TestCase;
+import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.api.loader.LoaderException;
+import org.jd.core.v1.loader.PrefetchingLoader;
+import org.jd.core.v1.loader.ZipLoader;
+import org.jd.core.v1.printer.PlainTextPrinter;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.TypeMaker;
+import org.jd.core.v1.util.DefaultList;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class ConcurrentDecompilationTest extends TestCase {
+    protected static final int THREAD_COUNT = 4;
+    protected static final int ROUND_COUNT = 2;
+
+    protected ClassFileToJavaSourceDecompiler decompiler = new ClassFileToJavaSourceDecompiler();
+
+    @Test
+    public void testSharedDecompiler() throws Exception {
+        Map<String, Object> configuration = Collections.singletonMap("realignLineNumbers", Boolean.TRUE);
+        DefaultList<Job> jobs = createJobs(configuration);
+
+        // Decompile the same classes with several threads sharing the same decompiler
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+
+        try {
+            DefaultList<Future<Integer>> futures = new DefaultList<>(THREAD_COUNT);
+
+            for (int i=0; i<THREAD_COUNT; i++) {
+                // Each thread has its own order
+                DefaultList<Job> shuffledJobs = new DefaultList<>(jobs);
+                Collections.shuffle(shuffledJobs, new Random(i));
+
+                futures.add(executor.submit(() -> {
+                    int count = 0;
+
+                    for (int round=0; round<ROUND_COUNT; round++) {
+                        for (Job job : shuffledJobs) {
+                            assertEquals(job.internalTypeName, job.expected, decompile(job, configuration));
+                            count++;
+                        }
+                    }
+
+                    return count;
+                }));
+            }
+
+            for (Future<Integer> future : futures) {
+                assertEquals(jobs.size() * ROUND_COUNT, future.get().intValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelMethods() throws Exception {
+        Map<String, Object> configuration = Collections.singletonMap("realignLineNumbers", Boolean.TRUE);
+        DefaultList<Job> jobs = createJobs(configuration);
+        HashMap<String, Object> parallelConfiguration = new HashMap<>(configuration);
+
+        parallelConfiguration.put("parallelMethods", Boolean.TRUE);
+
+        for (Job job : jobs) {
+            assertEquals(job.internalTypeName, job.expected, decompile(job, parallelConfiguration));
+        }
+    }
+
+    @Test
+    public void testPrefetchingLoader() throws Exception {
+        Map<String, Object> configuration = Collections.singletonMap("realignLineNumbers", Boolean.TRUE);
+        DefaultList<Job> jobs = createJobs(configuration);
+        HashMap<Loader, PrefetchingLoader> prefetchingLoaders = new HashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+
+        try {
+            for (Job job : jobs) {
+                PrefetchingLoader loader = prefetchingLoaders.computeIfAbsent(job.loader, l -> new PrefetchingLoader(l, executor, 64));
+                Job prefetchingJob = new Job(loader, job.internalTypeName);
+
+                assertEquals(job.internalTypeName, job.expected, decompile(prefetchingJob, configuration));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPrefetchedTypes() throws Exception {
+        ZipLoader zipLoader = new ZipLoader(getClass().getResourceAsStream("/zip/data-java-jdk-1.8.0.zip"));
+        ConcurrentHashMap<String, Integer> loadCounts = new ConcurrentHashMap<>();
+        Loader countingLoader = new Loader() {
+            @Override
+            public boolean canLoad(String internalName) {
+                return zipLoader.canLoad(internalName);
+            }
+
+            @Override
+            public byte[] load(String internalName) throws LoaderException {
+                loadCounts.merge(internalName, 1, Integer::sum);
+                return zipLoader.load(internalName);
+            }
+        };
+        PrefetchingLoader loader = new PrefetchingLoader(countingLoader);
+
+        String source = decompile(new Job(loader, "org/jd/core/test/OuterClass"), null);
+
+        assertTrue(source.contains("class OuterClass"));
+        assertTrue(source.contains("class InnerInnerClass"));
+
+        // Inner types and super types are loaded once, through the cache of futures
+        assertTrue(loadCounts.containsKey("org/jd/core/test/OuterClass$InnerClass"));
+        assertTrue(loadCounts.containsKey("org/jd/core/test/OuterClass$NumberComparator"));
+
+        for (Map.Entry<String, Integer> entry : loadCounts.entrySet()) {
+            assertEquals(entry.getKey(), 1, entry.getValue().intValue());
+        }
+    }
+
+    @Test
+    public void testPrefetchingLoaderCopies() throws Exception {
+        ZipLoader zipLoader = new ZipLoader(getClass().getResourceAsStream("/zip/data-java-jdk-1.8.0.zip"));
+        PrefetchingLoader loader = new PrefetchingLoader(zipLoader);
+        String internalTypeName = "org/jd/core/test/OuterClass";
+        byte[] expected = zipLoader.load(internalTypeName).clone();
+
+        loader.prefetch(internalTypeName);
+
+        byte[] data = loader.load(internalTypeName);
+
+        assertTrue(Arrays.equals(expected, data));
+
+        // Changes of the returned class file do not change the cache
+        Arrays.fill(data, (byte)0);
+
+        assertTrue(Arrays.equals(expected, loader.load(internalTypeName)));
+    }
+
+    @Test
+    public void testSharedSessions() throws Exception {
+        testSharedSessions(TypeMaker.DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    @Test
+    public void testSharedSessionsWithEviction() throws Exception {
+        testSharedSessions(64);
+    }
+
+    protected void testSharedSessions(int maxCacheSize) throws Exception {
+        Map<String, Object> configuration = Collections.singletonMap("realignLineNumbers", Boolean.TRUE);
+        DefaultList<Job> jobs = createJobs(configuration);
+        HashMap<Loader, DecompilationSession> sessions = new HashMap<>();
+
+        for (Job job : jobs) {
+            sessions.computeIfAbsent(job.loader, loader -> new DecompilationSession(loader, maxCacheSize));
+        }
+
+        // Decompile the same classes with several threads sharing the same sessions
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+
+        try {
+            DefaultList<Future<?>> futures = new DefaultList<>(THREAD_COUNT);
+
+            for (int i=0; i<THREAD_COUNT; i++) {
+                DefaultList<Job> shuffledJobs = new DefaultList<>(jobs);
+                Collections.shuffle(shuffledJobs, new Random(i));
+
+                futures.add(executor.submit(() -> {
+                    for (Job job : shuffledJobs) {
+                        PlainTextPrinter printer = new PlainTextPrinter();
+                        String source;
+
+                        try {
+                            decompiler.decompile(sessions.get(job.loader), printer, job.internalTypeName, configuration);
+                            source = printer.toString();
+                        } catch (Throwable t) {
+                            source = "Error: " + t.getClass().getName();
+                        }
+
+                        assertEquals(job.internalTypeName, job.expected, source);
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    protected DefaultList<Job> createJobs(Map<String, Object> configuration) throws Exception {
+        DefaultList<Job> jobs = new DefaultList<>();
+
+        // Decompile the test corpus with a single thread
+        File[] files = new File(getClass().getResource("/zip").toURI()).listFiles();
+
+        assertNotNull(files);
+        Arrays.sort(files);
+
+        for (File file : files) {
+            if (file.getName().endsWith(".zip")) {
+                try (InputStream is = new FileInputStream(file)) {
+                    ZipLoader loader = new ZipLoader(is);
+
+                    for (String path : loader.getMap().keySet()) {
+                        if (path.endsWith(".class") && (path.indexOf('$') == -1)) {
+                            String internalTypeName = path.substring(0, path.length() - 6); // 6 = ".class".length()
+                            Job job = new Job(loader, internalTypeName);
+
+                            job.expected = decompile(job, configuration);
+                            jobs.add(job);
+                        }
+                    }
+                }
+            }
+        }
+
+        assertFalse(jobs.isEmpty());
+
+        return jobs;
+    }
+
+    protected String decompile(Job job, Map<String, Object> configuration) {
+        PlainTextPrinter printer = new PlainTextPrinter();
+
+        try {
+            decompiler.decompile(job.loader, printer, job.internalTypeName, configuration);
+            return printer.toString();
+        } catch (Throwable t) {
+            return "Error: " + t.getClass().getName();
+        }
+    }
+
+    protected static class Job {
+        protected Loader loader;
+        protected String internalTypeName;
+        protected String expected;
+
+        public Job(Loader loader, String internalTypeName) {
+            this.loader = loader;
+            this.internalTypeName = internalTypeName;
+        }
+    }
+}
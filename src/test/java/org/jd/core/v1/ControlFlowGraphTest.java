@@ -12,6 +12,10 @@ import org.jd.core.v1.api.loader.Loader;
 import org.jd.core.v1.loader.ClassPathLoader;
 import org.jd.core.v1.loader.ZipLoader;
 import org.jd.core.v1.model.classfile.Method;
+import org.jd.core.v1.model.classfile.attribute.AttributeCode;
+import org.jd.core.v1.model.classfile.attribute.AttributeLineNumberTable;
+import org.jd.core.v1.model.classfile.attribute.AttributeName;
+import org.jd.core.v1.model.classfile.attribute.LineNumber;
 import org.jd.core.v1.model.javasyntax.CompilationUnit;
 import org.jd.core.v1.model.javasyntax.declaration.*;
 import org.jd.core.v1.model.message.Message;
@@ -22,15 +26,20 @@ import org.jd.core.v1.service.converter.classfiletojavasyntax.model.javasyntax.d
 import org.jd.core.v1.service.converter.classfiletojavasyntax.processor.ConvertClassFileProcessor;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.*;
 import org.jd.core.v1.service.deserializer.classfile.DeserializeClassFileProcessor;
+import org.jd.core.v1.util.DefaultList;
 import org.jd.core.v1.cfg.ControlFlowGraphPlantUMLWriter;
 import org.junit.Test;
 
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import static org.jd.core.v1.service.converter.classfiletojavasyntax.model.cfg.BasicBlock.*;
 
@@ -46,6 +55,212 @@ public class ControlFlowGraphTest extends TestCase {
         checkCFGReduction(searchMethod(getResource("zip/data-java-jdk-1.7.0.zip"), "org/jd/core/test/Basic", "doSomethingWithString"));
     }
 
+    // --- Test predecessors ---------------------------------------------------------------------------------------- //
+    @Test
+    public void testPredecessors() throws Exception {
+        PredecessorControlFlowGraph cfg = new PredecessorControlFlowGraph();
+        BasicBlock[] bbs = new BasicBlock[8];
+
+        for (int i=0; i<bbs.length; i++) {
+            bbs[i] = cfg.newBasicBlock(TYPE_STATEMENTS, i, i+1);
+        }
+
+        Set<BasicBlock> predecessors = bbs[0].getPredecessors();
+
+        // Single predecessor stored inline
+        assertTrue(predecessors.add(bbs[5]));
+        assertFalse(predecessors.add(bbs[5]));
+        assertTrue(cfg.isInline(0));
+        assertEquals(1, predecessors.size());
+        assertTrue(predecessors.contains(bbs[5]));
+        assertFalse(predecessors.contains(bbs[4]));
+
+        // Second predecessor -> Array, sorted by index, growing beyond its initial length
+        assertTrue(predecessors.add(bbs[3]));
+        assertFalse(cfg.isInline(0));
+
+        for (int i=7; i>0; i--) {
+            assertEquals(i != 5 && i != 3, predecessors.add(bbs[i]));
+        }
+
+        assertFalse(predecessors.add(bbs[3]));
+        assertEquals(7, predecessors.size());
+        assertEquals(7, cfg.getPredecessorCount(0));
+
+        for (int i=0; i<7; i++) {
+            assertEquals(i+1, cfg.getPredecessorIndex(0, i));
+            assertEquals(i, cfg.searchPredecessor(0, i+1));
+        }
+
+        assertTrue(cfg.searchPredecessor(0, 0) < 0);
+
+        // Removal through the iterator
+        Iterator<BasicBlock> iterator = predecessors.iterator();
+
+        try {
+            iterator.remove();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        while (iterator.hasNext()) {
+            if ((iterator.next().getIndex() % 2) == 0) {
+                iterator.remove();
+            }
+        }
+
+        assertEquals(4, predecessors.size());
+        assertEquals("[1, 3, 5, 7]", indexes(predecessors));
+
+        // Last but one predecessor removed -> Inline
+        assertTrue(predecessors.remove(bbs[1]));
+        assertFalse(predecessors.remove(bbs[1]));
+        assertTrue(predecessors.remove(bbs[7]));
+        assertFalse(cfg.isInline(0));
+
+        iterator = predecessors.iterator();
+        iterator.next();
+        iterator.remove();
+
+        assertTrue(cfg.isInline(0));
+        assertTrue(iterator.hasNext());
+        assertEquals(bbs[5], iterator.next());
+        assertFalse(iterator.hasNext());
+        assertEquals("[5]", indexes(predecessors));
+
+        // Promotion again, then removal down to an empty set
+        assertTrue(predecessors.add(bbs[2]));
+        assertEquals("[2, 5]", indexes(predecessors));
+
+        iterator = predecessors.iterator();
+
+        while (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+
+        assertTrue(cfg.isInline(0));
+        assertTrue(predecessors.isEmpty());
+        assertTrue(predecessors.add(bbs[6]));
+        assertEquals("[6]", indexes(predecessors));
+
+        predecessors.add(bbs[4]);
+        predecessors.clear();
+
+        assertTrue(cfg.isInline(0));
+        assertTrue(predecessors.isEmpty());
+
+        // Blocks are independent; the storage grows with the number of blocks
+        for (int i=0; i<40; i++) {
+            cfg.newBasicBlock(TYPE_STATEMENTS, 8+i, 9+i).getPredecessors().add(bbs[i % 8]);
+        }
+
+        assertEquals(1, cfg.getPredecessorCount(47));
+        assertEquals(7, cfg.getPredecessorIndex(47, 0));
+        assertTrue(bbs[1].getPredecessors().isEmpty());
+
+        // Immutable blocks are not in the graph
+        try {
+            predecessors.add(END);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+
+        assertTrue(predecessors.isEmpty());
+    }
+
+    // --- Test line numbers ---------------------------------------------------------------------------------------- //
+    @Test
+    public void testLineNumbers() throws Exception {
+        ControlFlowGraph cfg = new ControlFlowGraph(null);
+
+        // No line number table
+        assertEquals(0, cfg.getLineNumber(0));
+        assertEquals(0, cfg.getLineNumber(1000));
+
+        // Runs [0, 4) -> 10, [4, 5) -> 12, [5, 20) -> 11, [20, 22) -> 15
+        cfg.setLineNumbers(new int[] { 0, 4, 5, 20 }, new int[] { 10, 12, 11, 15 }, 22);
+
+        int[] lineNumbers = new int[22];
+
+        Arrays.fill(lineNumbers, 0, 4, 10);
+        Arrays.fill(lineNumbers, 4, 5, 12);
+        Arrays.fill(lineNumbers, 5, 20, 11);
+        Arrays.fill(lineNumbers, 20, 22, 15);
+
+        for (int offset=0; offset<22; offset++) {
+            assertEquals("offset " + offset, lineNumbers[offset], cfg.getLineNumber(offset));
+        }
+
+        for (int offset : new int[] { -1, 22, 100 }) {
+            try {
+                cfg.getLineNumber(offset);
+                fail();
+            } catch (ArrayIndexOutOfBoundsException expected) {
+            }
+        }
+
+        // Single run
+        cfg.setLineNumbers(new int[] { 0 }, new int[] { 7 }, 3);
+
+        assertEquals(7, cfg.getLineNumber(0));
+        assertEquals(7, cfg.getLineNumber(2));
+    }
+
+    @Test
+    public void testJdk170LineNumbers() throws Exception {
+        String[][] methods = {
+            { "org/jd/core/test/For", "ifForIfReturn" },
+            { "org/jd/core/test/For", "forIfContinue" },
+            { "org/jd/core/test/IfElse", "ifElseANDAndORConditions" },
+            { "org/jd/core/test/OuterClass", "<init>" },
+        };
+
+        for (String[] m : methods) {
+            Method method = searchMethod(getResource("zip/data-java-jdk-1.7.0.zip"), m[0], m[1]);
+            AttributeCode attributeCode = method.getAttribute(AttributeName.CODE);
+            LineNumber[] lineNumberTable = attributeCode.<AttributeLineNumberTable>getAttribute(AttributeName.LINE_NUMBER_TABLE).getLineNumberTable();
+            int length = attributeCode.getCodeLength();
+            ControlFlowGraph cfg = ControlFlowGraphMaker.make(method);
+
+            // Line number of each offset, as a dense array
+            int[] offsetToLineNumbers = new int[length];
+            int offset = 0;
+            int lineNumber = lineNumberTable[0].getLineNumber();
+
+            for (int i=1; i<lineNumberTable.length; i++) {
+                while (offset < lineNumberTable[i].getStartPc()) offsetToLineNumbers[offset++] = lineNumber;
+                lineNumber = lineNumberTable[i].getLineNumber();
+            }
+
+            while (offset < length) offsetToLineNumbers[offset++] = lineNumber;
+
+            for (offset=0; offset<length; offset++) {
+                assertEquals(m[1] + " offset " + offset, offsetToLineNumbers[offset], cfg.getLineNumber(offset));
+            }
+        }
+    }
+
+    protected static String indexes(Set<BasicBlock> basicBlocks) {
+        ArrayList<Integer> indexes = new ArrayList<>();
+
+        for (BasicBlock basicBlock : basicBlocks) {
+            indexes.add(basicBlock.getIndex());
+        }
+
+        return indexes.toString();
+    }
+
+    protected static class PredecessorControlFlowGraph extends ControlFlowGraph {
+        public PredecessorControlFlowGraph() {
+            super(null);
+        }
+
+        public boolean isInline(int index) {
+            return predecessorIndexes[index] == null;
+        }
+    }
+
 
     // --- Test 'if' and 'if-else' ---------------------------------------------------------------------------------- //
     @Test
@@ -2413,8 +2628,12 @@ public class ControlFlowGraphTest extends TestCase {
         System.out.println("Step 1: " + ControlFlowGraphPlantUMLWriter.writePlantUMLUrl(plantuml));
 
         // --- Test natural loops --- //
-        BitSet[] dominators = ControlFlowGraphLoopReducer.buildDominatorIndexes(cfg);
-        List<Loop> naturalLoops = ControlFlowGraphLoopReducer.identifyNaturalLoops(cfg, dominators);
+        DominatorTree dominatorTree = ControlFlowGraphLoopReducer.buildDominatorTree(cfg);
+
+        checkDominatorTree(cfg, dominatorTree);
+        checkLoopNestingForest(cfg, dominatorTree);
+
+        List<Loop> naturalLoops = ControlFlowGraphLoopReducer.identifyNaturalLoops(cfg, dominatorTree);
 
         for (Loop loop : naturalLoops) {
             System.out.println(loop);
@@ -2445,6 +2664,127 @@ public class ControlFlowGraphTest extends TestCase {
         return cfg;
     }
 
+    /**
+     * Compare the dominator tree with the solution of the iterative data flow equations.
+     */
+    protected static void checkDominatorTree(ControlFlowGraph cfg, DominatorTree dominatorTree) {
+        List<BasicBlock> list = cfg.getBasicBlocks();
+        int length = list.size();
+        BitSet[] arrayOfDominatorIndexes = new BitSet[length];
+
+        for (int i=0; i<length; i++) {
+            arrayOfDominatorIndexes[i] = new BitSet(length);
+            arrayOfDominatorIndexes[i].set(0, (i == 0) ? 1 : length);
+        }
+
+        boolean change;
+
+        do {
+            change = false;
+
+            for (int i=1; i<length; i++) {
+                BitSet dominatorIndexes = (BitSet)arrayOfDominatorIndexes[i].clone();
+
+                for (BasicBlock predecessor : list.get(i).getPredecessors()) {
+                    dominatorIndexes.and(arrayOfDominatorIndexes[predecessor.getIndex()]);
+                }
+
+                dominatorIndexes.set(i);
+                change |= !dominatorIndexes.equals(arrayOfDominatorIndexes[i]);
+                arrayOfDominatorIndexes[i] = dominatorIndexes;
+            }
+        } while (change);
+
+        for (int i=0; i<length; i++) {
+            for (int j=0; j<length; j++) {
+                assertEquals("dominates(" + j + ", " + i + ")", arrayOfDominatorIndexes[i].get(j), dominatorTree.dominates(j, i));
+            }
+
+            int idom = dominatorTree.getImmediateDominator(i);
+
+            if (idom != -1) {
+                assertTrue(arrayOfDominatorIndexes[i].get(idom));
+                assertEquals(arrayOfDominatorIndexes[i].cardinality() - 1, arrayOfDominatorIndexes[idom].cardinality());
+            }
+        }
+    }
+
+    /**
+     * Compare the members of the loops with the blocks found by backward searches from the sources of the back edges.
+     */
+    protected static void checkLoopNestingForest(ControlFlowGraph cfg, DominatorTree dominatorTree) {
+        List<BasicBlock> list = cfg.getBasicBlocks();
+        int length = list.size();
+        BitSet[] arrayOfMemberIndexes = new BitSet[length];
+
+        for (int i=0; i<length; i++) {
+            BasicBlock current = list.get(i);
+            List<BasicBlock> successors = new ArrayList<>();
+
+            switch (current.getType()) {
+                case TYPE_CONDITIONAL_BRANCH:
+                    successors.add(current.getBranch());
+                case TYPE_STATEMENTS:
+                case TYPE_GOTO:
+                    successors.add(current.getNext());
+                    break;
+                case TYPE_SWITCH_DECLARATION:
+                    for (SwitchCase switchCase : current.getSwitchCases()) {
+                        successors.add(switchCase.getBasicBlock());
+                    }
+                    break;
+            }
+
+            for (BasicBlock header : successors) {
+                int index = header.getIndex();
+
+                if ((index >= 0) && dominatorTree.dominates(index, i)) {
+                    if (arrayOfMemberIndexes[index] == null) {
+                        arrayOfMemberIndexes[index] = new BitSet(length);
+                    }
+
+                    DefaultList<BasicBlock> stack = new DefaultList<>();
+
+                    stack.add(current);
+
+                    while (!stack.isEmpty()) {
+                        BasicBlock bb = stack.removeLast();
+
+                        if (!arrayOfMemberIndexes[index].get(bb.getIndex())) {
+                            arrayOfMemberIndexes[index].set(bb.getIndex());
+
+                            if (bb != header) {
+                                stack.addAll(bb.getPredecessors());
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        LoopNestingForest forest = new LoopNestingForest(cfg, dominatorTree);
+
+        for (int i=0; i<length; i++) {
+            assertEquals("isHeader(" + i + ")", arrayOfMemberIndexes[i] != null, forest.isHeader(i));
+
+            if (arrayOfMemberIndexes[i] != null) {
+                BitSet memberIndexes = new BitSet(length);
+
+                for (int index : forest.getMemberIndexes(i)) {
+                    memberIndexes.set(index);
+                }
+
+                assertEquals("getMemberIndexes(" + i + ")", arrayOfMemberIndexes[i], memberIndexes);
+            }
+
+            int parent = forest.getParent(i);
+
+            if (parent != -1) {
+                assertTrue(arrayOfMemberIndexes[parent].get(i));
+            }
+        }
+    }
+
     protected static void checkFinalCFG(ControlFlowGraph cfg) {
         List<BasicBlock> list = cfg.getBasicBlocks();
 
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2008, 2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1;
+
+import junit.framework.TestCase;
+import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.api.loader.LoaderException;
+import org.jd.core.v1.api.printer.Printer;
+import org.jd.core.v1.loader.ZipLoader;
+import org.jd.core.v1.printer.PlainTextMetaPrinter;
+import org.jd.core.v1.printer.PlainTextPrinter;
+import org.jd.core.v1.printer.RecordingPrinter;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class DecompilationCacheTest extends TestCase {
+    protected static final String[] TYPES = {
+        "org/jd/core/test/AnonymousClass", "org/jd/core/test/Enum", "org/jd/core/test/For",
+        "org/jd/core/test/GenericClass", "org/jd/core/test/OuterClass", "org/jd/core/test/TryWithResources"
+    };
+
+    @Test
+    public void testRecordingPrinter() throws Exception {
+        try (InputStream is = this.getClass().getResourceAsStream("/zip/data-java-jdk-1.8.0.zip")) {
+            ZipLoader loader = new ZipLoader(is);
+            ClassFileToJavaSourceDecompiler decompiler = new ClassFileToJavaSourceDecompiler();
+
+            for (String internalTypeName : TYPES) {
+                PlainTextMetaPrinter printer = new PlainTextMetaPrinter();
+                RecordingPrinter recordingPrinter = new RecordingPrinter(printer);
+
+                decompiler.decompile(loader, recordingPrinter, internalTypeName);
+
+                PlainTextMetaPrinter replayedPrinter = new PlainTextMetaPrinter();
+                RecordingPrinter.replay(recordingPrinter.toByteArray(), replayedPrinter);
+
+                assertTrue(printer.toString().length() > 0);
+                assertEquals(internalTypeName, printer.toString(), replayedPrinter.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testRecordingPrinterArguments() throws Exception {
+        RecordingPrinter recordingPrinter = new RecordingPrinter();
+
+        recordingPrinter.start(-1, Integer.MAX_VALUE, Integer.MIN_VALUE);
+        recordingPrinter.printStringConstant("\"\\uD800\u0000\u00E9\"", null);
+        recordingPrinter.printStringConstant("\"\\uD800\u0000\u00E9\"", "a/B");
+        recordingPrinter.printReference(Printer.METHOD, "a/B", "<init>", "()V", "a/B");
+        recordingPrinter.endLine();
+
+        StringBuilder calls = new StringBuilder();
+
+        RecordingPrinter.replay(recordingPrinter.toByteArray(), new PlainTextPrinter() {
+            @Override public void start(int maxLineNumber, int majorVersion, int minorVersion) { calls.append(maxLineNumber).append(',').append(majorVersion).append(',').append(minorVersion); }
+            @Override public void printStringConstant(String constant, String ownerInternalName) { calls.append(',').append(constant).append(',').append(ownerInternalName); }
+            @Override public void printReference(int type, String internalTypeName, String name, String descriptor, String ownerInternalName) { calls.append(',').append(type).append(internalTypeName).append(name).append(descriptor).append(ownerInternalName); }
+            @Override public void endLine() { calls.append(",EOL"); }
+        });
+
+        assertEquals("-1,2147483647,-2147483648,\"\\uD800\u0000\u00E9\",null,\"\\uD800\u0000\u00E9\",a/B,3a/B<init>()Va/B,EOL", calls.toString());
+
+        try {
+            RecordingPrinter.replay(new byte[] { 3, 5 }, new PlainTextPrinter());
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+
+        assertFalse(RecordingPrinter.isValid(recordingPrinter.toByteArray()));
+
+        recordingPrinter.end();
+
+        byte[] recording = recordingPrinter.toByteArray();
+
+        assertTrue(RecordingPrinter.isValid(recording));
+        assertFalse(RecordingPrinter.isValid(new byte[] { 3, 5 }));
+        assertFalse(RecordingPrinter.isValid(new byte[] { 3, 1, (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x07 }));
+
+        for (int length=1; length<recording.length; length++) {
+            assertFalse(RecordingPrinter.isValid(Arrays.copyOf(recording, length)));
+        }
+    }
+
+    @Test
+    public void testMemoryCache() throws Exception {
+        try (InputStream is = this.getClass().getResourceAsStream("/zip/data-java-jdk-1.8.0.zip")) {
+            ZipLoader loader = new ZipLoader(is);
+            ClassFileToJavaSourceDecompiler decompiler = new ClassFileToJavaSourceDecompiler();
+            DecompilationCache cache = new DecompilationCache(1024 * 1024);
+            Map<String, Object> configuration = Collections.singletonMap("decompilationCache", cache);
+
+            for (String internalTypeName : TYPES) {
+                PlainTextPrinter printer = new PlainTextPrinter();
+                decompiler.decompile(loader, printer, internalTypeName);
+                String expected = printer.toString();
+
+                for (int i=0; i<3; i++) {
+                    printer = new PlainTextPrinter();
+                    decompiler.decompile(loader, printer, internalTypeName, configuration);
+                    assertEquals(internalTypeName, expected, printer.toString());
+                }
+            }
+
+            assertEquals(TYPES.length, cache.getMissCount());
+            assertEquals(2 * TYPES.length, cache.getHitCount());
+            assertTrue(cache.getMemorySize() > 0);
+
+            // Inner types and configuration are parts of the key
+            String key = cache.getKey(loader, "org/jd/core/test/OuterClass", null);
+            HashMap<String, Object> otherConfiguration = new HashMap<>();
+
+            otherConfiguration.put("realignLineNumbers", "true");
+            otherConfiguration.put("decompilationCache", cache);
+
+            assertEquals(key, cache.getKey(loader, "org/jd/core/test/OuterClass", configuration));
+            assertFalse(key.equals(cache.getKey(loader, "org/jd/core/test/OuterClass", otherConfiguration)));
+            assertNull(cache.getKey(loader, "org/jd/core/test/Missing", null));
+
+            assertFalse(key.equals(cache.getKey(new ModifiedLoader(loader, "org/jd/core/test/OuterClass$InnerClass"), "org/jd/core/test/OuterClass", null)));
+            assertFalse(key.equals(cache.getKey(new ModifiedLoader(loader, "org/jd/core/test/OuterClass$InnerClass$InnerInnerClass"), "org/jd/core/test/OuterClass", null)));
+            assertEquals(key, cache.getKey(new ModifiedLoader(loader, "org/jd/core/test/For"), "org/jd/core/test/OuterClass", null));
+
+            // 'parallelMethods' does not change the source
+            HashMap<String, Object> parallelConfiguration = new HashMap<>(configuration);
+
+            parallelConfiguration.put("parallelMethods", Boolean.TRUE);
+
+            assertEquals(key, cache.getKey(loader, "org/jd/core/test/OuterClass", parallelConfiguration));
+
+            // Eviction
+            DecompilationCache smallCache = new DecompilationCache(1000);
+
+            smallCache.put("a", new byte[600]);
+            smallCache.put("b", new byte[300]);
+            assertNotNull(smallCache.get("a"));
+            smallCache.put("c", new byte[300]);
+
+            assertEquals(900, smallCache.getMemorySize());
+            assertNotNull(smallCache.get("a"));
+            assertNull(smallCache.get("b"));
+            assertNotNull(smallCache.get("c"));
+        }
+    }
+
+    @Test
+    public void testDiskCache() throws Exception {
+        File directory = Files.createTempDirectory("jd-core-test-").toFile();
+
+        try (InputStream is = this.getClass().getResourceAsStream("/zip/data-java-jdk-1.8.0.zip")) {
+            ZipLoader loader = new ZipLoader(is);
+            ClassFileToJavaSourceDecompiler decompiler = new ClassFileToJavaSourceDecompiler();
+            DecompilationCache cache1 = new DecompilationCache(1024 * 1024, directory, 1024 * 1024);
+            String[] sources = new String[TYPES.length];
+
+            for (int i=0; i<TYPES.length; i++) {
+                PlainTextPrinter printer = new PlainTextPrinter();
+                decompiler.decompile(loader, printer, TYPES[i], Collections.singletonMap("decompilationCache", cache1));
+                sources[i] = printer.toString();
+            }
+
+            assertEquals(TYPES.length, directory.listFiles().length);
+
+            // New process: recordings read from the files
+            DecompilationCache cache2 = new DecompilationCache(1024 * 1024, directory, 1024 * 1024);
+
+            assertEquals(cache1.getDiskSize(), cache2.getDiskSize());
+
+            for (int i=0; i<TYPES.length; i++) {
+                PlainTextPrinter printer = new PlainTextPrinter();
+                decompiler.decompile(loader, printer, TYPES[i], Collections.singletonMap("decompilationCache", cache2));
+                assertEquals(TYPES[i], sources[i], printer.toString());
+            }
+
+            assertEquals(TYPES.length, cache2.getHitCount());
+            assertEquals(0, cache2.getMissCount());
+
+            // Corrupt file: deleted, then the type is decompiled and stored again
+            String key = cache2.getKey(loader, TYPES[0], null);
+            File corruptFile = new File(directory, key + DecompilationCache.FILE_SUFFIX);
+            byte[] recording = Files.readAllBytes(corruptFile.toPath());
+
+            Files.write(corruptFile.toPath(), Arrays.copyOf(recording, recording.length / 2));
+
+            DecompilationCache cache4 = new DecompilationCache(1024 * 1024, directory, 1024 * 1024);
+
+            assertNull(cache4.get(key));
+            assertFalse(corruptFile.exists());
+
+            PlainTextPrinter printer = new PlainTextPrinter();
+            decompiler.decompile(loader, printer, TYPES[0], Collections.singletonMap("decompilationCache", cache4));
+
+            assertEquals(TYPES[0], sources[0], printer.toString());
+            assertTrue(Arrays.equals(recording, Files.readAllBytes(corruptFile.toPath())));
+            assertEquals(cache2.getDiskSize(), cache4.getDiskSize());
+
+            // Eviction of the least recently used files
+            long maxDiskSize = cache2.getDiskSize() / 2;
+            DecompilationCache cache3 = new DecompilationCache(0, directory, maxDiskSize);
+
+            for (File file : directory.listFiles()) {
+                file.setLastModified(System.currentTimeMillis() - 60000);
+            }
+
+            RecordingPrinter recordingPrinter = new RecordingPrinter();
+
+            recordingPrinter.start(1, 52, 0);
+            recordingPrinter.printText("text");
+            recordingPrinter.end();
+            cache3.put("0000", recordingPrinter.toByteArray());
+
+            assertTrue(cache3.getDiskSize() <= maxDiskSize);
+            assertTrue(directory.listFiles().length < TYPES.length);
+            assertNotNull(cache3.get("0000"));
+
+            cache3.clear();
+
+            assertEquals(0, cache3.getDiskSize());
+            assertEquals(0, directory.listFiles().length);
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+
+            directory.delete();
+        }
+    }
+
+    /**
+     * Loader adding a byte to the class file of a type.
+     */
+    protected static class ModifiedLoader implements Loader {
+        protected Loader loader;
+        protected String modifiedInternalTypeName;
+
+        public ModifiedLoader(Loader loader, String modifiedInternalTypeName) {
+            this.loader = loader;
+            this.modifiedInternalTypeName = modifiedInternalTypeName;
+        }
+
+        @Override
+        public boolean canLoad(String internalName) {
+            return loader.canLoad(internalName);
+        }
+
+        @Override
+        public byte[] load(String internalName) throws LoaderException {
+            byte[] data = loader.load(internalName);
+
+            if (modifiedInternalTypeName.equals(internalName)) {
+                assertNotNull(data);
+                data = Arrays.copyOf(data, data.length + 1);
+            }
+
+            return data;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2008, 2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1;
+
+import junit.framework.TestCase;
+import org.jd.core.v1.api.DecompilationListener;
+import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.loader.PrefetchingLoader;
+import org.jd.core.v1.loader.ZipLoader;
+import org.jd.core.v1.printer.PlainTextPrinter;
+import org.jd.core.v1.util.DecompilationStatistics;
+import org.jd.core.v1.util.Histogram;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class DecompilationStatisticsTest extends TestCase {
+    protected static final String[] STAGES = {
+        DecompilationListener.STAGE_DESERIALIZER, DecompilationListener.STAGE_CONVERTER,
+        DecompilationListener.STAGE_FRAGMENTER, DecompilationListener.STAGE_LAYOUTER,
+        DecompilationListener.STAGE_TOKENIZER, DecompilationListener.STAGE_WRITER
+    };
+
+    @Test
+    public void testStatistics() throws Exception {
+        String[] internalTypeNames = { "org/jd/core/test/For", "org/jd/core/test/While", "org/jd/core/test/Switch" };
+        DecompilationStatistics statistics = new DecompilationStatistics();
+        HashMap<String, Object> configuration = new HashMap<>();
+
+        configuration.put("realignLineNumbers", Boolean.TRUE);
+        configuration.put("decompilationListener", statistics);
+
+        try (InputStream is = getClass().getResourceAsStream("/zip/data-java-jdk-1.8.0.zip")) {
+            ZipLoader loader = new ZipLoader(is);
+            ClassFileToJavaSourceDecompiler decompiler = new ClassFileToJavaSourceDecompiler();
+
+            for (String internalTypeName : internalTypeNames) {
+                PlainTextPrinter printer = new PlainTextPrinter();
+                decompiler.decompile(loader, printer, internalTypeName, configuration);
+                assertFalse(printer.toString().isEmpty());
+            }
+        }
+
+        for (String stage : STAGES) {
+            assertEquals(stage, internalTypeNames.length, statistics.getCounter("stage." + stage + ".count"));
+            assertTrue(stage, statistics.getCounter("stage." + stage + ".time") > 0);
+            assertEquals(stage, internalTypeNames.length, statistics.getHistogram("stage." + stage + ".time").getCount());
+        }
+
+        long methodCount = statistics.getCounter("methods");
+
+        assertTrue(methodCount > 0);
+        assertTrue(statistics.getCounter("methods.reduced") > 0);
+        assertTrue(statistics.getCounter("methods.reduced") + statistics.getCounter("methods.byteCode") >= methodCount);
+        assertEquals(methodCount, statistics.getHistogram("method.codeLength").getCount());
+        assertTrue(statistics.getHistogram("method.loopCount").getMax() > 0);
+        assertTrue(statistics.getHistogram("method.basicBlockCount").getMax() > 1);
+    }
+
+    @Test
+    public void testParallelStageAllocations() throws Exception {
+        try (InputStream is = getClass().getResourceAsStream("/zip/data-java-jdk-1.8.0.zip")) {
+            ZipLoader loader = new ZipLoader(is);
+            String internalTypeName = "org/jd/core/test/OuterClass";
+
+            // Sequential stages: allocations measured, if supported by the JVM
+            HashMap<String, Long> allocatedBytes = decompile(loader, internalTypeName, Collections.emptyMap());
+
+            for (String stage : STAGES) {
+                assertTrue(stage, allocatedBytes.containsKey(stage));
+            }
+
+            boolean measured = allocatedBytes.get(DecompilationListener.STAGE_CONVERTER) != -1;
+
+            if (measured) {
+                assertTrue(allocatedBytes.get(DecompilationListener.STAGE_DESERIALIZER) > 0);
+                assertTrue(allocatedBytes.get(DecompilationListener.STAGE_CONVERTER) > 0);
+            }
+
+            // Methods converted on other threads: not measured
+            allocatedBytes = decompile(loader, internalTypeName, Collections.singletonMap("parallelMethods", Boolean.TRUE));
+
+            assertEquals(-1L, (long)allocatedBytes.get(DecompilationListener.STAGE_CONVERTER));
+            assertEquals(measured, allocatedBytes.get(DecompilationListener.STAGE_DESERIALIZER) != -1);
+            assertEquals(measured, allocatedBytes.get(DecompilationListener.STAGE_WRITER) != -1);
+
+            // Inner types deserialized on other threads: not measured
+            allocatedBytes = decompile(new PrefetchingLoader(loader), internalTypeName, Collections.emptyMap());
+
+            assertEquals(-1L, (long)allocatedBytes.get(DecompilationListener.STAGE_DESERIALIZER));
+            assertEquals(measured, allocatedBytes.get(DecompilationListener.STAGE_CONVERTER) != -1);
+        }
+    }
+
+    protected static HashMap<String, Long> decompile(Loader loader, String internalTypeName, Map<String, Object> entries) throws Exception {
+        HashMap<String, Long> allocatedBytes = new HashMap<>();
+        HashMap<String, Object> configuration = new HashMap<>(entries);
+        PlainTextPrinter printer = new PlainTextPrinter();
+
+        configuration.put("decompilationListener", new DecompilationStatistics() {
+            @Override
+            public void stageCompleted(String internalTypeName, String stage, long time, long bytes) {
+                allocatedBytes.put(stage, bytes);
+            }
+        });
+
+        new ClassFileToJavaSourceDecompiler().decompile(loader, printer, internalTypeName, configuration);
+        assertFalse(printer.toString().isEmpty());
+
+        return allocatedBytes;
+    }
+
+    @Test
+    public void testHistogram() throws Exception {
+        Histogram histogram = new Histogram();
+
+        assertEquals(0, Histogram.getBucketIndex(0));
+        assertEquals(1, Histogram.getBucketIndex(1));
+        assertEquals(2, Histogram.getBucketIndex(3));
+        assertEquals(3, Histogram.getBucketIndex(4));
+        assertEquals(63, Histogram.getBucketIndex(Long.MAX_VALUE));
+
+        for (int i=1; i<=100; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        assertEquals(100, histogram.getMax());
+        assertEquals(32, histogram.getQuantile(0.5));
+        assertEquals(64, histogram.getQuantile(0.99));
+    }
+}
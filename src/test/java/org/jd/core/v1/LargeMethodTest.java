@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2008, 2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1;
+
+import junit.framework.TestCase;
+import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.printer.PlainTextPrinter;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Synthetic methods of 64 KB of byte code, with one basic block per few instructions, decompiled with the default
+ * stack size.
+ */
+public class LargeMethodTest extends TestCase {
+    protected static final String INTERNAL_TYPE_NAME = "org/jd/core/test/LargeMethod";
+    protected static final int MAX_CODE_LENGTH = 65535;
+    protected static final int STATEMENT_LENGTH = 7;
+
+    @Test
+    public void testConditions() throws Exception {
+        // int conditions(int i) { if (i > 0) i++; ... return i; }
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+        int count = (MAX_CODE_LENGTH - 2) / STATEMENT_LENGTH;
+
+        writeConditions(code, count);
+        code.write(0x1A); // ILOAD_0
+        code.write(0xAC); // IRETURN
+
+        String source = decompile(code.toByteArray());
+
+        assertFalse(source.contains("Byte code:"));
+        assertEquals(count, countOccurrences(source, "if (paramInt > 0)"));
+    }
+
+    @Test
+    public void testLoop() throws Exception {
+        // int conditions(int i) { while (true) { if (i > 0) i++; ... if (i < 0) continue; break; } return i; }
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+        int count = (MAX_CODE_LENGTH - 10) / STATEMENT_LENGTH;
+
+        writeConditions(code, count);
+        code.write(0x1A); // ILOAD_0
+        code.write(0x9C); // IFGE +8
+        code.write(0);
+        code.write(8);
+        code.write(0xC8); // GOTO_W start
+        writeInt(code, -code.size() + 1);
+        code.write(0x1A); // ILOAD_0
+        code.write(0xAC); // IRETURN
+
+        String source = decompile(code.toByteArray());
+
+        assertFalse(source.contains("Byte code:"));
+        assertTrue(source.contains("while (true)"));
+        assertTrue(source.contains("if (paramInt < 0)"));
+        assertEquals(count, countOccurrences(source, "if (paramInt > 0)"));
+    }
+
+    protected static void writeConditions(ByteArrayOutputStream code, int count) {
+        for (int i=0; i<count; i++) {
+            code.write(0x1A); // ILOAD_0
+            code.write(0x9E); // IFLE +6
+            code.write(0);
+            code.write(6);
+            code.write(0x84); // IINC 0 1
+            code.write(0);
+            code.write(1);
+        }
+    }
+
+    protected static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    protected static int countOccurrences(String s, String pattern) {
+        int count = 0;
+
+        for (int index=s.indexOf(pattern); index != -1; index=s.indexOf(pattern, index + pattern.length())) {
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Decompile the method 'int conditions(int)' in a new thread, with the default stack size.
+     */
+    protected static String decompile(byte[] code) throws Exception {
+        byte[] data = writeClassFile(code);
+        Loader loader = new Loader() {
+            @Override public boolean canLoad(String internalName) { return INTERNAL_TYPE_NAME.equals(internalName); }
+            @Override public byte[] load(String internalName) { return canLoad(internalName) ? data : null; }
+        };
+        PlainTextPrinter printer = new PlainTextPrinter();
+        Throwable[] throwables = new Throwable[1];
+        Thread thread = new Thread(() -> {
+            try {
+                new ClassFileToJavaSourceDecompiler().decompile(loader, printer, INTERNAL_TYPE_NAME);
+            } catch (Throwable t) {
+                throwables[0] = t;
+            }
+        });
+
+        thread.start();
+        thread.join();
+
+        if (throwables[0] instanceof Exception) {
+            throw (Exception)throwables[0];
+        } else if (throwables[0] != null) {
+            throw new AssertionError(throwables[0]);
+        }
+
+        return printer.toString();
+    }
+
+    protected static byte[] writeClassFile(byte[] code) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(baos);
+
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(50); // Java 6: no 'StackMapTable' attribute
+        // Constant pool
+        out.writeShort(8);
+        out.writeByte(1); out.writeUTF(INTERNAL_TYPE_NAME);   // #1
+        out.writeByte(7); out.writeShort(1);                  // #2
+        out.writeByte(1); out.writeUTF("java/lang/Object");   // #3
+        out.writeByte(7); out.writeShort(3);                  // #4
+        out.writeByte(1); out.writeUTF("conditions");         // #5
+        out.writeByte(1); out.writeUTF("(I)I");               // #6
+        out.writeByte(1); out.writeUTF("Code");               // #7
+        // Access flags, this class, super class, interfaces, fields
+        out.writeShort(0x0021);
+        out.writeShort(2);
+        out.writeShort(4);
+        out.writeShort(0);
+        out.writeShort(0);
+        // Method 'public static int conditions(int)'
+        out.writeShort(1);
+        out.writeShort(0x0009);
+        out.writeShort(5);
+        out.writeShort(6);
+        out.writeShort(1);
+        out.writeShort(7);
+        out.writeInt(2 + 2 + 4 + code.length + 2 + 2);
+        out.writeShort(1); // Max stack
+        out.writeShort(1); // Max locals
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0); // Exception table
+        out.writeShort(0); // Attributes
+        // Class attributes
+        out.writeShort(0);
+
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2008, 2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1;
+
+import junit.framework.TestCase;
+import org.jd.core.v1.loader.MappedZipLoader;
+import org.jd.core.v1.loader.ZipLoader;
+import org.jd.core.v1.model.classfile.ClassFile;
+import org.jd.core.v1.model.classfile.attribute.AttributeCode;
+import org.jd.core.v1.printer.PlainTextPrinter;
+import org.jd.core.v1.service.deserializer.classfile.ClassFileDeserializer;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class MappedZipLoaderTest extends TestCase {
+    @Test
+    public void testTestResources() throws Exception {
+        File[] files = new File(getClass().getResource("/zip").toURI()).listFiles();
+
+        assertNotNull(files);
+
+        for (File file : files) {
+            if (file.getName().endsWith(".zip")) {
+                try (InputStream is = new FileInputStream(file); MappedZipLoader mappedLoader = new MappedZipLoader(file, 16)) {
+                    checkEntries(new ZipLoader(is), mappedLoader);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testStoredAndDuplicateEntries() throws Exception {
+        File file = File.createTempFile("jd-core-test-", ".jar");
+
+        try {
+            byte[] data1 = "stored".getBytes("UTF-8");
+            byte[] data2 = "deflated".getBytes("UTF-8");
+
+            try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(file))) {
+                CRC32 crc = new CRC32();
+                crc.update(data1);
+
+                ZipEntry entry = new ZipEntry("a/Stored.class");
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(data1.length);
+                entry.setCrc(crc.getValue());
+                zos.putNextEntry(entry);
+                zos.write(data1);
+
+                zos.putNextEntry(new ZipEntry("a/été.class"));
+                zos.write(data2);
+
+                zos.putNextEntry(new ZipEntry("a/Empty.class"));
+                zos.putNextEntry(new ZipEntry("a/Resource.txt"));
+                zos.write(data2);
+                zos.putNextEntry(new ZipEntry("a/"));
+            }
+
+            try (MappedZipLoader loader = new MappedZipLoader(file)) {
+                assertEquals(3, loader.size());
+                assertEquals(new HashSet<>(Arrays.asList("a/Stored", "a/été", "a/Empty")), new HashSet<>(loader.getInternalNames()));
+
+                assertTrue(Arrays.equals(data1, loader.load("a/Stored")));
+                assertTrue(loader.loadByteBuffer("a/Stored").isDirect());
+                assertTrue(loader.loadByteBuffer("a/Stored").isReadOnly());
+                assertEquals(ByteBuffer.wrap(data2), loader.loadByteBuffer("a/été"));
+                assertTrue(Arrays.equals(data2, loader.load("a/été")));
+                assertEquals(0, loader.load("a/Empty").length);
+
+                assertFalse(loader.canLoad("a/Resource"));
+                assertFalse(loader.canLoad("a/Resource.txt"));
+                assertFalse(loader.canLoad("a/eté"));
+                assertFalse(loader.canLoad("a/Stored.class"));
+                assertNull(loader.load("a/Unknown"));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testCachedCopies() throws Exception {
+        File file = new File(getClass().getResource("/zip/data-java-jdk-1.8.0.zip").toURI());
+        String internalTypeName = "org/jd/core/test/OuterClass";
+
+        try (InputStream is = new FileInputStream(file); MappedZipLoader mappedLoader = new MappedZipLoader(file, 16)) {
+            byte[] expected = new ZipLoader(is).load(internalTypeName);
+
+            // Changes of the returned class files do not change the cache, on a miss and on a hit
+            for (int i=0; i<2; i++) {
+                byte[] data = mappedLoader.load(internalTypeName);
+
+                assertTrue(Arrays.equals(expected, data));
+                Arrays.fill(data, (byte)0);
+            }
+
+            assertTrue(Arrays.equals(expected, mappedLoader.load(internalTypeName)));
+            assertEquals(ByteBuffer.wrap(expected), mappedLoader.loadByteBuffer(internalTypeName));
+        }
+    }
+
+    @Test
+    public void testDecompilation() throws Exception {
+        File file = new File(getClass().getResource("/zip/data-java-jdk-1.8.0.zip").toURI());
+        ClassFileToJavaSourceDecompiler decompiler = new ClassFileToJavaSourceDecompiler();
+
+        try (InputStream is = new FileInputStream(file); MappedZipLoader mappedLoader = new MappedZipLoader(file)) {
+            ZipLoader loader = new ZipLoader(is);
+
+            for (String internalTypeName : mappedLoader.getInternalNames()) {
+                if (internalTypeName.indexOf('$') == -1) {
+                    PlainTextPrinter printer1 = new PlainTextPrinter();
+                    PlainTextPrinter printer2 = new PlainTextPrinter();
+
+                    decompiler.decompile(loader, printer1, internalTypeName);
+                    decompiler.decompile(mappedLoader, printer2, internalTypeName);
+
+                    assertEquals(internalTypeName, printer1.toString(), printer2.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testStoredArchive() throws Exception {
+        File file = new File(getClass().getResource("/zip/data-java-jdk-1.8.0.zip").toURI());
+        File storedFile = File.createTempFile("jd-core-test-", ".jar");
+        ClassFileToJavaSourceDecompiler decompiler = new ClassFileToJavaSourceDecompiler();
+
+        try (InputStream is = new FileInputStream(file)) {
+            ZipLoader loader = new ZipLoader(is);
+
+            try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(storedFile))) {
+                for (Map.Entry<String, byte[]> entry : loader.getMap().entrySet()) {
+                    CRC32 crc = new CRC32();
+                    crc.update(entry.getValue());
+
+                    ZipEntry zipEntry = new ZipEntry(entry.getKey());
+                    zipEntry.setMethod(ZipEntry.STORED);
+                    zipEntry.setSize(entry.getValue().length);
+                    zipEntry.setCrc(crc.getValue());
+                    zos.putNextEntry(zipEntry);
+                    zos.write(entry.getValue());
+                }
+            }
+
+            try (MappedZipLoader mappedLoader = new MappedZipLoader(storedFile)) {
+                // Code attributes are views of the mapped file
+                ClassFile classFile = new ClassFileDeserializer().loadClassFile(mappedLoader, "org/jd/core/test/For");
+                AttributeCode attributeCode = classFile.getMethods()[1].getAttribute("Code");
+
+                assertTrue(attributeCode.getCodeBuffer().isDirect());
+                assertEquals(attributeCode.getCodeLength(), attributeCode.getCode().length);
+                assertEquals(attributeCode.getCodeBuffer(), ByteBuffer.wrap(attributeCode.getCode()));
+
+                for (String internalTypeName : mappedLoader.getInternalNames()) {
+                    if (internalTypeName.indexOf('$') == -1) {
+                        PlainTextPrinter printer1 = new PlainTextPrinter();
+                        PlainTextPrinter printer2 = new PlainTextPrinter();
+
+                        decompiler.decompile(loader, printer1, internalTypeName);
+                        decompiler.decompile(mappedLoader, printer2, internalTypeName);
+
+                        assertEquals(internalTypeName, printer1.toString(), printer2.toString());
+                    }
+                }
+            }
+        } finally {
+            storedFile.delete();
+        }
+    }
+
+    protected void checkEntries(ZipLoader loader, MappedZipLoader mappedLoader) throws Exception {
+        int count = 0;
+
+        for (Map.Entry<String, byte[]> entry : loader.getMap().entrySet()) {
+            String path = entry.getKey();
+
+            if (path.endsWith(".class")) {
+                String internalName = path.substring(0, path.length() - 6); // 6 = ".class".length()
+
+                assertTrue(path, mappedLoader.canLoad(internalName));
+                assertTrue(path, Arrays.equals(entry.getValue(), mappedLoader.load(internalName)));
+                // Cached data
+                assertTrue(path, Arrays.equals(entry.getValue(), mappedLoader.load(internalName)));
+                count++;
+            }
+
+            assertFalse(path, mappedLoader.canLoad(path));
+        }
+
+        assertEquals(count, mappedLoader.size());
+        assertEquals(count, mappedLoader.getInternalNames().size());
+    }
+}
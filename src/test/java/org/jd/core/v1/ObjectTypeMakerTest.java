@@ -8,13 +8,20 @@
 package org.jd.core.v1;
 
 import junit.framework.TestCase;
+import org.jd.core.v1.api.loader.LoaderException;
 import org.jd.core.v1.loader.ClassPathLoader;
+import org.jd.core.v1.loader.JrtLoader;
+import org.jd.core.v1.loader.NopLoader;
 import org.jd.core.v1.loader.ZipLoader;
 import org.jd.core.v1.model.javasyntax.type.ObjectType;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.HierarchyIndex;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.TypeMaker;
 import org.junit.Test;
 
+import java.io.File;
 import java.io.InputStream;
+import java.nio.file.FileSystem;
+import java.util.HashMap;
 
 public class ObjectTypeMakerTest extends TestCase {
 
@@ -197,4 +204,174 @@ public class ObjectTypeMakerTest extends TestCase {
         assertNotNull(child);
         assertFalse(typeMaker.isAssignable(parent, child));
     }
+
+    @Test
+    public void testJrtLoader() throws Exception {
+        JrtLoader loader = JrtLoader.getDefault();
+
+        if (loader != null) {
+            byte[] data = loader.load("java/util/Map$Entry");
+
+            assertTrue(loader.canLoad("java/lang/Thread"));
+            assertTrue(loader.canLoad("java/util/Map$Entry"));
+            assertFalse(loader.canLoad("java/lang/Unknown"));
+            assertFalse(loader.canLoad("org/unknown/Class"));
+            assertFalse(loader.canLoad("Unknown"));
+            assertNull(loader.load("java/lang/Unknown"));
+            assertNotNull(data);
+            assertEquals(0xCAFEBABE, ((data[0] & 0xFF) << 24) | ((data[1] & 0xFF) << 16) | ((data[2] & 0xFF) << 8) | (data[3] & 0xFF));
+        }
+    }
+
+    @Test
+    public void testJrtLoaderClose() throws Exception {
+        JrtLoader defaultLoader = JrtLoader.getDefault();
+
+        if (defaultLoader != null) {
+            // Image of an other runtime: the file system is closed
+            FileSystemJrtLoader loader = new FileSystemJrtLoader(new File(System.getProperty("java.home")));
+            FileSystem fileSystem = loader.getFileSystem();
+
+            assertTrue(loader.canLoad("java/lang/Thread"));
+            assertTrue(fileSystem.isOpen());
+
+            loader.close();
+            loader.close();
+
+            assertFalse(fileSystem.isOpen());
+
+            // Image of the current runtime: the shared file system stays open
+            loader = new FileSystemJrtLoader();
+            loader.close();
+
+            assertTrue(loader.getFileSystem().isOpen());
+            assertTrue(defaultLoader.canLoad("java/lang/Thread"));
+        }
+    }
+
+    protected static class FileSystemJrtLoader extends JrtLoader {
+        public FileSystemJrtLoader() throws LoaderException {}
+
+        public FileSystemJrtLoader(File javaHome) throws LoaderException {
+            super(javaHome);
+        }
+
+        public FileSystem getFileSystem() {
+            return fileSystem;
+        }
+    }
+
+    @Test
+    public void testPlatformLoader() throws Exception {
+        JrtLoader platformLoader = JrtLoader.getDefault();
+
+        if (platformLoader != null) {
+            TypeMaker typeMaker = new TypeMaker(new NopLoader(), platformLoader, TypeMaker.DEFAULT_MAX_CACHE_SIZE);
+            TypeMaker reflectionTypeMaker = new TypeMaker(new NopLoader(), null, TypeMaker.DEFAULT_MAX_CACHE_SIZE);
+
+            for (String internalTypeName : new String[] { "java/lang/Thread", "java/lang/Thread$State", "java/util/Map$Entry", "java/util/AbstractMap$SimpleEntry", "org/unknown/Class$InnerClass" }) {
+                ObjectType ot = typeMaker.makeFromInternalTypeName(internalTypeName);
+                ObjectType expected = reflectionTypeMaker.makeFromInternalTypeName(internalTypeName);
+
+                assertEquals(expected.getInternalName(), ot.getInternalName());
+                assertEquals(expected.getQualifiedName(), ot.getQualifiedName());
+                assertEquals(expected.getName(), ot.getName());
+            }
+
+            assertTrue(typeMaker.isAssignable(typeMaker.makeFromInternalTypeName("java/util/Collection"), typeMaker.makeFromInternalTypeName("java/util/ArrayList")));
+            assertTrue(typeMaker.isAssignable(typeMaker.makeFromInternalTypeName("java/util/Map$Entry"), typeMaker.makeFromInternalTypeName("java/util/AbstractMap$SimpleEntry")));
+            assertFalse(typeMaker.isAssignable(typeMaker.makeFromInternalTypeName("java/util/List"), typeMaker.makeFromInternalTypeName("java/util/HashSet")));
+            assertFalse(typeMaker.isAssignable(typeMaker.makeFromInternalTypeName("java/lang/Class"), typeMaker.makeFromInternalTypeName("org/unknown/Class")));
+        }
+    }
+
+    @Test
+    public void testHierarchyIndex() throws Exception {
+        HashMap<String, String[]> hierarchy = new HashMap<>();
+        int[] providerCallCount = new int[1];
+        int[] predicateCallCount = new int[1];
+
+        hierarchy.put("A", new String[] { null });
+        hierarchy.put("B", new String[] { "A", "I" });
+        hierarchy.put("C", new String[] { "B", "J" });
+        hierarchy.put("I", new String[] { null });
+        hierarchy.put("J", new String[] { null, "I", "Missing" });
+        // Invalid cycle
+        hierarchy.put("X", new String[] { "Y" });
+        hierarchy.put("Y", new String[] { "X" });
+
+        HierarchyIndex index = new HierarchyIndex(
+            name -> { providerCallCount[0]++; return hierarchy.get(name); },
+            (parent, child) -> { predicateCallCount[0]++; return parent.equals("Parent") && child.equals("Missing"); },
+            16);
+
+        assertTrue(index.isAssignable("A", "B"));
+        assertTrue(index.isAssignable("A", "C"));
+        assertTrue(index.isAssignable("I", "C"));
+        assertTrue(index.isAssignable("J", "C"));
+        assertTrue(index.isAssignable("Missing", "C"));
+        assertFalse(index.isAssignable("C", "A"));
+        assertFalse(index.isAssignable("J", "B"));
+        assertTrue(index.isAssignable("X", "Y"));
+        assertTrue(index.isAssignable("Y", "X"));
+
+        // Closures computed once
+        int count = providerCallCount[0];
+
+        for (int i=0; i<10; i++) {
+            assertTrue(index.isAssignable("A", "C"));
+            assertFalse(index.isAssignable("C", "B"));
+        }
+
+        assertEquals(count, providerCallCount[0]);
+
+        // Answers for the types not loaded are memoized
+        predicateCallCount[0] = 0;
+
+        for (int i=0; i<10; i++) {
+            assertTrue(index.isAssignable("Parent", "C"));
+            assertFalse(index.isAssignable("Other", "C"));
+            assertTrue(index.isAssignable("Parent", "Missing"));
+        }
+
+        assertEquals(2, predicateCallCount[0]);
+
+        // Ids dropped with the closures when the number of ids exceeds the limit
+        for (int i=0; i<2000; i++) {
+            hierarchy.put("Type" + i, new String[] { "Super" + i });
+        }
+
+        boolean dropped = false;
+
+        for (int i=0; i<2000; i++) {
+            int idCount = index.getIdCount();
+
+            assertFalse(index.isAssignable("A", "Type" + i));
+            dropped |= (index.getIdCount() < idCount);
+            assertTrue(index.getIdCount() <= 1025);
+        }
+
+        assertTrue(dropped);
+        assertTrue(index.isAssignable("A", "C"));
+        assertTrue(index.isAssignable("Super1999", "Type1999"));
+
+        index.clear();
+
+        assertEquals(0, index.getIdCount());
+        assertTrue(index.isAssignable("A", "C"));
+    }
+
+    @Test
+    public void testIsAssignableWithMissingTypes() throws Exception {
+        InputStream is = this.getClass().getResourceAsStream("/zip/data-java-jdk-1.7.0.zip");
+        ZipLoader loader = new ZipLoader(is);
+        TypeMaker typeMaker = new TypeMaker(loader, null, TypeMaker.DEFAULT_MAX_CACHE_SIZE);
+        ObjectType child = typeMaker.makeFromInternalTypeName("org/jd/core/test/OuterClass$SafeNumberComparator");
+
+        // Types of the JDK found by reflection
+        assertTrue(typeMaker.isAssignable(typeMaker.makeFromInternalTypeName("java/util/Comparator"), child));
+        assertTrue(typeMaker.isAssignable(typeMaker.makeFromInternalTypeName("java/util/Comparator"), child));
+        assertFalse(typeMaker.isAssignable(typeMaker.makeFromInternalTypeName("java/util/List"), child));
+        assertFalse(typeMaker.isAssignable(typeMaker.makeFromInternalTypeName("org/unknown/Class"), child));
+    }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2008, 2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1;
+
+import junit.framework.TestCase;
+import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.loader.ClassPathLoader;
+import org.jd.core.v1.loader.ZipLoader;
+import org.jd.core.v1.model.message.Message;
+import org.jd.core.v1.printer.PlainTextPrinter;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+
+public class OutlineTest extends TestCase {
+    protected static final Map<String, Object> OUTLINE = Collections.singletonMap("outline", "true");
+
+    @Test
+    public void testOutline() throws Exception {
+        try (InputStream is = this.getClass().getResourceAsStream("/zip/data-java-jdk-1.8.0.zip")) {
+            ZipLoader loader = new ZipLoader(is);
+            PlainTextPrinter printer = new PlainTextPrinter();
+            new ClassFileToJavaSourceDecompiler().decompile(loader, printer, "org/jd/core/test/AnonymousClass", OUTLINE);
+            String source = printer.toString();
+
+            printSource(source);
+
+            assertTrue(source.indexOf("public void twoAnonymousClasses() { ... }") != -1);
+            assertTrue(source.indexOf("System.out") == -1);
+            assertTrue(source.indexOf("static {") == -1);
+        }
+    }
+
+    @Test
+    public void testOutlineStaticInitializer() throws Exception {
+        ClassPathLoader loader = new ClassPathLoader();
+        PlainTextPrinter printer = new PlainTextPrinter();
+        new ClassFileToJavaSourceDecompiler().decompile(loader, printer, "org/jd/core/v1/model/classfile/attribute/AttributeName", OUTLINE);
+        String source = printer.toString();
+
+        printSource(source);
+
+        assertTrue(source.indexOf("static { ... }") != -1);
+        assertTrue(source.indexOf("NAME_TO_ATTRIBUTE_NAME.put") == -1);
+    }
+
+    @Test
+    public void testOutlineParity() throws Exception {
+        File[] files = new File(getClass().getResource("/zip").toURI()).listFiles();
+        int count = 0;
+
+        for (File file : files) {
+            try (InputStream is = new FileInputStream(file)) {
+                ZipLoader loader = new ZipLoader(is);
+                OutlineDecompiler decompiler = new OutlineDecompiler();
+
+                for (String path : loader.getMap().keySet()) {
+                    if (path.endsWith(".class") && (path.indexOf('$') == -1)) {
+                        String internalTypeName = path.substring(0, path.length() - 6);
+                        String reference;
+
+                        try {
+                            reference = decompiler.decompileReference(loader, internalTypeName);
+                        } catch (Throwable t) {
+                            // Not decompilable in full mode
+                            continue;
+                        }
+
+                        PlainTextPrinter printer = new PlainTextPrinter();
+
+                        decompiler.decompile(loader, printer, internalTypeName, OUTLINE);
+                        // Same declarations, except the names and the 'final' modifiers of the parameters, inferred from the bodies
+                        assertEquals(file.getName() + ": " + internalTypeName, normalize(reference), normalize(printer.toString()));
+                        count++;
+                    }
+                }
+            }
+        }
+
+        assertTrue(count > 0);
+    }
+
+    protected static String normalize(String source) {
+        StringBuilder sb = new StringBuilder();
+
+        for (String line : source.split("\n")) {
+            if (line.endsWith("{ ... }")) {
+                // Remove the names and the 'final' modifiers of the parameters
+                sb.append(line.replace("final ", "").replaceAll("\\s\\w+(?=[,)])", "")).append('\n');
+            } else if (!line.trim().isEmpty()) {
+                sb.append(line).append('\n');
+            }
+        }
+
+        return sb.toString();
+    }
+
+    protected void printSource(String source) {
+        System.out.println("- - - - - - - - ");
+        System.out.println(source);
+        System.out.println("- - - - - - - - ");
+    }
+
+    /**
+     * Decompiler writing the outline of the complete Java syntax tree: the reference of the outline mode.
+     */
+    protected static class OutlineDecompiler extends ClassFileToJavaSourceDecompiler {
+        public String decompileReference(Loader loader, String internalTypeName) throws Exception {
+            PlainTextPrinter printer = new PlainTextPrinter();
+            Message message = new Message();
+
+            message.setHeader("mainInternalTypeName", internalTypeName);
+            message.setHeader("loader", loader);
+            message.setHeader("printer", printer);
+
+            deserializer.process(message);
+            converter.process(message);
+            message.setHeader("configuration", OUTLINE);
+            fragmenter.process(message);
+            layouter.process(message);
+            tokenizer.process(message);
+            writer.process(message);
+
+            return printer.toString();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2008, 2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1;
+
+import junit.framework.TestCase;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ScratchArena;
+import org.junit.Test;
+
+public class ScratchArenaTest extends TestCase {
+    @Test
+    public void testOutsideOfScope() throws Exception {
+        ScratchArena arena = new ScratchArena();
+        int[] ints = arena.newInts(3);
+
+        assertEquals(3, ints.length);
+        assertNotSame(ints, arena.newInts(3));
+        assertEquals(5, arena.newBooleans(5).length);
+        assertEquals(7, arena.newIntArrays(7).length);
+
+        // Arrays allocated outside of a scope are not returned by 'close'
+        ints[0] = 1;
+        arena.open();
+
+        assertNotSame(ints, arena.newInts(3));
+
+        arena.close();
+
+        assertEquals(1, ints[0]);
+    }
+
+    @Test
+    public void testNestedScopes() throws Exception {
+        ScratchArena arena = new ScratchArena();
+
+        arena.open();
+
+        int[] outer = arena.newInts(4);
+
+        outer[3] = 1;
+        arena.open();
+
+        int[] inner = arena.newInts(4);
+
+        assertNotSame(outer, inner);
+        inner[0] = 2;
+        arena.close();
+
+        // The inner array is returned, the outer one is still borrowed
+        assertEquals(1, outer[3]);
+        arena.open();
+
+        int[] inner2 = arena.newInts(4);
+
+        assertSame(inner, inner2);
+        assertEquals(0, inner2[0]);
+        assertNotSame(outer, arena.newInts(4));
+        arena.close();
+        arena.close();
+
+        // Both arrays are returned
+        arena.open();
+
+        assertSame(outer, arena.newInts(4));
+        assertSame(inner, arena.newInts(4));
+
+        arena.close();
+
+        // Deep nesting
+        for (int i=0; i<20; i++) {
+            arena.open();
+            arena.newInts(1)[0] = i + 1;
+        }
+
+        for (int i=0; i<20; i++) {
+            arena.close();
+        }
+
+        arena.open();
+
+        for (int i=0; i<20; i++) {
+            assertEquals(0, arena.newInts(1)[0]);
+        }
+
+        arena.close();
+    }
+
+    @Test
+    public void testClearOnRelease() throws Exception {
+        ScratchArena arena = new ScratchArena();
+
+        arena.open();
+
+        int[] ints = arena.newInts(8);
+        boolean[] booleans = arena.newBooleans(8);
+        int[][] intArrays = arena.newIntArrays(8);
+
+        for (int i=0; i<8; i++) {
+            ints[i] = i + 1;
+            booleans[i] = true;
+            intArrays[i] = new int[] { i };
+        }
+
+        arena.close();
+
+        for (int i=0; i<8; i++) {
+            assertEquals(0, ints[i]);
+            assertFalse(booleans[i]);
+            assertNull(intArrays[i]);
+        }
+
+        arena.open();
+
+        assertSame(ints, arena.newInts(8));
+        assertSame(booleans, arena.newBooleans(8));
+        assertSame(intArrays, arena.newIntArrays(8));
+
+        arena.close();
+    }
+
+    @Test
+    public void testLongerArrays() throws Exception {
+        ScratchArena arena = new ScratchArena();
+
+        arena.open();
+
+        int[] large = arena.newInts(100);
+
+        large[99] = 1;
+        arena.close();
+        arena.open();
+
+        // A shorter request returns the longer array, cleared
+        int[] small = arena.newInts(10);
+
+        assertSame(large, small);
+        assertEquals(100, small.length);
+
+        for (int value : small) {
+            assertEquals(0, value);
+        }
+
+        arena.close();
+        arena.open();
+
+        // A longer request replaces the array
+        int[] larger = arena.newInts(200);
+
+        assertNotSame(large, larger);
+        assertEquals(200, larger.length);
+        assertNotSame(larger, arena.newInts(200));
+
+        arena.close();
+    }
+
+    @Test
+    public void testPerThread() throws Exception {
+        ScratchArena arena = ScratchArena.get();
+        ScratchArena[] other = new ScratchArena[1];
+        Thread thread = new Thread(() -> other[0] = ScratchArena.get());
+
+        thread.start();
+        thread.join();
+
+        assertSame(arena, ScratchArena.get());
+        assertNotNull(other[0]);
+        assertNotSame(arena, other[0]);
+    }
+}
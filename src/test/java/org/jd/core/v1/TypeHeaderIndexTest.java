@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2008, 2019 Emmanuel Dupuy.
+ * This project is distributed under the GPLv3 license.
+ * This is a Copyleft license that gives the user the right to use,
+ * copy and modify the code freely for non-commercial purposes.
+ */
+
+package org.jd.core.v1;
+
+import junit.framework.TestCase;
+import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.api.loader.LoaderException;
+import org.jd.core.v1.loader.MappedZipLoader;
+import org.jd.core.v1.model.classfile.ClassFile;
+import org.jd.core.v1.model.classfile.attribute.AttributeInnerClasses;
+import org.jd.core.v1.model.classfile.attribute.AttributeSignature;
+import org.jd.core.v1.model.classfile.attribute.InnerClass;
+import org.jd.core.v1.model.javasyntax.type.InnerObjectType;
+import org.jd.core.v1.model.javasyntax.type.ObjectType;
+import org.jd.core.v1.printer.PlainTextPrinter;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.TypeHeader;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.TypeHeaderIndex;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.TypeMaker;
+import org.jd.core.v1.service.deserializer.classfile.ClassFileDeserializer;
+import org.jd.core.v1.service.deserializer.classfile.ClassFileReader;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+public class TypeHeaderIndexTest extends TestCase {
+    @Test
+    public void testTestResources() throws Exception {
+        File directory = Files.createTempDirectory("jd-core-test-").toFile();
+
+        try {
+            for (File file : new File(getClass().getResource("/zip").toURI()).listFiles()) {
+                try (MappedZipLoader loader = new MappedZipLoader(file)) {
+                    TypeHeaderIndex index = TypeHeaderIndex.getOrCreate(loader, directory);
+                    CountingLoader countingLoader = new CountingLoader(loader);
+                    TypeMaker typeMaker = new TypeMaker(loader, null, 1024);
+                    TypeMaker indexedTypeMaker = new TypeMaker(countingLoader, null, index, 1024);
+                    ClassFileDeserializer deserializer = new ClassFileDeserializer();
+
+                    assertTrue(file.getName(), index.size() > 0);
+
+                    for (String internalTypeName : loader.getInternalNames()) {
+                        String outerTypeName = index.getOuterTypeName(internalTypeName);
+
+                        if (!index.contains(internalTypeName) || ((outerTypeName != null) && !index.contains(outerTypeName))) {
+                            // Not indexed, or inner type of a missing type
+                            continue;
+                        }
+
+                        ClassFile classFile = deserializer.loadClassFile(loader, internalTypeName);
+                        String[] superClassAndInterfaceNames = index.getSuperClassAndInterfaceNames(internalTypeName);
+
+                        assertEquals(internalTypeName, classFile.getAccessFlags(), index.getAccessFlags(internalTypeName));
+                        assertEquals(internalTypeName, classFile.getSuperTypeName(), superClassAndInterfaceNames[0]);
+                        assertEquals(internalTypeName, classFile.getInterfaceTypeNames() == null ? 0 : classFile.getInterfaceTypeNames().length, superClassAndInterfaceNames.length - 1);
+
+                        // Same object types, without loading the class files
+                        checkObjectTypes(typeMaker.makeFromInternalTypeName(internalTypeName), indexedTypeMaker.makeFromInternalTypeName(internalTypeName));
+
+                        if (classFile.getSuperTypeName() != null) {
+                            ObjectType superType = indexedTypeMaker.makeFromInternalTypeName(classFile.getSuperTypeName());
+                            assertTrue(internalTypeName, indexedTypeMaker.isAssignable(superType, indexedTypeMaker.makeFromInternalTypeName(internalTypeName)));
+                        }
+
+                        if (outerTypeName != null) {
+                            assertTrue(internalTypeName, Arrays.asList(index.getInnerTypeNames(outerTypeName)).contains(internalTypeName));
+                        }
+                    }
+
+                    assertEquals(file.getName(), 0, countingLoader.loadCount);
+                }
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testTypeHeader() throws Exception {
+        File file = new File(getClass().getResource("/zip/data-java-jdk-1.8.0.zip").toURI());
+
+        try (MappedZipLoader loader = new MappedZipLoader(file)) {
+            ClassFileDeserializer deserializer = new ClassFileDeserializer();
+
+            for (String internalTypeName : loader.getInternalNames()) {
+                ClassFile classFile = deserializer.loadClassFile(loader, internalTypeName);
+                TypeHeader header = TypeHeader.scan(new ClassFileReader(loader.load(internalTypeName)));
+                String[] interfaceTypeNames = classFile.getInterfaceTypeNames();
+                AttributeSignature attributeSignature = classFile.getAttribute("Signature");
+                AttributeInnerClasses attributeInnerClasses = classFile.getAttribute("InnerClasses");
+
+                assertEquals(internalTypeName, header.getInternalTypeName());
+                assertEquals(internalTypeName, classFile.getAccessFlags(), header.getAccessFlags());
+                assertEquals(internalTypeName, classFile.getSuperTypeName(), header.getSuperTypeName());
+                assertEquals(internalTypeName, (interfaceTypeNames == null) ? 0 : interfaceTypeNames.length, header.getSuperClassAndInterfaceNames().length - 1);
+                assertEquals(internalTypeName, (attributeSignature == null) ? null : attributeSignature.getSignature(), header.getSignature());
+
+                if (attributeInnerClasses == null) {
+                    assertEquals(internalTypeName, 0, header.getInnerClassCount());
+                } else {
+                    InnerClass[] innerClasses = attributeInnerClasses.getInnerClasses();
+
+                    assertEquals(internalTypeName, innerClasses.length, header.getInnerClassCount());
+
+                    for (int i=0; i<innerClasses.length; i++) {
+                        assertEquals(internalTypeName, innerClasses[i].getInnerTypeName(), header.getInnerTypeName(i));
+                        assertEquals(internalTypeName, innerClasses[i].getOuterTypeName(), header.getOuterTypeName(i));
+                        assertEquals(internalTypeName, innerClasses[i].getInnerAccessFlags(), header.getInnerAccessFlags(i));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        File directory = Files.createTempDirectory("jd-core-test-").toFile();
+        File file = new File(directory, "archive.zip");
+        File otherFile = new File(getClass().getResource("/zip/data-java-jdk-1.7.0.zip").toURI());
+
+        Files.copy(new File(getClass().getResource("/zip/data-java-jdk-1.8.0.zip").toURI()).toPath(), file.toPath());
+
+        try (MappedZipLoader loader = new MappedZipLoader(file)) {
+            TypeHeaderIndex index1 = TypeHeaderIndex.getOrCreate(loader, directory);
+            File[] indexFiles = directory.listFiles((dir, name) -> name.endsWith(TypeHeaderIndex.FILE_SUFFIX));
+
+            assertEquals(1, indexFiles.length);
+
+            long lastModified = indexFiles[0].lastModified();
+            TypeHeaderIndex index2 = TypeHeaderIndex.getOrCreate(loader, directory);
+
+            // Index file reused
+            assertEquals(lastModified, indexFiles[0].lastModified());
+            assertEquals(1, directory.listFiles((dir, name) -> name.endsWith(TypeHeaderIndex.FILE_SUFFIX)).length);
+            assertEquals(index1.size(), index2.size());
+            assertEquals("org/jd/core/test/AnonymousClass", index2.getOuterTypeName("org/jd/core/test/AnonymousClass$StringWrapper"));
+            assertEquals("java/lang/Object", index2.getSuperClassAndInterfaceNames("org/jd/core/test/AnonymousClass")[0]);
+            assertNull(index2.getSuperClassAndInterfaceNames("org/jd/core/test/Missing"));
+            assertEquals(-1, index2.getAccessFlags("org/jd/core/test/Missing"));
+
+            // Index of an other archive
+            assertNull(TypeHeaderIndex.open(indexFiles[0], otherFile));
+
+            // Same content, other date: the content hash is checked
+            assertTrue(file.setLastModified(file.lastModified() - 60_000));
+            assertNotNull(TypeHeaderIndex.open(indexFiles[0], file));
+
+            // Same length and date: the content is not read again
+            long archiveLastModified = file.lastModified();
+
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.seek(raf.length() - 1);
+                int b = raf.read();
+                raf.seek(raf.length() - 1);
+                raf.write(b ^ 1);
+            }
+
+            assertTrue(file.setLastModified(archiveLastModified));
+            assertNotNull(TypeHeaderIndex.open(indexFiles[0], file));
+
+            // Other content and date
+            assertTrue(file.setLastModified(archiveLastModified - 60_000));
+            assertNull(TypeHeaderIndex.open(indexFiles[0], file));
+
+            // Invalid file
+            try (RandomAccessFile raf = new RandomAccessFile(indexFiles[0], "rw")) {
+                raf.writeInt(0);
+            }
+
+            assertNull(TypeHeaderIndex.open(indexFiles[0], file));
+            assertEquals(index1.size(), TypeHeaderIndex.getOrCreate(loader, directory).size());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testInvalidFiles() throws Exception {
+        File directory = Files.createTempDirectory("jd-core-test-").toFile();
+        File file = new File(getClass().getResource("/zip/data-java-jdk-1.8.0.zip").toURI());
+
+        try (MappedZipLoader loader = new MappedZipLoader(file)) {
+            int size = TypeHeaderIndex.getOrCreate(loader, directory).size();
+            File indexFile = directory.listFiles((dir, name) -> name.endsWith(TypeHeaderIndex.FILE_SUFFIX))[0];
+            byte[] bytes = Files.readAllBytes(indexFile.toPath());
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            // Header: magic, version, archive length and date, archive hash, size, table length
+            int headerLength = 8 + 16 + 32 + 8;
+            int slotOffset = headerLength;
+
+            while (buffer.getInt(slotOffset) == 0) {
+                slotOffset += 4;
+            }
+
+            int record = buffer.getInt(slotOffset);
+
+            // Truncated files
+            for (int length=0; length<bytes.length; length+=(length < headerLength) ? 1 : 97) {
+                Files.write(indexFile.toPath(), Arrays.copyOf(bytes, length));
+                assertNull("length " + length, TypeHeaderIndex.open(indexFile, file));
+            }
+
+            Files.write(indexFile.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+            assertNull(TypeHeaderIndex.open(indexFile, file));
+
+            // Record offset out of the file
+            checkInvalidInt(indexFile, file, bytes, slotOffset, bytes.length);
+
+            // Name offset out of the file, string length out of the file
+            checkInvalidInt(indexFile, file, bytes, record + 4, bytes.length - 2);
+            checkInvalidInt(indexFile, file, bytes, buffer.getInt(record + 4), bytes.length);
+            checkInvalidInt(indexFile, file, bytes, buffer.getInt(record + 4), -1);
+
+            // Size of an other table
+            checkInvalidInt(indexFile, file, bytes, headerLength - 8, size + 1);
+
+            // Rebuilt
+            assertEquals(size, TypeHeaderIndex.getOrCreate(loader, directory).size());
+            assertTrue(Arrays.equals(bytes, Files.readAllBytes(indexFile.toPath())));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    protected static void checkInvalidInt(File indexFile, File archive, byte[] bytes, int offset, int value) throws Exception {
+        byte[] invalidBytes = bytes.clone();
+
+        ByteBuffer.wrap(invalidBytes).putInt(offset, value);
+        Files.write(indexFile.toPath(), invalidBytes);
+
+        assertNull(TypeHeaderIndex.open(indexFile, archive));
+    }
+
+    @Test
+    public void testDecompilation() throws Exception {
+        File directory = Files.createTempDirectory("jd-core-test-").toFile();
+        File file = new File(getClass().getResource("/zip/data-java-jdk-1.8.0.zip").toURI());
+
+        try (MappedZipLoader loader = new MappedZipLoader(file)) {
+            TypeHeaderIndex index = TypeHeaderIndex.getOrCreate(loader, directory);
+            ClassFileToJavaSourceDecompiler decompiler = new ClassFileToJavaSourceDecompiler();
+            DecompilationSession session = new DecompilationSession(loader);
+            DecompilationSession indexedSession = new DecompilationSession(loader, null, index, TypeMaker.DEFAULT_MAX_CACHE_SIZE);
+
+            for (String internalTypeName : loader.getInternalNames()) {
+                if (internalTypeName.indexOf('$') == -1) {
+                    PlainTextPrinter printer = new PlainTextPrinter();
+                    PlainTextPrinter indexedPrinter = new PlainTextPrinter();
+
+                    decompiler.decompile(session, printer, internalTypeName);
+                    decompiler.decompile(indexedSession, indexedPrinter, internalTypeName);
+
+                    assertEquals(internalTypeName, printer.toString(), indexedPrinter.toString());
+                }
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    protected static void checkObjectTypes(ObjectType expected, ObjectType found) {
+        assertEquals(expected.getInternalName(), found.getInternalName());
+        assertEquals(expected.getQualifiedName(), found.getQualifiedName());
+        assertEquals(expected.getName(), found.getName());
+        assertEquals(expected instanceof InnerObjectType, found instanceof InnerObjectType);
+
+        if (expected instanceof InnerObjectType) {
+            checkObjectTypes(((InnerObjectType)expected).getOuterType(), ((InnerObjectType)found).getOuterType());
+        }
+    }
+
+    protected static void delete(File directory) {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+
+        directory.delete();
+    }
+
+    protected static class CountingLoader implements Loader {
+        protected Loader loader;
+        protected int loadCount;
+
+        public CountingLoader(Loader loader) {
+            this.loader = loader;
+        }
+
+        @Override
+        public boolean canLoad(String internalName) {
+            return loader.canLoad(internalName);
+        }
+
+        @Override
+        public byte[] load(String internalName) throws LoaderException {
+            loadCount++;
+            return loader.load(internalName);
+        }
+    }
+}